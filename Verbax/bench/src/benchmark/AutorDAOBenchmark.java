@@ -0,0 +1,16 @@
+// Benchmarks das operações do AutorDAO.
+package benchmark;
+
+import dao.AutorDAO;
+import model.Autor;
+
+/**
+ * Mede as operações do AutorDAO descritas em {@link TabelaReferenciaBenchmark}.
+ */
+public class AutorDAOBenchmark extends TabelaReferenciaBenchmark<Autor> {
+
+    public AutorDAOBenchmark() {
+        super(new AutorDAO(), () -> new Autor(0, BaseDadosBenchmark.PREFIXO_INSERIDOS + "Autor", "PT"),
+                BaseDadosBenchmark::autorAleatorio, Autor::getId, Autor::getNome);
+    }
+}
@@ -0,0 +1,103 @@
+// Estado partilhado pelos benchmarks: base de dados embutida semeada com o número de livros indicado.
+package benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import util.DBConnection;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Prepara uma base de dados H2 (modo embutido da aplicação) com {@link #livros} livros e as tabelas de
+ * referência proporcionais, num ficheiro por tamanho que é reutilizado entre execuções.
+ * <p>
+ * As propriedades verbax.db.* são lidas pelo DBConnection na primeira utilização, pelo que cada tamanho
+ * tem de correr no seu próprio fork (o comportamento por omissão do JMH).
+ * Opções: -Dverbax.bench.dados (pasta dos ficheiros) e -Dverbax.bench.esquema (caminho do verbax.sql).
+ */
+@State(Scope.Benchmark)
+public class BaseDadosBenchmark {
+
+    // Prefixo dos nomes das entidades inseridas pelos benchmarks, apagadas no fim de cada execução.
+    static final String PREFIXO_INSERIDOS = "[bench] ";
+
+    @Param({"1000", "100000", "1000000"})
+    public int livros;
+
+    // Ids existentes em cada tabela, usados para escolher registos ao acaso.
+    private int[] idsLivro;
+    private int[] idsAutor;
+    private int[] idsTema;
+    private int[] idsEditora;
+    private int[] idsLocalizacao;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        Path pasta = Path.of(System.getProperty("verbax.bench.dados", System.getProperty("java.io.tmpdir") + "/verbax-bench"));
+        System.setProperty("verbax.db", "embutido");
+        System.setProperty("verbax.db.ficheiro", pasta.resolve("catalogo_" + livros).toAbsolutePath().toString());
+        System.setProperty("verbax.db.esquema", System.getProperty("verbax.bench.esquema", "verbax.sql"));
+
+        // Uma execução anterior interrompida pode ter deixado registos inseridos pelos benchmarks.
+        limparInseridos();
+        Semeador.semear(livros);
+
+        idsLivro = Semeador.ids("livro");
+        idsAutor = Semeador.ids("autor");
+        idsTema = Semeador.ids("tema");
+        idsEditora = Semeador.ids("editora");
+        idsLocalizacao = Semeador.ids("localizacao");
+        System.out.println("Base de dados pronta: " + idsLivro.length + " livros, " + idsAutor.length + " autores.");
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() throws SQLException {
+        limparInseridos();
+        DBConnection.shutdown();
+    }
+
+    // Ids existentes escolhidos ao acaso, com distribuição uniforme.
+    int livroAleatorio() {
+        return aleatorio(idsLivro);
+    }
+
+    int autorAleatorio() {
+        return aleatorio(idsAutor);
+    }
+
+    int temaAleatorio() {
+        return aleatorio(idsTema);
+    }
+
+    int editoraAleatoria() {
+        return aleatorio(idsEditora);
+    }
+
+    int localizacaoAleatoria() {
+        return aleatorio(idsLocalizacao);
+    }
+
+    private static int aleatorio(int[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    // Apaga os livros com ISBN 979 (só usados pelos benchmarks) e as entidades com o prefixo dos benchmarks.
+    private static void limparInseridos() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM livro WHERE isbn LIKE '979%'");
+            stmt.executeUpdate("DELETE FROM autor WHERE nome LIKE '[bench]%'");
+            stmt.executeUpdate("DELETE FROM tema WHERE nome LIKE '[bench]%'");
+            stmt.executeUpdate("DELETE FROM editora WHERE nome LIKE '[bench]%'");
+            stmt.executeUpdate("DELETE FROM localizacao WHERE setor LIKE '[bench]%'");
+        }
+    }
+}
@@ -0,0 +1,255 @@
+// Teste de carga: várias threads repetem uma mistura de operações do LivroDAO e medem débito e percentis.
+package benchmark;
+
+import dao.LivroDAO;
+import model.Livro;
+import util.HistogramaLatencia;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gerador de carga para o LivroDAO sobre o catálogo sintético da base de dados embutida.
+ * <p>
+ * Cada thread escolhe operações ao acaso segundo os pesos da mistura, sem pausas entre elas (carga fechada),
+ * e regista a duração de cada uma num {@link HistogramaLatencia} por operação. Os livros consultados seguem
+ * uma distribuição de Zipf, como acontece num catálogo real em que poucos títulos concentram os pedidos.
+ * No fim é impressa uma tabela com o número de operações, o débito e os percentis p50, p99 e p99.9.
+ * <p>
+ * Opções (propriedades de sistema):
+ * <ul>
+ *     <li>verbax.carga.livros: tamanho do catálogo (100000);</li>
+ *     <li>verbax.carga.threads: número de threads (8);</li>
+ *     <li>verbax.carga.duracao: segundos de medição (30);</li>
+ *     <li>verbax.carga.aquecimento: segundos de aquecimento, não medidos (5);</li>
+ *     <li>verbax.carga.mistura: pesos das operações, por exemplo "buscarPorId=50,pesquisar=10".</li>
+ * </ul>
+ * As opções verbax.bench.dados e verbax.bench.esquema são as mesmas dos benchmarks JMH.
+ */
+public final class CargaDAO {
+
+    private static final String MISTURA_POR_OMISSAO =
+            "buscarPorId=50,listarPagina=20,pesquisar=10,buscarPorIsbn=10,inserir=5,atualizar=4,excluir=1";
+    private static final int TAMANHO_PAGINA = 50;
+    private static final int LIMITE_PESQUISA = 100;
+
+    // Números dos ISBNs 979 usados nas inserções, únicos entre threads.
+    private static final AtomicLong PROXIMO_ISBN = new AtomicLong();
+
+    /**
+     * Operações da mistura. Os nomes são os dos métodos do LivroDAO.
+     */
+    enum Operacao {
+        buscarPorId, listarPagina, pesquisar, buscarPorIsbn, inserir, atualizar, excluir
+    }
+
+    private final LivroDAO dao = new LivroDAO();
+    private final Map<Operacao, HistogramaLatencia> latencias = new EnumMap<>(Operacao.class);
+    private final Map<Operacao, LongAdder> falhas = new EnumMap<>(Operacao.class);
+
+    // Ids dos livros semeados, por ordem de popularidade (baralhados, para que os mais pedidos não sejam os mais antigos).
+    private final int[] idsLivro;
+    private final GeradorCatalogo.Zipf popularidade;
+    private final int[][] referencias;
+    private final int livros;
+
+    // Operações por ordem e pesos acumulados, para sortear com uma pesquisa linear.
+    private final Operacao[] operacoes;
+    private final int[] pesosAcumulados;
+
+    private CargaDAO(int livros, Map<Operacao, Integer> mistura) throws SQLException {
+        this.livros = livros;
+        this.idsLivro = Semeador.ids("livro");
+        baralhar(idsLivro, new Random(livros));
+        this.popularidade = new GeradorCatalogo.Zipf(idsLivro.length);
+        this.referencias = new int[][]{Semeador.ids("autor"), Semeador.ids("tema"), Semeador.ids("editora"), Semeador.ids("localizacao")};
+
+        operacoes = mistura.keySet().toArray(new Operacao[0]);
+        pesosAcumulados = new int[operacoes.length];
+        int soma = 0;
+        for (int i = 0; i < operacoes.length; i++) {
+            soma += mistura.get(operacoes[i]);
+            pesosAcumulados[i] = soma;
+        }
+        for (Operacao operacao : Operacao.values()) {
+            latencias.put(operacao, new HistogramaLatencia());
+            falhas.put(operacao, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int livros = Integer.getInteger("verbax.carga.livros", 100_000);
+        int threads = Integer.getInteger("verbax.carga.threads", 8);
+        int duracao = Integer.getInteger("verbax.carga.duracao", 30);
+        int aquecimento = Integer.getInteger("verbax.carga.aquecimento", 5);
+        Map<Operacao, Integer> mistura = lerMistura(System.getProperty("verbax.carga.mistura", MISTURA_POR_OMISSAO));
+
+        BaseDadosBenchmark bd = new BaseDadosBenchmark();
+        bd.livros = livros;
+        bd.preparar();
+        try {
+            CargaDAO carga = new CargaDAO(livros, mistura);
+            System.out.printf("Carga: %d threads, %d s de aquecimento, %d s de medição, mistura %s%n",
+                    threads, aquecimento, duracao, mistura);
+            carga.executar(threads, aquecimento, duracao);
+        } finally {
+            bd.terminar();
+        }
+    }
+
+    // Corre as threads durante o aquecimento e a medição e imprime o resultado.
+    private void executar(int threads, int aquecimento, int duracao) throws InterruptedException {
+        long inicioMedicao = System.nanoTime() + aquecimento * 1_000_000_000L;
+        long fim = inicioMedicao + duracao * 1_000_000_000L;
+        CountDownLatch terminadas = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            long semente = livros * 31L + t;
+            Thread thread = new Thread(() -> {
+                try {
+                    trabalhar(semente, inicioMedicao, fim);
+                } finally {
+                    terminadas.countDown();
+                }
+            }, "carga-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        terminadas.await();
+        imprimir(duracao);
+    }
+
+    // Ciclo de uma thread: sorteia e executa operações até ao fim da medição.
+    private void trabalhar(long semente, long inicioMedicao, long fim) {
+        GeradorCatalogo gerador = new GeradorCatalogo(semente);
+        gerador.usarReferencias(referencias[0], referencias[1], referencias[2], referencias[3]);
+        // Livros inseridos por esta thread, os únicos que o excluir apaga.
+        ArrayDeque<Integer> inseridos = new ArrayDeque<>();
+
+        long agora;
+        while ((agora = System.nanoTime()) < fim) {
+            Operacao operacao = sortear();
+            if (operacao == Operacao.excluir && inseridos.isEmpty()) {
+                continue;
+            }
+            boolean sucesso = executarOperacao(operacao, gerador, inseridos);
+            long duracao = System.nanoTime() - agora;
+            if (agora >= inicioMedicao) {
+                latencias.get(operacao).registar(duracao);
+                if (!sucesso) {
+                    falhas.get(operacao).increment();
+                }
+            }
+        }
+    }
+
+    // Método que executa uma operação e indica se o DAO a concluiu com sucesso.
+    private boolean executarOperacao(Operacao operacao, GeradorCatalogo gerador, ArrayDeque<Integer> inseridos) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        switch (operacao) {
+            case buscarPorId:
+                return dao.buscarPorId(livroPopular()) != null;
+            case listarPagina:
+                return dao.listarPagina(livroPopular(), TAMANHO_PAGINA, LivroDAO.Direcao.SEGUINTE) != null;
+            case pesquisar:
+                // Primeira palavra de um título gerado, como quem procura por uma palavra que se lembra.
+                return dao.pesquisar(gerador.titulo().split(" ")[0], LIMITE_PESQUISA) != null;
+            case buscarPorIsbn:
+                return dao.buscarPorIsbn(GeradorCatalogo.isbn(aleatorio.nextInt(livros))) != null;
+            case inserir:
+                Livro novo = gerador.livro(0);
+                novo.setTitulo(BaseDadosBenchmark.PREFIXO_INSERIDOS + novo.getTitulo());
+                novo.setIsbn(Semeador.isbn979(PROXIMO_ISBN.getAndIncrement()));
+                int id = dao.inserir(novo);
+                if (id == 0) {
+                    return false;
+                }
+                inseridos.add(id);
+                return true;
+            case atualizar:
+                Livro livro = dao.buscarPorId(livroPopular());
+                return livro != null && dao.atualizar(livro);
+            case excluir:
+                return dao.excluir(inseridos.poll());
+            default:
+                throw new IllegalStateException("Operação desconhecida: " + operacao);
+        }
+    }
+
+    private Operacao sortear() {
+        int valor = ThreadLocalRandom.current().nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            if (valor < pesosAcumulados[i]) {
+                return operacoes[i];
+            }
+        }
+        return operacoes[operacoes.length - 1];
+    }
+
+    private int livroPopular() {
+        return idsLivro[popularidade.amostra(ThreadLocalRandom.current())];
+    }
+
+    // Imprime uma linha por operação e o total, com as latências em milissegundos.
+    private void imprimir(int duracao) {
+        HistogramaLatencia total = new HistogramaLatencia();
+        long totalFalhas = 0;
+        System.out.printf("%n%-14s %10s %10s %8s %9s %9s %9s %9s%n",
+                "operação", "n", "ops/s", "falhas", "p50 ms", "p99 ms", "p99.9 ms", "máx ms");
+        for (Operacao operacao : operacoes) {
+            HistogramaLatencia h = latencias.get(operacao);
+            long f = falhas.get(operacao).sum();
+            imprimirLinha(operacao.name(), h, f, duracao);
+            total.juntar(h);
+            totalFalhas += f;
+        }
+        imprimirLinha("total", total, totalFalhas, duracao);
+    }
+
+    private static void imprimirLinha(String nome, HistogramaLatencia h, long falhas, int duracao) {
+        System.out.printf("%-14s %10d %10.1f %8d %9.3f %9.3f %9.3f %9.3f%n", nome, h.getTotal(),
+                (double) h.getTotal() / duracao, falhas,
+                h.percentil(50) / 1e6, h.percentil(99) / 1e6, h.percentil(99.9) / 1e6, h.getMaximo() / 1e6);
+    }
+
+    /**
+     * Lê a mistura de operações no formato "operacao=peso,operacao=peso".
+     *
+     * @throws IllegalArgumentException Se uma operação não existir ou um peso não for positivo.
+     */
+    static Map<Operacao, Integer> lerMistura(String texto) {
+        Map<Operacao, Integer> mistura = new EnumMap<>(Operacao.class);
+        for (String parte : texto.split(",")) {
+            String[] par = parte.trim().split("=");
+            if (par.length != 2) {
+                throw new IllegalArgumentException("Elemento da mistura inválido: " + parte);
+            }
+            int peso = Integer.parseInt(par[1].trim());
+            if (peso <= 0) {
+                throw new IllegalArgumentException("O peso de " + par[0] + " tem de ser positivo.");
+            }
+            mistura.put(Operacao.valueOf(par[0].trim()), peso);
+        }
+        if (mistura.isEmpty()) {
+            throw new IllegalArgumentException("A mistura de operações está vazia.");
+        }
+        return mistura;
+    }
+
+    // Baralha o array (Fisher-Yates).
+    private static void baralhar(int[] valores, Random aleatorio) {
+        for (int i = valores.length - 1; i > 0; i--) {
+            int j = aleatorio.nextInt(i + 1);
+            int troca = valores[i];
+            valores[i] = valores[j];
+            valores[j] = troca;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+// Benchmarks das operações do EditoraDAO.
+package benchmark;
+
+import dao.EditoraDAO;
+import model.Editora;
+
+/**
+ * Mede as operações do EditoraDAO descritas em {@link TabelaReferenciaBenchmark}.
+ */
+public class EditoraDAOBenchmark extends TabelaReferenciaBenchmark<Editora> {
+
+    public EditoraDAOBenchmark() {
+        super(new EditoraDAO(), () -> new Editora(0, BaseDadosBenchmark.PREFIXO_INSERIDOS + "Editora", "Porto"),
+                BaseDadosBenchmark::editoraAleatoria, Editora::getId, Editora::getNome);
+    }
+}
@@ -0,0 +1,36 @@
+// Ponto de entrada dos benchmarks da camada DAO.
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Executa os benchmarks com as opções habituais do JMH na linha de comandos, acrescentando sempre o
+ * profiler de GC, que mede a alocação por operação (gc.alloc.rate.norm, em bytes/op).
+ * <p>
+ * Exemplos:
+ * <pre>
+ * java -cp ... benchmark.ExecutarBenchmarks                              (todos os DAOs, 1k/100k/1M livros)
+ * java -cp ... benchmark.ExecutarBenchmarks LivroDAO -p livros=100000    (só o LivroDAO, 100k livros)
+ * java -cp ... benchmark.ExecutarBenchmarks -rf json -rff resultados.json
+ * </pre>
+ * O modo Throughput reporta operações por milissegundo e o modo SampleTime os percentis de latência
+ * (p0.50, p0.90, p0.99, p0.999, ...).
+ */
+public class ExecutarBenchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions linhaComandos = new CommandLineOptions(args);
+        OptionsBuilder opcoes = new OptionsBuilder();
+        opcoes.parent(linhaComandos);
+        if (linhaComandos.getIncludes().isEmpty()) {
+            opcoes.include("benchmark\\..*DAOBenchmark");
+        }
+        opcoes.addProfiler(GCProfiler.class);
+        new Runner(opcoes.build()).run();
+    }
+}
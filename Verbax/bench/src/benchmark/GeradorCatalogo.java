@@ -0,0 +1,250 @@
+// Classe que gera um catálogo sintético realista (autores, temas, editoras, localizações e livros).
+package benchmark;
+
+import model.Autor;
+import model.Editora;
+import model.Livro;
+import model.Localizacao;
+import model.Tema;
+
+import java.time.Year;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Gerador determinístico (para a mesma semente) de dados com a forma de um catálogo real:
+ * <ul>
+ *     <li>nomes de autores e títulos em português, a partir de listas de palavras e modelos de título;</li>
+ *     <li>popularidade desigual: poucos autores, temas e editoras concentram a maioria dos livros
+ *     (distribuição de Zipf), tal como numa biblioteca real;</li>
+ *     <li>anos de publicação concentrados nas últimas décadas;</li>
+ *     <li>ISBN-13 válidos e únicos, com os prefixos de Portugal (978-972) e do Brasil (978-85).</li>
+ * </ul>
+ */
+public class GeradorCatalogo {
+
+    // Expoente de Zipf: com 1,1 o autor mais popular tem cerca de 10 vezes mais livros que o 10.º.
+    private static final double EXPOENTE_ZIPF = 1.1;
+    // Idade média (em anos) dos livros do catálogo.
+    private static final double IDADE_MEDIA = 20;
+    private static final int ANO_MINIMO = 1901;
+
+    private static final String[] NOMES = {
+            "José", "Maria", "João", "Ana", "António", "Sofia", "Manuel", "Inês", "Carlos", "Beatriz",
+            "Luís", "Clarice", "Jorge", "Cecília", "Miguel", "Lídia", "Rui", "Teresa", "Pedro", "Sophia",
+            "Fernando", "Agustina", "Mário", "Florbela", "Raul", "Rachel", "Gonçalo", "Lygia", "Valter", "Hélia"};
+    private static final String[] APELIDOS = {
+            "Silva", "Santos", "Ferreira", "Pereira", "Oliveira", "Costa", "Rodrigues", "Martins", "Sousa", "Fernandes",
+            "Gonçalves", "Gomes", "Lopes", "Marques", "Alves", "Almeida", "Ribeiro", "Pinto", "Carvalho", "Teixeira",
+            "Moreira", "Correia", "Mendes", "Nunes", "Soares", "Vieira", "Monteiro", "Cardoso", "Rocha", "Neves"};
+    // Nacionalidades e o seu peso relativo (em percentagem).
+    private static final String[] NACIONALIDADES = {"PT", "BR", "AO", "MZ", "CV", "ES", "FR", "GB", "US"};
+    private static final int[] PESOS_NACIONALIDADE = {55, 30, 5, 3, 1, 2, 2, 1, 1};
+
+    private static final String[] TEMAS = {
+            "Romance", "Poesia", "Conto", "Ficção científica", "Fantasia", "Terror", "Policial", "Biografia",
+            "História", "Ensaio", "Teatro", "Infantojuvenil", "Banda desenhada", "Viagens", "Filosofia", "Ciência",
+            "Culinária", "Arte", "Religião", "Autoajuda", "Economia", "Direito", "Psicologia", "Educação",
+            "Desporto", "Música", "Fotografia", "Tecnologia", "Saúde", "Humor", "Crónica", "Aventura",
+            "Drama", "Mistério", "Distopia", "Clássicos", "Política", "Sociologia", "Natureza", "Línguas"};
+
+    private static final String[] EDITORAS = {
+            "Porto Editora", "Leya", "Bertrand", "Presença", "Relógio d'Água", "Tinta-da-China", "Assírio & Alvim",
+            "Caminho", "Dom Quixote", "Gradiva", "Asa", "Quetzal", "Companhia das Letras", "Record", "Rocco",
+            "Objetiva", "Cotovia", "Livros do Brasil", "Almedina", "Europa-América"};
+    private static final String[] CIDADES = {
+            "Lisboa", "Porto", "Coimbra", "Braga", "São Paulo", "Rio de Janeiro", "Luanda", "Maputo"};
+
+    private static final String[] SETORES = {
+            "Literatura portuguesa", "Literatura brasileira", "Literatura africana", "Literatura estrangeira",
+            "Poesia", "Infantil", "Juvenil", "Ciências", "Humanidades", "Artes", "Referência", "Periódicos"};
+
+    // Substantivos com o artigo, para concordar com as contrações "do"/"da".
+    private static final String[] SUBSTANTIVOS = {
+            "o mar", "a casa", "o silêncio", "a cidade", "o rio", "a noite", "o jardim", "a memória", "o tempo",
+            "a viagem", "o segredo", "a ilha", "o caminho", "a sombra", "o livro", "a estrela", "o vento", "a terra",
+            "o sonho", "a guerra", "o amor", "a luz", "o deserto", "a montanha", "o regresso", "a herança",
+            "o labirinto", "a promessa", "o espelho", "a carta"};
+    // Adjetivos com a mesma forma no masculino e no feminino.
+    private static final String[] ADJETIVOS = {
+            "triste", "grande", "breve", "azul", "feliz", "imortal", "invisível", "selvagem", "doce", "livre",
+            "verde", "inocente", "distante", "impossível", "frágil"};
+    private static final String[] LUGARES = {
+            "Lisboa", "Coimbra", "Sintra", "Alfama", "Trás-os-Montes", "Olinda", "Luanda", "Macau", "Goa",
+            "Açores", "Bahia", "Minas", "Évora", "Porto", "Madeira", "Recife"};
+
+    private final Random aleatorio;
+    private final int anoAtual = Year.now().getValue();
+
+    // Ids das entidades de referência e a distribuição de popularidade usada para as escolher.
+    private int[] idsAutor;
+    private int[] idsTema;
+    private int[] idsEditora;
+    private int[] idsLocalizacao;
+    private Zipf zipfAutor;
+    private Zipf zipfTema;
+    private Zipf zipfEditora;
+
+    /**
+     * Número de registos de cada tabela para um catálogo com o número de livros indicado.
+     */
+    public record Escala(int livros, int autores, int temas, int editoras, int localizacoes) {
+        public static Escala paraLivros(int livros) {
+            return new Escala(livros,
+                    Math.max(10, livros / 20),
+                    TEMAS.length,
+                    Math.max(EDITORAS.length, livros / 1000),
+                    Math.max(SETORES.length * 4, livros / 500));
+        }
+    }
+
+    public GeradorCatalogo(long semente) {
+        this.aleatorio = new Random(semente);
+    }
+
+    // Método que gera o autor com o número indicado.
+    public Autor autor(int numero) {
+        String nome = NOMES[aleatorio.nextInt(NOMES.length)] + " " + APELIDOS[aleatorio.nextInt(APELIDOS.length)];
+        if (aleatorio.nextBoolean()) {
+            nome += " " + APELIDOS[aleatorio.nextInt(APELIDOS.length)];
+        }
+        return new Autor(0, nome, NACIONALIDADES[escolherPorPeso(PESOS_NACIONALIDADE)]);
+    }
+
+    // Método que gera o tema com o número indicado (os primeiros são temas reais; os restantes, variantes numeradas).
+    public Tema tema(int numero) {
+        String nome = TEMAS[numero % TEMAS.length];
+        return new Tema(0, numero < TEMAS.length ? nome : nome + " " + (numero / TEMAS.length + 1));
+    }
+
+    // Método que gera a editora com o número indicado.
+    public Editora editora(int numero) {
+        String nome = numero < EDITORAS.length
+                ? EDITORAS[numero]
+                : "Edições " + APELIDOS[numero % APELIDOS.length] + " " + (numero / APELIDOS.length);
+        return new Editora(0, nome, CIDADES[aleatorio.nextInt(CIDADES.length)]);
+    }
+
+    // Método que gera a localização com o número indicado (setor e prateleira, por exemplo "Poesia", "3B").
+    public Localizacao localizacao(int numero) {
+        int prateleira = numero / SETORES.length;
+        return new Localizacao(0, SETORES[numero % SETORES.length], (prateleira / 6 + 1) + String.valueOf((char) ('A' + prateleira % 6)));
+    }
+
+    /**
+     * Define as entidades de referência existentes, a que os livros gerados a seguir ficam associados.
+     * A ordem dos ids define a popularidade: o primeiro autor é o que tem mais livros.
+     */
+    public void usarReferencias(int[] idsAutor, int[] idsTema, int[] idsEditora, int[] idsLocalizacao) {
+        this.idsAutor = idsAutor;
+        this.idsTema = idsTema;
+        this.idsEditora = idsEditora;
+        this.idsLocalizacao = idsLocalizacao;
+        this.zipfAutor = new Zipf(idsAutor.length);
+        this.zipfTema = new Zipf(idsTema.length);
+        this.zipfEditora = new Zipf(idsEditora.length);
+    }
+
+    /**
+     * Gera o livro com o número indicado. O número define o ISBN, pelo que números diferentes dão ISBNs diferentes.
+     *
+     * @param numero Número sequencial do livro no catálogo (a partir de 0).
+     * @return Um livro por inserir, associado às referências definidas em {@link #usarReferencias}.
+     */
+    public Livro livro(int numero) {
+        if (idsAutor == null) {
+            throw new IllegalStateException("Defina as referências com usarReferencias antes de gerar livros.");
+        }
+        int idade = (int) (-Math.log(1 - aleatorio.nextDouble()) * IDADE_MEDIA);
+        return new Livro(0, titulo(), Math.max(ANO_MINIMO, anoAtual - idade), isbn(numero),
+                new Autor(idsAutor[zipfAutor.amostra(aleatorio)], null, null),
+                new Tema(idsTema[zipfTema.amostra(aleatorio)], null),
+                new Editora(idsEditora[zipfEditora.amostra(aleatorio)], null, null),
+                new Localizacao(idsLocalizacao[aleatorio.nextInt(idsLocalizacao.length)], null, null));
+    }
+
+    // Método que gera um título a partir de um dos modelos.
+    public String titulo() {
+        String substantivo = SUBSTANTIVOS[aleatorio.nextInt(SUBSTANTIVOS.length)];
+        return switch (aleatorio.nextInt(7)) {
+            case 0 -> maiuscula(substantivo) + " " + ADJETIVOS[aleatorio.nextInt(ADJETIVOS.length)];
+            case 1 -> maiuscula(substantivo) + " de " + LUGARES[aleatorio.nextInt(LUGARES.length)];
+            case 2 -> "Memórias de " + NOMES[aleatorio.nextInt(NOMES.length)];
+            case 3 -> maiuscula(substantivo) + " e " + SUBSTANTIVOS[aleatorio.nextInt(SUBSTANTIVOS.length)];
+            case 4 -> maiuscula(substantivo) + " " + contracao(SUBSTANTIVOS[aleatorio.nextInt(SUBSTANTIVOS.length)]);
+            case 5 -> "Os dias de " + LUGARES[aleatorio.nextInt(LUGARES.length)];
+            default -> "Crónica " + contracao(substantivo);
+        };
+    }
+
+    /**
+     * ISBN-13 válido do livro com o número indicado: os primeiros 1 000 000 com o prefixo português 978-972,
+     * os 10 000 000 seguintes com o prefixo brasileiro 978-85. O prefixo 979 fica livre para os benchmarks.
+     */
+    public static String isbn(long numero) {
+        String semControlo;
+        if (numero < 1_000_000) {
+            semControlo = "978972" + String.format("%06d", numero);
+        } else if (numero < 11_000_000) {
+            semControlo = "97885" + String.format("%07d", numero - 1_000_000);
+        } else {
+            throw new IllegalArgumentException("Número de livro fora do espaço de ISBNs do gerador: " + numero);
+        }
+        return semControlo + digitoControlo(semControlo);
+    }
+
+    // Dígito de controlo do ISBN-13 calculado a partir dos 12 primeiros dígitos.
+    static int digitoControlo(String doze) {
+        int soma = 0;
+        for (int i = 0; i < 12; i++) {
+            int valor = doze.charAt(i) - '0';
+            soma += (i % 2 == 0) ? valor : valor * 3;
+        }
+        return (10 - soma % 10) % 10;
+    }
+
+    private int escolherPorPeso(int[] pesos) {
+        int total = Arrays.stream(pesos).sum();
+        int sorteio = aleatorio.nextInt(total);
+        for (int i = 0; i < pesos.length; i++) {
+            sorteio -= pesos[i];
+            if (sorteio < 0) {
+                return i;
+            }
+        }
+        return pesos.length - 1;
+    }
+
+    // "o mar" → "O mar"
+    private static String maiuscula(String texto) {
+        return Character.toUpperCase(texto.charAt(0)) + texto.substring(1);
+    }
+
+    // "o mar" → "do mar", "a casa" → "da casa"
+    private static String contracao(String substantivo) {
+        return "d" + substantivo;
+    }
+
+    /**
+     * Distribuição de Zipf sobre as posições 0..n-1: a posição k tem probabilidade proporcional a 1/(k+1)^s.
+     * As probabilidades acumuladas são calculadas uma vez e cada amostra é uma pesquisa binária.
+     */
+    static final class Zipf {
+        private final double[] acumulada;
+
+        Zipf(int n) {
+            acumulada = new double[n];
+            double soma = 0;
+            for (int k = 0; k < n; k++) {
+                soma += 1.0 / Math.pow(k + 1, EXPOENTE_ZIPF);
+                acumulada[k] = soma;
+            }
+        }
+
+        int amostra(Random aleatorio) {
+            double alvo = aleatorio.nextDouble() * acumulada[acumulada.length - 1];
+            int posicao = Arrays.binarySearch(acumulada, alvo);
+            return Math.min(posicao >= 0 ? posicao : -posicao - 1, acumulada.length - 1);
+        }
+    }
+}
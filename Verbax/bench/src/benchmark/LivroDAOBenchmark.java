@@ -0,0 +1,120 @@
+// Benchmarks das operações do LivroDAO.
+package benchmark;
+
+import dao.LivroDAO;
+import model.Autor;
+import model.Editora;
+import model.Livro;
+import model.Localizacao;
+import model.Tema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mede inserir, listarTodos, buscarPorId, atualizar e excluir do LivroDAO, tal como a aplicação os usa
+ * (com o pool de ligações, as caches e os índices em memória).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class LivroDAOBenchmark {
+
+    // Números dos ISBNs 979 usados nas inserções, únicos entre threads.
+    private static final AtomicLong PROXIMO_ISBN = new AtomicLong();
+
+    private final LivroDAO dao = new LivroDAO();
+
+    // Base de dados semeada, partilhada por todas as threads.
+    private BaseDadosBenchmark bd;
+
+    @Setup(Level.Trial)
+    public void preparar(BaseDadosBenchmark bd) {
+        this.bd = bd;
+    }
+
+    /**
+     * Livros existentes, lidos antes de cada iteração, que o benchmark atualizar regrava.
+     */
+    @State(Scope.Thread)
+    public static class Amostra {
+        private List<Livro> livros;
+        private int proximo;
+
+        @Setup(Level.Iteration)
+        public void ler(BaseDadosBenchmark bd) {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                ids.add(bd.livroAleatorio());
+            }
+            livros = new LivroDAO().buscarPorIds(ids);
+        }
+
+        Livro proximo() {
+            return livros.get(proximo++ % livros.size());
+        }
+    }
+
+    /**
+     * Livro inserido antes de cada invocação do benchmark excluir, fora da medição.
+     */
+    @State(Scope.Thread)
+    public static class LivroParaExcluir {
+        private int id;
+
+        @Setup(Level.Invocation)
+        public void inserir(BaseDadosBenchmark bd) {
+            id = new LivroDAO().inserir(novoLivro(bd));
+        }
+    }
+
+    @Benchmark
+    public int inserir() {
+        return dao.inserir(novoLivro(bd));
+    }
+
+    @Benchmark
+    public List<Livro> listarTodos() {
+        return dao.listarTodos();
+    }
+
+    @Benchmark
+    public Livro buscarPorId() {
+        return dao.buscarPorId(bd.livroAleatorio());
+    }
+
+    @Benchmark
+    public boolean atualizar(Amostra amostra) {
+        return dao.atualizar(amostra.proximo());
+    }
+
+    @Benchmark
+    public boolean excluir(LivroParaExcluir livro) {
+        return dao.excluir(livro.id);
+    }
+
+    private static Livro novoLivro(BaseDadosBenchmark bd) {
+        return new Livro(0, BaseDadosBenchmark.PREFIXO_INSERIDOS + "Livro", 2024,
+                Semeador.isbn979(PROXIMO_ISBN.getAndIncrement()),
+                new Autor(bd.autorAleatorio(), null, null),
+                new Tema(bd.temaAleatorio(), null),
+                new Editora(bd.editoraAleatoria(), null, null),
+                new Localizacao(bd.localizacaoAleatoria(), null, null));
+    }
+}
@@ -0,0 +1,16 @@
+// Benchmarks das operações do LocalizacaoDAO.
+package benchmark;
+
+import dao.LocalizacaoDAO;
+import model.Localizacao;
+
+/**
+ * Mede as operações do LocalizacaoDAO descritas em {@link TabelaReferenciaBenchmark}.
+ */
+public class LocalizacaoDAOBenchmark extends TabelaReferenciaBenchmark<Localizacao> {
+
+    public LocalizacaoDAOBenchmark() {
+        super(new LocalizacaoDAO(), () -> new Localizacao(0, BaseDadosBenchmark.PREFIXO_INSERIDOS + "Setor", "1A"),
+                BaseDadosBenchmark::localizacaoAleatoria, Localizacao::getId, Localizacao::getSetor);
+    }
+}
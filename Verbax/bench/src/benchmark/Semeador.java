@@ -0,0 +1,141 @@
+// Classe que preenche a base de dados dos benchmarks até ao número de livros pedido.
+package benchmark;
+
+import dao.AutorDAO;
+import dao.EditoraDAO;
+import dao.IndiceIsbn;
+import dao.LivroDAO;
+import dao.LocalizacaoDAO;
+import dao.TemaDAO;
+import model.Autor;
+import model.Editora;
+import model.Livro;
+import model.Localizacao;
+import model.Tema;
+import util.DBConnection;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Semeia as tabelas com um catálogo sintético ({@link GeradorCatalogo}) através dos métodos inserirEmLote dos DAOs.
+ * Só acrescenta o que falta, pelo que uma base de dados já semeada é reutilizada sem custo.
+ */
+final class Semeador {
+
+    // Número de livros inseridos por chamada a inserirEmLote.
+    private static final int LIVROS_POR_LOTE = 10_000;
+
+    private Semeador() {
+    }
+
+    /**
+     * Acrescenta livros (e as entidades de referência proporcionais) até a tabela livro ter o total indicado.
+     *
+     * @param livros O número de livros pretendido.
+     */
+    static void semear(int livros) throws SQLException {
+        GeradorCatalogo.Escala escala = GeradorCatalogo.Escala.paraLivros(livros);
+        // A semente depende do tamanho, para que o mesmo tamanho dê sempre o mesmo catálogo.
+        GeradorCatalogo gerador = new GeradorCatalogo(livros);
+
+        semearTabela("autor", escala.autores(), (i, n) -> {
+            List<Autor> lista = new ArrayList<>();
+            for (int k = i; k < n; k++) {
+                lista.add(gerador.autor(k));
+            }
+            new AutorDAO().inserirEmLote(lista);
+        });
+        semearTabela("tema", escala.temas(), (i, n) -> {
+            List<Tema> lista = new ArrayList<>();
+            for (int k = i; k < n; k++) {
+                lista.add(gerador.tema(k));
+            }
+            new TemaDAO().inserirEmLote(lista);
+        });
+        semearTabela("editora", escala.editoras(), (i, n) -> {
+            List<Editora> lista = new ArrayList<>();
+            for (int k = i; k < n; k++) {
+                lista.add(gerador.editora(k));
+            }
+            new EditoraDAO().inserirEmLote(lista);
+        });
+        semearTabela("localizacao", escala.localizacoes(), (i, n) -> {
+            List<Localizacao> lista = new ArrayList<>();
+            for (int k = i; k < n; k++) {
+                lista.add(gerador.localizacao(k));
+            }
+            new LocalizacaoDAO().inserirEmLote(lista);
+        });
+
+        int existentes = contar("livro");
+        if (existentes >= livros) {
+            return;
+        }
+        gerador.usarReferencias(ids("autor"), ids("tema"), ids("editora"), ids("localizacao"));
+        LivroDAO livroDAO = new LivroDAO();
+        long inicio = System.nanoTime();
+
+        for (int i = existentes; i < livros; i += LIVROS_POR_LOTE) {
+            int fim = Math.min(livros, i + LIVROS_POR_LOTE);
+            List<Livro> lote = new ArrayList<>(fim - i);
+            for (int k = i; k < fim; k++) {
+                lote.add(gerador.livro(k));
+            }
+            livroDAO.inserirEmLote(lote);
+            System.out.printf("Semeados %d de %d livros (%.1f s)%n", fim, livros, (System.nanoTime() - inicio) / 1e9);
+        }
+        // O índice de ISBNs foi carregado durante a sementeira; os benchmarks começam sem ele.
+        IndiceIsbn.getInstancia().invalidar();
+    }
+
+    /**
+     * Devolve um ISBN-13 válido com prefixo 979, único para cada número. O gerador de catálogo usa
+     * apenas o prefixo 978, pelo que estes ISBNs identificam os livros inseridos pelos benchmarks.
+     *
+     * @param numero Número sequencial, de 0 a 999 999 999.
+     */
+    static String isbn979(long numero) {
+        String semControlo = "979" + String.format("%09d", numero);
+        return semControlo + GeradorCatalogo.digitoControlo(semControlo);
+    }
+
+    // Insere os registos em falta, numerados a partir do número de registos já existentes.
+    private static void semearTabela(String tabela, int total, Insercao insercao) throws SQLException {
+        int existentes = contar(tabela);
+        if (existentes < total) {
+            insercao.inserir(existentes, total);
+        }
+    }
+
+    private static int contar(String tabela) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + tabela)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // Ids existentes na tabela, por ordem crescente.
+    static int[] ids(String tabela) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM " + tabela + " ORDER BY id")) {
+            List<Integer> lista = new ArrayList<>();
+            while (rs.next()) {
+                lista.add(rs.getInt(1));
+            }
+            return lista.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Insercao {
+        void inserir(int primeiro, int total);
+    }
+}
@@ -0,0 +1,126 @@
+// Benchmarks comuns aos DAOs das tabelas de referência (autor, tema, editora e localização).
+package benchmark;
+
+import dao.TabelaReferenciaDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Mede inserir, listarTodos, buscarPorId, sugerir, atualizar e excluir de um DAO de tabela de referência. Como cada
+ * escrita invalida a cache da tabela, listarTodos e buscarPorId medem sobretudo a cache e inserir, atualizar e excluir
+ * a base de dados.
+ * <p>
+ * Cada subclasse indica o DAO, como criar uma entidade nova e como escolher um id existente ao acaso.
+ *
+ * @param <T> O tipo da entidade da tabela.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public abstract class TabelaReferenciaBenchmark<T> {
+
+    private final TabelaReferenciaDAO<T> dao;
+    // Cria uma entidade nova, ainda sem id, com o nome marcado com o prefixo dos registos inseridos.
+    private final Supplier<T> criar;
+    // Escolhe ao acaso o id de uma entidade semeada.
+    private final ToIntFunction<BaseDadosBenchmark> idAleatorio;
+    private final ToIntFunction<T> extrairId;
+    // Texto pelo qual a entidade é sugerida (o nome, ou o setor das localizações).
+    private final Function<T, String> extrairTexto;
+
+    // Base de dados semeada, partilhada por todas as threads.
+    private BaseDadosBenchmark bd;
+
+    protected TabelaReferenciaBenchmark(TabelaReferenciaDAO<T> dao, Supplier<T> criar,
+                                        ToIntFunction<BaseDadosBenchmark> idAleatorio,
+                                        ToIntFunction<T> extrairId, Function<T, String> extrairTexto) {
+        this.dao = dao;
+        this.criar = criar;
+        this.idAleatorio = idAleatorio;
+        this.extrairId = extrairId;
+        this.extrairTexto = extrairTexto;
+    }
+
+    @Setup(Level.Trial)
+    public void preparar(BaseDadosBenchmark bd) {
+        this.bd = bd;
+        ParaExcluir.INSERIR.set(this::inserirParaExcluir);
+    }
+
+    /**
+     * Entidade inserida antes de cada invocação do benchmark excluir, fora da medição.
+     * <p>
+     * O JMH só instancia estados concretos, pelo que este estado não conhece o tipo da entidade: usa a
+     * inserção registada em {@link #preparar} pelo benchmark da mesma thread (ambos os estados são por thread).
+     */
+    @State(Scope.Thread)
+    public static class ParaExcluir {
+        private static final ThreadLocal<IntSupplier> INSERIR = new ThreadLocal<>();
+
+        private int id;
+
+        @Setup(Level.Invocation)
+        public void inserir() {
+            id = INSERIR.get().getAsInt();
+        }
+    }
+
+    // Insere uma entidade nova pela inserção em lote, que devolve o id gerado no próprio objeto.
+    private int inserirParaExcluir() {
+        T entidade = criar.get();
+        dao.inserirEmLote(List.of(entidade));
+        return extrairId.applyAsInt(entidade);
+    }
+
+    @Benchmark
+    public boolean inserir() {
+        return dao.inserir(criar.get());
+    }
+
+    @Benchmark
+    public List<T> listarTodos() {
+        return dao.listarTodos();
+    }
+
+    @Benchmark
+    public T buscarPorId() {
+        return dao.buscarPorId(idAleatorio.applyAsInt(bd));
+    }
+
+    @Benchmark
+    public List<T> sugerir() {
+        T entidade = dao.buscarPorId(idAleatorio.applyAsInt(bd));
+        String texto = entidade == null ? "" : extrairTexto.apply(entidade);
+        return dao.sugerir(texto.substring(0, Math.min(3, texto.length())), 20);
+    }
+
+    @Benchmark
+    public boolean atualizar() {
+        T entidade = dao.buscarPorId(idAleatorio.applyAsInt(bd));
+        return entidade != null && dao.atualizar(entidade);
+    }
+
+    @Benchmark
+    public boolean excluir(ParaExcluir entidade) {
+        return dao.excluir(entidade.id);
+    }
+}
@@ -0,0 +1,16 @@
+// Benchmarks das operações do TemaDAO.
+package benchmark;
+
+import dao.TemaDAO;
+import model.Tema;
+
+/**
+ * Mede as operações do TemaDAO descritas em {@link TabelaReferenciaBenchmark}.
+ */
+public class TemaDAOBenchmark extends TabelaReferenciaBenchmark<Tema> {
+
+    public TemaDAOBenchmark() {
+        super(new TemaDAO(), () -> new Tema(0, BaseDadosBenchmark.PREFIXO_INSERIDOS + "Tema"),
+                BaseDadosBenchmark::temaAleatorio, Tema::getId, Tema::getNome);
+    }
+}
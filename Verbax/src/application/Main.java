@@ -7,6 +7,7 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import instantaneo.InstantaneoCatalogo; // Importa a classe InstantaneoCatalogo para gravar o instantâneo do catálogo ao fechar
 import util.DBConnection; // Importa a classe DBConnection para eventual gestão de recursos ao fechar a aplicação
 
 import java.net.URL; // Importa a classe URL para auxiliar na localização do ficheiro FXML
@@ -70,6 +71,10 @@ public class Main extends Application {
     public void stop() throws Exception {
         // Regista no console que a aplicação está a ser encerrada.
         System.out.println("Aplicação a fechar.");
+        // Conclui a gravação pendente do instantâneo local do catálogo, com tempo limite, para o próximo arranque ser imediato.
+        InstantaneoCatalogo.terminar();
+        // Fecha as ligações mantidas pelo pool de ligações.
+        DBConnection.shutdown();
         // Chama o método stop da classe pai para finalizar a aplicação corretamente.
         super.stop();
     }
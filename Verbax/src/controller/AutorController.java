@@ -1,5 +1,6 @@
 package controller; // Define o pacote onde se encontra o controlador
 
+import dao.AsyncDAO;
 import dao.AutorDAO;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -9,6 +10,8 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import model.Autor;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,8 +37,8 @@ public class AutorController {
     @FXML
     private TableColumn<Autor, String> colAutorNacionalidade; // Coluna da tabela para exibir a nacionalidade
 
-    // Instância do DAO para efetuar operações na base de dados
-    private final AutorDAO autorDAO = new AutorDAO();
+    // DAO dos autores, executado em threads virtuais para não bloquear a interface
+    private final AsyncDAO<AutorDAO> autorDAO = new AsyncDAO<>(new AutorDAO());
     // Lista observável que armazena os autores para atualizar a TableView dinamicamente
     private final ObservableList<Autor> listaAutores = FXCollections.observableArrayList();
     // Logger para registar eventos e erros
@@ -68,7 +71,9 @@ public class AutorController {
      * Carrega todos os registos de autores da base de dados e atualiza a lista observável.
      */
     private void carregarAutores() {
-        listaAutores.setAll(autorDAO.listarTodos());
+        FxAsync.naInterface(autorDAO.executar(AutorDAO::listarTodos),
+                listaAutores::setAll,
+                erro -> mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao carregar autores: " + erro.getMessage()));
     }
 
     /**
@@ -107,13 +112,15 @@ public class AutorController {
         autor.setNacionalidade(nacionalidade);
 
         // Tenta inserir o autor na base de dados e apresenta uma mensagem de sucesso ou erro
-        if (autorDAO.inserir(autor)) {
-            mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Autor salvo com sucesso.");
-            limparCampos();
-            carregarAutores();
-        } else {
-            mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao salvar autor.");
-        }
+        executarEmSegundoPlano(autorDAO.executar(dao -> dao.inserir(autor)), inserido -> {
+            if (inserido) {
+                mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Autor salvo com sucesso.");
+                limparCampos();
+                carregarAutores();
+            } else {
+                mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao salvar autor.");
+            }
+        });
     }
 
     /**
@@ -139,13 +146,15 @@ public class AutorController {
             Autor autor = new Autor(id, nome, nacionalidade);
 
             // Tenta atualizar o autor na base de dados e apresenta a mensagem correspondente
-            if (autorDAO.atualizar(autor)) {
-                mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Autor atualizado com sucesso.");
-                limparCampos();
-                carregarAutores();
-            } else {
-                mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao atualizar autor.");
-            }
+            executarEmSegundoPlano(autorDAO.executar(dao -> dao.atualizar(autor)), atualizado -> {
+                if (atualizado) {
+                    mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Autor atualizado com sucesso.");
+                    limparCampos();
+                    carregarAutores();
+                } else {
+                    mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao atualizar autor.");
+                }
+            });
         } catch (NumberFormatException e) {
             // Regista o erro se o ID não for um número válido
             logger.log(Level.SEVERE, "ID inválido para atualização: " + idStr, e);
@@ -172,13 +181,15 @@ public class AutorController {
             int id = Integer.parseInt(idStr);
 
             // Tenta excluir o autor e apresenta a mensagem de resultado
-            if (autorDAO.excluir(id)) {
-                mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Autor excluído com sucesso.");
-                limparCampos();
-                carregarAutores();
-            } else {
-                mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao excluir autor.");
-            }
+            executarEmSegundoPlano(autorDAO.executar(dao -> dao.excluir(id)), excluido -> {
+                if (excluido) {
+                    mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Autor excluído com sucesso.");
+                    limparCampos();
+                    carregarAutores();
+                } else {
+                    mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao excluir autor.");
+                }
+            });
         } catch (NumberFormatException e) {
             // Regista e trata o erro se o ID não for numérico
             logger.log(Level.SEVERE, "ID inválido para exclusão: " + idStr, e);
@@ -204,16 +215,17 @@ public class AutorController {
                 // Converte o ID para inteiro
                 int id = Integer.parseInt(idStr);
                 // Procura o autor na base de dados
-                Autor autor = autorDAO.buscarPorId(id);
-                if (autor != null) {
-                    // Se encontrado, preenche os campos com os dados do autor
-                    txtAutorId.setText(String.valueOf(autor.getId()));
-                    txtAutorNome.setText(autor.getNome());
-                    txtAutorNacionalidade.setText(autor.getNacionalidade());
-                } else {
-                    // Caso não seja encontrado, informa o utilizador
-                    mostrarAlerta(Alert.AlertType.INFORMATION, "Resultado", "Autor não encontrado.");
-                }
+                executarEmSegundoPlano(autorDAO.executar(dao -> dao.buscarPorId(id)), autor -> {
+                    if (autor != null) {
+                        // Se encontrado, preenche os campos com os dados do autor
+                        txtAutorId.setText(String.valueOf(autor.getId()));
+                        txtAutorNome.setText(autor.getNome());
+                        txtAutorNacionalidade.setText(autor.getNacionalidade());
+                    } else {
+                        // Caso não seja encontrado, informa o utilizador
+                        mostrarAlerta(Alert.AlertType.INFORMATION, "Resultado", "Autor não encontrado.");
+                    }
+                });
             } catch (NumberFormatException e) {
                 // Regista o erro se o ID for inválido
                 logger.log(Level.WARNING, "ID inválido na busca: " + idStr, e);
@@ -255,4 +267,16 @@ public class AutorController {
         alert.setContentText(mensagem);
         alert.showAndWait();
     }
+
+    /**
+     * Regista o tratamento do resultado de uma operação assíncrona do DAO na thread JavaFX.
+     * Se a comunicação com a base de dados falhar, mostra um alerta de erro.
+     *
+     * @param tarefa     A operação em curso.
+     * @param aoConcluir Ação executada com o resultado da operação.
+     */
+    private <T> void executarEmSegundoPlano(CompletableFuture<T> tarefa, Consumer<T> aoConcluir) {
+        FxAsync.naInterface(tarefa, aoConcluir,
+                erro -> mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao comunicar com a base de dados: " + erro.getMessage()));
+    }
 }
@@ -0,0 +1,313 @@
+package controller;
+
+import javafx.animation.PauseTransition;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.ComboBoxBase;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.skin.ComboBoxListViewSkin;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.util.Duration;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Carregamento por páginas dos itens de uma ComboBox ligada a uma tabela auxiliar (autores, temas...).
+ * <p>
+ * Os itens só são pedidos à base de dados quando a ComboBox é aberta ou recebe o foco, e apenas uma
+ * página de cada vez: as seguintes são pedidas quando a lista aberta se aproxima do fim, tal como na
+ * tabela de livros. A lista da ComboBox é virtualizada (só as linhas visíveis têm células), pelo que a
+ * memória e o tempo de arranque deixam de depender do tamanho da tabela.
+ * <p>
+ * Com a lista aberta, as teclas escritas formam um filtro (Backspace apaga, Escape limpa). Se houver
+ * uma fonte de sugestões (a árvore de prefixos do DAO), a lista mostra logo a cada tecla as primeiras
+ * correspondências, sem distinguir acentos; senão o filtro é aplicado na base de dados, pouco depois da
+ * última tecla. O filtro é descartado quando a lista fecha. O valor da ComboBox não precisa de estar
+ * entre os itens carregados, pelo que um livro selecionado na tabela é mostrado sem carregar nada.
+ *
+ * @param <T> O tipo dos itens.
+ */
+final class ComboBoxPaginada<T> {
+
+    /**
+     * Origem das páginas de itens, ordenadas por id.
+     */
+    @FunctionalInterface
+    interface Fonte<T> {
+        /**
+         * @param filtro     O texto a procurar (vazio para todos).
+         * @param depoisDoId O id do último item da página anterior, ou null para a primeira página.
+         * @param tamanho    O número máximo de itens.
+         * @return A operação que devolve a página.
+         */
+        CompletableFuture<List<T>> pagina(String filtro, Integer depoisDoId, int tamanho);
+    }
+
+    /**
+     * Origem das sugestões para o texto escrito, já ordenadas e limitadas (sem páginas seguintes).
+     */
+    @FunctionalInterface
+    interface Sugestoes<T> {
+        /**
+         * @param texto  O texto escrito (não vazio).
+         * @param limite O número máximo de sugestões.
+         * @return A operação que devolve as sugestões.
+         */
+        CompletableFuture<List<T>> procurar(String texto, int limite);
+    }
+
+    /**
+     * Executa a operação da base de dados e entrega o resultado (ou a falha, depois de a mostrar) na thread JavaFX.
+     */
+    @FunctionalInterface
+    interface Execucao<T> {
+        void executar(CompletableFuture<List<T>> tarefa, Consumer<List<T>> aoChegar, Consumer<Throwable> aoFalhar);
+    }
+
+    // Número de itens pedidos em cada página.
+    private static final int TAMANHO_PAGINA = 200;
+    // Número de sugestões mostradas para o texto escrito.
+    private static final int LIMITE_SUGESTOES = 50;
+
+    private final ComboBox<T> combo;
+    private final Fonte<T> fonte;
+    // Pode ser null: o filtro é então aplicado às páginas da fonte.
+    private final Sugestoes<T> sugestoes;
+    private final ToIntFunction<T> id;
+    // Executa a operação da base de dados e entrega o resultado na thread JavaFX (com indicador e mensagem de erro).
+    private final Execucao<T> executor;
+
+    // Lista mantida pela ComboBox; recebe as páginas à medida que chegam.
+    private final ObservableList<T> itens = FXCollections.observableArrayList();
+    private final Label semResultados = new Label();
+    // Espera após a última tecla antes de filtrar, para não consultar a base de dados a cada carácter.
+    private final PauseTransition atrasoFiltro = new PauseTransition(Duration.millis(250));
+    private final StringBuilder filtro = new StringBuilder();
+
+    // Estado da paginação: filtro das páginas carregadas, último id e se a primeira página já foi pedida.
+    private String filtroCarregado = "";
+    private Integer ultimoId;
+    private boolean carregada;
+    private boolean fimDaTabela;
+    private boolean paginaEmCarregamento;
+    // Incrementado a cada recarga, para descartar páginas pedidas antes dela.
+    private int geracao;
+    private boolean scrollLigado;
+
+    ComboBoxPaginada(ComboBox<T> combo, Fonte<T> fonte, ToIntFunction<T> id,
+                     Execucao<T> executor) {
+        this(combo, fonte, null, id, executor);
+    }
+
+    ComboBoxPaginada(ComboBox<T> combo, Fonte<T> fonte, Sugestoes<T> sugestoes, ToIntFunction<T> id,
+                     Execucao<T> executor) {
+        this.combo = combo;
+        this.fonte = fonte;
+        this.sugestoes = sugestoes;
+        this.id = id;
+        this.executor = executor;
+
+        combo.setItems(itens);
+        combo.setButtonCell(new CelulaValor());
+        atrasoFiltro.setOnFinished(event -> recarregar());
+
+        combo.focusedProperty().addListener((obs, antes, agora) -> {
+            if (agora) {
+                carregarSeNecessario();
+            }
+        });
+        combo.addEventHandler(ComboBoxBase.ON_SHOWING, event -> carregarSeNecessario());
+        combo.addEventHandler(ComboBoxBase.ON_SHOWN, event -> ligarScroll());
+        combo.addEventHandler(ComboBoxBase.ON_HIDDEN, event -> limparFiltro());
+        combo.addEventFilter(KeyEvent.KEY_PRESSED, this::teclaPremida);
+        combo.addEventFilter(KeyEvent.KEY_TYPED, this::teclaEscrita);
+    }
+
+    /**
+     * Descarta os itens carregados, para que sejam pedidos de novo na próxima abertura (por exemplo,
+     * depois de a tabela ter sido alterada noutra janela). O valor atual mantém-se.
+     */
+    void invalidar() {
+        geracao++;
+        carregada = false;
+        paginaEmCarregamento = false;
+        if (combo.isShowing() || combo.isFocused()) {
+            recarregar();
+        } else {
+            substituirItens(List.of());
+        }
+    }
+
+    // Pede a primeira página se ainda não tiver sido pedida.
+    private void carregarSeNecessario() {
+        if (!carregada) {
+            recarregar();
+        }
+    }
+
+    // Esvazia a lista e pede a primeira página com o filtro atual.
+    private void recarregar() {
+        geracao++;
+        carregada = true;
+        filtroCarregado = filtro.toString();
+        ultimoId = null;
+        fimDaTabela = false;
+        paginaEmCarregamento = false;
+        // As sugestões anteriores ficam visíveis até chegarem as novas, para a lista não piscar a cada tecla
+        if (sugestoes == null || filtroCarregado.isEmpty()) {
+            substituirItens(List.of());
+        }
+        semResultados.setText(filtroCarregado.isEmpty() ? "A carregar..." : "A procurar \"" + filtroCarregado + "\"...");
+        carregarPaginaSeguinte();
+    }
+
+    private void carregarPaginaSeguinte() {
+        if (paginaEmCarregamento || fimDaTabela) {
+            return;
+        }
+        paginaEmCarregamento = true;
+        int geracaoPedido = geracao;
+        // As sugestões vêm numa só página; com menos itens que uma página completa não há seguinte.
+        boolean sugerir = sugestoes != null && !filtroCarregado.isEmpty();
+        CompletableFuture<List<T>> pedido = sugerir
+                ? sugestoes.procurar(filtroCarregado, LIMITE_SUGESTOES)
+                : fonte.pagina(filtroCarregado, ultimoId, TAMANHO_PAGINA);
+        executor.executar(pedido, pagina -> {
+            // Ignora páginas pedidas antes de uma recarga
+            if (geracaoPedido != geracao) {
+                return;
+            }
+            paginaEmCarregamento = false;
+            if (!pagina.isEmpty()) {
+                ultimoId = id.applyAsInt(pagina.get(pagina.size() - 1));
+            }
+            fimDaTabela = sugerir || pagina.size() < TAMANHO_PAGINA;
+            if (sugerir) {
+                substituirItens(pagina);
+            } else {
+                itens.addAll(pagina);
+            }
+            semResultados.setText(filtroCarregado.isEmpty() ? "Sem registos" : "Sem resultados para \"" + filtroCarregado + "\"");
+        }, erro -> {
+            // A lista volta a ser pedida no próximo foco ou abertura (e a página seguinte no próximo scroll)
+            if (geracaoPedido == geracao) {
+                paginaEmCarregamento = false;
+                carregada = false;
+                semResultados.setText("Erro ao carregar");
+            }
+        });
+    }
+
+    // Substitui os itens sem perder o valor escolhido, que pode não estar na nova lista.
+    private void substituirItens(List<T> novos) {
+        T valor = combo.getValue();
+        itens.setAll(novos);
+        if (combo.getValue() != valor) {
+            combo.setValue(valor);
+        }
+    }
+
+    // Liga, na primeira abertura, a paginação ao scroll da lista (que só existe depois de a ComboBox ter sido aberta).
+    private void ligarScroll() {
+        if (scrollLigado || !(combo.getSkin() instanceof ComboBoxListViewSkin<?> skin)
+                || !(skin.getPopupContent() instanceof ListView<?> lista)) {
+            return;
+        }
+        scrollLigado = true;
+        lista.setPlaceholder(semResultados);
+        lista.addEventFilter(KeyEvent.KEY_PRESSED, this::teclaPremida);
+        lista.addEventFilter(KeyEvent.KEY_TYPED, this::teclaEscrita);
+        for (Node no : lista.lookupAll(".scroll-bar")) {
+            if (no instanceof ScrollBar barra && barra.getOrientation() == Orientation.VERTICAL) {
+                barra.valueProperty().addListener((o, valorAntigo, valorNovo) -> {
+                    if (valorNovo.doubleValue() >= barra.getMax() * 0.95) {
+                        carregarPaginaSeguinte();
+                    }
+                });
+            }
+        }
+    }
+
+    // Acrescenta ao filtro os caracteres escritos com a lista aberta.
+    private void teclaEscrita(KeyEvent event) {
+        String caracter = event.getCharacter();
+        if (!combo.isShowing() || caracter.isEmpty() || Character.isISOControl(caracter.charAt(0))
+                || event.isControlDown() || event.isAltDown() || event.isMetaDown()
+                || (caracter.isBlank() && filtro.isEmpty())) {
+            return;
+        }
+        filtro.append(caracter);
+        filtroAlterado();
+        event.consume();
+    }
+
+    // Backspace apaga o último carácter do filtro e Escape limpa-o (fechando a lista se já estiver vazio).
+    private void teclaPremida(KeyEvent event) {
+        if (!combo.isShowing() || filtro.isEmpty()) {
+            return;
+        }
+        if (event.getCode() == KeyCode.BACK_SPACE) {
+            filtro.setLength(filtro.length() - 1);
+        } else if (event.getCode() == KeyCode.ESCAPE) {
+            filtro.setLength(0);
+        } else {
+            return;
+        }
+        filtroAlterado();
+        event.consume();
+    }
+
+    private void filtroAlterado() {
+        ((CelulaValor) combo.getButtonCell()).mostrar();
+        if (sugestoes != null && !filtro.isEmpty()) {
+            // As sugestões vêm da memória: são pedidas a cada tecla, descartando as respostas antigas
+            atrasoFiltro.stop();
+            recarregar();
+        } else {
+            atrasoFiltro.playFromStart();
+        }
+    }
+
+    // Ao fechar a lista o filtro é descartado; a lista sem filtro é pedida de novo na próxima abertura.
+    private void limparFiltro() {
+        atrasoFiltro.stop();
+        if (filtro.isEmpty() && filtroCarregado.isEmpty()) {
+            return;
+        }
+        filtro.setLength(0);
+        ((CelulaValor) combo.getButtonCell()).mostrar();
+        geracao++;
+        carregada = false;
+        paginaEmCarregamento = false;
+        substituirItens(List.of());
+    }
+
+    // Célula do botão da ComboBox: mostra o filtro enquanto se escreve e o valor escolhido no resto do tempo.
+    private final class CelulaValor extends ListCell<T> {
+        @Override
+        protected void updateItem(T item, boolean empty) {
+            super.updateItem(item, empty);
+            mostrar();
+        }
+
+        void mostrar() {
+            if (!filtro.isEmpty()) {
+                setText("🔎 " + filtro);
+            } else if (isEmpty() || getItem() == null) {
+                setText(combo.getPromptText());
+            } else {
+                setText(combo.getConverter().toString(getItem()));
+            }
+        }
+    }
+}
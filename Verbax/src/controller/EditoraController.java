@@ -1,5 +1,6 @@
 package controller;
 
+import dao.AsyncDAO;
 import dao.EditoraDAO;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -8,6 +9,9 @@ import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
 import model.Editora;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 /**
  * Classe controlador para a gestão de Editoras.
  * Responsável por apresentar, inserir, atualizar, excluir e procurar editoras na interface.
@@ -31,8 +35,8 @@ public class EditoraController {
     @FXML
     private TableColumn<Editora, String> colEditoraCidade;     // Coluna para exibir a cidade
 
-    // Instância do DAO que efetua operações na base de dados
-    private final EditoraDAO editoraDAO = new EditoraDAO();
+    // DAO das editoras, executado em threads virtuais para não bloquear a interface
+    private final AsyncDAO<EditoraDAO> editoraDAO = new AsyncDAO<>(new EditoraDAO());
     // Lista observável que mantém as editoras e sincroniza a tabela automaticamente
     private final ObservableList<Editora> listaEditoras = FXCollections.observableArrayList();
 
@@ -43,6 +47,7 @@ public class EditoraController {
     @FXML
     private void initialize() {
         configurarColunasTabela();
+        tblEditoras.setItems(listaEditoras);
         carregarEditoras();
         // Define o evento de clique na tabela para selecionar uma editora
         tblEditoras.setOnMouseClicked(this::selecionarEditoraDaTabela);
@@ -61,8 +66,9 @@ public class EditoraController {
      * Carrega todas as editoras da base de dados e atualiza a lista observável.
      */
     private void carregarEditoras() {
-        listaEditoras.setAll(editoraDAO.listarTodos());
-        tblEditoras.setItems(listaEditoras);
+        FxAsync.naInterface(editoraDAO.executar(EditoraDAO::listarTodos),
+                listaEditoras::setAll,
+                erro -> mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao carregar editoras: " + erro.getMessage()));
     }
 
     /**
@@ -76,13 +82,15 @@ public class EditoraController {
         // Cria uma nova instância de Editora com ID 0 (novo registo) e os dados introduzidos
         Editora novaEditora = new Editora(0, txtEditoraNome.getText(), txtEditoraCidade.getText());
 
-        if (editoraDAO.inserir(novaEditora)) {
-            mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Editora salva com sucesso.");
-            limparCampos();
-            carregarEditoras();
-        } else {
-            mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao salvar editora.");
-        }
+        executarEmSegundoPlano(editoraDAO.executar(dao -> dao.inserir(novaEditora)), inserida -> {
+            if (inserida) {
+                mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Editora salva com sucesso.");
+                limparCampos();
+                carregarEditoras();
+            } else {
+                mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao salvar editora.");
+            }
+        });
     }
 
     /**
@@ -102,13 +110,15 @@ public class EditoraController {
             int id = Integer.parseInt(txtEditoraId.getText());
             Editora editora = new Editora(id, txtEditoraNome.getText(), txtEditoraCidade.getText());
 
-            if (editoraDAO.atualizar(editora)) {
-                mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Editora atualizada com sucesso.");
-                limparCampos();
-                carregarEditoras();
-            } else {
-                mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao atualizar editora.");
-            }
+            executarEmSegundoPlano(editoraDAO.executar(dao -> dao.atualizar(editora)), atualizada -> {
+                if (atualizada) {
+                    mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Editora atualizada com sucesso.");
+                    limparCampos();
+                    carregarEditoras();
+                } else {
+                    mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao atualizar editora.");
+                }
+            });
         } catch (NumberFormatException e) {
             mostrarAlerta(Alert.AlertType.ERROR, "Erro", "ID inválido.");
         }
@@ -129,13 +139,15 @@ public class EditoraController {
             confirmacao.showAndWait();
 
             if (confirmacao.getResult() == ButtonType.YES) {
-                if (editoraDAO.excluir(id)) {
-                    mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Editora excluída com sucesso.");
-                    limparCampos();
-                    carregarEditoras();
-                } else {
-                    mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao excluir editora.");
-                }
+                executarEmSegundoPlano(editoraDAO.executar(dao -> dao.excluir(id)), excluida -> {
+                    if (excluida) {
+                        mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Editora excluída com sucesso.");
+                        limparCampos();
+                        carregarEditoras();
+                    } else {
+                        mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao excluir editora.");
+                    }
+                });
             }
 
         } catch (NumberFormatException e) {
@@ -151,14 +163,14 @@ public class EditoraController {
     private void handleBuscarEditoraPorId() {
         try {
             int id = Integer.parseInt(txtEditoraId.getText());
-            Editora editora = editoraDAO.buscarPorId(id);
-
-            if (editora != null) {
-                txtEditoraNome.setText(editora.getNome());
-                txtEditoraCidade.setText(editora.getCidade());
-            } else {
-                mostrarAlerta(Alert.AlertType.WARNING, "Aviso", "Editora não encontrada.");
-            }
+            executarEmSegundoPlano(editoraDAO.executar(dao -> dao.buscarPorId(id)), editora -> {
+                if (editora != null) {
+                    txtEditoraNome.setText(editora.getNome());
+                    txtEditoraCidade.setText(editora.getCidade());
+                } else {
+                    mostrarAlerta(Alert.AlertType.WARNING, "Aviso", "Editora não encontrada.");
+                }
+            });
         } catch (NumberFormatException e) {
             mostrarAlerta(Alert.AlertType.ERROR, "Erro", "ID inválido.");
         }
@@ -228,4 +240,16 @@ public class EditoraController {
             txtEditoraCidade.setText(selecionada.getCidade());
         }
     }
+
+    /**
+     * Regista o tratamento do resultado de uma operação assíncrona do DAO na thread JavaFX.
+     * Se a comunicação com a base de dados falhar, mostra um alerta de erro.
+     *
+     * @param tarefa     A operação em curso.
+     * @param aoConcluir Ação executada com o resultado da operação.
+     */
+    private <T> void executarEmSegundoPlano(CompletableFuture<T> tarefa, Consumer<T> aoConcluir) {
+        FxAsync.naInterface(tarefa, aoConcluir,
+                erro -> mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao comunicar com a base de dados: " + erro.getMessage()));
+    }
 }
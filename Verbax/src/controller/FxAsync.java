@@ -0,0 +1,35 @@
+package controller;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Utilitário que entrega o resultado de uma operação assíncrona na thread da aplicação JavaFX,
+ * onde é seguro alterar os componentes da interface.
+ */
+final class FxAsync {
+
+    private FxAsync() {
+    }
+
+    /**
+     * Regista as ações a executar na thread JavaFX quando a tarefa terminar.
+     *
+     * @param tarefa  A operação em curso.
+     * @param sucesso Ação executada com o resultado, se a operação terminar normalmente.
+     * @param erro    Ação executada com a causa da falha, se a operação terminar com exceção.
+     */
+    static <T> void naInterface(CompletableFuture<T> tarefa, Consumer<T> sucesso, Consumer<Throwable> erro) {
+        tarefa.whenComplete((resultado, excecao) -> Platform.runLater(() -> {
+            if (excecao == null) {
+                sucesso.accept(resultado);
+            } else {
+                erro.accept(excecao instanceof CompletionException && excecao.getCause() != null
+                        ? excecao.getCause() : excecao);
+            }
+        }));
+    }
+}
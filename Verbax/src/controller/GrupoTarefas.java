@@ -0,0 +1,93 @@
+package controller;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Grupo de operações assíncronas lançadas em conjunto (por exemplo, as cargas iniciais de uma janela),
+ * com um prazo comum a todas.
+ * <p>
+ * Cada resultado é entregue na thread JavaFX assim que chega, independentemente das outras operações,
+ * pelo que o tempo até a janela estar completa é o da operação mais lenta e não a soma de todas.
+ * As falhas e as operações que não terminaram dentro do prazo são reunidas e entregues de uma só vez
+ * em {@link #aoTerminar(Consumer)}, em vez de uma mensagem por operação. Uma operação que termine
+ * depois do prazo continua a ser entregue, pois o prazo serve apenas para avisar o utilizador.
+ */
+final class GrupoTarefas {
+
+    // Instante (System.nanoTime) em que termina o prazo do grupo.
+    private final long limiteNanos;
+    // Chamado com +1 quando uma operação começa e -1 quando termina, para o indicador de carregamento.
+    private final IntConsumer alterarPendentes;
+    // Uma etapa por operação, concluída quando a operação termina ou o prazo esgota.
+    private final List<CompletableFuture<Void>> vigiadas = new ArrayList<>();
+    // Nome da operação → causa da falha, pela ordem em que as falhas ocorreram.
+    private final Map<String, Throwable> falhas = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    GrupoTarefas(long prazoMs, IntConsumer alterarPendentes) {
+        this.limiteNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(prazoMs);
+        this.alterarPendentes = alterarPendentes;
+    }
+
+    /**
+     * Junta uma operação já lançada ao grupo. Deve ser chamado na thread JavaFX.
+     *
+     * @param nome     O nome usado na mensagem de erro (por exemplo, "autores").
+     * @param tarefa   A operação em curso.
+     * @param aoChegar Ação executada na thread JavaFX com o resultado.
+     * @param aoFalhar Ação executada na thread JavaFX se a operação falhar (pode ser null).
+     */
+    <T> void adicionar(String nome, CompletableFuture<T> tarefa, Consumer<T> aoChegar, Consumer<Throwable> aoFalhar) {
+        alterarPendentes.accept(1);
+        FxAsync.naInterface(tarefa, resultado -> {
+            alterarPendentes.accept(-1);
+            aoChegar.accept(resultado);
+        }, erro -> {
+            alterarPendentes.accept(-1);
+            if (aoFalhar != null) {
+                aoFalhar.accept(erro);
+            }
+        });
+
+        // O prazo aplica-se a uma cópia, para não concluir com erro a própria operação.
+        long restante = Math.max(0, limiteNanos - System.nanoTime());
+        vigiadas.add(tarefa.copy().orTimeout(restante, TimeUnit.NANOSECONDS).handle((resultado, erro) -> {
+            if (erro != null) {
+                falhas.put(nome, erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro);
+            }
+            return null;
+        }));
+    }
+
+    <T> void adicionar(String nome, CompletableFuture<T> tarefa, Consumer<T> aoChegar) {
+        adicionar(nome, tarefa, aoChegar, null);
+    }
+
+    /**
+     * Regista a ação a executar na thread JavaFX quando todas as operações tiverem terminado ou o prazo
+     * tiver esgotado.
+     *
+     * @param acao Recebe as falhas por nome da operação (vazio se todas terminaram a tempo); as
+     *             operações fora do prazo têm uma {@link java.util.concurrent.TimeoutException}.
+     */
+    void aoTerminar(Consumer<Map<String, Throwable>> acao) {
+        CompletableFuture.allOf(vigiadas.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((nada, erro) -> Platform.runLater(() -> {
+                    Map<String, Throwable> copia;
+                    synchronized (falhas) {
+                        copia = new LinkedHashMap<>(falhas);
+                    }
+                    acao.accept(copia);
+                }));
+    }
+}
@@ -1,32 +1,63 @@
 package controller;
 
 // Importações necessárias para a aplicação JavaFX
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import javafx.util.StringConverter;
 import model.*;
 import dao.*;
+import exportacao.ExportadorCatalogo;
+import importacao.ImportadorCsv;
+import importacao.ResultadoImportacao;
+import instantaneo.AssinaturaCatalogo;
+import instantaneo.InstantaneoCatalogo;
+import util.Isbn;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import javafx.scene.control.TableCell;
 
@@ -60,6 +91,38 @@ public class LivroController implements Initializable {
     private Button btnLivroLimpar;
     @FXML
     private Button btnLivroBuscar;
+    @FXML
+    private Button btnLivroBuscarIsbn;
+    @FXML
+    private Button btnLivroImportar;
+    @FXML
+    private Button btnLivroExportar;
+
+    // Campo de pesquisa por título, autor, tema ou editora
+    @FXML
+    private TextField txtPesquisa;
+
+    // Filtros da tabela, aplicados pela base de dados
+    @FXML
+    private TextField txtFiltroTitulo;
+    @FXML
+    private TextField txtFiltroAnoDe;
+    @FXML
+    private TextField txtFiltroAnoAte;
+    @FXML
+    private ComboBox<Autor> cmbFiltroAutor;
+    @FXML
+    private ComboBox<Tema> cmbFiltroTema;
+    @FXML
+    private ComboBox<Editora> cmbFiltroEditora;
+    @FXML
+    private ComboBox<Localizacao> cmbFiltroLocalizacao;
+    @FXML
+    private Button btnLimparFiltros;
+
+    // Indicador apresentado enquanto existem operações da base de dados em curso
+    @FXML
+    private ProgressIndicator indCarregamento;
 
     // Botões para abrir janelas de gestão de entidades relacionadas
     @FXML
@@ -91,29 +154,80 @@ public class LivroController implements Initializable {
     @FXML
     private TableColumn<Livro, Localizacao> colLivroLocalizacao;
 
-    // DAOs para acesso à base de dados
-    private LivroDAO livroDAO;
-    private AutorDAO autorDAO;
-    private TemaDAO temaDAO;
-    private EditoraDAO editoraDAO;
-    private LocalizacaoDAO localizacaoDAO;
+    // DAOs para acesso à base de dados, executados fora da thread da interface
+    private AsyncDAO<LivroDAO> livroDAO;
+    private AsyncDAO<AutorDAO> autorDAO;
+    private AsyncDAO<TemaDAO> temaDAO;
+    private AsyncDAO<EditoraDAO> editoraDAO;
+    private AsyncDAO<LocalizacaoDAO> localizacaoDAO;
 
-    // Listas observáveis para alimentar a interface
+    // Mapa de identidade partilhado pelas páginas da tabela: livros do mesmo autor, tema, editora
+    // ou localização referenciam a mesma instância, mesmo quando vêm de páginas diferentes
+    private final MapaIdentidade mapaIdentidade = new MapaIdentidade();
+
+    // Instantâneo local do catálogo que serve a tabela enquanto a base de dados não é
+    // consultada; null depois de reconciliado com a base de dados (ou se não existir)
+    private InstantaneoCatalogo instantaneo;
+
+    // Número de operações assíncronas ainda por concluir
+    private int operacoesPendentes;
+
+    // Prazo das cargas feitas no arranque (primeira página), após o qual o utilizador é avisado
+    private static final long PRAZO_CARGA_MS = Long.getLong("verbax.arranque.prazoMs", 15_000L);
+
+    // Número de livros pedidos à base de dados em cada página da tabela
+    private static final int TAMANHO_PAGINA = 100;
+    // Ordenação e filtros com que as páginas são pedidas à base de dados
+    private ConsultaLivros consulta = new ConsultaLivros();
+    // Coluna de ordenação da consulta correspondente a cada coluna da tabela
+    private final Map<TableColumn<Livro, ?>, ConsultaLivros.Ordem> ordemPorColuna = new HashMap<>();
+    // Espera após a última alteração dos filtros antes de recarregar a tabela
+    private final PauseTransition atrasoFiltros = new PauseTransition(Duration.millis(400));
+    // Estado da paginação por chave da tabela de livros
+    private Livro ultimoLivroCarregado;
+    private boolean fimDaTabela;
+    private boolean paginaEmCarregamento;
+    // Incrementado a cada recarga, para descartar páginas pedidas antes dela
+    private int geracaoPaginacao;
+
+    // Intervalo entre consultas das alterações feitas noutros postos (0 desliga a sincronização)
+    private static final long INTERVALO_SINCRONIZACAO_MS = Long.getLong("verbax.sincronizacao.intervaloMs", 5_000L);
+    // Número máximo de alterações aplicadas de uma vez; acima disso a tabela é recarregada
+    private static final int LIMITE_ALTERACOES = 500;
+    // Marca da última consulta de alterações (null enquanto não for obtida da base de dados)
+    private Timestamp marcaAlteracoes;
+    private boolean sincronizacaoEmCurso;
+    // Verdadeiro enquanto as alterações de outros postos são aplicadas, para não substituir o formulário
+    private boolean aplicandoAlteracoes;
+
+    // Número máximo de resultados apresentados por uma pesquisa
+    private static final int LIMITE_PESQUISA = 500;
+    // Espera após a última tecla antes de pesquisar, para não pesquisar a cada carácter
+    private final PauseTransition atrasoPesquisa = new PauseTransition(Duration.millis(250));
+
+    // Lista observável que alimenta a tabela
     private ObservableList<Livro> listaLivros;
-    private ObservableList<Autor> listaAutores;
-    private ObservableList<Tema> listaTemas;
-    private ObservableList<Editora> listaEditoras;
-    private ObservableList<Localizacao> listaLocalizacoes;
+
+    // ComboBoxes carregadas por páginas só quando são abertas ou recebem o foco
+    private ComboBoxPaginada<Autor> comboAutores;
+    private ComboBoxPaginada<Tema> comboTemas;
+    private ComboBoxPaginada<Editora> comboEditoras;
+    private ComboBoxPaginada<Localizacao> comboLocalizacoes;
+    private ComboBoxPaginada<Autor> filtroAutores;
+    private ComboBoxPaginada<Tema> filtroTemas;
+    private ComboBoxPaginada<Editora> filtroEditoras;
+    private ComboBoxPaginada<Localizacao> filtroLocalizacoes;
 
     // Inicializa o controlador
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         // Instancia os DAOs
-        livroDAO = new LivroDAO();
-        autorDAO = new AutorDAO();
-        temaDAO = new TemaDAO();
-        editoraDAO = new EditoraDAO();
-        localizacaoDAO = new LocalizacaoDAO();
+        livroDAO = new AsyncDAO<>(new LivroDAO(mapaIdentidade));
+        autorDAO = new AsyncDAO<>(new AutorDAO());
+        temaDAO = new AsyncDAO<>(new TemaDAO());
+        editoraDAO = new AsyncDAO<>(new EditoraDAO());
+        localizacaoDAO = new AsyncDAO<>(new LocalizacaoDAO());
+        indCarregamento.setVisible(false);
 
         // Define como os dados são exibidos nas colunas da tabela
         colLivroId.setCellValueFactory(new PropertyValueFactory<>("id"));
@@ -128,15 +242,36 @@ public class LivroController implements Initializable {
         // Configura como os objetos são apresentados nas células da tabela
         configureCellFactories();
 
-        // Carrega os dados nas ComboBoxes
-        carregarComboBoxes();
+        // A tabela mantém sempre a mesma lista, que vai recebendo páginas à medida que se desce
+        listaLivros = FXCollections.observableArrayList();
+        tblLivros.setItems(listaLivros);
+        configurarPaginacaoPorScroll();
+
+        // A ordenação por coluna e os filtros são feitos pela base de dados, página a página
+        configurarOrdenacao();
+
+        // Define como as entidades são apresentadas nas ComboBoxes, que só são carregadas quando usadas
+        configurarConversores();
+        configurarComboBoxes();
+
+        // Mostra de imediato o instantâneo local do catálogo, se existir, e confirma-o com a base de dados
+        // em segundo plano; sem instantâneo, carrega a primeira página da tabela da base de dados
+        instantaneo = InstantaneoCatalogo.abrirPorOmissao();
+        carregarDadosIniciais();
 
-        // Carrega os livros na tabela
-        carregarTableViewLivros();
+        // Constrói em segundo plano o índice de pesquisa e pesquisa à medida que se escreve
+        configurarPesquisa();
+        configurarFiltros();
 
         // Adiciona um ouvinte para quando o utilizador selecionar um livro na tabela
-        tblLivros.getSelectionModel().selectedItemProperty().addListener(
-                (observable, oldValue, newValue) -> selecionarLivro(newValue));
+        tblLivros.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
+            if (!aplicandoAlteracoes) {
+                selecionarLivro(newValue);
+            }
+        });
+
+        // Aplica periodicamente à tabela as alterações feitas noutros postos
+        configurarSincronizacao();
     }
 
     // Configura as células da tabela para exibir texto amigável
@@ -171,18 +306,8 @@ public class LivroController implements Initializable {
         });
     }
 
-    // Carrega todas as ComboBoxes com dados da base de dados
-    private void carregarComboBoxes() {
-        carregarComboBoxAutores();
-        carregarComboBoxTemas();
-        carregarComboBoxEditoras();
-        carregarComboBoxLocalizacoes();
-    }
-
-    // Carrega autores e define como exibir os nomes na ComboBox
-    private void carregarComboBoxAutores() {
-        listaAutores = FXCollections.observableArrayList(autorDAO.listarTodos());
-        cmbLivroAutor.setItems(listaAutores);
+    // Define como autores, temas, editoras e localizações são apresentados nas ComboBoxes
+    private void configurarConversores() {
         cmbLivroAutor.setConverter(new StringConverter<Autor>() {
             @Override
             public String toString(Autor autor) {
@@ -194,12 +319,6 @@ public class LivroController implements Initializable {
                 return null;
             }
         });
-    }
-
-    // Carrega temas e define como exibir os nomes na ComboBox
-    private void carregarComboBoxTemas() {
-        listaTemas = FXCollections.observableArrayList(temaDAO.listarTodos());
-        cmbLivroTema.setItems(listaTemas);
         cmbLivroTema.setConverter(new StringConverter<Tema>() {
             @Override
             public String toString(Tema tema) {
@@ -211,12 +330,6 @@ public class LivroController implements Initializable {
                 return null;
             }
         });
-    }
-
-    // Carrega editoras e define como exibir os nomes na ComboBox
-    private void carregarComboBoxEditoras() {
-        listaEditoras = FXCollections.observableArrayList(editoraDAO.listarTodos());
-        cmbLivroEditora.setItems(listaEditoras);
         cmbLivroEditora.setConverter(new StringConverter<Editora>() {
             @Override
             public String toString(Editora editora) {
@@ -228,12 +341,6 @@ public class LivroController implements Initializable {
                 return null;
             }
         });
-    }
-
-    // Carrega localizações e define como exibir na ComboBox
-    private void carregarComboBoxLocalizacoes() {
-        listaLocalizacoes = FXCollections.observableArrayList(localizacaoDAO.listarTodos());
-        cmbLivroLocalizacao.setItems(listaLocalizacoes);
         cmbLivroLocalizacao.setConverter(new StringConverter<Localizacao>() {
             @Override
             public String toString(Localizacao localizacao) {
@@ -245,13 +352,559 @@ public class LivroController implements Initializable {
                 return null;
             }
         });
+        cmbFiltroAutor.setConverter(cmbLivroAutor.getConverter());
+        cmbFiltroTema.setConverter(cmbLivroTema.getConverter());
+        cmbFiltroEditora.setConverter(cmbLivroEditora.getConverter());
+        cmbFiltroLocalizacao.setConverter(cmbLivroLocalizacao.getConverter());
+    }
+
+    // Liga cada ComboBox (do formulário e dos filtros) às páginas da respetiva tabela, pedidas apenas
+    // quando a ComboBox é aberta, e às sugestões da árvore de prefixos do DAO para o texto escrito
+    private void configurarComboBoxes() {
+        comboAutores = comboAutores(cmbLivroAutor);
+        comboTemas = comboTemas(cmbLivroTema);
+        comboEditoras = comboEditoras(cmbLivroEditora);
+        comboLocalizacoes = comboLocalizacoes(cmbLivroLocalizacao);
+        filtroAutores = comboAutores(cmbFiltroAutor);
+        filtroTemas = comboTemas(cmbFiltroTema);
+        filtroEditoras = comboEditoras(cmbFiltroEditora);
+        filtroLocalizacoes = comboLocalizacoes(cmbFiltroLocalizacao);
+    }
+
+    private ComboBoxPaginada<Autor> comboAutores(ComboBox<Autor> combo) {
+        return new ComboBoxPaginada<>(combo,
+                (filtro, depoisDoId, tamanho) -> autorDAO.executarComFalhas(dao -> dao.listarPagina(filtro, depoisDoId, tamanho)),
+                (texto, limite) -> autorDAO.executar(dao -> dao.sugerir(texto, limite)),
+                Autor::getId, this::executarEmSegundoPlano);
+    }
+
+    private ComboBoxPaginada<Tema> comboTemas(ComboBox<Tema> combo) {
+        return new ComboBoxPaginada<>(combo,
+                (filtro, depoisDoId, tamanho) -> temaDAO.executarComFalhas(dao -> dao.listarPagina(filtro, depoisDoId, tamanho)),
+                (texto, limite) -> temaDAO.executar(dao -> dao.sugerir(texto, limite)),
+                Tema::getId, this::executarEmSegundoPlano);
+    }
+
+    private ComboBoxPaginada<Editora> comboEditoras(ComboBox<Editora> combo) {
+        return new ComboBoxPaginada<>(combo,
+                (filtro, depoisDoId, tamanho) -> editoraDAO.executarComFalhas(dao -> dao.listarPagina(filtro, depoisDoId, tamanho)),
+                (texto, limite) -> editoraDAO.executar(dao -> dao.sugerir(texto, limite)),
+                Editora::getId, this::executarEmSegundoPlano);
+    }
+
+    private ComboBoxPaginada<Localizacao> comboLocalizacoes(ComboBox<Localizacao> combo) {
+        return new ComboBoxPaginada<>(combo,
+                (filtro, depoisDoId, tamanho) -> localizacaoDAO.executarComFalhas(dao -> dao.listarPagina(filtro, depoisDoId, tamanho)),
+                (texto, limite) -> localizacaoDAO.executar(dao -> dao.sugerir(texto, limite)),
+                Localizacao::getId, this::executarEmSegundoPlano);
+    }
+
+    // Carrega a primeira página da tabela (ou mostra o instantâneo e confirma-o com a base de dados). As falhas
+    // e a falta de resposta dentro do prazo, em qualquer dos casos, são avisadas numa única mensagem
+    private void carregarDadosIniciais() {
+        GrupoTarefas grupo = new GrupoTarefas(PRAZO_CARGA_MS, this::alterarOperacoesPendentes);
+        if (instantaneo != null) {
+            mostrarInstantaneo();
+            reconciliarInstantaneo(grupo);
+        } else {
+            prepararPrimeiraPagina();
+            carregarPaginaSeguinte(grupo);
+        }
+        grupo.aoTerminar(this::avisarFalhasCarga);
+    }
+
+    // Descarta os itens de todas as ComboBoxes, que voltam a ser pedidos na próxima abertura
+    private void invalidarComboBoxes() {
+        invalidarAutores();
+        invalidarTemas();
+        invalidarEditoras();
+        invalidarLocalizacoes();
+    }
+
+    private void invalidarAutores() {
+        comboAutores.invalidar();
+        filtroAutores.invalidar();
+    }
+
+    private void invalidarTemas() {
+        comboTemas.invalidar();
+        filtroTemas.invalidar();
+    }
+
+    private void invalidarEditoras() {
+        comboEditoras.invalidar();
+        filtroEditoras.invalidar();
+    }
+
+    private void invalidarLocalizacoes() {
+        comboLocalizacoes.invalidar();
+        filtroLocalizacoes.invalidar();
     }
 
-    // Carrega todos os livros na tabela
+    // Mostra uma única mensagem com as cargas que falharam ou que não responderam dentro do prazo
+    private void avisarFalhasCarga(Map<String, Throwable> falhas) {
+        if (falhas.isEmpty()) {
+            return;
+        }
+        StringBuilder mensagem = new StringBuilder("Não foi possível carregar todos os dados da base de dados:");
+        falhas.forEach((nome, erro) -> mensagem.append("\n").append(nome).append(": ").append(erro instanceof TimeoutException
+                ? "sem resposta ao fim de " + PRAZO_CARGA_MS / 1000 + " s (os dados serão mostrados quando chegarem)"
+                : erro.getMessage()));
+        mostrarMensagem(Alert.AlertType.ERROR, "Erro", mensagem.toString());
+    }
+
+    // Recarrega a tabela: mostra os resultados da pesquisa em curso ou, sem pesquisa, a primeira página de livros
     private void carregarTableViewLivros() {
-        listaLivros = FXCollections.observableArrayList(livroDAO.listarTodos());
-        tblLivros.setItems(listaLivros);
-        // tblLivros.refresh(); // Pode ser usado para forçar atualização
+        if (emPesquisa()) {
+            pesquisarLivros();
+        } else {
+            carregarPrimeiraPagina();
+        }
+    }
+
+    // Recarrega a tabela a partir da primeira página de livros, com a ordenação e os filtros atuais
+    private void carregarPrimeiraPagina() {
+        consulta = construirConsulta();
+        prepararPrimeiraPagina();
+        carregarPaginaSeguinte();
+    }
+
+    // Esvazia a tabela e repõe o estado da paginação
+    private void prepararPrimeiraPagina() {
+        // Depois de uma recarga a tabela passa a ser servida pela base de dados
+        instantaneo = null;
+        geracaoPaginacao++;
+        listaLivros.clear();
+        mapaIdentidade.limpar();
+        ultimoLivroCarregado = null;
+        fimDaTabela = false;
+        paginaEmCarregamento = false;
+    }
+
+    // Pede a página de livros seguinte à última carregada e acrescenta-a à tabela
+    private void carregarPaginaSeguinte() {
+        carregarPaginaSeguinte(null);
+    }
+
+    // Idem, como parte de um grupo de cargas (ou isoladamente, se o grupo for null)
+    private void carregarPaginaSeguinte(GrupoTarefas grupo) {
+        if (paginaEmCarregamento || fimDaTabela) {
+            return;
+        }
+        paginaEmCarregamento = true;
+        Livro depoisDe = ultimoLivroCarregado;
+        if (instantaneo != null) {
+            // As páginas do instantâneo (por id, sem filtros) são lidas do ficheiro mapeado, sem esperar pela base de dados
+            acrescentarPagina(instantaneo.listarPagina(depoisDe == null ? null : depoisDe.getId(), TAMANHO_PAGINA));
+            return;
+        }
+        int geracao = geracaoPaginacao;
+        ConsultaLivros pedida = consulta;
+        // Uma falha conclui a operação com erro, em vez de uma página vazia que marcaria o fim da tabela
+        CompletableFuture<List<Livro>> pagina = livroDAO.executarComFalhas(dao -> dao.consultarPagina(pedida, depoisDe, TAMANHO_PAGINA));
+        Consumer<List<Livro>> aoChegar = livros -> {
+            // Ignora páginas pedidas antes de uma recarga da tabela
+            if (geracao == geracaoPaginacao) {
+                acrescentarPagina(livros);
+            }
+        };
+        // Se a página falhar, o scroll pode voltar a pedi-la
+        Consumer<Throwable> aoFalhar = erro -> {
+            if (geracao == geracaoPaginacao) {
+                paginaEmCarregamento = false;
+            }
+        };
+        if (grupo == null) {
+            executarEmSegundoPlano(pagina, aoChegar, aoFalhar);
+        } else {
+            grupo.adicionar("livros", pagina, aoChegar, aoFalhar);
+        }
+    }
+
+    // Acrescenta uma página à tabela e avança o estado da paginação
+    private void acrescentarPagina(List<Livro> livros) {
+        paginaEmCarregamento = false;
+        if (!consulta.isPorOmissao()) {
+            // Com outra ordenação ou com filtros, os livros inseridos nesta sessão ficam onde foram acrescentados
+            // e não são repetidos quando a paginação os alcança
+            Set<Integer> mostrados = new HashSet<>();
+            listaLivros.forEach(livro -> mostrados.add(livro.getId()));
+            listaLivros.addAll(livros.stream().filter(livro -> !mostrados.contains(livro.getId())).toList());
+            avancarPaginacao(livros);
+            return;
+        }
+        // Os livros inseridos nesta sessão que a paginação ainda não alcançou estão no fim da tabela
+        // (ids acima do último carregado); a página é intercalada com eles por id, sem os repetir
+        int inicioInseridos = listaLivros.size();
+        while (inicioInseridos > 0 && (ultimoLivroCarregado == null
+                || listaLivros.get(inicioInseridos - 1).getId() > ultimoLivroCarregado.getId())) {
+            inicioInseridos--;
+        }
+        if (inicioInseridos == listaLivros.size()) {
+            listaLivros.addAll(livros);
+        } else {
+            TreeMap<Integer, Livro> porId = new TreeMap<>();
+            for (Livro livro : listaLivros.subList(inicioInseridos, listaLivros.size())) {
+                porId.put(livro.getId(), livro);
+            }
+            for (Livro livro : livros) {
+                porId.putIfAbsent(livro.getId(), livro);
+            }
+            listaLivros.remove(inicioInseridos, listaLivros.size());
+            listaLivros.addAll(inicioInseridos, porId.values());
+        }
+        avancarPaginacao(livros);
+    }
+
+    // Guarda o último livro da página, a partir do qual é pedida a seguinte
+    private void avancarPaginacao(List<Livro> livros) {
+        if (!livros.isEmpty()) {
+            ultimoLivroCarregado = livros.get(livros.size() - 1);
+        }
+        fimDaTabela = livros.size() < TAMANHO_PAGINA;
+    }
+
+    // Acrescenta ao fim da tabela um livro acabado de inserir, em vez de recarregar a tabela; como tem
+    // o maior id, fica na posição certa (as páginas ainda por carregar são intercaladas antes dele)
+    private void mostrarLivroInserido(Livro livro) {
+        if (indiceNaTabela(livro.getId()) < 0) {
+            listaLivros.add(livro);
+        }
+    }
+
+    // Substitui na tabela o livro atualizado, mantendo a posição, o scroll e a seleção
+    private void mostrarLivroAtualizado(Livro livro) {
+        int indice = indiceNaTabela(livro.getId());
+        if (indice >= 0) {
+            listaLivros.set(indice, livro);
+            tblLivros.getSelectionModel().select(indice);
+        }
+    }
+
+    // Retira da tabela o livro excluído, sem mexer nos restantes
+    private void removerLivroExcluido(int id) {
+        int indice = indiceNaTabela(id);
+        if (indice >= 0) {
+            listaLivros.remove(indice);
+        }
+    }
+
+    // Posição do livro com o id indicado entre os livros mostrados, ou -1 se não estiver carregado
+    private int indiceNaTabela(int id) {
+        for (int i = 0; i < listaLivros.size(); i++) {
+            if (listaLivros.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Consulta as alterações de outros postos a cada INTERVALO_SINCRONIZACAO_MS, começando já pela marca atual
+    private void configurarSincronizacao() {
+        if (INTERVALO_SINCRONIZACAO_MS <= 0) {
+            return;
+        }
+        // Sem a coluna e a tabela de alterações (esquema por atualizar) a consulta falharia a cada intervalo
+        FxAsync.naInterface(livroDAO.executar(LivroDAO::suportaSincronizacao), suportada -> {
+            if (!suportada) {
+                return;
+            }
+            Timeline sincronizacao = new Timeline(new KeyFrame(Duration.millis(INTERVALO_SINCRONIZACAO_MS),
+                    event -> sincronizarAlteracoes()));
+            sincronizacao.setCycleCount(Animation.INDEFINITE);
+            sincronizarAlteracoes();
+            sincronizacao.play();
+        }, erro -> System.err.println("Erro ao verificar a sincronização entre postos: " + erro.getMessage()));
+    }
+
+    // Pede à base de dados as alterações desde a última marca (ou, na primeira vez, só a marca). Corre em
+    // segundo plano sem indicador nem mensagens de erro, que se repetiriam a cada consulta
+    private void sincronizarAlteracoes() {
+        if (sincronizacaoEmCurso) {
+            return;
+        }
+        sincronizacaoEmCurso = true;
+        Timestamp marca = marcaAlteracoes;
+        CompletableFuture<AlteracoesLivros> tarefa = marca == null
+                ? livroDAO.executar(dao -> {
+                    Timestamp atual = dao.marcaAlteracoes();
+                    return atual == null ? null : new AlteracoesLivros(List.of(), List.of(), atual, false);
+                })
+                : livroDAO.executar(dao -> dao.listarAlteracoesDesde(marca, LIMITE_ALTERACOES));
+        FxAsync.naInterface(tarefa, alteracoes -> {
+            sincronizacaoEmCurso = false;
+            if (alteracoes != null) {
+                aplicarAlteracoes(alteracoes);
+            }
+        }, erro -> {
+            sincronizacaoEmCurso = false;
+            System.err.println("Erro ao sincronizar alterações dos livros: " + erro.getMessage());
+        });
+    }
+
+    // Aplica à tabela as alterações de outros postos, linha a linha, mantendo a seleção e o formulário
+    private void aplicarAlteracoes(AlteracoesLivros alteracoes) {
+        marcaAlteracoes = alteracoes.marca();
+        if (alteracoes.incompleto()) {
+            // Demasiadas alterações (por exemplo, uma importação noutro posto): sai mais barato recarregar
+            InstantaneoCatalogo.marcarAlterado();
+            carregarTableViewLivros();
+            return;
+        }
+        if (alteracoes.alterados().isEmpty() && alteracoes.removidos().isEmpty()) {
+            return;
+        }
+        // O instantâneo local deixou de corresponder à base de dados: é regravado em segundo plano
+        InstantaneoCatalogo.marcarAlterado();
+        boolean emPesquisa = emPesquisa();
+        Livro selecionado = tblLivros.getSelectionModel().getSelectedItem();
+        aplicandoAlteracoes = true;
+        try {
+            List<Livro> novos = new ArrayList<>();
+            for (Livro livro : alteracoes.alterados()) {
+                int indice = indiceNaTabela(livro.getId());
+                if (indice >= 0) {
+                    listaLivros.set(indice, livro);
+                } else if (ultimoLivroCarregado == null || livro.getId() > ultimoLivroCarregado.getId()) {
+                    novos.add(livro);
+                }
+            }
+            // Livros novos só são acrescentados à tabela completa, por id e sem filtros; senão chegam com a paginação
+            if (!emPesquisa && fimDaTabela && consulta.isPorOmissao()) {
+                novos.sort(Comparator.comparingInt(Livro::getId));
+                novos.forEach(this::mostrarLivroInserido);
+            }
+            alteracoes.removidos().forEach(this::removerLivroExcluido);
+            if (selecionado != null) {
+                int indice = indiceNaTabela(selecionado.getId());
+                if (indice >= 0) {
+                    tblLivros.getSelectionModel().select(indice);
+                }
+            }
+        } finally {
+            aplicandoAlteracoes = false;
+        }
+    }
+
+    // Preenche a primeira página da tabela a partir do instantâneo local
+    private void mostrarInstantaneo() {
+        carregarPaginaSeguinte();
+    }
+
+    // Compara a assinatura do instantâneo com a da base de dados. Se coincidir, os livros já mostrados
+    // são substituídos pelas versões atuais (que podem ter sido editadas); se não, o instantâneo é
+    // descartado e a tabela é recarregada da base de dados. Se a base de dados não responder, o instantâneo
+    // continua a ser mostrado.
+    private void reconciliarInstantaneo(GrupoTarefas grupo) {
+        CompletableFuture<AssinaturaCatalogo> assinatura = CompletableFuture.supplyAsync(() -> {
+            try {
+                return AssinaturaCatalogo.consultar();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, AsyncDAO.getExecutor());
+
+        grupo.adicionar("catálogo", assinatura, atual -> {
+            InstantaneoCatalogo usado = instantaneo;
+            // A tabela já foi recarregada da base de dados entretanto (por exemplo, por uma pesquisa)
+            if (usado == null) {
+                return;
+            }
+            instantaneo = null;
+            if (!usado.getAssinatura().equals(atual)) {
+                System.out.println("Instantâneo do catálogo desatualizado (" + usado.getAssinatura() + " / base de dados: " + atual + ")");
+                InstantaneoCatalogo.marcarAlterado();
+                carregarTableViewLivros();
+                return;
+            }
+            // As páginas seguintes já vêm da base de dados; os livros mostrados são relidos pelos ids
+            int geracao = geracaoPaginacao;
+            List<Integer> ids = listaLivros.stream().map(Livro::getId).toList();
+            mapaIdentidade.limpar();
+            executarEmSegundoPlano(livroDAO.executar(dao -> dao.buscarPorIds(ids)), atuais -> {
+                if (geracao == geracaoPaginacao) {
+                    substituirLivros(ids, atuais);
+                }
+            });
+        });
+    }
+
+    // Substitui, mantendo a posição e a seleção, os livros com os ids indicados; os que já não existem são removidos
+    private void substituirLivros(List<Integer> ids, List<Livro> atuais) {
+        Map<Integer, Livro> porId = new HashMap<>();
+        for (Livro livro : atuais) {
+            porId.put(livro.getId(), livro);
+        }
+        Set<Integer> relidos = new HashSet<>(ids);
+        for (int i = listaLivros.size() - 1; i >= 0; i--) {
+            int id = listaLivros.get(i).getId();
+            if (!relidos.contains(id)) {
+                continue;
+            }
+            Livro atual = porId.get(id);
+            if (atual == null) {
+                listaLivros.remove(i);
+            } else {
+                listaLivros.set(i, atual);
+            }
+        }
+    }
+
+    // Substitui a ordenação da TableView, que ordenaria só os livros carregados, por uma nova consulta à base
+    // de dados com a coluna escolhida. Durante uma pesquisa os resultados (já todos carregados) são
+    // ordenados localmente
+    private void configurarOrdenacao() {
+        ordemPorColuna.put(colLivroId, ConsultaLivros.Ordem.ID);
+        ordemPorColuna.put(colLivroTitulo, ConsultaLivros.Ordem.TITULO);
+        ordemPorColuna.put(colLivroAnoPublicacao, ConsultaLivros.Ordem.ANO);
+        ordemPorColuna.put(colLivroIsbn, ConsultaLivros.Ordem.ISBN);
+        ordemPorColuna.put(colLivroAutor, ConsultaLivros.Ordem.AUTOR);
+        ordemPorColuna.put(colLivroTema, ConsultaLivros.Ordem.TEMA);
+        ordemPorColuna.put(colLivroEditora, ConsultaLivros.Ordem.EDITORA);
+        ordemPorColuna.put(colLivroLocalizacao, ConsultaLivros.Ordem.LOCALIZACAO);
+
+        // Comparadores usados na ordenação local dos resultados de uma pesquisa
+        colLivroAutor.setComparator(Comparator.comparing(Autor::getNome, String.CASE_INSENSITIVE_ORDER));
+        colLivroTema.setComparator(Comparator.comparing(Tema::getNome, String.CASE_INSENSITIVE_ORDER));
+        colLivroEditora.setComparator(Comparator.comparing(Editora::getNome, String.CASE_INSENSITIVE_ORDER));
+        colLivroLocalizacao.setComparator(Comparator.comparing(Localizacao::getSetor, String.CASE_INSENSITIVE_ORDER));
+
+        tblLivros.setSortPolicy(tabela -> {
+            if (emPesquisa()) {
+                if (tabela.getComparator() != null) {
+                    FXCollections.sort(listaLivros, tabela.getComparator());
+                }
+            } else if (!construirConsulta().equals(consulta)) {
+                carregarPrimeiraPagina();
+            }
+            return true;
+        });
+    }
+
+    // Recarrega a tabela pouco depois de qualquer alteração dos filtros
+    private void configurarFiltros() {
+        atrasoFiltros.setOnFinished(event -> {
+            if (!emPesquisa() && !construirConsulta().equals(consulta)) {
+                carregarPrimeiraPagina();
+            }
+        });
+        for (TextField campo : List.of(txtFiltroTitulo, txtFiltroAnoDe, txtFiltroAnoAte)) {
+            campo.textProperty().addListener((obs, antigo, novo) -> atrasoFiltros.playFromStart());
+        }
+        for (ComboBox<?> combo : List.of(cmbFiltroAutor, cmbFiltroTema, cmbFiltroEditora, cmbFiltroLocalizacao)) {
+            combo.valueProperty().addListener((obs, antigo, novo) -> atrasoFiltros.playFromStart());
+        }
+    }
+
+    // Constrói a consulta a partir da coluna de ordenação da tabela e dos filtros (anos inválidos são ignorados)
+    private ConsultaLivros construirConsulta() {
+        ConsultaLivros nova = new ConsultaLivros();
+        if (!tblLivros.getSortOrder().isEmpty()) {
+            TableColumn<Livro, ?> coluna = tblLivros.getSortOrder().get(0);
+            ConsultaLivros.Ordem ordem = ordemPorColuna.get(coluna);
+            if (ordem != null) {
+                nova.ordenarPor(ordem, coluna.getSortType() == TableColumn.SortType.ASCENDING);
+            }
+        }
+        return nova.comTituloContendo(txtFiltroTitulo.getText())
+                .comAnoEntre(lerAno(txtFiltroAnoDe), lerAno(txtFiltroAnoAte))
+                .doAutor(cmbFiltroAutor.getValue() == null ? null : cmbFiltroAutor.getValue().getId())
+                .doTema(cmbFiltroTema.getValue() == null ? null : cmbFiltroTema.getValue().getId())
+                .daEditora(cmbFiltroEditora.getValue() == null ? null : cmbFiltroEditora.getValue().getId())
+                .naLocalizacao(cmbFiltroLocalizacao.getValue() == null ? null : cmbFiltroLocalizacao.getValue().getId());
+    }
+
+    // Lê um ano de um campo de filtro; null se estiver vazio ou não for um número
+    private static Integer lerAno(TextField campo) {
+        String texto = campo.getText();
+        if (texto == null || texto.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(texto.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Indica se a tabela mostra os resultados de uma pesquisa em vez das páginas da consulta
+    private boolean emPesquisa() {
+        return txtPesquisa.getText() != null && !txtPesquisa.getText().isBlank();
+    }
+
+    // Trata o clique no botão "Limpar Filtros"
+    @FXML
+    void handleLimparFiltros(ActionEvent event) {
+        txtFiltroTitulo.clear();
+        txtFiltroAnoDe.clear();
+        txtFiltroAnoAte.clear();
+        cmbFiltroAutor.setValue(null);
+        cmbFiltroTema.setValue(null);
+        cmbFiltroEditora.setValue(null);
+        cmbFiltroLocalizacao.setValue(null);
+    }
+
+    // Liga o campo de pesquisa ao índice invertido, construído em segundo plano a partir da base de dados
+    private void configurarPesquisa() {
+        CompletableFuture.runAsync(() -> IndicePesquisaLivros.getInstancia().construirSeNecessario(new LivroDAO()),
+                AsyncDAO.getExecutor());
+        atrasoPesquisa.setOnFinished(event -> carregarTableViewLivros());
+        txtPesquisa.textProperty().addListener((obs, textoAntigo, textoNovo) -> atrasoPesquisa.playFromStart());
+    }
+
+    // Mostra na tabela os livros encontrados pela pesquisa, por ordem de relevância
+    private void pesquisarLivros() {
+        String texto = txtPesquisa.getText().trim();
+        // Durante uma pesquisa a paginação por scroll fica desligada
+        geracaoPaginacao++;
+        fimDaTabela = true;
+        int geracao = geracaoPaginacao;
+        executarEmSegundoPlano(livroDAO.executar(dao -> dao.pesquisar(texto, LIMITE_PESQUISA)), livros -> {
+            if (geracao == geracaoPaginacao) {
+                listaLivros.setAll(livros);
+            }
+        });
+    }
+
+    // Pede a página seguinte quando a barra de deslocamento vertical da tabela se aproxima do fim
+    private void configurarPaginacaoPorScroll() {
+        tblLivros.skinProperty().addListener((obs, skinAntiga, skinNova) -> {
+            for (Node no : tblLivros.lookupAll(".scroll-bar")) {
+                if (no instanceof ScrollBar barra && barra.getOrientation() == Orientation.VERTICAL) {
+                    barra.valueProperty().addListener((o, valorAntigo, valorNovo) -> {
+                        if (valorNovo.doubleValue() >= barra.getMax() * 0.95) {
+                            carregarPaginaSeguinte();
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    // Executa uma operação da base de dados sem bloquear a interface, mostrando o indicador de carregamento
+    private <T> void executarEmSegundoPlano(CompletableFuture<T> tarefa, Consumer<T> aoConcluir) {
+        executarEmSegundoPlano(tarefa, aoConcluir, null);
+    }
+
+    // Idem, executando também aoFalhar (se não for null) depois da mensagem de erro, para repor o estado do chamador
+    private <T> void executarEmSegundoPlano(CompletableFuture<T> tarefa, Consumer<T> aoConcluir, Consumer<Throwable> aoFalhar) {
+        alterarOperacoesPendentes(1);
+        FxAsync.naInterface(tarefa, resultado -> {
+            alterarOperacoesPendentes(-1);
+            aoConcluir.accept(resultado);
+        }, erro -> {
+            alterarOperacoesPendentes(-1);
+            mostrarMensagem(Alert.AlertType.ERROR, "Erro", "Erro ao comunicar com a base de dados: " + erro.getMessage());
+            if (aoFalhar != null) {
+                aoFalhar.accept(erro);
+            }
+        });
+    }
+
+    // Atualiza o contador de operações em curso e a visibilidade do indicador de carregamento
+    private void alterarOperacoesPendentes(int variacao) {
+        operacoesPendentes += variacao;
+        indCarregamento.setVisible(operacoesPendentes > 0);
     }
 
     // Preenche os campos do formulário com os dados do livro selecionado
@@ -283,14 +936,23 @@ public class LivroController implements Initializable {
             livro.setEditora(cmbLivroEditora.getValue());
             livro.setLocalizacao(cmbLivroLocalizacao.getValue());
 
-            boolean inserido = livroDAO.inserir(livro);
-            if (inserido) {
-                mostrarMensagem(Alert.AlertType.INFORMATION, "Sucesso", "Livro salvo com sucesso!");
-                limparCampos();
-                carregarTableViewLivros();
-            } else {
-                mostrarMensagem(Alert.AlertType.ERROR, "Erro", "Erro ao salvar livro.");
-            }
+            // Verifica primeiro, no índice de ISBNs, se o livro já está registado
+            executarEmSegundoPlano(livroDAO.executar(dao -> dao.isbnEmUso(livro.getIsbn(), 0)), emUso -> {
+                if (emUso) {
+                    mostrarMensagem(Alert.AlertType.WARNING, "ISBN Repetido", "Já existe um livro com o ISBN " + livro.getIsbn() + ".");
+                    return;
+                }
+                executarEmSegundoPlano(livroDAO.executar(dao -> dao.inserir(livro)), idGerado -> {
+                    if (idGerado > 0) {
+                        InstantaneoCatalogo.marcarAlterado();
+                        mostrarMensagem(Alert.AlertType.INFORMATION, "Sucesso", "Livro salvo com sucesso!");
+                        limparCampos();
+                        mostrarLivroInserido(livro);
+                    } else {
+                        mostrarMensagem(Alert.AlertType.ERROR, "Erro", "Erro ao salvar livro.");
+                    }
+                });
+            });
         }
     }
 
@@ -314,14 +976,21 @@ public class LivroController implements Initializable {
                 livro.setEditora(cmbLivroEditora.getValue());
                 livro.setLocalizacao(cmbLivroLocalizacao.getValue());
 
-                boolean atualizado = livroDAO.atualizar(livro);
-                if (atualizado) {
-                    mostrarMensagem(Alert.AlertType.INFORMATION, "Sucesso", "Livro atualizado com sucesso!");
-                    limparCampos();
-                    carregarTableViewLivros();
-                } else {
-                    mostrarMensagem(Alert.AlertType.ERROR, "Erro", "Erro ao atualizar livro.");
-                }
+                executarEmSegundoPlano(livroDAO.executar(dao -> dao.isbnEmUso(livro.getIsbn(), id)), emUso -> {
+                    if (emUso) {
+                        mostrarMensagem(Alert.AlertType.WARNING, "ISBN Repetido", "Já existe outro livro com o ISBN " + livro.getIsbn() + ".");
+                        return;
+                    }
+                    executarEmSegundoPlano(livroDAO.executar(dao -> dao.atualizar(livro)), atualizado -> {
+                        if (atualizado) {
+                            InstantaneoCatalogo.marcarAlterado();
+                            mostrarMensagem(Alert.AlertType.INFORMATION, "Sucesso", "Livro atualizado com sucesso!");
+                            mostrarLivroAtualizado(livro);
+                        } else {
+                            mostrarMensagem(Alert.AlertType.ERROR, "Erro", "Erro ao atualizar livro.");
+                        }
+                    });
+                });
             } catch (NumberFormatException e) {
                 mostrarMensagem(Alert.AlertType.ERROR, "Erro de Formato", "ID e Ano de Publicação devem ser números inteiros.");
             }
@@ -343,14 +1012,16 @@ public class LivroController implements Initializable {
             alert.showAndWait();
 
             if (alert.getResult() == ButtonType.YES) {
-                boolean excluido = livroDAO.excluir(id);
-                if (excluido) {
-                    mostrarMensagem(Alert.AlertType.INFORMATION, "Sucesso", "Livro excluído com sucesso!");
-                    limparCampos();
-                    carregarTableViewLivros();
-                } else {
-                    mostrarMensagem(Alert.AlertType.ERROR, "Erro", "Erro ao excluir livro.");
-                }
+                executarEmSegundoPlano(livroDAO.executar(dao -> dao.excluir(id)), excluido -> {
+                    if (excluido) {
+                        InstantaneoCatalogo.marcarAlterado();
+                        mostrarMensagem(Alert.AlertType.INFORMATION, "Sucesso", "Livro excluído com sucesso!");
+                        limparCampos();
+                        removerLivroExcluido(id);
+                    } else {
+                        mostrarMensagem(Alert.AlertType.ERROR, "Erro", "Erro ao excluir livro.");
+                    }
+                });
             }
         } catch (NumberFormatException e) {
             mostrarMensagem(Alert.AlertType.ERROR, "Erro de Formato", "ID deve ser um número inteiro.");
@@ -372,16 +1043,129 @@ public class LivroController implements Initializable {
         }
         try {
             int id = Integer.parseInt(txtLivroId.getText());
-            Livro livro = livroDAO.buscarPorId(id);
+            executarEmSegundoPlano(livroDAO.executar(dao -> dao.buscarPorId(id)), livro -> {
+                if (livro != null) {
+                    selecionarLivro(livro);
+                } else {
+                    mostrarMensagem(Alert.AlertType.INFORMATION, "Não Encontrado", "Livro com ID " + id + " não encontrado.");
+                    limparCampos();
+                }
+            });
+        } catch (NumberFormatException e) {
+            mostrarMensagem(Alert.AlertType.ERROR, "Erro de Formato", "ID deve ser um número inteiro.");
+        }
+    }
+
+    // Trata o clique no botão "Buscar por ISBN" (o campo ISBN pode ser preenchido por um leitor de código de barras)
+    @FXML
+    void handleBuscarLivroPorIsbn(ActionEvent event) {
+        String isbn = txtLivroIsbn.getText();
+        if (isbn == null || isbn.isBlank()) {
+            mostrarMensagem(Alert.AlertType.WARNING, "Aviso", "Informe o ISBN do livro para buscar.");
+            return;
+        }
+        if (!Isbn.valido(isbn)) {
+            mostrarMensagem(Alert.AlertType.ERROR, "Erro de Formato", "ISBN inválido: " + isbn + ".");
+            return;
+        }
+        executarEmSegundoPlano(livroDAO.executar(dao -> dao.buscarPorIsbn(isbn)), livro -> {
             if (livro != null) {
                 selecionarLivro(livro);
             } else {
-                mostrarMensagem(Alert.AlertType.INFORMATION, "Não Encontrado", "Livro com ID " + id + " não encontrado.");
-                limparCampos();
+                mostrarMensagem(Alert.AlertType.INFORMATION, "Não Encontrado", "Livro com ISBN " + isbn + " não encontrado.");
             }
-        } catch (NumberFormatException e) {
-            mostrarMensagem(Alert.AlertType.ERROR, "Erro de Formato", "ID deve ser um número inteiro.");
+        });
+    }
+
+    // Trata o clique no botão "Importar CSV": importa um catálogo com os nomes das entidades relacionadas
+    @FXML
+    void handleImportarLivros(ActionEvent event) {
+        FileChooser seletor = new FileChooser();
+        seletor.setTitle("Importar Livros");
+        seletor.getExtensionFilters().add(new FileChooser.ExtensionFilter("Ficheiros CSV", "*.csv"));
+        File ficheiro = seletor.showOpenDialog(tblLivros.getScene().getWindow());
+        if (ficheiro == null) {
+            return;
         }
+
+        String textoBotao = btnLivroImportar.getText();
+        btnLivroImportar.setDisable(true);
+        CompletableFuture<ResultadoImportacao> importacao = CompletableFuture.supplyAsync(() -> {
+            try {
+                // O progresso chega das threads da importação: o botão é atualizado na thread da interface
+                return new ImportadorCsv().importar(ficheiro.toPath(), progresso -> Platform.runLater(() ->
+                        btnLivroImportar.setText(String.format("A importar... %,d", progresso.linhasLidas()))));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, AsyncDAO.getExecutor());
+        importacao.whenComplete((resultado, erro) -> Platform.runLater(() -> {
+            btnLivroImportar.setText(textoBotao);
+            btnLivroImportar.setDisable(false);
+        }));
+
+        executarEmSegundoPlano(importacao, resultado -> {
+            StringBuilder mensagem = new StringBuilder(resultado.toString());
+            resultado.getRejeicoes().stream().limit(10).forEach(rejeicao ->
+                    mensagem.append("\nLinha ").append(rejeicao.linha()).append(": ").append(rejeicao.motivo()));
+            mostrarMensagem(resultado.getRejeitados() == 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING,
+                    "Importação Concluída", mensagem.toString());
+            // Podem ter sido criados autores, temas, editoras e localizações
+            mapaIdentidade.limpar();
+            invalidarComboBoxes();
+            carregarTableViewLivros();
+            if (resultado.getInseridos() > 0) {
+                // O instantâneo local é gravado já, para que o próximo arranque mostre o catálogo importado
+                InstantaneoCatalogo.marcarAlterado();
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        InstantaneoCatalogo.gravar();
+                    } catch (IOException e) {
+                        System.err.println("Erro ao gravar instantâneo do catálogo: " + e.getMessage());
+                    }
+                }, AsyncDAO.getExecutor());
+            }
+        });
+    }
+
+    // Trata o clique no botão "Exportar": grava os livros e as tabelas auxiliares em CSV ou JSON, opcionalmente em gzip
+    @FXML
+    void handleExportarLivros(ActionEvent event) {
+        FileChooser seletor = new FileChooser();
+        seletor.setTitle("Exportar Catálogo");
+        seletor.setInitialFileName("catalogo.csv");
+        seletor.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV", "*.csv"),
+                new FileChooser.ExtensionFilter("CSV comprimido", "*.csv.gz"),
+                new FileChooser.ExtensionFilter("JSON", "*.json"),
+                new FileChooser.ExtensionFilter("JSON comprimido", "*.json.gz"));
+        File ficheiro = seletor.showSaveDialog(tblLivros.getScene().getWindow());
+        if (ficheiro == null) {
+            return;
+        }
+
+        String textoBotao = btnLivroExportar.getText();
+        btnLivroExportar.setDisable(true);
+        CompletableFuture<Map<ExportadorCatalogo.Tabela, Long>> exportacao = CompletableFuture.supplyAsync(() -> {
+            try {
+                return new ExportadorCatalogo().exportarTudo(ficheiro.toPath(), escritos -> Platform.runLater(() ->
+                        btnLivroExportar.setText(String.format("A exportar... %,d", escritos))));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, AsyncDAO.getExecutor());
+        exportacao.whenComplete((totais, erro) -> Platform.runLater(() -> {
+            btnLivroExportar.setText(textoBotao);
+            btnLivroExportar.setDisable(false);
+        }));
+
+        executarEmSegundoPlano(exportacao, totais -> {
+            StringBuilder mensagem = new StringBuilder("Exportação gravada em " + ficheiro.getParent() + ":");
+            totais.forEach((tabela, total) -> mensagem.append("\n")
+                    .append(ExportadorCatalogo.ficheiroDaTabela(ficheiro.toPath(), tabela).getFileName())
+                    .append(": ").append(String.format("%,d", total)).append(" registos"));
+            mostrarMensagem(Alert.AlertType.INFORMATION, "Exportação Concluída", mensagem.toString());
+        });
     }
 
     // Limpa todos os campos do formulário
@@ -417,6 +1201,10 @@ public class LivroController implements Initializable {
             mostrarMensagem(Alert.AlertType.ERROR, "Erro de Formato", "Ano de Publicação deve ser um número inteiro.");
             return false;
         }
+        if (!Isbn.valido(isbn)) {
+            mostrarMensagem(Alert.AlertType.ERROR, "Erro de Formato", "ISBN inválido: indique um ISBN-10 ou ISBN-13.");
+            return false;
+        }
         return true;
     }
 
@@ -440,6 +1228,10 @@ public class LivroController implements Initializable {
             stage.initModality(Modality.APPLICATION_MODAL);
             stage.showAndWait();
 
+            // As tabelas de referência podem ter mudado: as próximas páginas voltam a ler as entidades
+            mapaIdentidade.limpar();
+            InstantaneoCatalogo.marcarAlterado();
+
             if (callbackAtualizacao != null) {
                 callbackAtualizacao.run();
             }
@@ -452,21 +1244,21 @@ public class LivroController implements Initializable {
     // Ações dos botões para abrir janelas de gestão de entidades relacionadas
     @FXML
     void handleGerenciarAutor(ActionEvent event) {
-        abrirJanelaGerenciamento("/view/AutorView.fxml", "Gerenciar Autores", this::carregarComboBoxAutores);
+        abrirJanelaGerenciamento("/view/AutorView.fxml", "Gerenciar Autores", this::invalidarAutores);
     }
 
     @FXML
     void handleGerenciarTema(ActionEvent event) {
-        abrirJanelaGerenciamento("/view/TemaView.fxml", "Gerenciar Temas", this::carregarComboBoxTemas);
+        abrirJanelaGerenciamento("/view/TemaView.fxml", "Gerenciar Temas", this::invalidarTemas);
     }
 
     @FXML
     void handleGerenciarEditora(ActionEvent event) {
-        abrirJanelaGerenciamento("/view/EditoraView.fxml", "Gerenciar Editoras", this::carregarComboBoxEditoras);
+        abrirJanelaGerenciamento("/view/EditoraView.fxml", "Gerenciar Editoras", this::invalidarEditoras);
     }
 
     @FXML
     void handleGerenciarLocalizacao(ActionEvent event) {
-        abrirJanelaGerenciamento("/view/LocalizacaoView.fxml", "Gerenciar Localizações", this::carregarComboBoxLocalizacoes);
+        abrirJanelaGerenciamento("/view/LocalizacaoView.fxml", "Gerenciar Localizações", this::invalidarLocalizacoes);
     }
 }
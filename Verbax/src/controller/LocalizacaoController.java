@@ -1,5 +1,6 @@
 package controller;
 
+import dao.AsyncDAO;
 import dao.LocalizacaoDAO;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -10,6 +11,8 @@ import model.Localizacao;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 // Controlador responsável pela gestão das Localizações, incluindo operações de inserir, atualizar, excluir e buscar.
 public class LocalizacaoController {
@@ -44,8 +47,8 @@ public class LocalizacaoController {
     @FXML
     private TableColumn<Localizacao, String> colLocalizacaoPrateleira;     // Coluna para exibir a prateleira
 
-    // Instância do DAO para efetuar as operações na base de dados
-    private final LocalizacaoDAO localizacaoDAO = new LocalizacaoDAO();
+    // DAO das localizações, executado em threads virtuais para não bloquear a interface
+    private final AsyncDAO<LocalizacaoDAO> localizacaoDAO = new AsyncDAO<>(new LocalizacaoDAO());
     // Lista observável que armazena os dados das localizações e sincroniza a TableView
     private final ObservableList<Localizacao> localizacaoData = FXCollections.observableArrayList();
 
@@ -88,8 +91,9 @@ public class LocalizacaoController {
      * Carrega as localizações obtidas do DAO para a lista observável e atualiza a TableView.
      */
     private void carregarLocalizacoes() {
-        localizacaoData.setAll(localizacaoDAO.listarTodos());
-        tblLocalizacoes.refresh();
+        FxAsync.naInterface(localizacaoDAO.executar(LocalizacaoDAO::listarTodos),
+                localizacaoData::setAll,
+                erro -> exibirAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao carregar localizações: " + erro.getMessage()));
     }
 
     /**
@@ -171,13 +175,15 @@ public class LocalizacaoController {
         // Cria um objeto Localizacao com id zero (indicando novo registo)
         Localizacao loc = new Localizacao(0, setor, prateleira);
         // Tenta inserir a localização e exibe uma mensagem conforme o resultado
-        if (localizacaoDAO.inserir(loc)) {
-            exibirAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Localização salva com sucesso.");
-            carregarLocalizacoes();
-            handleLimparLocalizacao();
-        } else {
-            exibirAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao salvar no banco de dados.");
-        }
+        executarEmSegundoPlano(localizacaoDAO.executar(dao -> dao.inserir(loc)), inserida -> {
+            if (inserida) {
+                exibirAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Localização salva com sucesso.");
+                carregarLocalizacoes();
+                handleLimparLocalizacao();
+            } else {
+                exibirAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao salvar no banco de dados.");
+            }
+        });
     }
 
     /**
@@ -203,13 +209,15 @@ public class LocalizacaoController {
         // Cria um objeto Localizacao com os dados atualizados
         Localizacao loc = new Localizacao(optId.get(), setor, prateleira);
         // Se a atualização for bem sucedida, exibe alerta e recarrega os dados
-        if (localizacaoDAO.atualizar(loc)) {
-            exibirAlerta(Alert.AlertType.INFORMATION, "Atualizado", "Localização atualizada com sucesso.");
-            carregarLocalizacoes();
-            handleLimparLocalizacao();
-        } else {
-            exibirAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao atualizar. Verifique se o ID existe.");
-        }
+        executarEmSegundoPlano(localizacaoDAO.executar(dao -> dao.atualizar(loc)), atualizada -> {
+            if (atualizada) {
+                exibirAlerta(Alert.AlertType.INFORMATION, "Atualizado", "Localização atualizada com sucesso.");
+                carregarLocalizacoes();
+                handleLimparLocalizacao();
+            } else {
+                exibirAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao atualizar. Verifique se o ID existe.");
+            }
+        });
     }
 
     /**
@@ -231,13 +239,15 @@ public class LocalizacaoController {
         // Se o usuário confirmar a exclusão, tenta excluir o registo
         confirmacao.showAndWait().ifPresent(resposta -> {
             if (resposta == ButtonType.YES) {
-                if (localizacaoDAO.excluir(optId.get())) {
-                    exibirAlerta(Alert.AlertType.INFORMATION, "Excluído", "Localização excluída com sucesso.");
-                    carregarLocalizacoes();
-                    handleLimparLocalizacao();
-                } else {
-                    exibirAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao excluir. Verifique o ID.");
-                }
+                executarEmSegundoPlano(localizacaoDAO.executar(dao -> dao.excluir(optId.get())), excluida -> {
+                    if (excluida) {
+                        exibirAlerta(Alert.AlertType.INFORMATION, "Excluído", "Localização excluída com sucesso.");
+                        carregarLocalizacoes();
+                        handleLimparLocalizacao();
+                    } else {
+                        exibirAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao excluir. Verifique o ID.");
+                    }
+                });
             }
         });
     }
@@ -252,23 +262,24 @@ public class LocalizacaoController {
         Optional<Integer> optId = parseId(txtLocalizacaoId.getText());
         if (optId.isEmpty()) return;
 
-        Localizacao loc = localizacaoDAO.buscarPorId(optId.get());
-        if (loc != null) {
-            // Se a localização for encontrada, preenche os campos e seleciona o registo na tabela
-            preencherCampos(loc);
-            tblLocalizacoes.getItems().stream()
-                    .filter(item -> item.getId() == loc.getId())
-                    .findFirst()
-                    .ifPresent(item -> {
-                        tblLocalizacoes.getSelectionModel().select(item);
-                        tblLocalizacoes.scrollTo(item);
-                    });
-        } else {
-            // Se não encontrada, exibe uma mensagem informativa e limpa os campos de setor e prateleira
-            exibirAlerta(Alert.AlertType.INFORMATION, "Não encontrado", "Localização com ID " + optId.get() + " não encontrada.");
-            txtLocalizacaoSetor.clear();
-            txtLocalizacaoPrateleira.clear();
-        }
+        executarEmSegundoPlano(localizacaoDAO.executar(dao -> dao.buscarPorId(optId.get())), loc -> {
+            if (loc != null) {
+                // Se a localização for encontrada, preenche os campos e seleciona o registo na tabela
+                preencherCampos(loc);
+                tblLocalizacoes.getItems().stream()
+                        .filter(item -> item.getId() == loc.getId())
+                        .findFirst()
+                        .ifPresent(item -> {
+                            tblLocalizacoes.getSelectionModel().select(item);
+                            tblLocalizacoes.scrollTo(item);
+                        });
+            } else {
+                // Se não encontrada, exibe uma mensagem informativa e limpa os campos de setor e prateleira
+                exibirAlerta(Alert.AlertType.INFORMATION, "Não encontrado", "Localização com ID " + optId.get() + " não encontrada.");
+                txtLocalizacaoSetor.clear();
+                txtLocalizacaoPrateleira.clear();
+            }
+        });
     }
 
     /**
@@ -302,4 +313,16 @@ public class LocalizacaoController {
         alerta.setContentText(mensagem);
         alerta.showAndWait();
     }
+
+    /**
+     * Regista o tratamento do resultado de uma operação assíncrona do DAO na thread JavaFX.
+     * Se a comunicação com a base de dados falhar, mostra um alerta de erro.
+     *
+     * @param tarefa     A operação em curso.
+     * @param aoConcluir Ação executada com o resultado da operação.
+     */
+    private <T> void executarEmSegundoPlano(CompletableFuture<T> tarefa, Consumer<T> aoConcluir) {
+        FxAsync.naInterface(tarefa, aoConcluir,
+                erro -> exibirAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao comunicar com a base de dados: " + erro.getMessage()));
+    }
 }
@@ -1,5 +1,6 @@
 package controller;
 
+import dao.AsyncDAO;
 import dao.TemaDAO;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -10,6 +11,8 @@ import model.Tema;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 // Controlador responsável pela gestão dos Temas.
 // Permite criar, atualizar, excluir, buscar e limpar dados relativos à entidade Tema.
@@ -31,8 +34,8 @@ public class TemaController {
     @FXML
     private TableColumn<Tema, String> colTemaNome;    // Coluna para exibir o nome do tema
 
-    // Instância do DAO para operações na base de dados
-    private final TemaDAO temaDAO = new TemaDAO();
+    // DAO dos temas, executado em threads virtuais para não bloquear a interface
+    private final AsyncDAO<TemaDAO> temaDAO = new AsyncDAO<>(new TemaDAO());
     // Lista observável que contém os dados dos temas para a TableView
     private final ObservableList<Tema> temaData = FXCollections.observableArrayList();
 
@@ -71,7 +74,9 @@ public class TemaController {
      * Carrega todos os temas da base de dados e atualiza a lista observável.
      */
     private void carregarTemas() {
-        temaData.setAll(temaDAO.listarTodos());
+        FxAsync.naInterface(temaDAO.executar(TemaDAO::listarTodos),
+                temaData::setAll,
+                erro -> exibirAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao carregar temas: " + erro.getMessage()));
     }
 
     /**
@@ -106,11 +111,13 @@ public class TemaController {
 
         // Cria um novo objeto Tema com ID 0, indicando que é um novo registo
         Tema novoTema = new Tema(0, nome);
-        if (temaDAO.inserir(novoTema)) {
-            sucesso("Tema salvo com sucesso!");
-        } else {
-            erro("Falha ao salvar o tema.");
-        }
+        executarEmSegundoPlano(temaDAO.executar(dao -> dao.inserir(novoTema)), inserido -> {
+            if (inserido) {
+                sucesso("Tema salvo com sucesso!");
+            } else {
+                erro("Falha ao salvar o tema.");
+            }
+        });
     }
 
     /**
@@ -130,11 +137,13 @@ public class TemaController {
 
             // Cria um objeto Tema com os dados atualizados
             Tema tema = new Tema(id, nome);
-            if (temaDAO.atualizar(tema)) {
-                sucesso("Tema atualizado com sucesso!");
-            } else {
-                erro("Falha ao atualizar o tema.");
-            }
+            executarEmSegundoPlano(temaDAO.executar(dao -> dao.atualizar(tema)), atualizado -> {
+                if (atualizado) {
+                    sucesso("Tema atualizado com sucesso!");
+                } else {
+                    erro("Falha ao atualizar o tema.");
+                }
+            });
         } catch (NumberFormatException e) {
             erro("ID inválido.");
         }
@@ -151,11 +160,13 @@ public class TemaController {
 
             if (!confirmar("Tem certeza que deseja excluir o tema com ID " + id + "?")) return;
 
-            if (temaDAO.excluir(id)) {
-                sucesso("Tema excluído com sucesso!");
-            } else {
-                erro("Falha ao excluir o tema. Verifique se o ID existe ou está em uso.");
-            }
+            executarEmSegundoPlano(temaDAO.executar(dao -> dao.excluir(id)), excluido -> {
+                if (excluido) {
+                    sucesso("Tema excluído com sucesso!");
+                } else {
+                    erro("Falha ao excluir o tema. Verifique se o ID existe ou está em uso.");
+                }
+            });
 
         } catch (NumberFormatException e) {
             erro("ID inválido.");
@@ -183,15 +194,15 @@ public class TemaController {
     private void handleBuscarTemaPorId() {
         try {
             int id = Integer.parseInt(txtTemaId.getText().trim());
-            Tema tema = temaDAO.buscarPorId(id);
-
-            if (tema != null) {
-                preencherCampos(tema);
-                selecionarNaTabela(id);
-            } else {
-                exibirAlerta(Alert.AlertType.INFORMATION, "Não encontrado", "Tema com ID " + id + " não localizado.");
-                txtTemaNome.clear();
-            }
+            executarEmSegundoPlano(temaDAO.executar(dao -> dao.buscarPorId(id)), tema -> {
+                if (tema != null) {
+                    preencherCampos(tema);
+                    selecionarNaTabela(id);
+                } else {
+                    exibirAlerta(Alert.AlertType.INFORMATION, "Não encontrado", "Tema com ID " + id + " não localizado.");
+                    txtTemaNome.clear();
+                }
+            });
 
         } catch (NumberFormatException e) {
             erro("ID inválido.");
@@ -273,4 +284,16 @@ public class TemaController {
         alert.setContentText(mensagem);
         alert.showAndWait();
     }
+
+    /**
+     * Regista o tratamento do resultado de uma operação assíncrona do DAO na thread JavaFX.
+     * Se a comunicação com a base de dados falhar, mostra um alerta de erro.
+     *
+     * @param tarefa     A operação em curso.
+     * @param aoConcluir Ação executada com o resultado da operação.
+     */
+    private <T> void executarEmSegundoPlano(CompletableFuture<T> tarefa, Consumer<T> aoConcluir) {
+        FxAsync.naInterface(tarefa, aoConcluir,
+                erro -> exibirAlerta(Alert.AlertType.ERROR, "Erro", "Erro ao comunicar com a base de dados: " + erro.getMessage()));
+    }
 }
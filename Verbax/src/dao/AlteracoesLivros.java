@@ -0,0 +1,19 @@
+// Registo com as alterações do catálogo de livros desde uma marca, devolvido por LivroDAO.listarAlteracoesDesde.
+package dao;
+
+import model.Livro;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Livros inseridos, alterados e excluídos desde uma marca.
+ *
+ * @param alterados  Os livros inseridos ou alterados, com as entidades relacionadas.
+ * @param removidos  Os ids dos livros excluídos.
+ * @param marca      A marca a usar na consulta seguinte.
+ * @param incompleto true se havia mais alterações do que o limite pedido; nesse caso as listas vêm vazias
+ *                   e quem mostra os livros deve voltar a lê-los da base de dados.
+ */
+public record AlteracoesLivros(List<Livro> alterados, List<Integer> removidos, Timestamp marca, boolean incompleto) {
+}
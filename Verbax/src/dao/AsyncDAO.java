@@ -0,0 +1,81 @@
+// Fachada assíncrona sobre os DAOs.
+// Executa as operações de acesso a dados em threads virtuais, fora da thread da interface gráfica.
+package dao;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Envolve qualquer um dos DAOs (LivroDAO, AutorDAO, TemaDAO, EditoraDAO, LocalizacaoDAO)
+ * e executa as suas operações em threads virtuais, devolvendo um CompletableFuture com o resultado.
+ * <p>
+ * Exemplo: {@code new AsyncDAO<>(new LivroDAO()).executar(LivroDAO::listarTodos)}.
+ *
+ * @param <D> O tipo do DAO envolvido.
+ */
+public class AsyncDAO<D> {
+
+    // Executor partilhado: cada operação corre na sua própria thread virtual.
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    // DAO síncrono ao qual as operações são delegadas.
+    private final D dao;
+
+    /**
+     * Operação de um DAO que lança a SQLException em vez de a tratar.
+     */
+    @FunctionalInterface
+    public interface OperacaoSql<D, T> {
+        T executar(D dao) throws SQLException;
+    }
+
+    public AsyncDAO(D dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Executa uma operação do DAO numa thread virtual.
+     *
+     * @param operacao A operação a executar sobre o DAO (por exemplo, {@code d -> d.buscarPorId(id)}).
+     * @return Um CompletableFuture concluído com o resultado da operação.
+     */
+    public <T> CompletableFuture<T> executar(Function<D, T> operacao) {
+        return CompletableFuture.supplyAsync(() -> operacao.apply(dao), EXECUTOR);
+    }
+
+    /**
+     * Executa numa thread virtual uma operação do DAO que pode lançar SQLException. Ao contrário dos
+     * métodos que devolvem uma lista vazia em caso de erro, uma falha conclui o CompletableFuture com
+     * erro, pelo que o chamador a distingue de um resultado vazio.
+     *
+     * @param operacao A operação a executar sobre o DAO (por exemplo, {@code d -> d.consultarPagina(null, 50, SEGUINTE)}).
+     * @return Um CompletableFuture concluído com o resultado, ou com uma CompletionException com a SQLException.
+     */
+    public <T> CompletableFuture<T> executarComFalhas(OperacaoSql<D, T> operacao) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return operacao.executar(dao);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Devolve o executor de threads virtuais usado pelas operações assíncronas.
+     *
+     * @return O executor partilhado.
+     */
+    public static ExecutorService getExecutor() {
+        return EXECUTOR;
+    }
+
+    // Devolve o DAO síncrono envolvido.
+    public D getDao() {
+        return dao;
+    }
+}
@@ -3,13 +3,31 @@
 package dao;
 
 import model.Autor;
+import util.ArvorePrefixos;
+import util.CacheTabela;
 import util.DBConnection;
+import util.Texto;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
-public class AutorDAO {
+public class AutorDAO implements TabelaReferenciaDAO<Autor> {
+
+    // Cache partilhada por todas as instâncias deste DAO, invalidada em cada escrita.
+    private static final CacheTabela<Autor> CACHE = new CacheTabela<>(Autor::getId, 5 * 60 * 1000L);
+    // Árvore de prefixos com o nome de cada registo, para as sugestões das ComboBoxes à medida que se escreve.
+    private static final ArvorePrefixos<Autor> PREFIXOS = new ArvorePrefixos<>(Autor::getId,
+            Autor::getNome, 5 * 60 * 1000L);
+
+    // Colunas lidas da tabela "autor", resolvidas por posição uma vez por consulta, e conversão de cada linha.
+    private static final Colunas COLUNAS = new Colunas("id", "nome", "nacionalidade");
+    private static final MapeadorLinha<Autor> MAPEADOR = (rs, c) -> new Autor(rs.getInt(c[0]), rs.getString(c[1]), rs.getString(c[2]));
+
+    // Método que devolve a cache da tabela "autor", com os contadores de acertos e falhas.
+    public static CacheTabela<Autor> getCache() {
+        return CACHE;
+    }
 
     // Método que insere um novo Autor na base de dados.
     public boolean inserir(Autor autor) {
@@ -18,7 +36,7 @@ public class AutorDAO {
 
         // Utiliza try-with-resources para garantir o fecho automático dos recursos (ligação e statement).
         try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             // Define os parâmetros da query usando os valores do objeto Autor.
             stmt.setString(1, autor.getNome());
@@ -26,6 +44,15 @@ public class AutorDAO {
 
             // Executa a instrução de inserção na base de dados.
             stmt.executeUpdate();
+            // Guarda no objeto o id gerado, necessário para o acrescentar à árvore de sugestões.
+            try (ResultSet chaves = stmt.getGeneratedKeys()) {
+                if (chaves.next()) {
+                    autor.setId(chaves.getInt(1));
+                }
+            }
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.adicionar(autor);
             return true;
 
         } catch (SQLException e) {
@@ -35,8 +62,39 @@ public class AutorDAO {
         }
     }
 
-    // Método que retorna uma lista com todos os Autores existentes na base de dados.
+    // Método que insere uma lista de Autores em lote, com o tamanho de bloco por omissão.
+    public ResultadoLote inserirEmLote(List<Autor> autores) {
+        return inserirEmLote(autores, InsercaoEmLote.TAMANHO_LOTE_PADRAO);
+    }
+
+    // Método que insere uma lista de Autores em lote, com uma transação por cada bloco de tamanhoLote registos.
+    public ResultadoLote inserirEmLote(List<Autor> autores, int tamanhoLote) {
+        // Mesma query da inserção individual, executada com addBatch/executeBatch.
+        String sql = "INSERT INTO autor (nome, nacionalidade) VALUES (?, ?)";
+
+        ResultadoLote resultado = InsercaoEmLote.executar(sql, autores, tamanhoLote, (stmt, autor) -> {
+            stmt.setString(1, autor.getNome());
+            stmt.setString(2, autor.getNacionalidade());
+        }, Autor::setId, "autores");
+        // Mesmo com falhas parciais podem ter sido inseridos registos: a cache e a árvore de sugestões são invalidadas.
+        CACHE.invalidar();
+        PREFIXOS.invalidar();
+        return resultado;
+    }
+
+    // Método que retorna uma lista com todos os Autores, servida pela cache sempre que possível.
     public List<Autor> listarTodos() {
+        try {
+            return CACHE.listarTodos(this::consultarTodos);
+        } catch (SQLException e) {
+            // Em caso de erro, regista a mensagem no console e retorna uma lista vazia.
+            System.err.println("Erro ao listar autores: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Método que consulta na base de dados a lista com todos os Autores (sem passar pela cache).
+    private List<Autor> consultarTodos() throws SQLException {
         // Lista para armazenar os autores obtidos.
         List<Autor> lista = new ArrayList<>();
         // Query SQL para selecionar todos os registos da tabela "autor".
@@ -47,24 +105,47 @@ public class AutorDAO {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
-            // Itera sobre os registos retornados no ResultSet.
-            while (rs.next()) {
-                // Cria uma nova instância de Autor e atribui os dados do registo.
-                Autor autor = new Autor();
-                autor.setId(rs.getInt("id"));
-                autor.setNome(rs.getString("nome"));
-                autor.setNacionalidade(rs.getString("nacionalidade"));
-                // Adiciona o objeto Autor à lista.
-                lista.add(autor);
+            // Converte cada registo retornado num objeto Autor, lendo as colunas por posição.
+            lista = COLUNAS.listar(sql, rs, MAPEADOR);
+        }
+
+        // Retorna a lista de autores.
+        return lista;
+    }
+
+    // Método que devolve uma página de autores, por ordem de id, a seguir a depoisDoId (null para a primeira página).
+    // Com filtro, só devolve os registos cujo nome contenha o texto, sem distinguir maiúsculas de minúsculas.
+    // Usado pelas ComboBoxes, que leem a tabela aos poucos em vez de a carregarem inteira; uma falha é lançada,
+    // e não devolvida como lista vazia, para a ComboBox não a mostrar como "sem registos".
+    public List<Autor> listarPagina(String filtro, Integer depoisDoId, int tamanhoPagina) throws SQLException {
+        boolean filtrar = filtro != null && !filtro.isBlank();
+        // Paginação por chave: continua a partir do último id visto, com LIMIT em vez de OFFSET.
+        String sql = "SELECT * FROM autor WHERE id > ?" + (filtrar ? " AND LOWER(nome) LIKE ?" : "") + " ORDER BY id LIMIT ?";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = 1;
+            stmt.setInt(indice++, depoisDoId == null ? 0 : depoisDoId);
+            if (filtrar) {
+                stmt.setString(indice++, Texto.padraoContem(filtro));
+            }
+            stmt.setInt(indice, tamanhoPagina);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return COLUNAS.listar(sql, rs, MAPEADOR);
             }
+        }
+    }
 
+    // Método que devolve até limite autores cujo nome tenha uma palavra começada pelo texto,
+    // sem distinguir acentos nem maiúsculas. Servido pela árvore de prefixos em memória, carregada da cache na primeira utilização.
+    public List<Autor> sugerir(String texto, int limite) {
+        try {
+            return PREFIXOS.procurar(texto, limite, () -> CACHE.listarTodos(this::consultarTodos));
         } catch (SQLException e) {
-            // Em caso de erro, regista a mensagem no console.
-            System.err.println("Erro ao listar autores: " + e.getMessage());
+            System.err.println("Erro ao sugerir autores: " + e.getMessage());
+            return new ArrayList<>();
         }
-
-        // Retorna a lista de autores (pode estar vazia se ocorrer algum erro).
-        return lista;
     }
 
     // Método que atualiza os dados de um Autor existente na base de dados.
@@ -82,7 +163,17 @@ public class AutorDAO {
             stmt.setInt(3, autor.getId());
 
             // Executa a instrução de atualização na base de dados.
-            stmt.executeUpdate();
+            // Nenhuma linha alterada: o id não existe (ou foi excluído noutro posto), e a árvore de sugestões não muda.
+            if (stmt.executeUpdate() == 0) {
+                System.err.println("Erro ao atualizar autor: não existe nenhum registo com o ID " + autor.getId() + ".");
+                return false;
+            }
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.adicionar(autor);
+            // Os livros em cache incluem os dados desta tabela (e a exclusão apaga livros em cascata).
+            LivroDAO.invalidarCache();
+            IndicePesquisaLivros.getInstancia().renomearAutor(autor);
             return true;
 
         } catch (SQLException e) {
@@ -97,15 +188,18 @@ public class AutorDAO {
         // Query SQL para eliminar o autor cuja id coincide com a fornecida.
         String sql = "DELETE FROM autor WHERE id = ?";
 
-        // Utiliza try-with-resources para gerir a ligação e o prepared statement.
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            // Define o parâmetro id para a query.
-            stmt.setInt(1, id);
-
-            // Executa a instrução de eliminação na base de dados.
-            stmt.executeUpdate();
+        // Utiliza try-with-resources para gerir a ligação.
+        try (Connection conn = DBConnection.getConnection()) {
+
+            // Executa a eliminação, registando na mesma transação os livros apagados em cascata.
+            LivroDAO.excluirRegistandoRemovidos(conn, "id_autor", sql, id);
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.remover(id);
+            // Os livros em cache incluem os dados desta tabela (e a exclusão apaga livros em cascata).
+            LivroDAO.invalidarCache();
+            IndicePesquisaLivros.getInstancia().removerAutor(id);
+            IndiceIsbn.getInstancia().invalidar();
             return true;
 
         } catch (SQLException e) {
@@ -115,8 +209,19 @@ public class AutorDAO {
         }
     }
 
-    // Método que procura e retorna um Autor com base no seu identificador.
+    // Método que procura e retorna um Autor pelo seu identificador, servido pela cache sempre que possível.
     public Autor buscarPorId(int id) {
+        try {
+            return CACHE.buscarPorId(id, this::consultarPorId);
+        } catch (SQLException e) {
+            // Em caso de erro, regista a mensagem no console e retorna null.
+            System.err.println("Erro ao buscar autor por ID: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Método que consulta na base de dados um Autor com base no seu identificador (sem passar pela cache).
+    private Autor consultarPorId(int id) throws SQLException {
         // Query SQL para selecionar o autor com o id fornecido.
         String sql = "SELECT * FROM autor WHERE id = ?";
         Autor autor = null;
@@ -131,17 +236,8 @@ public class AutorDAO {
             // Executa a query e obtém o conjunto de resultados.
             ResultSet rs = stmt.executeQuery();
 
-            // Se existir um registo, cria um objeto Autor com os dados obtidos.
-            if (rs.next()) {
-                autor = new Autor();
-                autor.setId(rs.getInt("id"));
-                autor.setNome(rs.getString("nome"));
-                autor.setNacionalidade(rs.getString("nacionalidade"));
-            }
-
-        } catch (SQLException e) {
-            // Em caso de erro, regista a mensagem no console.
-            System.err.println("Erro ao buscar autor por ID: " + e.getMessage());
+            // Se existir um registo, converte-o num objeto Autor.
+            autor = COLUNAS.primeiro(sql, rs, MAPEADOR);
         }
 
         // Retorna o Autor encontrado ou null se não existir.
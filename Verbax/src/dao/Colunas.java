@@ -0,0 +1,103 @@
+// Classe que resolve as posições das colunas de uma consulta a partir dos seus rótulos, uma única vez por SQL.
+package dao;
+
+import util.MetricasJdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lista de rótulos de colunas lidos por um DAO, com as respetivas posições em cada consulta.
+ * <p>
+ * Ler por rótulo (rs.getString("nome")) obriga o driver a procurar a coluna em cada campo de cada linha.
+ * Aqui os rótulos são procurados uma só vez no ResultSetMetaData da primeira execução de cada SQL e as
+ * posições ficam guardadas, de modo que o mapeamento das linhas usa apenas getters por posição.
+ */
+final class Colunas {
+
+    // Limite de instruções SQL distintas guardadas (as consultas com IN (?, ?, ...) variam com o número de ids).
+    private static final int MAXIMO_CONSULTAS = 256;
+
+    private final String[] rotulos;
+    private final Map<String, int[]> posicoesPorSql = new ConcurrentHashMap<>();
+
+    /**
+     * @param rotulos Os rótulos das colunas lidas pelo mapeador, pela ordem em que o mapeador as indexa.
+     */
+    Colunas(String... rotulos) {
+        this.rotulos = rotulos.clone();
+    }
+
+    /**
+     * Devolve as posições das colunas no resultado da consulta, resolvendo-as apenas na primeira vez.
+     *
+     * @param sql O texto da consulta que produziu o ResultSet (chave da cache).
+     * @param rs  O ResultSet dessa consulta.
+     * @return As posições (base 1), pela ordem dos rótulos.
+     * @throws SQLException Se alguma coluna não existir no resultado.
+     */
+    int[] resolver(String sql, ResultSet rs) throws SQLException {
+        int[] posicoes = posicoesPorSql.get(sql);
+        if (posicoes == null) {
+            posicoes = resolver(rs.getMetaData());
+            if (posicoesPorSql.size() >= MAXIMO_CONSULTAS) {
+                posicoesPorSql.clear();
+            }
+            posicoesPorSql.put(sql, posicoes);
+        }
+        return posicoes;
+    }
+
+    // Procura cada rótulo nos metadados do resultado (sem distinguir maiúsculas, como o driver).
+    private int[] resolver(ResultSetMetaData metadados) throws SQLException {
+        Map<String, Integer> porRotulo = new HashMap<>();
+        for (int i = metadados.getColumnCount(); i >= 1; i--) {
+            // Percorre do fim para o início para que, em rótulos repetidos, fique a primeira coluna.
+            porRotulo.put(metadados.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        int[] posicoes = new int[rotulos.length];
+        for (int i = 0; i < rotulos.length; i++) {
+            Integer posicao = porRotulo.get(rotulos[i].toLowerCase(Locale.ROOT));
+            if (posicao == null) {
+                throw new SQLException("Coluna '" + rotulos[i] + "' não encontrada no resultado da consulta.");
+            }
+            posicoes[i] = posicao;
+        }
+        return posicoes;
+    }
+
+    /**
+     * Converte todas as linhas restantes do ResultSet.
+     *
+     * @return A lista das entidades, pela ordem do resultado.
+     */
+    <T> List<T> listar(String sql, ResultSet rs, MapeadorLinha<T> mapeador) throws SQLException {
+        List<T> lista = new ArrayList<>();
+        int[] posicoes = resolver(sql, rs);
+        while (rs.next()) {
+            lista.add(mapeador.mapear(rs, posicoes));
+        }
+        MetricasJdbc.registarLinhas(lista.size());
+        return lista;
+    }
+
+    /**
+     * Converte a primeira linha do ResultSet.
+     *
+     * @return A entidade, ou null se o resultado estiver vazio.
+     */
+    <T> T primeiro(String sql, ResultSet rs, MapeadorLinha<T> mapeador) throws SQLException {
+        if (!rs.next()) {
+            return null;
+        }
+        MetricasJdbc.registarLinhas(1);
+        return mapeador.mapear(rs, resolver(sql, rs));
+    }
+}
@@ -0,0 +1,220 @@
+// Classe que descreve uma consulta de livros (ordenação e filtros), traduzida para SQL por LivroDAO.listarPagina.
+package dao;
+
+import model.Livro;
+import util.Texto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Ordenação e filtros de uma consulta paginada de livros.
+ * <p>
+ * Os métodos de configuração devolvem a própria consulta, para poderem ser encadeados:
+ * <pre>
+ * new ConsultaLivros().ordenarPor(ConsultaLivros.Ordem.AUTOR, true).comAnoEntre(1990, 1999).doTema(3)
+ * </pre>
+ * A consulta é traduzida num WHERE com os filtros e um ORDER BY pela coluna escolhida e pelo id, que
+ * desempata livros com o mesmo valor. A página seguinte continua a partir do último livro da anterior
+ * (paginação por chave sobre o par coluna/id), sem OFFSET, pelo que o custo de cada página não depende
+ * da posição na tabela.
+ */
+public class ConsultaLivros {
+
+    /**
+     * Colunas pelas quais os livros podem ser ordenados.
+     */
+    public enum Ordem {
+        ID("l.id", Livro::getId, false),
+        TITULO("l.titulo", Livro::getTitulo, false),
+        ANO("l.ano_publicacao", Livro::getAnoPublicacao, false),
+        ISBN("l.isbn", Livro::getIsbn, true),
+        AUTOR("a.nome", livro -> livro.getAutor().getNome(), false),
+        TEMA("t.nome", livro -> livro.getTema().getNome(), false),
+        EDITORA("e.nome", livro -> livro.getEditora().getNome(), false),
+        LOCALIZACAO("loc.setor", livro -> livro.getLocalizacao().getSetor(), false);
+
+        // Expressão SQL da coluna, com os aliases de LivroDAO.
+        private final String expressao;
+        // Valor da coluna num livro já lido, usado como chave da página seguinte.
+        private final Function<Livro, Object> valor;
+        // Se a coluna aceita NULL (que o MySQL e o H2 ordenam antes de qualquer valor).
+        private final boolean anulavel;
+
+        Ordem(String expressao, Function<Livro, Object> valor, boolean anulavel) {
+            this.expressao = expressao;
+            this.valor = valor;
+            this.anulavel = anulavel;
+        }
+    }
+
+    private Ordem ordem = Ordem.ID;
+    private boolean ascendente = true;
+    private Integer anoMinimo;
+    private Integer anoMaximo;
+    private Integer idAutor;
+    private Integer idTema;
+    private Integer idEditora;
+    private Integer idLocalizacao;
+    private String titulo;
+
+    // Método que define a coluna e o sentido da ordenação.
+    public ConsultaLivros ordenarPor(Ordem ordem, boolean ascendente) {
+        this.ordem = Objects.requireNonNull(ordem);
+        this.ascendente = ascendente;
+        return this;
+    }
+
+    // Método que limita o ano de publicação (qualquer dos limites pode ser null).
+    public ConsultaLivros comAnoEntre(Integer minimo, Integer maximo) {
+        this.anoMinimo = minimo;
+        this.anoMaximo = maximo;
+        return this;
+    }
+
+    // Método que filtra pelo autor (null para todos).
+    public ConsultaLivros doAutor(Integer idAutor) {
+        this.idAutor = idAutor;
+        return this;
+    }
+
+    // Método que filtra pelo tema (null para todos).
+    public ConsultaLivros doTema(Integer idTema) {
+        this.idTema = idTema;
+        return this;
+    }
+
+    // Método que filtra pela editora (null para todas).
+    public ConsultaLivros daEditora(Integer idEditora) {
+        this.idEditora = idEditora;
+        return this;
+    }
+
+    // Método que filtra pela localização (null para todas).
+    public ConsultaLivros naLocalizacao(Integer idLocalizacao) {
+        this.idLocalizacao = idLocalizacao;
+        return this;
+    }
+
+    // Método que filtra pelos títulos que contêm o texto, sem distinguir maiúsculas (null ou vazio para todos).
+    public ConsultaLivros comTituloContendo(String titulo) {
+        this.titulo = titulo == null || titulo.isBlank() ? null : titulo.trim();
+        return this;
+    }
+
+    public Ordem getOrdem() {
+        return ordem;
+    }
+
+    public boolean isAscendente() {
+        return ascendente;
+    }
+
+    // Indica se a consulta é a da tabela sem ordenação nem filtros: todos os livros por id crescente.
+    public boolean isPorOmissao() {
+        return ordem == Ordem.ID && ascendente && !temFiltros();
+    }
+
+    // Indica se algum filtro está ativo.
+    public boolean temFiltros() {
+        return anoMinimo != null || anoMaximo != null || idAutor != null || idTema != null
+                || idEditora != null || idLocalizacao != null || titulo != null;
+    }
+
+    /**
+     * Constrói as cláusulas WHERE e ORDER BY da consulta, a acrescentar à consulta base de LivroDAO.
+     *
+     * @param depoisDe   O último livro da página anterior, ou null para a primeira página.
+     * @param parametros Lista onde são acrescentados os valores dos parâmetros, pela ordem dos "?".
+     * @return As cláusulas, começando por um espaço.
+     */
+    String clausulas(Livro depoisDe, List<Object> parametros) {
+        List<String> condicoes = new ArrayList<>();
+        if (anoMinimo != null) {
+            condicoes.add("l.ano_publicacao >= ?");
+            parametros.add(anoMinimo);
+        }
+        if (anoMaximo != null) {
+            condicoes.add("l.ano_publicacao <= ?");
+            parametros.add(anoMaximo);
+        }
+        adicionarIgual(condicoes, parametros, "l.id_autor", idAutor);
+        adicionarIgual(condicoes, parametros, "l.id_tema", idTema);
+        adicionarIgual(condicoes, parametros, "l.id_editora", idEditora);
+        adicionarIgual(condicoes, parametros, "l.id_localizacao", idLocalizacao);
+        if (titulo != null) {
+            condicoes.add("LOWER(l.titulo) LIKE ?");
+            parametros.add(Texto.padraoContem(titulo));
+        }
+        if (depoisDe != null) {
+            condicoes.add(condicaoSeguinte(depoisDe, parametros));
+        }
+
+        String sentido = ascendente ? " ASC" : " DESC";
+        String ordenacao = ordem == Ordem.ID
+                ? " ORDER BY l.id" + sentido
+                : " ORDER BY " + ordem.expressao + sentido + ", l.id" + sentido;
+        return (condicoes.isEmpty() ? "" : " WHERE " + String.join(" AND ", condicoes)) + ordenacao;
+    }
+
+    // Condição dos livros que vêm depois do indicado na ordenação: valor da coluna seguinte, ou igual com id seguinte.
+    private String condicaoSeguinte(Livro depoisDe, List<Object> parametros) {
+        String maior = ascendente ? " > ?" : " < ?";
+        if (ordem == Ordem.ID) {
+            parametros.add(depoisDe.getId());
+            return "l.id" + maior;
+        }
+        String coluna = ordem.expressao;
+        Object valor = ordem.valor.apply(depoisDe);
+        if (valor == null) {
+            // Os NULL vêm antes de todos os valores: a seguir vêm os restantes NULL (por id) e, por ordem
+            // crescente, todos os valores não nulos.
+            parametros.add(depoisDe.getId());
+            return ascendente
+                    ? "((" + coluna + " IS NULL AND l.id > ?) OR " + coluna + " IS NOT NULL)"
+                    : "(" + coluna + " IS NULL AND l.id < ?)";
+        }
+        parametros.add(valor);
+        parametros.add(valor);
+        parametros.add(depoisDe.getId());
+        String seguinte = "(" + coluna + maior + " OR (" + coluna + " = ? AND l.id" + maior + ")";
+        // Por ordem decrescente os NULL ficam no fim.
+        return ordem.anulavel && !ascendente ? seguinte + " OR " + coluna + " IS NULL)" : seguinte + ")";
+    }
+
+    private static void adicionarIgual(List<String> condicoes, List<Object> parametros, String coluna, Integer valor) {
+        if (valor != null) {
+            condicoes.add(coluna + " = ?");
+            parametros.add(valor);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConsultaLivros outra)) {
+            return false;
+        }
+        return ordem == outra.ordem && ascendente == outra.ascendente
+                && Objects.equals(anoMinimo, outra.anoMinimo) && Objects.equals(anoMaximo, outra.anoMaximo)
+                && Objects.equals(idAutor, outra.idAutor) && Objects.equals(idTema, outra.idTema)
+                && Objects.equals(idEditora, outra.idEditora) && Objects.equals(idLocalizacao, outra.idLocalizacao)
+                && Objects.equals(titulo, outra.titulo);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ordem, ascendente, anoMinimo, anoMaximo, idAutor, idTema, idEditora, idLocalizacao, titulo);
+    }
+
+    @Override
+    public String toString() {
+        return "ConsultaLivros{ordem=" + ordem + (ascendente ? " ASC" : " DESC") + ", ano=" + anoMinimo + ".." + anoMaximo
+                + ", autor=" + idAutor + ", tema=" + idTema + ", editora=" + idEditora
+                + ", localizacao=" + idLocalizacao + ", titulo=" + titulo + "}";
+    }
+}
@@ -3,13 +3,31 @@
 package dao;
 
 import model.Editora;
+import util.ArvorePrefixos;
+import util.CacheTabela;
 import util.DBConnection;
+import util.Texto;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
-public class EditoraDAO {
+public class EditoraDAO implements TabelaReferenciaDAO<Editora> {
+
+    // Cache partilhada por todas as instâncias deste DAO, invalidada em cada escrita.
+    private static final CacheTabela<Editora> CACHE = new CacheTabela<>(Editora::getId, 5 * 60 * 1000L);
+    // Árvore de prefixos com o nome de cada registo, para as sugestões das ComboBoxes à medida que se escreve.
+    private static final ArvorePrefixos<Editora> PREFIXOS = new ArvorePrefixos<>(Editora::getId,
+            Editora::getNome, 5 * 60 * 1000L);
+
+    // Colunas lidas da tabela "editora", resolvidas por posição uma vez por consulta, e conversão de cada linha.
+    private static final Colunas COLUNAS = new Colunas("id", "nome", "cidade");
+    private static final MapeadorLinha<Editora> MAPEADOR = (rs, c) -> new Editora(rs.getInt(c[0]), rs.getString(c[1]), rs.getString(c[2]));
+
+    // Método que devolve a cache da tabela "editora", com os contadores de acertos e falhas.
+    public static CacheTabela<Editora> getCache() {
+        return CACHE;
+    }
 
     // Método que insere uma nova editora na base de dados.
     public boolean inserir(Editora editora) {
@@ -18,13 +36,22 @@ public class EditoraDAO {
 
         // Utiliza try-with-resources para garantir o fecho automático dos recursos (ligação e statement).
         try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             // Define os parâmetros da query com os valores do objeto Editora.
             stmt.setString(1, editora.getNome());
             stmt.setString(2, editora.getCidade());
             // Executa a query de inserção.
             stmt.executeUpdate();
+            // Guarda no objeto o id gerado, necessário para o acrescentar à árvore de sugestões.
+            try (ResultSet chaves = stmt.getGeneratedKeys()) {
+                if (chaves.next()) {
+                    editora.setId(chaves.getInt(1));
+                }
+            }
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.adicionar(editora);
             return true;
 
         } catch (SQLException e) {
@@ -34,8 +61,39 @@ public class EditoraDAO {
         }
     }
 
-    // Método que retorna uma lista com todas as editoras registadas na base de dados.
+    // Método que insere uma lista de Editoras em lote, com o tamanho de bloco por omissão.
+    public ResultadoLote inserirEmLote(List<Editora> editoras) {
+        return inserirEmLote(editoras, InsercaoEmLote.TAMANHO_LOTE_PADRAO);
+    }
+
+    // Método que insere uma lista de Editoras em lote, com uma transação por cada bloco de tamanhoLote registos.
+    public ResultadoLote inserirEmLote(List<Editora> editoras, int tamanhoLote) {
+        // Mesma query da inserção individual, executada com addBatch/executeBatch.
+        String sql = "INSERT INTO editora (nome, cidade) VALUES (?, ?)";
+
+        ResultadoLote resultado = InsercaoEmLote.executar(sql, editoras, tamanhoLote, (stmt, editora) -> {
+            stmt.setString(1, editora.getNome());
+            stmt.setString(2, editora.getCidade());
+        }, Editora::setId, "editoras");
+        // Mesmo com falhas parciais podem ter sido inseridos registos: a cache e a árvore de sugestões são invalidadas.
+        CACHE.invalidar();
+        PREFIXOS.invalidar();
+        return resultado;
+    }
+
+    // Método que retorna uma lista com todas as Editoras, servida pela cache sempre que possível.
     public List<Editora> listarTodos() {
+        try {
+            return CACHE.listarTodos(this::consultarTodos);
+        } catch (SQLException e) {
+            // Em caso de erro, regista a mensagem no console e retorna uma lista vazia.
+            System.err.println("Erro ao listar editoras: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Método que consulta na base de dados a lista com todas as Editoras (sem passar pela cache).
+    private List<Editora> consultarTodos() throws SQLException {
         // Lista para armazenar as editoras obtidas.
         List<Editora> lista = new ArrayList<>();
         // Query SQL para selecionar todos os registos da tabela "editora".
@@ -46,24 +104,47 @@ public class EditoraDAO {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
-            // Itera por cada registo retornado.
-            while (rs.next()) {
-                // Cria um novo objeto Editora e define os seus atributos com base nos resultados da query.
-                Editora editora = new Editora();
-                editora.setId(rs.getInt("id"));
-                editora.setNome(rs.getString("nome"));
-                editora.setCidade(rs.getString("cidade"));
-                // Adiciona o objeto à lista de editoras.
-                lista.add(editora);
+            // Converte cada registo retornado num objeto Editora, lendo as colunas por posição.
+            lista = COLUNAS.listar(sql, rs, MAPEADOR);
+        }
+
+        // Retorna a lista de editoras.
+        return lista;
+    }
+
+    // Método que devolve uma página de editoras, por ordem de id, a seguir a depoisDoId (null para a primeira página).
+    // Com filtro, só devolve os registos cujo nome contenha o texto, sem distinguir maiúsculas de minúsculas.
+    // Usado pelas ComboBoxes, que leem a tabela aos poucos em vez de a carregarem inteira; uma falha é lançada,
+    // e não devolvida como lista vazia, para a ComboBox não a mostrar como "sem registos".
+    public List<Editora> listarPagina(String filtro, Integer depoisDoId, int tamanhoPagina) throws SQLException {
+        boolean filtrar = filtro != null && !filtro.isBlank();
+        // Paginação por chave: continua a partir do último id visto, com LIMIT em vez de OFFSET.
+        String sql = "SELECT * FROM editora WHERE id > ?" + (filtrar ? " AND LOWER(nome) LIKE ?" : "") + " ORDER BY id LIMIT ?";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = 1;
+            stmt.setInt(indice++, depoisDoId == null ? 0 : depoisDoId);
+            if (filtrar) {
+                stmt.setString(indice++, Texto.padraoContem(filtro));
+            }
+            stmt.setInt(indice, tamanhoPagina);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return COLUNAS.listar(sql, rs, MAPEADOR);
             }
+        }
+    }
 
+    // Método que devolve até limite editoras cujo nome tenha uma palavra começada pelo texto,
+    // sem distinguir acentos nem maiúsculas. Servido pela árvore de prefixos em memória, carregada da cache na primeira utilização.
+    public List<Editora> sugerir(String texto, int limite) {
+        try {
+            return PREFIXOS.procurar(texto, limite, () -> CACHE.listarTodos(this::consultarTodos));
         } catch (SQLException e) {
-            // Em caso de exceção, regista a mensagem de erro.
-            System.err.println("Erro ao listar editoras: " + e.getMessage());
+            System.err.println("Erro ao sugerir editoras: " + e.getMessage());
+            return new ArrayList<>();
         }
-
-        // Retorna a lista de editoras (pode estar vazia se ocorrer algum erro).
-        return lista;
     }
 
     // Método que atualiza os dados de uma editora existente na base de dados.
@@ -80,7 +161,17 @@ public class EditoraDAO {
             stmt.setString(2, editora.getCidade());
             stmt.setInt(3, editora.getId());
             // Executa a query de atualização.
-            stmt.executeUpdate();
+            // Nenhuma linha alterada: o id não existe (ou foi excluído noutro posto), e a árvore de sugestões não muda.
+            if (stmt.executeUpdate() == 0) {
+                System.err.println("Erro ao atualizar editora: não existe nenhum registo com o ID " + editora.getId() + ".");
+                return false;
+            }
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.adicionar(editora);
+            // Os livros em cache incluem os dados desta tabela (e a exclusão apaga livros em cascata).
+            LivroDAO.invalidarCache();
+            IndicePesquisaLivros.getInstancia().renomearEditora(editora);
             return true;
 
         } catch (SQLException e) {
@@ -95,14 +186,18 @@ public class EditoraDAO {
         // Query SQL para eliminar o registo correspondente na tabela "editora".
         String sql = "DELETE FROM editora WHERE id = ?";
 
-        // Utiliza try-with-resources para gerir a ligação e o prepared statement.
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            // Define o parâmetro para a query.
-            stmt.setInt(1, id);
-            // Executa a query de eliminação.
-            stmt.executeUpdate();
+        // Utiliza try-with-resources para gerir a ligação.
+        try (Connection conn = DBConnection.getConnection()) {
+
+            // Executa a eliminação, registando na mesma transação os livros apagados em cascata.
+            LivroDAO.excluirRegistandoRemovidos(conn, "id_editora", sql, id);
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.remover(id);
+            // Os livros em cache incluem os dados desta tabela (e a exclusão apaga livros em cascata).
+            LivroDAO.invalidarCache();
+            IndicePesquisaLivros.getInstancia().removerEditora(id);
+            IndiceIsbn.getInstancia().invalidar();
             return true;
 
         } catch (SQLException e) {
@@ -112,8 +207,19 @@ public class EditoraDAO {
         }
     }
 
-    // Método que procura e retorna uma editora com base no seu identificador.
+    // Método que procura e retorna uma Editora pelo seu identificador, servido pela cache sempre que possível.
     public Editora buscarPorId(int id) {
+        try {
+            return CACHE.buscarPorId(id, this::consultarPorId);
+        } catch (SQLException e) {
+            // Em caso de erro, regista a mensagem no console e retorna null.
+            System.err.println("Erro ao buscar editora por ID: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Método que consulta na base de dados uma editora com base no seu identificador (sem passar pela cache).
+    private Editora consultarPorId(int id) throws SQLException {
         // Query SQL para selecionar a editora de acordo com o id.
         String sql = "SELECT * FROM editora WHERE id = ?";
         // Variável para armazenar a editora encontrada.
@@ -128,17 +234,8 @@ public class EditoraDAO {
             // Executa a query e obtém o conjunto de resultados.
             ResultSet rs = stmt.executeQuery();
 
-            // Se um registo for retornado, cria um objeto Editora e define os seus atributos.
-            if (rs.next()) {
-                editora = new Editora();
-                editora.setId(rs.getInt("id"));
-                editora.setNome(rs.getString("nome"));
-                editora.setCidade(rs.getString("cidade"));
-            }
-
-        } catch (SQLException e) {
-            // Em caso de exceção, regista a mensagem de erro.
-            System.err.println("Erro ao buscar editora por ID: " + e.getMessage());
+            // Se existir um registo, converte-o num objeto Editora.
+            editora = COLUNAS.primeiro(sql, rs, MAPEADOR);
         }
 
         // Retorna a editora encontrada ou null se não houver registo.
@@ -0,0 +1,124 @@
+// Classe que mantém em memória um índice de hash ISBN → id do livro, para leituras de código de barras.
+package dao;
+
+import util.DBConnection;
+import util.Isbn;
+import util.MetricasJdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice de hash dos ISBNs dos livros, pela sua forma canónica de 13 dígitos (ver {@link Isbn}).
+ * <p>
+ * É carregado na primeira utilização com uma consulta apenas às colunas id e isbn, e depois mantido
+ * pelos métodos de escrita do LivroDAO. Permite encontrar um livro pelo ISBN e recusar ISBNs repetidos
+ * sem percorrer a tabela; a chave única na coluna isbn continua a garantir a unicidade entre postos.
+ * <p>
+ * As exclusões em cascata (de um autor, tema, editora ou localização) invalidam o índice inteiro,
+ * que volta a ser carregado no pedido seguinte.
+ */
+public class IndiceIsbn {
+
+    private static final IndiceIsbn INSTANCIA = new IndiceIsbn();
+
+    // ISBN-13 → id do livro, e o inverso, necessário para retirar o ISBN antigo quando um livro muda.
+    private final Map<String, Integer> porIsbn = new ConcurrentHashMap<>();
+    private final Map<Integer, String> porId = new ConcurrentHashMap<>();
+    private volatile boolean carregado;
+
+    private IndiceIsbn() {
+    }
+
+    // Método que devolve o índice partilhado pela aplicação.
+    public static IndiceIsbn getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Devolve o id do livro com o ISBN indicado, carregando o índice se necessário.
+     *
+     * @param isbn O ISBN em qualquer formato aceite por {@link Isbn#normalizar(String)}.
+     * @return O id do livro, ou null se nenhum livro tiver esse ISBN (ou se o ISBN for inválido).
+     * @throws SQLException Se o índice tiver de ser carregado e a consulta falhar.
+     */
+    public Integer procurar(String isbn) throws SQLException {
+        String chave = Isbn.normalizar(isbn);
+        if (chave == null) {
+            return null;
+        }
+        carregarSeNecessario();
+        return porIsbn.get(chave);
+    }
+
+    // Carrega todos os pares (isbn, id) da tabela livro, se o índice ainda não estiver carregado.
+    private synchronized void carregarSeNecessario() throws SQLException {
+        if (carregado) {
+            return;
+        }
+        String sql = "SELECT id, isbn FROM livro WHERE isbn IS NOT NULL";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            porIsbn.clear();
+            porId.clear();
+            while (rs.next()) {
+                // Registos antigos podem ter sido gravados antes da normalização.
+                int id = rs.getInt(1);
+                String chave = Isbn.normalizar(rs.getString(2));
+                if (chave != null) {
+                    porIsbn.put(chave, id);
+                    porId.put(id, chave);
+                }
+            }
+            MetricasJdbc.registarLinhas(porId.size());
+        }
+        carregado = true;
+    }
+
+    /**
+     * Associa o ISBN ao livro, retirando o ISBN que o livro tinha antes. Ignorado enquanto o índice
+     * não estiver carregado, porque o carregamento já lerá o valor da base de dados.
+     *
+     * @param livroId O id do livro.
+     * @param isbn    O ISBN já normalizado, ou null se o livro ficou sem ISBN.
+     */
+    public synchronized void registar(int livroId, String isbn) {
+        if (!carregado) {
+            return;
+        }
+        String anterior = isbn == null ? porId.remove(livroId) : porId.put(livroId, isbn);
+        if (anterior != null && !anterior.equals(isbn)) {
+            porIsbn.remove(anterior, livroId);
+        }
+        if (isbn != null) {
+            porIsbn.put(isbn, livroId);
+        }
+    }
+
+    // Método que retira do índice o ISBN de um livro excluído.
+    public synchronized void remover(int livroId) {
+        String anterior = porId.remove(livroId);
+        if (anterior != null) {
+            porIsbn.remove(anterior, livroId);
+        }
+    }
+
+    // Método que esquece o conteúdo do índice, para ser carregado de novo no próximo pedido.
+    public synchronized void invalidar() {
+        carregado = false;
+        porIsbn.clear();
+        porId.clear();
+    }
+
+    // Número de ISBNs atualmente indexados.
+    public int tamanho() {
+        return porIsbn.size();
+    }
+}
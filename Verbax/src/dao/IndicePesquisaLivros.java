@@ -0,0 +1,369 @@
+// Classe que mantém em memória um índice invertido para pesquisar livros por palavras do título,
+// do nome do autor, do tema e da editora.
+package dao;
+
+import model.Autor;
+import model.Editora;
+import model.Livro;
+import model.Tema;
+import util.Texto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Índice invertido dos livros, construído a partir da base de dados no arranque e atualizado
+ * pelos métodos de escrita do LivroDAO e dos DAOs das tabelas de referência.
+ * <p>
+ * As palavras são guardadas sem acentos e em minúsculas numa árvore ordenada, o que permite
+ * encontrar por prefixo ("sara" encontra "Saramago"). Os nomes de autores, temas e editoras são
+ * indexados uma única vez por entidade, e não uma vez por livro, pelo que renomear um autor
+ * não obriga a reindexar os seus livros.
+ * <p>
+ * Cada palavra da pesquisa tem de corresponder a algum campo do livro; os resultados são ordenados
+ * pela soma dos pesos dos campos encontrados (título 3, autor 2, tema e editora 1), contando a dobrar
+ * as palavras completas em relação aos prefixos.
+ */
+public class IndicePesquisaLivros {
+
+    private static final IndicePesquisaLivros INSTANCIA = new IndicePesquisaLivros();
+
+    // Pesos de cada campo na ordenação dos resultados.
+    private static final int PESO_TITULO = 3;
+    private static final int PESO_AUTOR = 2;
+    private static final int PESO_TEMA = 1;
+    private static final int PESO_EDITORA = 1;
+
+    // Palavras demasiado frequentes em português para ajudarem a distinguir livros.
+    private static final Set<String> PALAVRAS_IGNORADAS = Set.of(
+            "a", "o", "as", "os", "de", "da", "do", "das", "dos", "e", "em", "no", "na", "nos", "nas",
+            "um", "uma", "por", "para", "com");
+
+    private final ReentrantReadWriteLock bloqueio = new ReentrantReadWriteLock();
+    // Estrutura atualmente usada nas pesquisas.
+    private Estrutura estrutura = new Estrutura();
+    private boolean construido;
+    // Alterações recebidas enquanto o índice é construído, aplicadas à nova estrutura no fim.
+    private List<Consumer<Estrutura>> pendentes;
+
+    private IndicePesquisaLivros() {
+    }
+
+    // Método que devolve o índice partilhado pela aplicação.
+    public static IndicePesquisaLivros getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Constrói o índice percorrendo todos os livros da base de dados, se ainda não tiver sido construído.
+     * A leitura é feita em streaming; as escritas que ocorram durante a construção não se perdem.
+     *
+     * @param dao O DAO usado para ler os livros.
+     */
+    public synchronized void construirSeNecessario(LivroDAO dao) {
+        bloqueio.readLock().lock();
+        try {
+            if (construido) {
+                return;
+            }
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+
+        bloqueio.writeLock().lock();
+        try {
+            pendentes = new ArrayList<>();
+        } finally {
+            bloqueio.writeLock().unlock();
+        }
+
+        Estrutura nova = new Estrutura();
+        try {
+            long total = dao.percorrerTodos(nova::indexar);
+            System.out.println("Índice de pesquisa construído com " + total + " livros.");
+        } catch (RuntimeException e) {
+            bloqueio.writeLock().lock();
+            try {
+                pendentes = null;
+            } finally {
+                bloqueio.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        bloqueio.writeLock().lock();
+        try {
+            for (Consumer<Estrutura> alteracao : pendentes) {
+                alteracao.accept(nova);
+            }
+            pendentes = null;
+            estrutura = nova;
+            construido = true;
+        } finally {
+            bloqueio.writeLock().unlock();
+        }
+    }
+
+    // Método que indica se o índice já está pronto a ser usado.
+    public boolean isConstruido() {
+        bloqueio.readLock().lock();
+        try {
+            return construido;
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pesquisa livros cujos campos contenham palavras começadas por cada palavra da consulta.
+     *
+     * @param consulta O texto escrito pelo utilizador.
+     * @param limite   O número máximo de resultados.
+     * @return Os ids dos livros encontrados, do mais para o menos relevante.
+     */
+    public List<Integer> pesquisar(String consulta, int limite) {
+        List<String> palavras = new ArrayList<>(Texto.palavras(consulta));
+        if (palavras.size() > 1) {
+            palavras.removeIf(PALAVRAS_IGNORADAS::contains);
+        }
+        if (palavras.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Integer> pontuacao = null;
+        bloqueio.readLock().lock();
+        try {
+            for (String palavra : palavras) {
+                Map<Integer, Integer> daPalavra = estrutura.pontuar(palavra);
+                if (pontuacao == null) {
+                    pontuacao = daPalavra;
+                } else {
+                    // Só ficam os livros que correspondem a todas as palavras.
+                    pontuacao.keySet().retainAll(daPalavra.keySet());
+                    for (Map.Entry<Integer, Integer> entrada : pontuacao.entrySet()) {
+                        entrada.setValue(entrada.getValue() + daPalavra.get(entrada.getKey()));
+                    }
+                }
+                if (pontuacao.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+
+        List<Map.Entry<Integer, Integer>> ordenados = new ArrayList<>(pontuacao.entrySet());
+        ordenados.sort(Map.Entry.<Integer, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < ordenados.size() && i < limite; i++) {
+            ids.add(ordenados.get(i).getKey());
+        }
+        return ids;
+    }
+
+    // Método que indexa (ou reindexa) um livro após a sua inserção ou atualização.
+    public void indexar(Livro livro) {
+        aplicar(e -> e.indexar(livro));
+    }
+
+    // Método que retira um livro do índice após a sua exclusão.
+    public void remover(int livroId) {
+        aplicar(e -> e.remover(livroId));
+    }
+
+    // Métodos chamados quando uma entidade relacionada muda de nome.
+    public void renomearAutor(Autor autor) {
+        aplicar(e -> e.autores.renomear(autor.getId(), autor.getNome()));
+    }
+
+    public void renomearTema(Tema tema) {
+        aplicar(e -> e.temas.renomear(tema.getId(), tema.getNome()));
+    }
+
+    public void renomearEditora(Editora editora) {
+        aplicar(e -> e.editoras.renomear(editora.getId(), editora.getNome()));
+    }
+
+    // Métodos chamados quando uma entidade relacionada é excluída: os seus livros são apagados em cascata.
+    public void removerAutor(int autorId) {
+        aplicar(e -> e.removerLivros(e.autores.livrosDe(autorId)));
+    }
+
+    public void removerTema(int temaId) {
+        aplicar(e -> e.removerLivros(e.temas.livrosDe(temaId)));
+    }
+
+    public void removerEditora(int editoraId) {
+        aplicar(e -> e.removerLivros(e.editoras.livrosDe(editoraId)));
+    }
+
+    public void removerLocalizacao(int localizacaoId) {
+        aplicar(e -> e.removerLivros(e.livrosDaLocalizacao(localizacaoId)));
+    }
+
+    // Aplica uma alteração ao índice já construído, ou guarda-a se o índice estiver em construção.
+    private void aplicar(Consumer<Estrutura> alteracao) {
+        bloqueio.writeLock().lock();
+        try {
+            if (construido) {
+                alteracao.accept(estrutura);
+            }
+            if (pendentes != null) {
+                pendentes.add(alteracao);
+            }
+        } finally {
+            bloqueio.writeLock().unlock();
+        }
+    }
+
+    // Palavras indexáveis de um texto.
+    private static String[] palavrasDe(String texto) {
+        return Texto.palavras(texto).stream().distinct().toArray(String[]::new);
+    }
+
+    // Acrescenta a pontuação de todas as palavras do índice que começam pelo prefixo.
+    private static void pontuarPrefixo(NavigableMap<String, Set<Integer>> palavras, String prefixo, int peso,
+                                       Consumer<Map.Entry<Integer, Integer>> destino) {
+        for (Map.Entry<String, Set<Integer>> entrada
+                : palavras.subMap(prefixo, true, prefixo + Character.MAX_VALUE, false).entrySet()) {
+            int pontos = entrada.getKey().length() == prefixo.length() ? peso * 2 : peso;
+            for (Integer id : entrada.getValue()) {
+                destino.accept(Map.entry(id, pontos));
+            }
+        }
+    }
+
+    private static void adicionarPalavras(Map<String, Set<Integer>> indice, String[] palavras, int id) {
+        for (String palavra : palavras) {
+            indice.computeIfAbsent(palavra, p -> new HashSet<>()).add(id);
+        }
+    }
+
+    private static void removerPalavras(Map<String, Set<Integer>> indice, String[] palavras, int id) {
+        for (String palavra : palavras) {
+            Set<Integer> ids = indice.get(palavra);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                indice.remove(palavra);
+            }
+        }
+    }
+
+    // Dados guardados por livro, necessários para o retirar do índice.
+    private record Documento(String[] palavrasTitulo, int autorId, int temaId, int editoraId, int localizacaoId) {
+    }
+
+    // Conjunto completo de mapas do índice; substituído por inteiro quando o índice é reconstruído.
+    private static class Estrutura {
+        private final TreeMap<String, Set<Integer>> titulos = new TreeMap<>();
+        private final CampoRelacionado autores = new CampoRelacionado();
+        private final CampoRelacionado temas = new CampoRelacionado();
+        private final CampoRelacionado editoras = new CampoRelacionado();
+        private final Map<Integer, Documento> documentos = new HashMap<>();
+
+        void indexar(Livro livro) {
+            remover(livro.getId());
+            Documento doc = new Documento(palavrasDe(livro.getTitulo()),
+                    livro.getAutor().getId(), livro.getTema().getId(),
+                    livro.getEditora().getId(), livro.getLocalizacao().getId());
+            documentos.put(livro.getId(), doc);
+            adicionarPalavras(titulos, doc.palavrasTitulo(), livro.getId());
+            autores.associar(doc.autorId(), livro.getAutor().getNome(), livro.getId());
+            temas.associar(doc.temaId(), livro.getTema().getNome(), livro.getId());
+            editoras.associar(doc.editoraId(), livro.getEditora().getNome(), livro.getId());
+        }
+
+        void remover(int livroId) {
+            Documento doc = documentos.remove(livroId);
+            if (doc == null) {
+                return;
+            }
+            removerPalavras(titulos, doc.palavrasTitulo(), livroId);
+            autores.desassociar(doc.autorId(), livroId);
+            temas.desassociar(doc.temaId(), livroId);
+            editoras.desassociar(doc.editoraId(), livroId);
+        }
+
+        void removerLivros(Set<Integer> livroIds) {
+            for (Integer id : new ArrayList<>(livroIds)) {
+                remover(id);
+            }
+        }
+
+        Set<Integer> livrosDaLocalizacao(int localizacaoId) {
+            Set<Integer> ids = new HashSet<>();
+            for (Map.Entry<Integer, Documento> entrada : documentos.entrySet()) {
+                if (entrada.getValue().localizacaoId() == localizacaoId) {
+                    ids.add(entrada.getKey());
+                }
+            }
+            return ids;
+        }
+
+        // Pontuação de cada livro para uma palavra da pesquisa (o melhor campo encontrado).
+        Map<Integer, Integer> pontuar(String prefixo) {
+            Map<Integer, Integer> pontos = new HashMap<>();
+            Consumer<Map.Entry<Integer, Integer>> guardarMelhor = e -> pontos.merge(e.getKey(), e.getValue(), Math::max);
+            pontuarPrefixo(titulos, prefixo, PESO_TITULO, guardarMelhor);
+            autores.pontuar(prefixo, PESO_AUTOR, guardarMelhor);
+            temas.pontuar(prefixo, PESO_TEMA, guardarMelhor);
+            editoras.pontuar(prefixo, PESO_EDITORA, guardarMelhor);
+            return pontos;
+        }
+    }
+
+    // Índice do nome de uma entidade relacionada (autor, tema ou editora) e dos livros que a referenciam.
+    private static class CampoRelacionado {
+        private final TreeMap<String, Set<Integer>> palavras = new TreeMap<>();
+        private final Map<Integer, String[]> palavrasPorEntidade = new HashMap<>();
+        private final Map<Integer, Set<Integer>> livrosPorEntidade = new HashMap<>();
+
+        void associar(int entidadeId, String nome, int livroId) {
+            if (!palavrasPorEntidade.containsKey(entidadeId)) {
+                String[] doNome = palavrasDe(nome);
+                palavrasPorEntidade.put(entidadeId, doNome);
+                adicionarPalavras(palavras, doNome, entidadeId);
+            }
+            livrosPorEntidade.computeIfAbsent(entidadeId, id -> new HashSet<>()).add(livroId);
+        }
+
+        void desassociar(int entidadeId, int livroId) {
+            Set<Integer> livros = livrosPorEntidade.get(entidadeId);
+            if (livros != null && livros.remove(livroId) && livros.isEmpty()) {
+                livrosPorEntidade.remove(entidadeId);
+                removerPalavras(palavras, palavrasPorEntidade.remove(entidadeId), entidadeId);
+            }
+        }
+
+        void renomear(int entidadeId, String nome) {
+            String[] antigas = palavrasPorEntidade.get(entidadeId);
+            if (antigas != null) {
+                removerPalavras(palavras, antigas, entidadeId);
+                String[] novas = palavrasDe(nome);
+                palavrasPorEntidade.put(entidadeId, novas);
+                adicionarPalavras(palavras, novas, entidadeId);
+            }
+        }
+
+        Set<Integer> livrosDe(int entidadeId) {
+            return livrosPorEntidade.getOrDefault(entidadeId, Set.of());
+        }
+
+        void pontuar(String prefixo, int peso, Consumer<Map.Entry<Integer, Integer>> destino) {
+            pontuarPrefixo(palavras, prefixo, peso, entidade -> {
+                for (Integer livroId : livrosDe(entidade.getKey())) {
+                    destino.accept(Map.entry(livroId, entidade.getValue()));
+                }
+            });
+        }
+    }
+}
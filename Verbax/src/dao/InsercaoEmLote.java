@@ -0,0 +1,135 @@
+// Classe auxiliar partilhada pelos DAOs para inserir listas de registos com addBatch/executeBatch.
+package dao;
+
+import util.DBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Executa inserções em lote divididas em blocos, com uma transação por bloco.
+ * <p>
+ * Se um bloco falhar, a transação desse bloco é revertida e os seus registos são repetidos um a um,
+ * de modo que os registos válidos são inseridos e cada registo inválido fica identificado no resultado.
+ */
+final class InsercaoEmLote {
+
+    // Tamanho de bloco usado quando não é indicado outro.
+    static final int TAMANHO_LOTE_PADRAO = 1000;
+
+    // Define os parâmetros do PreparedStatement a partir de um registo.
+    @FunctionalInterface
+    interface PreencherParametros<T> {
+        void preencher(PreparedStatement stmt, T item) throws SQLException;
+    }
+
+    private InsercaoEmLote() {
+    }
+
+    /**
+     * Insere todos os registos da lista.
+     *
+     * @param sql        Instrução INSERT com os parâmetros a preencher.
+     * @param itens      Registos a inserir.
+     * @param tamanhoLote Número de registos por bloco (e por transação).
+     * @param preencher  Função que define os parâmetros para cada registo.
+     * @param atribuirId Função que guarda no registo o id gerado pela base de dados.
+     * @param entidade   Nome da entidade, usado nas mensagens de erro.
+     * @return O resultado com o número de inseridos e as falhas por registo.
+     */
+    static <T> ResultadoLote executar(String sql, List<T> itens, int tamanhoLote,
+                                      PreencherParametros<T> preencher, ObjIntConsumer<T> atribuirId,
+                                      String entidade) {
+        if (tamanhoLote < 1) {
+            throw new IllegalArgumentException("O tamanho do lote tem de ser positivo: " + tamanhoLote);
+        }
+        ResultadoLote resultado = new ResultadoLote();
+        if (itens.isEmpty()) {
+            return resultado;
+        }
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            conn.setAutoCommit(false);
+            for (int inicio = 0; inicio < itens.size(); inicio += tamanhoLote) {
+                int fim = Math.min(inicio + tamanhoLote, itens.size());
+                // Ids gerados por posição no bloco, lidos antes do commit.
+                int[] ids = new int[fim - inicio];
+                try {
+                    for (int i = inicio; i < fim; i++) {
+                        preencher.preencher(stmt, itens.get(i));
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    // As chaves geradas vêm pela mesma ordem dos registos do bloco.
+                    try (ResultSet chaves = stmt.getGeneratedKeys()) {
+                        for (int i = 0; i < ids.length && chaves.next(); i++) {
+                            ids[i] = chaves.getInt(1);
+                        }
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    // O bloco foi revertido por inteiro: repete-se registo a registo para isolar as falhas.
+                    conn.rollback();
+                    stmt.clearBatch();
+                    inserirIndividualmente(conn, stmt, itens, inicio, fim, preencher, atribuirId, resultado);
+                    continue;
+                }
+                // Fora do bloco try acima: se o commit falhar, o estado do bloco é desconhecido e os registos
+                // não podem ser repetidos sem risco de ficarem gravados duas vezes.
+                conn.commit();
+                atribuirIds(itens, inicio, ids, atribuirId);
+                resultado.somarInseridos(fim - inicio);
+            }
+            conn.setAutoCommit(true);
+
+        } catch (SQLException e) {
+            System.err.println("Erro na inserção em lote de " + entidade + ": " + e.getMessage());
+            resultado.adicionarFalha(-1, e.getMessage());
+        }
+
+        return resultado;
+    }
+
+    // Insere os registos de um bloco um a um, na mesma transação, registando os que falham.
+    private static <T> void inserirIndividualmente(Connection conn, PreparedStatement stmt, List<T> itens,
+                                                   int inicio, int fim, PreencherParametros<T> preencher,
+                                                   ObjIntConsumer<T> atribuirId,
+                                                   ResultadoLote resultado) throws SQLException {
+        int inseridos = 0;
+        // Ids gerados por posição no bloco, só atribuídos depois do commit (um registo com id ficou gravado).
+        int[] ids = new int[fim - inicio];
+        for (int i = inicio; i < fim; i++) {
+            try {
+                stmt.clearParameters();
+                preencher.preencher(stmt, itens.get(i));
+                stmt.executeUpdate();
+                try (ResultSet chaves = stmt.getGeneratedKeys()) {
+                    if (chaves.next()) {
+                        ids[i - inicio] = chaves.getInt(1);
+                    }
+                }
+                inseridos++;
+            } catch (SQLException | RuntimeException e) {
+                resultado.adicionarFalha(i, e.getMessage());
+            }
+        }
+        conn.commit();
+        atribuirIds(itens, inicio, ids, atribuirId);
+        resultado.somarInseridos(inseridos);
+    }
+
+    // Guarda nos registos do bloco os ids gerados (0 indica um registo que não foi inserido).
+    private static <T> void atribuirIds(List<T> itens, int inicio, int[] ids, ObjIntConsumer<T> atribuirId) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] > 0) {
+                atribuirId.accept(itens.get(inicio + i), ids[i]);
+            }
+        }
+    }
+}
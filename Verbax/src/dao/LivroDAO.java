@@ -1,11 +1,25 @@
 package dao;
 
 import model.*;
+import util.CacheLRU;
 import util.DBConnection;
+import util.Isbn;
+import util.MetricasJdbc;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * DAO (Data Access Object) responsável pelas operações de persistência da entidade Livro.
@@ -14,16 +28,110 @@ import java.util.List;
 public class LivroDAO {
 
     /**
-     * Insere um novo livro no banco de dados.
+     * Sentido da navegação na paginação por chave (keyset).
+     */
+    public enum Direcao {
+        // Livros com id superior ao último visto.
+        SEGUINTE,
+        // Livros com id inferior ao primeiro visto.
+        ANTERIOR
+    }
+
+    // Tamanho de fetch que ativa no driver MySQL a leitura linha a linha (sem guardar o resultado em memória).
+    public static final int FETCH_STREAMING_MYSQL = Integer.MIN_VALUE;
+    // Tamanho de fetch usado na base de dados embutida, cujo driver só aceita valores positivos.
+    private static final int FETCH_EMBUTIDO = 1000;
+
+    // Consulta base que junta o livro às suas entidades relacionadas (autor, tema, editora e localização).
+    private static final String SQL_SELECT_LIVRO = "SELECT " +
+            "l.id AS livro_id, l.titulo, l.ano_publicacao, l.isbn, " +
+            "a.id AS autor_id, a.nome AS autor_nome, a.nacionalidade, " +
+            "t.id AS tema_id, t.nome AS tema_nome, " +
+            "e.id AS editora_id, e.nome AS editora_nome, e.cidade, " +
+            "loc.id AS localizacao_id, loc.setor, loc.prateleira " +
+            "FROM livro l " +
+            "JOIN autor a ON l.id_autor = a.id " +
+            "JOIN tema t ON l.id_tema = t.id " +
+            "JOIN editora e ON l.id_editora = e.id " +
+            "JOIN localizacao loc ON l.id_localizacao = loc.id";
+
+    // Rótulos das colunas de SQL_SELECT_LIVRO lidas por mapearLivro; as constantes abaixo indexam as suas posições.
+    private static final Colunas COLUNAS = new Colunas(
+            "livro_id", "titulo", "ano_publicacao", "isbn",
+            "autor_id", "autor_nome", "nacionalidade",
+            "tema_id", "tema_nome",
+            "editora_id", "editora_nome", "cidade",
+            "localizacao_id", "setor", "prateleira");
+    private static final int LIVRO_ID = 0, TITULO = 1, ANO_PUBLICACAO = 2, ISBN = 3;
+    private static final int AUTOR_ID = 4, AUTOR_NOME = 5, NACIONALIDADE = 6;
+    private static final int TEMA_ID = 7, TEMA_NOME = 8;
+    private static final int EDITORA_ID = 9, EDITORA_NOME = 10, CIDADE = 11;
+    private static final int LOCALIZACAO_ID = 12, SETOR = 13, PRATELEIRA = 14;
+
+    // Recuo, em relação à marca, das consultas de alterações (ver listarAlteracoesDesde).
+    private static final long MARGEM_ALTERACOES_MS = 2_000L;
+
+    // Cache LRU partilhada de buscarPorId: capacidade e validade configuráveis com -Dverbax.cache.livros.*.
+    private static final CacheLRU<Integer, Livro> CACHE_POR_ID = new CacheLRU<>(
+            Integer.getInteger("verbax.cache.livros.capacidade", 500),
+            Long.getLong("verbax.cache.livros.ttlMs", 60_000L));
+
+    // Mapa de identidade partilhado entre consultas deste DAO (null para usar um mapa novo por consulta).
+    private final MapaIdentidade mapaSessao;
+
+    /**
+     * Devolve a cache de buscarPorId, com a taxa de acerto e os restantes contadores.
+     *
+     * @return A cache LRU partilhada por todas as instâncias.
+     */
+    public static CacheLRU<Integer, Livro> getCacheBuscaPorId() {
+        return CACHE_POR_ID;
+    }
+
+    /**
+     * Esvazia a cache de buscarPorId. Usado quando mudam tabelas de referência, cujos dados
+     * (nome do autor, da editora, ...) fazem parte dos livros guardados.
+     */
+    public static void invalidarCache() {
+        CACHE_POR_ID.limpar();
+    }
+
+    /**
+     * Cria um DAO que usa um mapa de identidade novo em cada consulta.
+     */
+    public LivroDAO() {
+        this(null);
+    }
+
+    /**
+     * Cria um DAO cujas consultas partilham o mapa de identidade indicado, de modo que livros de
+     * consultas diferentes (por exemplo, páginas sucessivas) referenciem as mesmas entidades relacionadas.
+     *
+     * @param mapaSessao O mapa de identidade da sessão; deve ser limpo quando as tabelas de referência mudam.
+     */
+    public LivroDAO(MapaIdentidade mapaSessao) {
+        this.mapaSessao = mapaSessao;
+    }
+
+    /**
+     * Insere um novo livro no banco de dados. O id gerado é também guardado no próprio livro.
      *
      * @param livro O objeto Livro a ser inserido.
-     * @return true se a inserção for bem-sucedida, false caso contrário.
+     * @return O id gerado para o livro, ou 0 se a inserção falhar.
      */
-    public boolean inserir(Livro livro) {
+    public int inserir(Livro livro) {
+        if (!normalizarIsbn(livro)) {
+            System.err.println("Erro ao inserir livro: ISBN inválido (" + livro.getIsbn() + ").");
+            return 0;
+        }
+        if (isbnEmUso(livro.getIsbn(), 0)) {
+            System.err.println("Erro ao inserir livro: já existe um livro com o ISBN " + livro.getIsbn() + ".");
+            return 0;
+        }
         String sql = "INSERT INTO livro (titulo, ano_publicacao, isbn, id_autor, id_tema, id_editora, id_localizacao) VALUES (?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setString(1, livro.getTitulo());
             stmt.setInt(2, livro.getAnoPublicacao());
@@ -34,14 +142,104 @@ public class LivroDAO {
             stmt.setInt(7, livro.getLocalizacao().getId());
 
             stmt.executeUpdate();
-            return true;
+            // Guarda no objeto o id gerado, necessário para o indexar e para o mostrar sem reler a tabela.
+            try (ResultSet chaves = stmt.getGeneratedKeys()) {
+                if (!chaves.next()) {
+                    System.err.println("Erro ao inserir livro: a base de dados não devolveu o id gerado.");
+                    return 0;
+                }
+                livro.setId(chaves.getInt(1));
+            }
+            IndicePesquisaLivros.getInstancia().indexar(livro);
+            IndiceIsbn.getInstancia().registar(livro.getId(), livro.getIsbn());
+            return livro.getId();
 
         } catch (SQLException e) {
             System.err.println("Erro ao inserir livro: " + e.getMessage());
-            return false;
+            return 0;
         }
     }
 
+    /**
+     * Insere uma lista de livros em lote, com o tamanho de bloco por omissão.
+     *
+     * @param livros Os livros a inserir.
+     * @return O resultado com o número de livros inseridos e as falhas por registo.
+     */
+    public ResultadoLote inserirEmLote(List<Livro> livros) {
+        return inserirEmLote(livros, InsercaoEmLote.TAMANHO_LOTE_PADRAO);
+    }
+
+    /**
+     * Insere uma lista de livros com addBatch/executeBatch, numa transação por cada bloco.
+     * Um registo inválido não impede a inserção dos restantes registos do mesmo bloco.
+     * Os livros com ISBN inválido ou repetido (na base de dados ou na própria lista) são recusados
+     * antes de chegarem à base de dados e aparecem nas falhas com a sua posição na lista.
+     *
+     * @param livros      Os livros a inserir.
+     * @param tamanhoLote Número de livros por bloco (e por transação).
+     * @return O resultado com o número de livros inseridos e as falhas por registo.
+     */
+    public ResultadoLote inserirEmLote(List<Livro> livros, int tamanhoLote) {
+        String sql = "INSERT INTO livro (titulo, ano_publicacao, isbn, id_autor, id_tema, id_editora, id_localizacao) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        // Separa os livros aceites, guardando a posição de cada um na lista original.
+        ResultadoLote recusados = new ResultadoLote();
+        List<Livro> aceites = new ArrayList<>();
+        List<Integer> posicoes = new ArrayList<>();
+        Set<String> isbnsDoLote = new HashSet<>();
+        for (int i = 0; i < livros.size(); i++) {
+            Livro livro = livros.get(i);
+            if (!normalizarIsbn(livro)) {
+                recusados.adicionarFalha(i, "ISBN inválido: " + livro.getIsbn());
+            } else if (livro.getIsbn() != null && (!isbnsDoLote.add(livro.getIsbn()) || isbnEmUso(livro.getIsbn(), 0))) {
+                recusados.adicionarFalha(i, "ISBN repetido: " + livro.getIsbn());
+            } else {
+                aceites.add(livro);
+                posicoes.add(i);
+            }
+        }
+
+        // O id só é atribuído aos livros gravados (em blocos já confirmados), o que permite indexá-los mesmo
+        // que um bloco seguinte falhe por completo.
+        for (Livro livro : aceites) {
+            livro.setId(0);
+        }
+        ResultadoLote inserido = InsercaoEmLote.executar(sql, aceites, tamanhoLote, (stmt, livro) -> {
+            stmt.setString(1, livro.getTitulo());
+            stmt.setInt(2, livro.getAnoPublicacao());
+            stmt.setString(3, livro.getIsbn());
+            stmt.setInt(4, livro.getAutor().getId());
+            stmt.setInt(5, livro.getTema().getId());
+            stmt.setInt(6, livro.getEditora().getId());
+            stmt.setInt(7, livro.getLocalizacao().getId());
+        }, Livro::setId, "livros");
+
+        // Junta as falhas das duas fases, com as posições relativas à lista original.
+        ResultadoLote resultado = new ResultadoLote();
+        resultado.somarInseridos(inserido.getInseridos());
+        Set<Integer> falhados = new HashSet<>();
+        for (ResultadoLote.Falha falha : recusados.getFalhas()) {
+            resultado.adicionarFalha(falha.indice(), falha.mensagem());
+        }
+        for (ResultadoLote.Falha falha : inserido.getFalhas()) {
+            falhados.add(falha.indice());
+            resultado.adicionarFalha(falha.indice() < 0 ? -1 : posicoes.get(falha.indice()), falha.mensagem());
+        }
+
+        // Indexa os livros inseridos: os aceites que receberam um id e não constam das falhas. Uma falha da
+        // ligação (índice -1) pode ocorrer depois de blocos já confirmados, cujos livros também são indexados.
+        IndicePesquisaLivros indice = IndicePesquisaLivros.getInstancia();
+        IndiceIsbn indiceIsbn = IndiceIsbn.getInstancia();
+        for (int i = 0; i < aceites.size(); i++) {
+            if (aceites.get(i).getId() > 0 && !falhados.contains(i)) {
+                indice.indexar(aceites.get(i));
+                indiceIsbn.registar(aceites.get(i).getId(), aceites.get(i).getIsbn());
+            }
+        }
+        return resultado;
+    }
+
     /**
      * Lista todos os livros cadastrados no banco de dados, incluindo suas entidades relacionadas.
      *
@@ -49,53 +247,16 @@ public class LivroDAO {
      */
     public List<Livro> listarTodos() {
         List<Livro> lista = new ArrayList<>();
-        String sql = "SELECT " +
-                "l.id AS livro_id, l.titulo, l.ano_publicacao, l.isbn, " +
-                "a.id AS autor_id, a.nome AS autor_nome, a.nacionalidade, " +
-                "t.id AS tema_id, t.nome AS tema_nome, " +
-                "e.id AS editora_id, e.nome AS editora_nome, e.cidade, " +
-                "loc.id AS localizacao_id, loc.setor, loc.prateleira " +
-                "FROM livro l " +
-                "JOIN autor a ON l.id_autor = a.id " +
-                "JOIN tema t ON l.id_tema = t.id " +
-                "JOIN editora e ON l.id_editora = e.id " +
-                "JOIN localizacao loc ON l.id_localizacao = loc.id";
+        String sql = SQL_SELECT_LIVRO;
 
         try (Connection conn = DBConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
+            int[] colunas = COLUNAS.resolver(sql, rs);
+            MapaIdentidade mapa = mapaParaConsulta();
             while (rs.next()) {
-                Livro livro = new Livro();
-                livro.setId(rs.getInt("livro_id"));
-                livro.setTitulo(rs.getString("titulo"));
-                livro.setAnoPublicacao(rs.getInt("ano_publicacao"));
-                livro.setIsbn(rs.getString("isbn"));
-
-                Autor autor = new Autor();
-                autor.setId(rs.getInt("autor_id"));
-                autor.setNome(rs.getString("autor_nome"));
-                autor.setNacionalidade(rs.getString("nacionalidade"));
-                livro.setAutor(autor);
-
-                Tema tema = new Tema();
-                tema.setId(rs.getInt("tema_id"));
-                tema.setNome(rs.getString("tema_nome"));
-                livro.setTema(tema);
-
-                Editora editora = new Editora();
-                editora.setId(rs.getInt("editora_id"));
-                editora.setNome(rs.getString("editora_nome"));
-                editora.setCidade(rs.getString("cidade"));
-                livro.setEditora(editora);
-
-                Localizacao loc = new Localizacao();
-                loc.setId(rs.getInt("localizacao_id"));
-                loc.setSetor(rs.getString("setor"));
-                loc.setPrateleira(rs.getString("prateleira"));
-                livro.setLocalizacao(loc);
-
-                lista.add(livro);
+                lista.add(mapearLivro(rs, colunas, mapa));
             }
 
         } catch (SQLException e) {
@@ -105,6 +266,179 @@ public class LivroDAO {
         return lista;
     }
 
+    /**
+     * Percorre todos os livros sem os guardar em memória, usando o modo de streaming do driver MySQL
+     * (ou, no modo embutido, leituras de {@value #FETCH_EMBUTIDO} linhas).
+     * A ligação é fechada quando o Stream é fechado, pelo que deve ser usado num try-with-resources:
+     * <pre>{@code try (Stream<Livro> livros = livroDAO.listarTodosEmStream()) { ... }}</pre>
+     *
+     * @return Um Stream sequencial de livros, ordenado por id.
+     * @throws IllegalStateException Se ocorrer um erro ao executar a consulta ou ao ler uma linha.
+     */
+    public Stream<Livro> listarTodosEmStream() {
+        return listarTodosEmStream(DBConnection.isEmbutido() ? FETCH_EMBUTIDO : FETCH_STREAMING_MYSQL);
+    }
+
+    /**
+     * Percorre todos os livros com um ResultSet forward-only e só de leitura.
+     *
+     * @param tamanhoFetch O número de linhas pedidas ao servidor de cada vez; {@link #FETCH_STREAMING_MYSQL}
+     *                     ativa o streaming linha a linha do MySQL, e um valor positivo requer
+     *                     useCursorFetch=true na ligação MySQL.
+     * @return Um Stream sequencial de livros, ordenado por id, que fecha a ligação quando é fechado.
+     * @throws IllegalStateException Se ocorrer um erro ao executar a consulta ou ao ler uma linha.
+     */
+    public Stream<Livro> listarTodosEmStream(int tamanhoFetch) {
+        String sql = SQL_SELECT_LIVRO + " ORDER BY l.id";
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        int[] colunas;
+
+        try {
+            conn = DBConnection.getConnection();
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(tamanhoFetch);
+            rs = stmt.executeQuery();
+            colunas = COLUNAS.resolver(sql, rs);
+        } catch (SQLException e) {
+            System.err.println("Erro ao abrir stream de livros: " + e.getMessage());
+            DBConnection.closeResources(rs, stmt, conn);
+            throw new IllegalStateException("Erro ao abrir stream de livros", e);
+        }
+
+        CursorLivros cursor = new CursorLivros(rs, stmt, conn, colunas);
+        return StreamSupport.stream(cursor, false).onClose(cursor::fechar);
+    }
+
+    /**
+     * Entrega cada livro ao consumidor, pela ordem do id, mantendo em memória apenas a linha atual.
+     *
+     * @param consumidor A ação a executar para cada livro.
+     * @return O número de livros percorridos.
+     * @throws IllegalStateException Se ocorrer um erro ao ler os livros.
+     */
+    public long percorrerTodos(Consumer<Livro> consumidor) {
+        long total = 0;
+        try (Stream<Livro> livros = listarTodosEmStream()) {
+            Iterator<Livro> it = livros.iterator();
+            while (it.hasNext()) {
+                consumidor.accept(it.next());
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Lista uma página de livros usando paginação por chave (keyset): em vez de OFFSET,
+     * a consulta continua a partir do último id visto, pelo que o custo de cada página
+     * não depende da posição na tabela.
+     *
+     * @param idReferencia  O último id visto (para SEGUINTE) ou o primeiro id visto (para ANTERIOR);
+     *                      null para começar no início (SEGUINTE) ou no fim (ANTERIOR) da tabela.
+     * @param tamanhoPagina O número máximo de livros a devolver.
+     * @param direcao       O sentido da navegação.
+     * @return Os livros da página, sempre por ordem crescente de id.
+     */
+    public List<Livro> listarPagina(Integer idReferencia, int tamanhoPagina, Direcao direcao) {
+        try {
+            return consultarPagina(idReferencia, tamanhoPagina, direcao);
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar página de livros: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Igual a {@link #listarPagina(Integer, int, Direcao)}, mas lança a SQLException em vez de devolver
+     * uma lista vazia, para que uma falha não seja confundida com o fim da tabela.
+     *
+     * @throws SQLException Se a consulta falhar.
+     */
+    public List<Livro> consultarPagina(Integer idReferencia, int tamanhoPagina, Direcao direcao) throws SQLException {
+        List<Livro> lista = new ArrayList<>();
+        boolean seguinte = direcao == Direcao.SEGUINTE;
+        String sql = SQL_SELECT_LIVRO +
+                (idReferencia == null ? "" : seguinte ? " WHERE l.id > ?" : " WHERE l.id < ?") +
+                (seguinte ? " ORDER BY l.id ASC" : " ORDER BY l.id DESC") +
+                " LIMIT ?";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = 1;
+            if (idReferencia != null) {
+                stmt.setInt(indice++, idReferencia);
+            }
+            stmt.setInt(indice, tamanhoPagina);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                int[] colunas = COLUNAS.resolver(sql, rs);
+                MapaIdentidade mapa = mapaParaConsulta();
+                while (rs.next()) {
+                    lista.add(mapearLivro(rs, colunas, mapa));
+                }
+            }
+        }
+
+        // A página anterior é lida em ordem decrescente; repõe-se a ordem crescente.
+        if (!seguinte) {
+            Collections.reverse(lista);
+        }
+        return lista;
+    }
+
+    /**
+     * Lista uma página de livros segundo a ordenação e os filtros indicados, feitos pela base de dados
+     * (ver {@link ConsultaLivros}). Nenhuma linha fora da página é transferida, qualquer que seja a
+     * coluna de ordenação.
+     *
+     * @param consulta      A ordenação e os filtros.
+     * @param depoisDe      O último livro da página anterior, ou null para a primeira página.
+     * @param tamanhoPagina O número máximo de livros a devolver.
+     * @return Os livros da página, pela ordem da consulta (lista vazia em caso de erro).
+     */
+    public List<Livro> listarPagina(ConsultaLivros consulta, Livro depoisDe, int tamanhoPagina) {
+        try {
+            return consultarPagina(consulta, depoisDe, tamanhoPagina);
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar página de livros (" + consulta + "): " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Igual a {@link #listarPagina(ConsultaLivros, Livro, int)}, mas lança a SQLException em vez de devolver
+     * uma lista vazia, para que uma falha não seja confundida com o fim da tabela.
+     *
+     * @throws SQLException Se a consulta falhar.
+     */
+    public List<Livro> consultarPagina(ConsultaLivros consulta, Livro depoisDe, int tamanhoPagina) throws SQLException {
+        List<Livro> lista = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        String sql = SQL_SELECT_LIVRO + consulta.clausulas(depoisDe, parametros) + " LIMIT ?";
+        parametros.add(tamanhoPagina);
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < parametros.size(); i++) {
+                stmt.setObject(i + 1, parametros.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                int[] colunas = COLUNAS.resolver(sql, rs);
+                MapaIdentidade mapa = mapaParaConsulta();
+                while (rs.next()) {
+                    lista.add(mapearLivro(rs, colunas, mapa));
+                }
+            }
+        }
+
+        return lista;
+    }
+
     /**
      * Atualiza um livro existente no banco de dados.
      *
@@ -112,6 +446,14 @@ public class LivroDAO {
      * @return true se a atualização for bem-sucedida, false caso contrário.
      */
     public boolean atualizar(Livro livro) {
+        if (!normalizarIsbn(livro)) {
+            System.err.println("Erro ao atualizar livro: ISBN inválido (" + livro.getIsbn() + ").");
+            return false;
+        }
+        if (isbnEmUso(livro.getIsbn(), livro.getId())) {
+            System.err.println("Erro ao atualizar livro: já existe outro livro com o ISBN " + livro.getIsbn() + ".");
+            return false;
+        }
         String sql = "UPDATE livro SET titulo = ?, ano_publicacao = ?, isbn = ?, id_autor = ?, id_tema = ?, id_editora = ?, id_localizacao = ? WHERE id = ?";
 
         try (Connection conn = DBConnection.getConnection();
@@ -126,7 +468,14 @@ public class LivroDAO {
             stmt.setInt(7, livro.getLocalizacao().getId());
             stmt.setInt(8, livro.getId());
 
-            stmt.executeUpdate();
+            // Nenhuma linha alterada: o id não existe (ou o livro foi excluído noutro posto), e os índices não mudam.
+            if (stmt.executeUpdate() == 0) {
+                System.err.println("Erro ao atualizar livro: não existe nenhum livro com o ID " + livro.getId() + ".");
+                return false;
+            }
+            CACHE_POR_ID.remover(livro.getId());
+            IndicePesquisaLivros.getInstancia().indexar(livro);
+            IndiceIsbn.getInstancia().registar(livro.getId(), livro.getIsbn());
             return true;
 
         } catch (SQLException e) {
@@ -144,11 +493,12 @@ public class LivroDAO {
     public boolean excluir(int id) {
         String sql = "DELETE FROM livro WHERE id = ?";
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DBConnection.getConnection()) {
 
-            stmt.setInt(1, id);
-            stmt.executeUpdate();
+            excluirRegistandoRemovidos(conn, "id", sql, id);
+            CACHE_POR_ID.remover(id);
+            IndicePesquisaLivros.getInstancia().remover(id);
+            IndiceIsbn.getInstancia().remover(id);
             return true;
 
         } catch (SQLException e) {
@@ -157,26 +507,161 @@ public class LivroDAO {
         }
     }
 
+    /**
+     * Executa uma exclusão (de um livro, ou de um autor, tema, editora ou localização com os seus livros
+     * em cascata) e regista na tabela livro_removido, na mesma transação, os livros que vão ser apagados,
+     * para que os outros postos os retirem com {@link #listarAlteracoesDesde}. Sem sincronização entre postos
+     * (ver {@link DBConnection#isSincronizacaoDisponivel()}) faz apenas a exclusão.
+     *
+     * @param conn        A ligação onde a exclusão é feita.
+     * @param colunaLivro A coluna de livro que referencia o registo excluído ("id" para o próprio livro).
+     * @param sqlExclusao O DELETE, com o id como único parâmetro.
+     * @param id          O id do registo a excluir.
+     * @throws SQLException Se o registo ou a exclusão falharem (nenhum dos dois fica feito).
+     */
+    static void excluirRegistandoRemovidos(Connection conn, String colunaLivro, String sqlExclusao, int id) throws SQLException {
+        if (!DBConnection.isSincronizacaoDisponivel()) {
+            try (PreparedStatement exclusao = conn.prepareStatement(sqlExclusao)) {
+                exclusao.setInt(1, id);
+                exclusao.executeUpdate();
+            }
+            return;
+        }
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement removidos = conn.prepareStatement(
+                "INSERT INTO livro_removido (id) SELECT id FROM livro WHERE " + colunaLivro + " = ?");
+             PreparedStatement exclusao = conn.prepareStatement(sqlExclusao)) {
+            removidos.setInt(1, id);
+            removidos.executeUpdate();
+            exclusao.setInt(1, id);
+            exclusao.executeUpdate();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Método que indica se o esquema suporta a sincronização entre postos (marcaAlteracoes e listarAlteracoesDesde).
+    public boolean suportaSincronizacao() {
+        try {
+            return DBConnection.isSincronizacaoDisponivel();
+        } catch (SQLException e) {
+            System.err.println("Erro ao verificar o suporte da sincronização entre postos: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Devolve a marca a partir da qual {@link #listarAlteracoesDesde} começa: o instante da alteração ou
+     * exclusão mais recente registada na base de dados.
+     *
+     * @return A marca atual (o instante 0 num catálogo sem alterações), ou null se a consulta falhar.
+     */
+    public Timestamp marcaAlteracoes() {
+        String sql = "SELECT (SELECT MAX(atualizado_em) FROM livro), (SELECT MAX(removido_em) FROM livro_removido)";
+
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            rs.next();
+            return maisRecente(maisRecente(new Timestamp(0), rs.getTimestamp(1)), rs.getTimestamp(2));
+
+        } catch (SQLException e) {
+            System.err.println("Erro ao obter a marca de alterações dos livros: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Devolve os livros inseridos ou alterados e os ids dos livros excluídos depois da marca indicada,
+     * por exemplo noutro posto. Só são lidas as linhas alteradas (pelos índices de livro.atualizado_em e
+     * livro_removido.removido_em), pelo que o custo depende do número de alterações e não do catálogo.
+     * <p>
+     * As datas são atribuídas pela base de dados quando cada instrução é executada, e uma transação pode
+     * ficar visível depois de outra mais recente; por isso a consulta recua 2 segundos em relação
+     * à marca e as alterações mais recentes podem ser devolvidas mais do que uma vez.
+     *
+     * @param marca  A marca devolvida por {@link #marcaAlteracoes()} ou pela chamada anterior.
+     * @param limite O número máximo de livros alterados e de livros excluídos a devolver.
+     * @return As alterações, ou null se a consulta falhar.
+     */
+    public AlteracoesLivros listarAlteracoesDesde(Timestamp marca, int limite) {
+        Timestamp desde = new Timestamp(marca.getTime() - MARGEM_ALTERACOES_MS);
+        Timestamp novaMarca = marca;
+        List<Integer> idsAlterados = new ArrayList<>();
+        List<Integer> removidos = new ArrayList<>();
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement alterados = conn.prepareStatement(
+                     "SELECT id, atualizado_em FROM livro WHERE atualizado_em > ? ORDER BY atualizado_em LIMIT ?");
+             PreparedStatement excluidos = conn.prepareStatement(
+                     "SELECT id, removido_em FROM livro_removido WHERE removido_em > ? ORDER BY removido_em LIMIT ?")) {
+
+            // Pede mais uma linha do que o limite, para saber se ficaram alterações por devolver.
+            alterados.setTimestamp(1, desde);
+            alterados.setInt(2, limite + 1);
+            try (ResultSet rs = alterados.executeQuery()) {
+                while (rs.next()) {
+                    idsAlterados.add(rs.getInt(1));
+                    novaMarca = maisRecente(novaMarca, rs.getTimestamp(2));
+                }
+            }
+            excluidos.setTimestamp(1, desde);
+            excluidos.setInt(2, limite + 1);
+            try (ResultSet rs = excluidos.executeQuery()) {
+                while (rs.next()) {
+                    removidos.add(rs.getInt(1));
+                    novaMarca = maisRecente(novaMarca, rs.getTimestamp(2));
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar alterações dos livros: " + e.getMessage());
+            return null;
+        }
+
+        if (idsAlterados.size() > limite || removidos.size() > limite) {
+            return new AlteracoesLivros(List.of(), List.of(), novaMarca, true);
+        }
+        // Os livros alterados são lidos por id, com as entidades relacionadas, como os restantes.
+        List<Livro> livros = buscarPorIds(idsAlterados);
+        for (Livro livro : livros) {
+            CACHE_POR_ID.remover(livro.getId());
+            IndicePesquisaLivros.getInstancia().indexar(livro);
+            IndiceIsbn.getInstancia().registar(livro.getId(), livro.getIsbn());
+        }
+        for (Integer id : removidos) {
+            CACHE_POR_ID.remover(id);
+            IndicePesquisaLivros.getInstancia().remover(id);
+            IndiceIsbn.getInstancia().remover(id);
+        }
+        return new AlteracoesLivros(livros, removidos, novaMarca, false);
+    }
+
+    // Método que devolve a mais recente de duas datas (a primeira, se a segunda for null).
+    private static Timestamp maisRecente(Timestamp atual, Timestamp outra) {
+        return outra != null && outra.after(atual) ? outra : atual;
+    }
+
     /**
      * Busca um livro pelo seu ID, retornando também as informações completas das entidades relacionadas.
+     * Os livros procurados recentemente são servidos pela cache LRU, sem executar a consulta.
      *
      * @param id O ID do livro a ser buscado.
      * @return Um objeto Livro, ou null se não encontrado ou em caso de erro.
      */
     public Livro buscarPorId(int id) {
-        Livro livro = null;
-        String sql = "SELECT " +
-                "l.id AS livro_id, l.titulo, l.ano_publicacao, l.isbn, " +
-                "a.id AS autor_id, a.nome AS autor_nome, a.nacionalidade, " +
-                "t.id AS tema_id, t.nome AS tema_nome, " +
-                "e.id AS editora_id, e.nome AS editora_nome, e.cidade, " +
-                "loc.id AS localizacao_id, loc.setor, loc.prateleira " +
-                "FROM livro l " +
-                "JOIN autor a ON l.id_autor = a.id " +
-                "JOIN tema t ON l.id_tema = t.id " +
-                "JOIN editora e ON l.id_editora = e.id " +
-                "JOIN localizacao loc ON l.id_localizacao = loc.id " +
-                "WHERE l.id = ?";
+        Livro livro = CACHE_POR_ID.obter(id);
+        if (livro != null) {
+            return livro;
+        }
+        long versaoCache = CACHE_POR_ID.getVersao();
+        String sql = SQL_SELECT_LIVRO + " WHERE l.id = ?";
 
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -185,34 +670,8 @@ public class LivroDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                livro = new Livro();
-                livro.setId(rs.getInt("livro_id"));
-                livro.setTitulo(rs.getString("titulo"));
-                livro.setAnoPublicacao(rs.getInt("ano_publicacao"));
-                livro.setIsbn(rs.getString("isbn"));
-
-                Autor autor = new Autor();
-                autor.setId(rs.getInt("autor_id"));
-                autor.setNome(rs.getString("autor_nome"));
-                autor.setNacionalidade(rs.getString("nacionalidade"));
-                livro.setAutor(autor);
-
-                Tema tema = new Tema();
-                tema.setId(rs.getInt("tema_id"));
-                tema.setNome(rs.getString("tema_nome"));
-                livro.setTema(tema);
-
-                Editora editora = new Editora();
-                editora.setId(rs.getInt("editora_id"));
-                editora.setNome(rs.getString("editora_nome"));
-                editora.setCidade(rs.getString("cidade"));
-                livro.setEditora(editora);
-
-                Localizacao loc = new Localizacao();
-                loc.setId(rs.getInt("localizacao_id"));
-                loc.setSetor(rs.getString("setor"));
-                loc.setPrateleira(rs.getString("prateleira"));
-                livro.setLocalizacao(loc);
+                livro = mapearLivro(rs, COLUNAS.resolver(sql, rs), mapaParaConsulta());
+                CACHE_POR_ID.guardarSeVersao(id, livro, versaoCache);
             }
 
         } catch (SQLException e) {
@@ -221,4 +680,207 @@ public class LivroDAO {
 
         return livro;
     }
+
+    /**
+     * Busca um livro pelo ISBN, tal como lido por um leitor de código de barras ou escrito com hífenes.
+     * O ISBN é procurado no índice de hash em memória e o livro obtido por id (normalmente da cache).
+     *
+     * @param isbn O ISBN-10 ou ISBN-13 a procurar.
+     * @return O livro com esse ISBN, ou null se não existir, se o ISBN for inválido ou em caso de erro.
+     */
+    public Livro buscarPorIsbn(String isbn) {
+        try {
+            Integer id = IndiceIsbn.getInstancia().procurar(isbn);
+            return id == null ? null : buscarPorId(id);
+        } catch (SQLException e) {
+            System.err.println("Erro ao buscar livro por ISBN: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Indica se o ISBN já pertence a um livro diferente do indicado, sem percorrer a tabela.
+     *
+     * @param isbn      O ISBN a verificar (em qualquer formato aceite).
+     * @param idIgnorar O id do livro que está a ser atualizado (0 numa inserção).
+     * @return true se outro livro já tiver o ISBN; false caso contrário ou se o índice não puder ser
+     * carregado (a chave única da base de dados recusa o registo nesse caso).
+     */
+    public boolean isbnEmUso(String isbn, int idIgnorar) {
+        try {
+            Integer id = IndiceIsbn.getInstancia().procurar(isbn);
+            return id != null && id != idIgnorar;
+        } catch (SQLException e) {
+            System.err.println("Erro ao verificar ISBN: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Pesquisa livros por palavras (ou inícios de palavras) do título, do autor, do tema ou da editora,
+     * ignorando acentos e maiúsculas. Na primeira utilização constrói o índice em memória, se ainda
+     * não tiver sido construído no arranque.
+     *
+     * @param texto  O texto a pesquisar.
+     * @param limite O número máximo de livros a devolver.
+     * @return Os livros encontrados, do mais para o menos relevante.
+     */
+    public List<Livro> pesquisar(String texto, int limite) {
+        IndicePesquisaLivros indice = IndicePesquisaLivros.getInstancia();
+        try {
+            indice.construirSeNecessario(new LivroDAO());
+        } catch (IllegalStateException e) {
+            System.err.println("Erro ao construir o índice de pesquisa: " + e.getMessage());
+            return new ArrayList<>();
+        }
+        return buscarPorIds(indice.pesquisar(texto, limite));
+    }
+
+    /**
+     * Busca vários livros de uma só vez, mantendo a ordem dos ids pedidos.
+     *
+     * @param ids Os ids dos livros a buscar.
+     * @return Os livros encontrados, pela ordem dos ids (os ids inexistentes são ignorados).
+     */
+    public List<Livro> buscarPorIds(List<Integer> ids) {
+        List<Livro> lista = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return lista;
+        }
+        String sql = SQL_SELECT_LIVRO + " WHERE l.id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        Map<Integer, Livro> porId = new HashMap<>();
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                int[] colunas = COLUNAS.resolver(sql, rs);
+                MapaIdentidade mapa = mapaParaConsulta();
+                while (rs.next()) {
+                    Livro livro = mapearLivro(rs, colunas, mapa);
+                    porId.put(livro.getId(), livro);
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erro ao buscar livros por ids: " + e.getMessage());
+        }
+
+        for (Integer id : ids) {
+            Livro livro = porId.get(id);
+            if (livro != null) {
+                lista.add(livro);
+            }
+        }
+        return lista;
+    }
+
+    // Spliterator que lê o ResultSet à medida que o Stream é consumido e fecha os recursos no fim.
+    private class CursorLivros extends Spliterators.AbstractSpliterator<Livro> {
+        private final ResultSet rs;
+        private final Statement stmt;
+        private final Connection conn;
+        private final int[] colunas;
+        // Mapa de identidade usado durante todo o percurso do stream.
+        private final MapaIdentidade mapa = mapaParaConsulta();
+        private boolean fechado;
+
+        CursorLivros(ResultSet rs, Statement stmt, Connection conn, int[] colunas) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.rs = rs;
+            this.stmt = stmt;
+            this.conn = conn;
+            this.colunas = colunas;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Livro> acao) {
+            if (fechado) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    // Devolve a ligação ao pool assim que o resultado termina.
+                    fechar();
+                    return false;
+                }
+                acao.accept(mapearLivro(rs, colunas, mapa));
+                return true;
+            } catch (SQLException e) {
+                fechar();
+                throw new IllegalStateException("Erro ao ler stream de livros", e);
+            }
+        }
+
+        void fechar() {
+            if (!fechado) {
+                fechado = true;
+                DBConnection.closeResources(rs, stmt, conn);
+            }
+        }
+    }
+
+    // Substitui o ISBN do livro pela sua forma canónica; um ISBN vazio passa a null. Devolve false se for inválido.
+    private static boolean normalizarIsbn(Livro livro) {
+        String isbn = livro.getIsbn();
+        if (isbn == null || isbn.isBlank()) {
+            livro.setIsbn(null);
+            return true;
+        }
+        String normalizado = Isbn.normalizar(isbn);
+        if (normalizado == null) {
+            return false;
+        }
+        livro.setIsbn(normalizado);
+        return true;
+    }
+
+    // Devolve o mapa de identidade da sessão ou, não existindo, um mapa novo para uma única consulta.
+    private MapaIdentidade mapaParaConsulta() {
+        return mapaSessao != null ? mapaSessao : new MapaIdentidade();
+    }
+
+    // Cria um Livro a partir da linha atual da consulta SQL_SELECT_LIVRO, lendo as colunas pelas posições resolvidas.
+    // As entidades relacionadas já presentes no mapa de identidade são reutilizadas em vez de criadas de novo.
+    private Livro mapearLivro(ResultSet rs, int[] c, MapaIdentidade mapa) throws SQLException {
+        MetricasJdbc.registarLinhas(1);
+        Livro livro = new Livro();
+        livro.setId(rs.getInt(c[LIVRO_ID]));
+        livro.setTitulo(rs.getString(c[TITULO]));
+        livro.setAnoPublicacao(rs.getInt(c[ANO_PUBLICACAO]));
+        livro.setIsbn(rs.getString(c[ISBN]));
+
+        int autorId = rs.getInt(c[AUTOR_ID]);
+        Autor autor = mapa.getAutor(autorId);
+        if (autor == null) {
+            autor = mapa.registarAutor(new Autor(autorId, rs.getString(c[AUTOR_NOME]), rs.getString(c[NACIONALIDADE])));
+        }
+        livro.setAutor(autor);
+
+        int temaId = rs.getInt(c[TEMA_ID]);
+        Tema tema = mapa.getTema(temaId);
+        if (tema == null) {
+            tema = mapa.registarTema(new Tema(temaId, rs.getString(c[TEMA_NOME])));
+        }
+        livro.setTema(tema);
+
+        int editoraId = rs.getInt(c[EDITORA_ID]);
+        Editora editora = mapa.getEditora(editoraId);
+        if (editora == null) {
+            editora = mapa.registarEditora(new Editora(editoraId, rs.getString(c[EDITORA_NOME]), rs.getString(c[CIDADE])));
+        }
+        livro.setEditora(editora);
+
+        int localizacaoId = rs.getInt(c[LOCALIZACAO_ID]);
+        Localizacao loc = mapa.getLocalizacao(localizacaoId);
+        if (loc == null) {
+            loc = mapa.registarLocalizacao(new Localizacao(localizacaoId, rs.getString(c[SETOR]), rs.getString(c[PRATELEIRA])));
+        }
+        livro.setLocalizacao(loc);
+
+        return livro;
+    }
 }
@@ -3,13 +3,32 @@
 package dao;
 
 import model.Localizacao;
+import util.ArvorePrefixos;
+import util.CacheTabela;
 import util.DBConnection;
+import util.Texto;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
-public class LocalizacaoDAO {
+public class LocalizacaoDAO implements TabelaReferenciaDAO<Localizacao> {
+
+    // Cache partilhada por todas as instâncias deste DAO, invalidada em cada escrita.
+    private static final CacheTabela<Localizacao> CACHE = new CacheTabela<>(Localizacao::getId, 5 * 60 * 1000L);
+    // Árvore de prefixos com o setor e a prateleira de cada registo, para as sugestões das ComboBoxes ao escrever.
+    private static final ArvorePrefixos<Localizacao> PREFIXOS = new ArvorePrefixos<>(Localizacao::getId,
+            loc -> Objects.toString(loc.getSetor(), "") + " " + Objects.toString(loc.getPrateleira(), ""), 5 * 60 * 1000L);
+
+    // Colunas lidas da tabela "localizacao", resolvidas por posição uma vez por consulta, e conversão de cada linha.
+    private static final Colunas COLUNAS = new Colunas("id", "setor", "prateleira");
+    private static final MapeadorLinha<Localizacao> MAPEADOR = (rs, c) -> new Localizacao(rs.getInt(c[0]), rs.getString(c[1]), rs.getString(c[2]));
+
+    // Método que devolve a cache da tabela "localizacao", com os contadores de acertos e falhas.
+    public static CacheTabela<Localizacao> getCache() {
+        return CACHE;
+    }
 
     // Método que insere uma nova Localizacao na base de dados.
     public boolean inserir(Localizacao loc) {
@@ -18,13 +37,22 @@ public class LocalizacaoDAO {
 
         // try-with-resources garante que a ligação e o prepared statement sejam fechados automaticamente.
         try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             // Define os parâmetros da query com os valores do objeto Localizacao.
             stmt.setString(1, loc.getSetor());
             stmt.setString(2, loc.getPrateleira());
             // Executa a query de inserção.
             stmt.executeUpdate();
+            // Guarda no objeto o id gerado, necessário para o acrescentar à árvore de sugestões.
+            try (ResultSet chaves = stmt.getGeneratedKeys()) {
+                if (chaves.next()) {
+                    loc.setId(chaves.getInt(1));
+                }
+            }
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.adicionar(loc);
             return true;
 
         } catch (SQLException e) {
@@ -34,8 +62,39 @@ public class LocalizacaoDAO {
         }
     }
 
-    // Método que retorna uma lista com todas as Localizacoes registadas na base de dados.
+    // Método que insere uma lista de Localizacoes em lote, com o tamanho de bloco por omissão.
+    public ResultadoLote inserirEmLote(List<Localizacao> localizacoes) {
+        return inserirEmLote(localizacoes, InsercaoEmLote.TAMANHO_LOTE_PADRAO);
+    }
+
+    // Método que insere uma lista de Localizacoes em lote, com uma transação por cada bloco de tamanhoLote registos.
+    public ResultadoLote inserirEmLote(List<Localizacao> localizacoes, int tamanhoLote) {
+        // Mesma query da inserção individual, executada com addBatch/executeBatch.
+        String sql = "INSERT INTO localizacao (setor, prateleira) VALUES (?, ?)";
+
+        ResultadoLote resultado = InsercaoEmLote.executar(sql, localizacoes, tamanhoLote, (stmt, loc) -> {
+            stmt.setString(1, loc.getSetor());
+            stmt.setString(2, loc.getPrateleira());
+        }, Localizacao::setId, "localizacoes");
+        // Mesmo com falhas parciais podem ter sido inseridos registos: a cache e a árvore de sugestões são invalidadas.
+        CACHE.invalidar();
+        PREFIXOS.invalidar();
+        return resultado;
+    }
+
+    // Método que retorna uma lista com todas as Localizacoes, servida pela cache sempre que possível.
     public List<Localizacao> listarTodos() {
+        try {
+            return CACHE.listarTodos(this::consultarTodos);
+        } catch (SQLException e) {
+            // Em caso de erro, regista a mensagem no console e retorna uma lista vazia.
+            System.err.println("Erro ao listar localizacoes: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Método que consulta na base de dados a lista com todas as Localizacoes (sem passar pela cache).
+    private List<Localizacao> consultarTodos() throws SQLException {
         // Declaração de uma lista para armazenar os registos de Localizacao.
         List<Localizacao> lista = new ArrayList<>();
         // Query SQL para selecionar todos os registos da tabela "localizacao".
@@ -46,24 +105,49 @@ public class LocalizacaoDAO {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
-            // Itera sobre cada registo retornado pelo result set.
-            while (rs.next()) {
-                // Cria uma nova instância de Localizacao e define os seus atributos com os dados da query.
-                Localizacao loc = new Localizacao();
-                loc.setId(rs.getInt("id"));
-                loc.setSetor(rs.getString("setor"));
-                loc.setPrateleira(rs.getString("prateleira"));
-                // Adiciona o objeto Localizacao à lista.
-                lista.add(loc);
+            // Converte cada registo retornado num objeto Localizacao, lendo as colunas por posição.
+            lista = COLUNAS.listar(sql, rs, MAPEADOR);
+        }
+
+        // Retorna a lista de Localizacoes.
+        return lista;
+    }
+
+    // Método que devolve uma página de localizações, por ordem de id, a seguir a depoisDoId (null para a primeira página).
+    // Com filtro, só devolve os registos cujo setor ou prateleira contenha o texto, sem distinguir maiúsculas de minúsculas.
+    // Usado pelas ComboBoxes, que leem a tabela aos poucos em vez de a carregarem inteira; uma falha é lançada,
+    // e não devolvida como lista vazia, para a ComboBox não a mostrar como "sem registos".
+    public List<Localizacao> listarPagina(String filtro, Integer depoisDoId, int tamanhoPagina) throws SQLException {
+        boolean filtrar = filtro != null && !filtro.isBlank();
+        // Paginação por chave: continua a partir do último id visto, com LIMIT em vez de OFFSET.
+        String sql = "SELECT * FROM localizacao WHERE id > ?" + (filtrar ? " AND (LOWER(setor) LIKE ? OR LOWER(prateleira) LIKE ?)" : "") + " ORDER BY id LIMIT ?";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = 1;
+            stmt.setInt(indice++, depoisDoId == null ? 0 : depoisDoId);
+            if (filtrar) {
+                String padrao = Texto.padraoContem(filtro);
+                stmt.setString(indice++, padrao);
+                stmt.setString(indice++, padrao);
+            }
+            stmt.setInt(indice, tamanhoPagina);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return COLUNAS.listar(sql, rs, MAPEADOR);
             }
+        }
+    }
 
+    // Método que devolve até limite localizações cujo setor ou prateleira tenha uma palavra começada pelo texto,
+    // sem distinguir acentos nem maiúsculas. Servido pela árvore de prefixos em memória, carregada da cache na primeira utilização.
+    public List<Localizacao> sugerir(String texto, int limite) {
+        try {
+            return PREFIXOS.procurar(texto, limite, () -> CACHE.listarTodos(this::consultarTodos));
         } catch (SQLException e) {
-            // Caso ocorra algum erro, exibe a mensagem de erro no console.
-            System.err.println("Erro ao listar localizacoes: " + e.getMessage());
+            System.err.println("Erro ao sugerir localizacoes: " + e.getMessage());
+            return new ArrayList<>();
         }
-
-        // Retorna a lista de Localizacoes (pode estar vazia se ocorrer um erro).
-        return lista;
     }
 
     // Método que atualiza os dados de uma Localizacao existente na base de dados.
@@ -80,7 +164,16 @@ public class LocalizacaoDAO {
             stmt.setString(2, loc.getPrateleira());
             stmt.setInt(3, loc.getId());
             // Executa a query de atualização.
-            stmt.executeUpdate();
+            // Nenhuma linha alterada: o id não existe (ou foi excluído noutro posto), e a árvore de sugestões não muda.
+            if (stmt.executeUpdate() == 0) {
+                System.err.println("Erro ao atualizar localizacao: não existe nenhum registo com o ID " + loc.getId() + ".");
+                return false;
+            }
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.adicionar(loc);
+            // Os livros em cache incluem os dados desta tabela (e a exclusão apaga livros em cascata).
+            LivroDAO.invalidarCache();
             return true;
 
         } catch (SQLException e) {
@@ -95,14 +188,18 @@ public class LocalizacaoDAO {
         // Query SQL para eliminar o registo cujo id corresponda ao fornecido.
         String sql = "DELETE FROM localizacao WHERE id = ?";
 
-        // try-with-resources para gerir a ligação e o prepared statement.
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            // Define o parâmetro para a query.
-            stmt.setInt(1, id);
-            // Executa a query de eliminação.
-            stmt.executeUpdate();
+        // Utiliza try-with-resources para gerir a ligação.
+        try (Connection conn = DBConnection.getConnection()) {
+
+            // Executa a eliminação, registando na mesma transação os livros apagados em cascata.
+            LivroDAO.excluirRegistandoRemovidos(conn, "id_localizacao", sql, id);
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.remover(id);
+            // Os livros em cache incluem os dados desta tabela (e a exclusão apaga livros em cascata).
+            LivroDAO.invalidarCache();
+            IndicePesquisaLivros.getInstancia().removerLocalizacao(id);
+            IndiceIsbn.getInstancia().invalidar();
             return true;
 
         } catch (SQLException e) {
@@ -112,8 +209,19 @@ public class LocalizacaoDAO {
         }
     }
 
-    // Método que procura e retorna uma Localizacao através do seu identificador.
+    // Método que procura e retorna uma Localizacao pelo seu identificador, servido pela cache sempre que possível.
     public Localizacao buscarPorId(int id) {
+        try {
+            return CACHE.buscarPorId(id, this::consultarPorId);
+        } catch (SQLException e) {
+            // Em caso de erro, regista a mensagem no console e retorna null.
+            System.err.println("Erro ao buscar localizacao por ID: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Método que consulta na base de dados uma Localizacao através do seu identificador (sem passar pela cache).
+    private Localizacao consultarPorId(int id) throws SQLException {
         // Query SQL para selecionar o registo da Localizacao com o id especificado.
         String sql = "SELECT * FROM localizacao WHERE id = ?";
         // Inicialmente, a variável local deste método é null.
@@ -128,17 +236,8 @@ public class LocalizacaoDAO {
             // Executa a query e armazena o resultado num ResultSet.
             ResultSet rs = stmt.executeQuery();
 
-            // Se um registo existir, cria uma instância de Localizacao e define os seus atributos.
-            if (rs.next()) {
-                loc = new Localizacao();
-                loc.setId(rs.getInt("id"));
-                loc.setSetor(rs.getString("setor"));
-                loc.setPrateleira(rs.getString("prateleira"));
-            }
-
-        } catch (SQLException e) {
-            // Caso ocorra um erro, exibe a mensagem de erro no console.
-            System.err.println("Erro ao buscar localizacao por ID: " + e.getMessage());
+            // Se existir um registo, converte-o num objeto Localizacao.
+            loc = COLUNAS.primeiro(sql, rs, MAPEADOR);
         }
 
         // Retorna a Localizacao encontrada ou null, caso não exista.
@@ -0,0 +1,84 @@
+// Classe que guarda, por id, as instâncias de Autor, Tema, Editora e Localizacao já criadas ao mapear livros.
+// Permite que todos os livros que partilham a mesma entidade relacionada referenciem o mesmo objeto.
+package dao;
+
+import model.Autor;
+import model.Editora;
+import model.Localizacao;
+import model.Tema;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapa de identidade das entidades relacionadas com o livro.
+ * <p>
+ * Pode ser usado por consulta (criado pelo LivroDAO em cada leitura) ou por sessão (passado ao construtor
+ * do LivroDAO e partilhado entre consultas). Neste último caso deve ser limpo quando as tabelas de
+ * referência forem alteradas, para não devolver instâncias desatualizadas.
+ */
+public class MapaIdentidade {
+
+    // Instâncias já mapeadas, indexadas pelo id da respetiva tabela.
+    private final Map<Integer, Autor> autores = new ConcurrentHashMap<>();
+    private final Map<Integer, Tema> temas = new ConcurrentHashMap<>();
+    private final Map<Integer, Editora> editoras = new ConcurrentHashMap<>();
+    private final Map<Integer, Localizacao> localizacoes = new ConcurrentHashMap<>();
+
+    // Método que devolve o autor com o id indicado, ou null se ainda não foi mapeado.
+    public Autor getAutor(int id) {
+        return autores.get(id);
+    }
+
+    // Método que regista um autor e devolve a instância que fica no mapa (a já existente, se houver).
+    public Autor registarAutor(Autor autor) {
+        Autor existente = autores.putIfAbsent(autor.getId(), autor);
+        return existente != null ? existente : autor;
+    }
+
+    // Método que devolve o tema com o id indicado, ou null se ainda não foi mapeado.
+    public Tema getTema(int id) {
+        return temas.get(id);
+    }
+
+    // Método que regista um tema e devolve a instância que fica no mapa.
+    public Tema registarTema(Tema tema) {
+        Tema existente = temas.putIfAbsent(tema.getId(), tema);
+        return existente != null ? existente : tema;
+    }
+
+    // Método que devolve a editora com o id indicado, ou null se ainda não foi mapeada.
+    public Editora getEditora(int id) {
+        return editoras.get(id);
+    }
+
+    // Método que regista uma editora e devolve a instância que fica no mapa.
+    public Editora registarEditora(Editora editora) {
+        Editora existente = editoras.putIfAbsent(editora.getId(), editora);
+        return existente != null ? existente : editora;
+    }
+
+    // Método que devolve a localização com o id indicado, ou null se ainda não foi mapeada.
+    public Localizacao getLocalizacao(int id) {
+        return localizacoes.get(id);
+    }
+
+    // Método que regista uma localização e devolve a instância que fica no mapa.
+    public Localizacao registarLocalizacao(Localizacao localizacao) {
+        Localizacao existente = localizacoes.putIfAbsent(localizacao.getId(), localizacao);
+        return existente != null ? existente : localizacao;
+    }
+
+    // Método que esquece todas as instâncias registadas.
+    public void limpar() {
+        autores.clear();
+        temas.clear();
+        editoras.clear();
+        localizacoes.clear();
+    }
+
+    // Método que devolve o número total de instâncias registadas.
+    public int tamanho() {
+        return autores.size() + temas.size() + editoras.size() + localizacoes.size();
+    }
+}
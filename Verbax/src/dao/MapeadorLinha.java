@@ -0,0 +1,21 @@
+// Interface que converte a linha atual de um ResultSet num objeto (o "RowMapper" de cada DAO).
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Converte a linha atual de um ResultSet numa entidade, lendo as colunas por posição.
+ *
+ * @param <T> O tipo da entidade produzida.
+ */
+@FunctionalInterface
+interface MapeadorLinha<T> {
+
+    /**
+     * @param rs      O ResultSet, já posicionado na linha a converter.
+     * @param colunas As posições (base 1) das colunas, pela ordem dos rótulos do {@link Colunas} usado.
+     * @return A entidade criada a partir da linha.
+     */
+    T mapear(ResultSet rs, int[] colunas) throws SQLException;
+}
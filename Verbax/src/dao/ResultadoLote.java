@@ -0,0 +1,54 @@
+// Classe que representa o resultado de uma inserção em lote.
+// Indica quantos registos foram inseridos e quais falharam (com a posição na lista original e o motivo).
+package dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ResultadoLote {
+
+    // Número de registos efetivamente inseridos na base de dados.
+    private int inseridos;
+    // Registos que não foram inseridos, pela ordem em que foram detetados.
+    private final List<Falha> falhas = new ArrayList<>();
+
+    /**
+     * Falha de um registo individual do lote.
+     *
+     * @param indice   Posição do registo na lista passada ao método inserirEmLote.
+     * @param mensagem Motivo da falha devolvido pela base de dados.
+     */
+    public record Falha(int indice, String mensagem) {
+    }
+
+    // Acrescenta registos inseridos com sucesso.
+    void somarInseridos(int quantidade) {
+        inseridos += quantidade;
+    }
+
+    // Regista a falha de um registo.
+    void adicionarFalha(int indice, String mensagem) {
+        falhas.add(new Falha(indice, mensagem));
+    }
+
+    // Método que devolve o número de registos inseridos.
+    public int getInseridos() {
+        return inseridos;
+    }
+
+    // Método que devolve a lista (só de leitura) das falhas.
+    public List<Falha> getFalhas() {
+        return Collections.unmodifiableList(falhas);
+    }
+
+    // Indica se todos os registos foram inseridos.
+    public boolean isSucessoTotal() {
+        return falhas.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoLote{inseridos=" + inseridos + ", falhas=" + falhas.size() + "}";
+    }
+}
@@ -0,0 +1,27 @@
+// Interface comum aos DAOs das tabelas de referência dos livros (autor, tema, editora e localização).
+package dao;
+
+import java.util.List;
+
+/**
+ * Operações partilhadas pelos DAOs das tabelas referenciadas pelos livros, que permitem tratá-los de
+ * forma genérica (por exemplo, nos benchmarks).
+ *
+ * @param <T> O tipo da entidade da tabela.
+ */
+public interface TabelaReferenciaDAO<T> {
+
+    boolean inserir(T entidade);
+
+    ResultadoLote inserirEmLote(List<T> entidades);
+
+    List<T> listarTodos();
+
+    List<T> sugerir(String texto, int limite);
+
+    boolean atualizar(T entidade);
+
+    boolean excluir(int id);
+
+    T buscarPorId(int id);
+}
@@ -3,13 +3,31 @@
 package dao;
 
 import model.Tema;
+import util.ArvorePrefixos;
+import util.CacheTabela;
 import util.DBConnection;
+import util.Texto;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
-public class TemaDAO {
+public class TemaDAO implements TabelaReferenciaDAO<Tema> {
+
+    // Cache partilhada por todas as instâncias deste DAO, invalidada em cada escrita.
+    private static final CacheTabela<Tema> CACHE = new CacheTabela<>(Tema::getId, 5 * 60 * 1000L);
+    // Árvore de prefixos com o nome de cada registo, para as sugestões das ComboBoxes à medida que se escreve.
+    private static final ArvorePrefixos<Tema> PREFIXOS = new ArvorePrefixos<>(Tema::getId,
+            Tema::getNome, 5 * 60 * 1000L);
+
+    // Colunas lidas da tabela "tema", resolvidas por posição uma vez por consulta, e conversão de cada linha.
+    private static final Colunas COLUNAS = new Colunas("id", "nome");
+    private static final MapeadorLinha<Tema> MAPEADOR = (rs, c) -> new Tema(rs.getInt(c[0]), rs.getString(c[1]));
+
+    // Método que devolve a cache da tabela "tema", com os contadores de acertos e falhas.
+    public static CacheTabela<Tema> getCache() {
+        return CACHE;
+    }
 
     // Método que insere um novo Tema na base de dados.
     public boolean inserir(Tema tema) {
@@ -18,12 +36,21 @@ public class TemaDAO {
 
         // Utiliza try-with-resources para garantir o fecho automático dos recursos utilizados.
         try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             // Define o valor do parâmetro na query com o nome do tema.
             stmt.setString(1, tema.getNome());
             // Executa a query de inserção.
             stmt.executeUpdate();
+            // Guarda no objeto o id gerado, necessário para o acrescentar à árvore de sugestões.
+            try (ResultSet chaves = stmt.getGeneratedKeys()) {
+                if (chaves.next()) {
+                    tema.setId(chaves.getInt(1));
+                }
+            }
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.adicionar(tema);
             return true;
 
         } catch (SQLException e) {
@@ -33,8 +60,38 @@ public class TemaDAO {
         }
     }
 
-    // Método que retorna uma lista com todos os Temas registados na base de dados.
+    // Método que insere uma lista de Temas em lote, com o tamanho de bloco por omissão.
+    public ResultadoLote inserirEmLote(List<Tema> temas) {
+        return inserirEmLote(temas, InsercaoEmLote.TAMANHO_LOTE_PADRAO);
+    }
+
+    // Método que insere uma lista de Temas em lote, com uma transação por cada bloco de tamanhoLote registos.
+    public ResultadoLote inserirEmLote(List<Tema> temas, int tamanhoLote) {
+        // Mesma query da inserção individual, executada com addBatch/executeBatch.
+        String sql = "INSERT INTO tema (nome) VALUES (?)";
+
+        ResultadoLote resultado = InsercaoEmLote.executar(sql, temas, tamanhoLote, (stmt, tema) -> {
+            stmt.setString(1, tema.getNome());
+        }, Tema::setId, "temas");
+        // Mesmo com falhas parciais podem ter sido inseridos registos: a cache e a árvore de sugestões são invalidadas.
+        CACHE.invalidar();
+        PREFIXOS.invalidar();
+        return resultado;
+    }
+
+    // Método que retorna uma lista com todos os Temas, servida pela cache sempre que possível.
     public List<Tema> listarTodos() {
+        try {
+            return CACHE.listarTodos(this::consultarTodos);
+        } catch (SQLException e) {
+            // Em caso de erro, regista a mensagem no console e retorna uma lista vazia.
+            System.err.println("Erro ao listar temas: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Método que consulta na base de dados a lista com todos os Temas (sem passar pela cache).
+    private List<Tema> consultarTodos() throws SQLException {
         // Cria uma lista para armazenar os objetos Tema.
         List<Tema> lista = new ArrayList<>();
         // Query SQL para selecionar todos os registos da tabela "tema".
@@ -45,23 +102,47 @@ public class TemaDAO {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
-            // Itera por cada registo retornado no result set.
-            while (rs.next()) {
-                // Cria um novo objeto Tema e define os seus atributos com os dados do registo.
-                Tema tema = new Tema();
-                tema.setId(rs.getInt("id"));
-                tema.setNome(rs.getString("nome"));
-                // Adiciona o objeto à lista.
-                lista.add(tema);
+            // Converte cada registo retornado num objeto Tema, lendo as colunas por posição.
+            lista = COLUNAS.listar(sql, rs, MAPEADOR);
+        }
+
+        // Retorna a lista de Temas.
+        return lista;
+    }
+
+    // Método que devolve uma página de temas, por ordem de id, a seguir a depoisDoId (null para a primeira página).
+    // Com filtro, só devolve os registos cujo nome contenha o texto, sem distinguir maiúsculas de minúsculas.
+    // Usado pelas ComboBoxes, que leem a tabela aos poucos em vez de a carregarem inteira; uma falha é lançada,
+    // e não devolvida como lista vazia, para a ComboBox não a mostrar como "sem registos".
+    public List<Tema> listarPagina(String filtro, Integer depoisDoId, int tamanhoPagina) throws SQLException {
+        boolean filtrar = filtro != null && !filtro.isBlank();
+        // Paginação por chave: continua a partir do último id visto, com LIMIT em vez de OFFSET.
+        String sql = "SELECT * FROM tema WHERE id > ?" + (filtrar ? " AND LOWER(nome) LIKE ?" : "") + " ORDER BY id LIMIT ?";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = 1;
+            stmt.setInt(indice++, depoisDoId == null ? 0 : depoisDoId);
+            if (filtrar) {
+                stmt.setString(indice++, Texto.padraoContem(filtro));
+            }
+            stmt.setInt(indice, tamanhoPagina);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return COLUNAS.listar(sql, rs, MAPEADOR);
             }
+        }
+    }
 
+    // Método que devolve até limite temas cujo nome tenha uma palavra começada pelo texto,
+    // sem distinguir acentos nem maiúsculas. Servido pela árvore de prefixos em memória, carregada da cache na primeira utilização.
+    public List<Tema> sugerir(String texto, int limite) {
+        try {
+            return PREFIXOS.procurar(texto, limite, () -> CACHE.listarTodos(this::consultarTodos));
         } catch (SQLException e) {
-            // Em caso de exceção, regista a mensagem de erro.
-            System.err.println("Erro ao listar temas: " + e.getMessage());
+            System.err.println("Erro ao sugerir temas: " + e.getMessage());
+            return new ArrayList<>();
         }
-
-        // Retorna a lista de Temas (pode estar vazia se ocorrer um erro).
-        return lista;
     }
 
     // Método que atualiza os dados de um Tema existente na base de dados.
@@ -77,7 +158,17 @@ public class TemaDAO {
             stmt.setString(1, tema.getNome());
             stmt.setInt(2, tema.getId());
             // Executa a query de atualização.
-            stmt.executeUpdate();
+            // Nenhuma linha alterada: o id não existe (ou foi excluído noutro posto), e a árvore de sugestões não muda.
+            if (stmt.executeUpdate() == 0) {
+                System.err.println("Erro ao atualizar tema: não existe nenhum registo com o ID " + tema.getId() + ".");
+                return false;
+            }
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.adicionar(tema);
+            // Os livros em cache incluem os dados desta tabela (e a exclusão apaga livros em cascata).
+            LivroDAO.invalidarCache();
+            IndicePesquisaLivros.getInstancia().renomearTema(tema);
             return true;
 
         } catch (SQLException e) {
@@ -92,14 +183,18 @@ public class TemaDAO {
         // Query SQL para eliminar o tema cujo id corresponda ao fornecido.
         String sql = "DELETE FROM tema WHERE id = ?";
 
-        // Utiliza try-with-resources para gerir automaticamente a ligação e o prepared statement.
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            // Define o parâmetro da query com o id do tema a eliminar.
-            stmt.setInt(1, id);
-            // Executa a query de eliminação.
-            stmt.executeUpdate();
+        // Utiliza try-with-resources para gerir a ligação.
+        try (Connection conn = DBConnection.getConnection()) {
+
+            // Executa a eliminação, registando na mesma transação os livros apagados em cascata.
+            LivroDAO.excluirRegistandoRemovidos(conn, "id_tema", sql, id);
+            // A tabela mudou: a cache deixa de ser válida.
+            CACHE.invalidar();
+            PREFIXOS.remover(id);
+            // Os livros em cache incluem os dados desta tabela (e a exclusão apaga livros em cascata).
+            LivroDAO.invalidarCache();
+            IndicePesquisaLivros.getInstancia().removerTema(id);
+            IndiceIsbn.getInstancia().invalidar();
             return true;
 
         } catch (SQLException e) {
@@ -109,8 +204,19 @@ public class TemaDAO {
         }
     }
 
-    // Método que procura e retorna um Tema a partir do seu identificador.
+    // Método que procura e retorna um Tema pelo seu identificador, servido pela cache sempre que possível.
     public Tema buscarPorId(int id) {
+        try {
+            return CACHE.buscarPorId(id, this::consultarPorId);
+        } catch (SQLException e) {
+            // Em caso de erro, regista a mensagem no console e retorna null.
+            System.err.println("Erro ao buscar tema: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Método que consulta na base de dados um Tema a partir do seu identificador (sem passar pela cache).
+    private Tema consultarPorId(int id) throws SQLException {
         // Query SQL para selecionar o tema com o id indicado.
         String sql = "SELECT * FROM tema WHERE id = ?";
         // Inicializa a variável Tema como null.
@@ -125,16 +231,8 @@ public class TemaDAO {
             // Executa a query e obtém o result set.
             ResultSet rs = stmt.executeQuery();
 
-            // Se um registo for encontrado, cria um objeto Tema e define os seus atributos.
-            if (rs.next()) {
-                tema = new Tema();
-                tema.setId(rs.getInt("id"));
-                tema.setNome(rs.getString("nome"));
-            }
-
-        } catch (SQLException e) {
-            // Em caso de erro, regista a mensagem de erro.
-            System.err.println("Erro ao buscar tema: " + e.getMessage());
+            // Se existir um registo, converte-o num objeto Tema.
+            tema = COLUNAS.primeiro(sql, rs, MAPEADOR);
         }
 
         // Retorna o objeto Tema encontrado ou null se não for encontrado.
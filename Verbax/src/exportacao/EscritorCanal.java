@@ -0,0 +1,150 @@
+// Classe que escreve texto num canal de ficheiro através de um buffer direto reutilizado, com compressão gzip opcional.
+package exportacao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Escritor de texto UTF-8 para um {@link WritableByteChannel}.
+ * <p>
+ * O texto é codificado diretamente para um buffer direto de tamanho fixo, que é escrito no canal sempre
+ * que enche; o mesmo buffer serve o ficheiro inteiro, pelo que a memória usada não depende do tamanho
+ * da exportação. Com gzip, o conteúdo do buffer passa por um {@link Deflater} (também sobre buffers
+ * diretos) e o cabeçalho e o rodapé do formato gzip (RFC 1952) são escritos por esta classe.
+ */
+final class EscritorCanal implements AutoCloseable {
+
+    // Tamanho de cada um dos buffers diretos.
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    // Cabeçalho gzip mínimo: identificação, método deflate, sem flags nem data, sistema desconhecido.
+    private static final byte[] CABECALHO_GZIP = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final WritableByteChannel canal;
+    private final CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+
+    // Apenas com gzip: compressor, buffer de saída comprimida e soma de controlo do conteúdo original.
+    private final Deflater compressor;
+    private final ByteBuffer comprimido;
+    private final CRC32 crc;
+    private long bytesOriginais;
+    private boolean fechado;
+
+    EscritorCanal(WritableByteChannel canal, boolean gzip) throws IOException {
+        this.canal = canal;
+        if (gzip) {
+            // nowrap: deflate puro, sem o cabeçalho zlib, como exige o gzip.
+            compressor = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            comprimido = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+            crc = new CRC32();
+            escreverNoCanal(ByteBuffer.wrap(CABECALHO_GZIP));
+        } else {
+            compressor = null;
+            comprimido = null;
+            crc = null;
+        }
+    }
+
+    /**
+     * Codifica o texto em UTF-8 e acrescenta-o ao ficheiro.
+     *
+     * @param texto O texto a escrever (por exemplo, um StringBuilder reutilizado para cada linha).
+     */
+    void escrever(CharSequence texto) throws IOException {
+        CharBuffer entrada = CharBuffer.wrap(texto);
+        while (true) {
+            CoderResult resultado = codificador.encode(entrada, bytes, false);
+            if (resultado.isOverflow()) {
+                descarregar();
+            } else if (resultado.isUnderflow()) {
+                // Um par de substitutos cortado a meio fica no codificador até à próxima chamada.
+                return;
+            } else {
+                resultado.throwException();
+            }
+        }
+    }
+
+    // Envia o conteúdo do buffer para o canal (através do compressor, se houver).
+    private void descarregar() throws IOException {
+        bytes.flip();
+        if (compressor == null) {
+            escreverNoCanal(bytes);
+        } else {
+            bytesOriginais += bytes.remaining();
+            crc.update(bytes.duplicate());
+            // O compressor guarda a referência ao buffer de entrada: recebe uma vista própria, para que o
+            // clear() seguinte não lhe devolva como pendente o conteúdo já comprimido.
+            compressor.setInput(bytes.slice());
+            while (!compressor.needsInput()) {
+                comprimir();
+            }
+        }
+        bytes.clear();
+    }
+
+    // Comprime o que o compressor tiver disponível e escreve o resultado quando o buffer de saída enche.
+    private void comprimir() throws IOException {
+        compressor.deflate(comprimido);
+        if (!comprimido.hasRemaining()) {
+            comprimido.flip();
+            escreverNoCanal(comprimido);
+            comprimido.clear();
+        }
+    }
+
+    private void escreverNoCanal(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    /**
+     * Escreve o que estiver nos buffers, termina o formato gzip e fecha o canal.
+     */
+    @Override
+    public void close() throws IOException {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        try {
+            CharBuffer vazio = CharBuffer.allocate(0);
+            while (codificador.encode(vazio, bytes, true).isOverflow()) {
+                descarregar();
+            }
+            while (codificador.flush(bytes).isOverflow()) {
+                descarregar();
+            }
+            descarregar();
+            if (compressor != null) {
+                compressor.finish();
+                while (!compressor.finished()) {
+                    comprimir();
+                }
+                comprimido.flip();
+                escreverNoCanal(comprimido);
+                // Rodapé: CRC-32 e tamanho original (módulo 2^32), em little-endian.
+                ByteBuffer rodape = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                rodape.putInt((int) crc.getValue()).putInt((int) bytesOriginais).flip();
+                escreverNoCanal(rodape);
+            }
+        } finally {
+            if (compressor != null) {
+                compressor.end();
+            }
+            canal.close();
+        }
+    }
+}
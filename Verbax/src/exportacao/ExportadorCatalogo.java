@@ -0,0 +1,224 @@
+// Classe que exporta o catálogo (livros e tabelas auxiliares) para ficheiros CSV ou JSON, opcionalmente comprimidos.
+package exportacao;
+
+import dao.AutorDAO;
+import dao.EditoraDAO;
+import dao.LivroDAO;
+import dao.LocalizacaoDAO;
+import dao.TemaDAO;
+import model.Autor;
+import model.Editora;
+import model.Livro;
+import model.Localizacao;
+import model.Tema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Exportação do catálogo em streaming.
+ * <p>
+ * Os livros são lidos com {@link LivroDAO#percorrerTodos(Consumer)}, que mantém em memória apenas a linha
+ * atual, e cada linha é formatada num StringBuilder reutilizado e codificada diretamente para o buffer
+ * direto de um {@link EscritorCanal} ligado a um {@link FileChannel}. A memória usada é a mesma para mil
+ * ou para um milhão de livros.
+ * <p>
+ * O formato é escolhido pelo nome do ficheiro ({@link FormatoExportacao#doNome(String)}) e um nome
+ * terminado em ".gz" ativa a compressão gzip. O CSV de livros tem as colunas aceites pela importação
+ * ({@link importacao.ImportadorCsv}), pelo que pode ser importado noutra base de dados.
+ */
+public class ExportadorCatalogo {
+
+    // Número de livros entre duas notificações de progresso.
+    private static final int INTERVALO_PROGRESSO = 10_000;
+
+    /**
+     * Tabelas que podem ser exportadas.
+     */
+    public enum Tabela {
+        LIVROS("livros"),
+        AUTORES("autores"),
+        TEMAS("temas"),
+        EDITORAS("editoras"),
+        LOCALIZACOES("localizacoes");
+
+        private final String nome;
+
+        Tabela(String nome) {
+            this.nome = nome;
+        }
+
+        // Nome usado nos ficheiros das tabelas auxiliares ("catalogo_autores.csv").
+        public String getNome() {
+            return nome;
+        }
+    }
+
+    // Uma coluna do ficheiro: o nome no cabeçalho e a forma de obter o valor a partir do registo.
+    private record Coluna<T>(String nome, Function<T, Object> valor) {
+    }
+
+    private static final List<Coluna<Livro>> COLUNAS_LIVRO = List.of(
+            new Coluna<>("id", Livro::getId),
+            new Coluna<>("titulo", Livro::getTitulo),
+            new Coluna<>("ano_publicacao", Livro::getAnoPublicacao),
+            new Coluna<>("isbn", Livro::getIsbn),
+            new Coluna<>("autor", l -> l.getAutor().getNome()),
+            new Coluna<>("nacionalidade", l -> l.getAutor().getNacionalidade()),
+            new Coluna<>("tema", l -> l.getTema().getNome()),
+            new Coluna<>("editora", l -> l.getEditora().getNome()),
+            new Coluna<>("cidade", l -> l.getEditora().getCidade()),
+            new Coluna<>("setor", l -> l.getLocalizacao().getSetor()),
+            new Coluna<>("prateleira", l -> l.getLocalizacao().getPrateleira()));
+
+    private static final List<Coluna<Autor>> COLUNAS_AUTOR = List.of(
+            new Coluna<>("id", Autor::getId),
+            new Coluna<>("nome", Autor::getNome),
+            new Coluna<>("nacionalidade", Autor::getNacionalidade));
+
+    private static final List<Coluna<Tema>> COLUNAS_TEMA = List.of(
+            new Coluna<>("id", Tema::getId),
+            new Coluna<>("nome", Tema::getNome));
+
+    private static final List<Coluna<Editora>> COLUNAS_EDITORA = List.of(
+            new Coluna<>("id", Editora::getId),
+            new Coluna<>("nome", Editora::getNome),
+            new Coluna<>("cidade", Editora::getCidade));
+
+    private static final List<Coluna<Localizacao>> COLUNAS_LOCALIZACAO = List.of(
+            new Coluna<>("id", Localizacao::getId),
+            new Coluna<>("setor", Localizacao::getSetor),
+            new Coluna<>("prateleira", Localizacao::getPrateleira));
+
+    /**
+     * Exporta uma tabela para um ficheiro, substituindo-o se já existir.
+     *
+     * @param tabela    A tabela a exportar.
+     * @param destino   O ficheiro de destino; a extensão define o formato e ".gz" a compressão.
+     * @param progresso Recebe o número de registos escritos a cada {@value #INTERVALO_PROGRESSO} livros (pode ser null).
+     * @return O número de registos exportados.
+     * @throws IOException Se o ficheiro não puder ser escrito ou a leitura da base de dados falhar;
+     *                     nesse caso o ficheiro incompleto é apagado.
+     */
+    public long exportar(Tabela tabela, Path destino, LongConsumer progresso) throws IOException {
+        return switch (tabela) {
+            case LIVROS -> escrever(destino, COLUNAS_LIVRO, new LivroDAO()::percorrerTodos, progresso);
+            case AUTORES -> escrever(destino, COLUNAS_AUTOR, new AutorDAO().listarTodos()::forEach, null);
+            case TEMAS -> escrever(destino, COLUNAS_TEMA, new TemaDAO().listarTodos()::forEach, null);
+            case EDITORAS -> escrever(destino, COLUNAS_EDITORA, new EditoraDAO().listarTodos()::forEach, null);
+            case LOCALIZACOES -> escrever(destino, COLUNAS_LOCALIZACAO, new LocalizacaoDAO().listarTodos()::forEach, null);
+        };
+    }
+
+    /**
+     * Exporta o catálogo completo: os livros para o ficheiro indicado e cada tabela auxiliar para um
+     * ficheiro ao lado, com o nome da tabela acrescentado ("catalogo.csv.gz" dá "catalogo_autores.csv.gz").
+     *
+     * @param destinoLivros O ficheiro dos livros.
+     * @param progresso     Recebe o número de livros escritos (pode ser null).
+     * @return O número de registos exportados por tabela.
+     * @throws IOException Se algum dos ficheiros não puder ser escrito.
+     */
+    public Map<Tabela, Long> exportarTudo(Path destinoLivros, LongConsumer progresso) throws IOException {
+        Map<Tabela, Long> totais = new EnumMap<>(Tabela.class);
+        totais.put(Tabela.LIVROS, exportar(Tabela.LIVROS, destinoLivros, progresso));
+        for (Tabela tabela : Tabela.values()) {
+            if (tabela != Tabela.LIVROS) {
+                totais.put(tabela, exportar(tabela, ficheiroDaTabela(destinoLivros, tabela), null));
+            }
+        }
+        return totais;
+    }
+
+    /**
+     * Nome do ficheiro de uma tabela numa exportação completa.
+     *
+     * @param destinoLivros O ficheiro dos livros.
+     * @param tabela        A tabela.
+     * @return O próprio ficheiro dos livros, ou, para as tabelas auxiliares, o caminho com "_" e o nome
+     * da tabela antes da extensão.
+     */
+    public static Path ficheiroDaTabela(Path destinoLivros, Tabela tabela) {
+        if (tabela == Tabela.LIVROS) {
+            return destinoLivros;
+        }
+        String nome = destinoLivros.getFileName().toString();
+        String sufixo = nome.toLowerCase(Locale.ROOT).endsWith(".gz") ? ".gz" : "";
+        String semGz = nome.substring(0, nome.length() - sufixo.length());
+        int ponto = semGz.lastIndexOf('.');
+        String base = ponto > 0 ? semGz.substring(0, ponto) : semGz;
+        String extensao = ponto > 0 ? semGz.substring(ponto) : "";
+        return destinoLivros.resolveSibling(base + "_" + tabela.getNome() + extensao + sufixo);
+    }
+
+    // Escreve os registos entregues pela fonte, uma linha de cada vez, reutilizando o StringBuilder e o array de valores.
+    private static <T> long escrever(Path destino, List<Coluna<T>> colunas, Consumer<Consumer<T>> fonte,
+                                     LongConsumer progresso) throws IOException {
+        String nome = destino.getFileName().toString();
+        FormatoExportacao formato = FormatoExportacao.doNome(nome);
+        boolean gzip = nome.toLowerCase(Locale.ROOT).endsWith(".gz");
+        List<String> nomes = colunas.stream().map(Coluna::nome).toList();
+        long[] total = {0};
+
+        try (EscritorCanal escritor = new EscritorCanal(FileChannel.open(destino, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), gzip)) {
+            StringBuilder sb = new StringBuilder(256);
+            Object[] valores = new Object[colunas.size()];
+            formato.inicio(sb, nomes);
+
+            fonte.accept(registo -> {
+                for (int i = 0; i < valores.length; i++) {
+                    valores[i] = colunas.get(i).valor().apply(registo);
+                }
+                formato.linha(sb, nomes, valores, total[0] == 0);
+                total[0]++;
+                try {
+                    escritor.escrever(sb);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                sb.setLength(0);
+                if (progresso != null && total[0] % INTERVALO_PROGRESSO == 0) {
+                    progresso.accept(total[0]);
+                }
+            });
+
+            formato.fim(sb);
+            escritor.escrever(sb);
+        } catch (UncheckedIOException e) {
+            apagarIncompleto(destino);
+            throw e.getCause();
+        } catch (IOException e) {
+            apagarIncompleto(destino);
+            throw e;
+        } catch (IllegalStateException e) {
+            // Erro de leitura da base de dados durante o percurso dos livros.
+            apagarIncompleto(destino);
+            throw new IOException(e.getMessage(), e);
+        }
+
+        if (progresso != null) {
+            progresso.accept(total[0]);
+        }
+        return total[0];
+    }
+
+    private static void apagarIncompleto(Path destino) {
+        try {
+            Files.deleteIfExists(destino);
+        } catch (IOException e) {
+            System.err.println("Erro ao apagar exportação incompleta " + destino + ": " + e.getMessage());
+        }
+    }
+}
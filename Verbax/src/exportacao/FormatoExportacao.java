@@ -0,0 +1,159 @@
+// Enumeração dos formatos de ficheiro suportados pela exportação do catálogo.
+package exportacao;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Formatos de exportação. Cada formato sabe escrever o início e o fim do ficheiro e uma linha de valores.
+ */
+public enum FormatoExportacao {
+
+    /**
+     * CSV separado por ponto e vírgula, com cabeçalho; o mesmo formato aceite pela importação de livros.
+     */
+    CSV("csv") {
+        @Override
+        void inicio(StringBuilder sb, List<String> colunas) {
+            for (int i = 0; i < colunas.size(); i++) {
+                if (i > 0) {
+                    sb.append(';');
+                }
+                sb.append(colunas.get(i));
+            }
+            sb.append('\n');
+        }
+
+        @Override
+        void linha(StringBuilder sb, List<String> colunas, Object[] valores, boolean primeira) {
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) {
+                    sb.append(';');
+                }
+                Object valor = valores[i];
+                if (valor instanceof Number) {
+                    sb.append(valor);
+                } else if (valor != null) {
+                    acrescentarCsv(sb, valor.toString());
+                }
+            }
+            sb.append('\n');
+        }
+
+        @Override
+        void fim(StringBuilder sb) {
+        }
+    },
+
+    /**
+     * Array JSON com um objeto por linha.
+     */
+    JSON("json") {
+        @Override
+        void inicio(StringBuilder sb, List<String> colunas) {
+            sb.append('[');
+        }
+
+        @Override
+        void linha(StringBuilder sb, List<String> colunas, Object[] valores, boolean primeira) {
+            sb.append(primeira ? "\n{" : ",\n{");
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                acrescentarJson(sb, colunas.get(i));
+                sb.append(':');
+                Object valor = valores[i];
+                if (valor == null) {
+                    sb.append("null");
+                } else if (valor instanceof Number) {
+                    sb.append(valor);
+                } else {
+                    acrescentarJson(sb, valor.toString());
+                }
+            }
+            sb.append('}');
+        }
+
+        @Override
+        void fim(StringBuilder sb) {
+            sb.append("\n]\n");
+        }
+    };
+
+    private final String extensao;
+
+    FormatoExportacao(String extensao) {
+        this.extensao = extensao;
+    }
+
+    // Extensão do ficheiro, sem o ponto e sem ".gz".
+    public String getExtensao() {
+        return extensao;
+    }
+
+    abstract void inicio(StringBuilder sb, List<String> colunas);
+
+    abstract void linha(StringBuilder sb, List<String> colunas, Object[] valores, boolean primeira);
+
+    abstract void fim(StringBuilder sb);
+
+    /**
+     * Escolhe o formato pela extensão do nome do ficheiro ("livros.json", "livros.csv.gz", ...).
+     *
+     * @param nomeFicheiro O nome do ficheiro.
+     * @return O formato correspondente; CSV se a extensão não for reconhecida.
+     */
+    public static FormatoExportacao doNome(String nomeFicheiro) {
+        String nome = nomeFicheiro.toLowerCase(Locale.ROOT);
+        if (nome.endsWith(".gz")) {
+            nome = nome.substring(0, nome.length() - 3);
+        }
+        return nome.endsWith(".json") ? JSON : CSV;
+    }
+
+    // Campo CSV entre aspas quando contém o separador, aspas ou quebras de linha.
+    private static void acrescentarCsv(StringBuilder sb, String texto) {
+        boolean aspas = false;
+        for (int i = 0; i < texto.length() && !aspas; i++) {
+            char c = texto.charAt(i);
+            aspas = c == ';' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!aspas) {
+            sb.append(texto);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    // Texto JSON entre aspas, com os caracteres especiais escapados.
+    private static void acrescentarJson(StringBuilder sb, String texto) {
+        sb.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
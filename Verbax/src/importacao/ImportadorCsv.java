@@ -0,0 +1,339 @@
+// Classe que importa livros de um ficheiro CSV, em paralelo e com inserções em lote.
+package importacao;
+
+import dao.AutorDAO;
+import dao.EditoraDAO;
+import dao.LivroDAO;
+import dao.LocalizacaoDAO;
+import dao.ResultadoLote;
+import dao.TemaDAO;
+import model.Autor;
+import model.Editora;
+import model.Livro;
+import model.Localizacao;
+import model.Tema;
+import util.Isbn;
+import util.Texto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Importação de catálogos em CSV com os nomes do autor, tema, editora e localização em vez dos ids.
+ * <p>
+ * Uma thread lê o ficheiro e separa-o em blocos de {@value #TAMANHO_BLOCO} registos; cada bloco é
+ * processado por uma das threads de trabalho, que separa os campos, valida os registos, resolve os
+ * nomes pela cache {@link Referencias} (criando os que faltam) e insere os livros com
+ * {@link LivroDAO#inserirEmLote(List, int)}. O número de blocos em memória é limitado, pelo que a leitura
+ * espera quando a base de dados não acompanha.
+ * <p>
+ * O cabeçalho é obrigatório e define a ordem das colunas: titulo, ano_publicacao (ou ano), isbn, autor,
+ * nacionalidade, tema, editora, cidade, setor e prateleira. isbn, nacionalidade, cidade e prateleira
+ * são opcionais. O separador pode ser ponto e vírgula ou vírgula e o ficheiro deve estar em UTF-8.
+ */
+public class ImportadorCsv {
+
+    // Registos por bloco entregue a uma thread de trabalho.
+    static final int TAMANHO_BLOCO = 5000;
+    // Limites da coluna ano_publicacao (tipo YEAR do MySQL).
+    private static final int ANO_MINIMO = 1901;
+    private static final int ANO_MAXIMO = 2155;
+
+    private final int threads;
+
+    // Cria um importador com uma thread de trabalho por processador, até ao máximo de 8.
+    public ImportadorCsv() {
+        this(Math.min(8, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public ImportadorCsv(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("O número de threads tem de ser positivo: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    // Posições das colunas no ficheiro (-1 se a coluna opcional não existir).
+    private record Colunas(int titulo, int ano, int isbn, int autor, int nacionalidade, int tema,
+                           int editora, int cidade, int setor, int prateleira) {
+    }
+
+    // Registos consecutivos do ficheiro e o número da linha de cada um.
+    private record Bloco(List<String> registos, List<Long> linhas) {
+    }
+
+    // Caches nome → id das quatro tabelas de referência.
+    private record Caches(Referencias<Autor> autores, Referencias<Tema> temas,
+                          Referencias<Editora> editoras, Referencias<Localizacao> localizacoes) {
+        int criadas() {
+            return autores.getCriadas() + temas.getCriadas() + editoras.getCriadas() + localizacoes.getCriadas();
+        }
+    }
+
+    // Livro válido à espera das referências, com os nomes já em forma de chave.
+    private record LinhaValida(long linha, Livro livro, String autor, String tema, String editora, String localizacao) {
+    }
+
+    /**
+     * Importa os livros do ficheiro.
+     *
+     * @param ficheiro  O ficheiro CSV.
+     * @param progresso Função chamada após cada bloco, a partir das threads de trabalho (pode ser null).
+     * @return O resultado, com os totais e as linhas recusadas.
+     * @throws IOException Se o ficheiro não puder ser lido ou o cabeçalho não tiver as colunas obrigatórias.
+     */
+    public ResultadoImportacao importar(Path ficheiro, Consumer<ProgressoImportacao> progresso) throws IOException {
+        long inicio = System.nanoTime();
+        ResultadoImportacao resultado = new ResultadoImportacao();
+        Caches caches = new Caches(
+                new Referencias<>(new AutorDAO().listarTodos(), a -> Referencias.chave(a.getNome()),
+                        Autor::getId, new AutorDAO()::inserirEmLote, new AutorDAO()::listarTodos),
+                new Referencias<>(new TemaDAO().listarTodos(), t -> Referencias.chave(t.getNome()),
+                        Tema::getId, new TemaDAO()::inserirEmLote, new TemaDAO()::listarTodos),
+                new Referencias<>(new EditoraDAO().listarTodos(), e -> Referencias.chave(e.getNome()),
+                        Editora::getId, new EditoraDAO()::inserirEmLote, new EditoraDAO()::listarTodos),
+                new Referencias<>(new LocalizacaoDAO().listarTodos(), l -> Referencias.chave(l.getSetor(), l.getPrateleira()),
+                        Localizacao::getId, new LocalizacaoDAO()::inserirEmLote, new LocalizacaoDAO()::listarTodos));
+
+        AtomicInteger numeroThread = new AtomicInteger();
+        ExecutorService trabalhadores = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "verbax-importacao-" + numeroThread.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Blocos lidos mas ainda não inseridos: no máximo dois por thread.
+        Semaphore blocosEmMemoria = new Semaphore(threads * 2);
+        List<CompletableFuture<Void>> tarefas = new ArrayList<>();
+
+        try (BufferedReader leitor = Files.newBufferedReader(ficheiro, StandardCharsets.UTF_8)) {
+            String cabecalho = leitor.readLine();
+            if (cabecalho == null) {
+                throw new IOException("O ficheiro está vazio: " + ficheiro);
+            }
+            // Retira a marca BOM que algumas folhas de cálculo escrevem no início do ficheiro.
+            if (cabecalho.startsWith("\uFEFF")) {
+                cabecalho = cabecalho.substring(1);
+            }
+            char separador = LeitorCsv.detetarSeparador(cabecalho);
+            Colunas colunas = lerCabecalho(LeitorCsv.separar(cabecalho, separador));
+
+            long numeroLinha = 1;
+            List<String> registos = new ArrayList<>(TAMANHO_BLOCO);
+            List<Long> linhas = new ArrayList<>(TAMANHO_BLOCO);
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                numeroLinha++;
+                long linhaDoRegisto = numeroLinha;
+                // Um campo entre aspas pode continuar nas linhas seguintes.
+                if (LeitorCsv.aspasPorFechar(linha)) {
+                    StringBuilder registo = new StringBuilder(linha);
+                    String continuacao;
+                    while (LeitorCsv.aspasPorFechar(registo) && (continuacao = leitor.readLine()) != null) {
+                        numeroLinha++;
+                        registo.append('\n').append(continuacao);
+                    }
+                    linha = registo.toString();
+                }
+                if (linha.isBlank()) {
+                    continue;
+                }
+                registos.add(linha);
+                linhas.add(linhaDoRegisto);
+                if (registos.size() == TAMANHO_BLOCO) {
+                    tarefas.add(submeter(new Bloco(registos, linhas), separador, colunas, caches, resultado,
+                            trabalhadores, blocosEmMemoria, progresso, inicio));
+                    registos = new ArrayList<>(TAMANHO_BLOCO);
+                    linhas = new ArrayList<>(TAMANHO_BLOCO);
+                }
+            }
+            if (!registos.isEmpty()) {
+                tarefas.add(submeter(new Bloco(registos, linhas), separador, colunas, caches, resultado,
+                        trabalhadores, blocosEmMemoria, progresso, inicio));
+            }
+            tarefas.forEach(CompletableFuture::join);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importação interrompida.", e);
+        } finally {
+            trabalhadores.shutdownNow();
+        }
+
+        resultado.terminar(System.nanoTime() - inicio, caches.criadas());
+        return resultado;
+    }
+
+    // Entrega o bloco a uma thread de trabalho, esperando se já houver demasiados blocos em memória.
+    private CompletableFuture<Void> submeter(Bloco bloco, char separador, Colunas colunas, Caches caches,
+                                             ResultadoImportacao resultado, ExecutorService trabalhadores,
+                                             Semaphore blocosEmMemoria, Consumer<ProgressoImportacao> progresso,
+                                             long inicio) throws InterruptedException {
+        blocosEmMemoria.acquire();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                processarBloco(bloco, separador, colunas, caches, resultado);
+                if (progresso != null) {
+                    progresso.accept(new ProgressoImportacao(resultado.getLinhasLidas(), resultado.getInseridos(),
+                            resultado.getRejeitados(), System.nanoTime() - inicio));
+                }
+            } finally {
+                blocosEmMemoria.release();
+            }
+        }, trabalhadores);
+    }
+
+    // Valida, resolve as referências e insere os livros de um bloco.
+    private void processarBloco(Bloco bloco, char separador, Colunas colunas, Caches caches, ResultadoImportacao resultado) {
+        List<LinhaValida> validas = new ArrayList<>(bloco.registos().size());
+        Map<String, Autor> autores = new HashMap<>();
+        Map<String, Tema> temas = new HashMap<>();
+        Map<String, Editora> editoras = new HashMap<>();
+        Map<String, Localizacao> localizacoes = new HashMap<>();
+
+        for (int i = 0; i < bloco.registos().size(); i++) {
+            long linha = bloco.linhas().get(i);
+            List<String> campos = LeitorCsv.separar(bloco.registos().get(i), separador);
+            String erro = validar(campos, colunas);
+            if (erro != null) {
+                resultado.rejeitar(linha, erro);
+                continue;
+            }
+            String nomeAutor = campo(campos, colunas.autor());
+            String nomeTema = campo(campos, colunas.tema());
+            String nomeEditora = campo(campos, colunas.editora());
+            String setor = campo(campos, colunas.setor());
+            String prateleira = vazioParaNull(campo(campos, colunas.prateleira()));
+
+            LinhaValida valida = new LinhaValida(linha,
+                    new Livro(0, campo(campos, colunas.titulo()), Integer.parseInt(campo(campos, colunas.ano())),
+                            vazioParaNull(campo(campos, colunas.isbn())), null, null, null, null),
+                    Referencias.chave(nomeAutor), Referencias.chave(nomeTema), Referencias.chave(nomeEditora),
+                    Referencias.chave(setor, prateleira));
+            validas.add(valida);
+            autores.putIfAbsent(valida.autor(), new Autor(0, nomeAutor, vazioParaNull(campo(campos, colunas.nacionalidade()))));
+            temas.putIfAbsent(valida.tema(), new Tema(0, nomeTema));
+            editoras.putIfAbsent(valida.editora(), new Editora(0, nomeEditora, vazioParaNull(campo(campos, colunas.cidade()))));
+            localizacoes.putIfAbsent(valida.localizacao(), new Localizacao(0, setor, prateleira));
+        }
+
+        Set<String> autoresEmFalta = caches.autores().garantir(autores);
+        Set<String> temasEmFalta = caches.temas().garantir(temas);
+        Set<String> editorasEmFalta = caches.editoras().garantir(editoras);
+        Set<String> localizacoesEmFalta = caches.localizacoes().garantir(localizacoes);
+
+        List<Livro> livros = new ArrayList<>(validas.size());
+        List<Long> linhasLivros = new ArrayList<>(validas.size());
+        for (LinhaValida valida : validas) {
+            if (autoresEmFalta.contains(valida.autor()) || temasEmFalta.contains(valida.tema())
+                    || editorasEmFalta.contains(valida.editora()) || localizacoesEmFalta.contains(valida.localizacao())) {
+                resultado.rejeitar(valida.linha(), "Não foi possível criar o autor, tema, editora ou localização.");
+                continue;
+            }
+            Livro livro = valida.livro();
+            livro.setAutor(new Autor(caches.autores().id(valida.autor()), null, null));
+            livro.setTema(new Tema(caches.temas().id(valida.tema()), null));
+            livro.setEditora(new Editora(caches.editoras().id(valida.editora()), null, null));
+            livro.setLocalizacao(new Localizacao(caches.localizacoes().id(valida.localizacao()), null, null));
+            livros.add(livro);
+            linhasLivros.add(valida.linha());
+        }
+
+        ResultadoLote lote = new LivroDAO().inserirEmLote(livros, TAMANHO_BLOCO);
+        long semPosicao = livros.size() - lote.getInseridos();
+        String motivoGeral = null;
+        for (ResultadoLote.Falha falha : lote.getFalhas()) {
+            if (falha.indice() < 0) {
+                motivoGeral = falha.mensagem();
+            } else {
+                resultado.rejeitar(linhasLivros.get(falha.indice()), falha.mensagem());
+                semPosicao--;
+            }
+        }
+        // Falha de todo o bloco (por exemplo, sem ligação): os livros não inseridos ficam rejeitados em conjunto.
+        if (motivoGeral != null && semPosicao > 0) {
+            resultado.rejeitar(linhasLivros.get(0), semPosicao, "Bloco não inserido: " + motivoGeral);
+        }
+        resultado.somar(bloco.registos().size(), lote.getInseridos());
+    }
+
+    // Verifica os campos de um registo; devolve o motivo da rejeição ou null se for válido.
+    private static String validar(List<String> campos, Colunas colunas) {
+        String titulo = campo(campos, colunas.titulo());
+        if (titulo.isEmpty()) {
+            return "Título em falta.";
+        }
+        if (titulo.length() > 200) {
+            return "Título com mais de 200 caracteres.";
+        }
+        String ano = campo(campos, colunas.ano());
+        try {
+            int valor = Integer.parseInt(ano);
+            if (valor < ANO_MINIMO || valor > ANO_MAXIMO) {
+                return "Ano de publicação fora do intervalo " + ANO_MINIMO + "-" + ANO_MAXIMO + ": " + ano;
+            }
+        } catch (NumberFormatException e) {
+            return "Ano de publicação inválido: " + ano;
+        }
+        String isbn = campo(campos, colunas.isbn());
+        if (!isbn.isEmpty() && !Isbn.valido(isbn)) {
+            return "ISBN inválido: " + isbn;
+        }
+        if (campo(campos, colunas.autor()).isEmpty() || campo(campos, colunas.tema()).isEmpty()
+                || campo(campos, colunas.editora()).isEmpty() || campo(campos, colunas.setor()).isEmpty()) {
+            return "Autor, tema, editora e setor são obrigatórios.";
+        }
+        if (campo(campos, colunas.autor()).length() > 100 || campo(campos, colunas.tema()).length() > 100
+                || campo(campos, colunas.editora()).length() > 100 || campo(campos, colunas.setor()).length() > 50
+                || campo(campos, colunas.prateleira()).length() > 20) {
+            return "Nome de autor, tema, editora ou localização demasiado longo.";
+        }
+        return null;
+    }
+
+    // Associa cada coluna conhecida à sua posição no cabeçalho.
+    private static Colunas lerCabecalho(List<String> nomes) throws IOException {
+        Map<String, Integer> posicoes = new LinkedHashMap<>();
+        for (int i = 0; i < nomes.size(); i++) {
+            // "Ano Publicação", "ano_publicacao" e "AnoPublicacao" dão a mesma chave.
+            posicoes.putIfAbsent(String.join("", Texto.palavras(nomes.get(i).replace('_', ' '))), i);
+        }
+        int titulo = obrigatoria(posicoes, "titulo");
+        int ano = posicoes.containsKey("anopublicacao") ? posicoes.get("anopublicacao") : obrigatoria(posicoes, "ano");
+        int setor = posicoes.containsKey("setor") ? posicoes.get("setor") : obrigatoria(posicoes, "localizacao");
+        return new Colunas(titulo, ano, posicoes.getOrDefault("isbn", -1), obrigatoria(posicoes, "autor"),
+                posicoes.getOrDefault("nacionalidade", -1), obrigatoria(posicoes, "tema"),
+                obrigatoria(posicoes, "editora"), posicoes.getOrDefault("cidade", -1),
+                setor, posicoes.getOrDefault("prateleira", -1));
+    }
+
+    private static int obrigatoria(Map<String, Integer> posicoes, String coluna) throws IOException {
+        Integer posicao = posicoes.get(coluna);
+        if (posicao == null) {
+            throw new IOException("Coluna obrigatória em falta no cabeçalho: " + coluna);
+        }
+        return posicao;
+    }
+
+    // Campo na posição indicada, ou uma string vazia se a coluna não existir ou o registo for mais curto.
+    private static String campo(List<String> campos, int posicao) {
+        return posicao >= 0 && posicao < campos.size() ? campos.get(posicao) : "";
+    }
+
+    private static String vazioParaNull(String texto) {
+        return texto.isEmpty() ? null : texto;
+    }
+}
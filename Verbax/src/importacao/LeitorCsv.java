@@ -0,0 +1,82 @@
+// Classe utilitária que separa as linhas de um ficheiro CSV em campos.
+package importacao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Separação de campos CSV (RFC 4180): campos entre aspas podem conter o separador, quebras de linha
+ * e aspas duplicadas (""). O separador é detetado no cabeçalho: ponto e vírgula (habitual nas folhas
+ * de cálculo em português) ou vírgula.
+ */
+final class LeitorCsv {
+
+    private LeitorCsv() {
+    }
+
+    // Escolhe o separador que aparece mais vezes no cabeçalho.
+    static char detetarSeparador(String cabecalho) {
+        int pontoVirgula = 0;
+        int virgula = 0;
+        for (int i = 0; i < cabecalho.length(); i++) {
+            char c = cabecalho.charAt(i);
+            if (c == ';') {
+                pontoVirgula++;
+            } else if (c == ',') {
+                virgula++;
+            }
+        }
+        return pontoVirgula >= virgula && pontoVirgula > 0 ? ';' : ',';
+    }
+
+    /**
+     * Indica se o registo termina a meio de um campo entre aspas, isto é, se continua na linha seguinte.
+     * Com aspas duplicadas ("") a contagem continua correta, porque cada par soma dois.
+     */
+    static boolean aspasPorFechar(CharSequence registo) {
+        int aspas = 0;
+        for (int i = 0; i < registo.length(); i++) {
+            if (registo.charAt(i) == '"') {
+                aspas++;
+            }
+        }
+        return aspas % 2 != 0;
+    }
+
+    /**
+     * Separa um registo nos seus campos, retirando as aspas e os espaços à volta de cada campo.
+     *
+     * @param registo   O registo (uma ou mais linhas físicas, se tiver campos entre aspas com quebras de linha).
+     * @param separador O separador de campos.
+     * @return Os campos, pela ordem do registo.
+     */
+    static List<String> separar(String registo, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < registo.length(); i++) {
+            char c = registo.charAt(i);
+            if (entreAspas) {
+                if (c == '"') {
+                    if (i + 1 < registo.length() && registo.charAt(i + 1) == '"') {
+                        campo.append('"');
+                        i++;
+                    } else {
+                        entreAspas = false;
+                    }
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString().trim());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString().trim());
+        return campos;
+    }
+}
@@ -0,0 +1,16 @@
+// Registo com o estado de uma importação em curso, comunicado após cada bloco processado.
+package importacao;
+
+/**
+ * @param linhasLidas    Registos já processados.
+ * @param inseridos      Livros inseridos até agora.
+ * @param rejeitados     Registos recusados até agora.
+ * @param decorridoNanos Tempo desde o início da importação.
+ */
+public record ProgressoImportacao(long linhasLidas, long inseridos, long rejeitados, long decorridoNanos) {
+
+    // Registos processados por segundo desde o início.
+    public double linhasPorSegundo() {
+        return decorridoNanos == 0 ? 0.0 : linhasLidas * 1e9 / decorridoNanos;
+    }
+}
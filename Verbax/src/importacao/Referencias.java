@@ -0,0 +1,128 @@
+// Classe que resolve nomes de entidades de referência (autor, tema, editora, localização) para ids.
+package importacao;
+
+import dao.ResultadoLote;
+import util.Texto;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cache nome → id de uma tabela de referência, partilhada pelas threads da importação.
+ * <p>
+ * É preenchida uma vez com o conteúdo da tabela; os nomes que faltam são criados com o inserirEmLote
+ * do DAO, um bloco de cada vez, pelo que cada linha do CSV é resolvida sem consultas à base de dados.
+ * Os nomes são comparados sem acentos, maiúsculas nem espaços repetidos.
+ *
+ * @param <T> O tipo da entidade.
+ */
+final class Referencias<T> {
+
+    private final Function<T, String> chave;
+    private final ToIntFunction<T> extrairId;
+    private final Function<List<T>, ResultadoLote> inserirEmLote;
+    private final Supplier<List<T>> listarTodos;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Número de entidades criadas pela importação.
+    private int criadas;
+
+    /**
+     * @param existentes    O conteúdo atual da tabela.
+     * @param chave         A função que devolve o nome (ou nomes) que identificam a entidade, já em forma de chave.
+     * @param extrairId     A função que devolve o id da entidade.
+     * @param inserirEmLote O método inserirEmLote do DAO, que atribui o id gerado a cada entidade inserida.
+     * @param listarTodos   O método listarTodos do DAO, usado para reler a tabela se um lote falhar a meio.
+     */
+    Referencias(List<T> existentes, Function<T, String> chave, ToIntFunction<T> extrairId,
+                Function<List<T>, ResultadoLote> inserirEmLote, Supplier<List<T>> listarTodos) {
+        this.chave = chave;
+        this.extrairId = extrairId;
+        this.inserirEmLote = inserirEmLote;
+        this.listarTodos = listarTodos;
+        acrescentar(existentes);
+    }
+
+    private void acrescentar(List<T> entidades) {
+        for (T entidade : entidades) {
+            ids.putIfAbsent(chave.apply(entidade), extrairId.applyAsInt(entidade));
+        }
+    }
+
+    // Forma de comparação de um nome: sem acentos, em minúsculas e com os espaços normalizados.
+    static String chave(String... partes) {
+        StringBuilder chave = new StringBuilder();
+        for (String parte : partes) {
+            if (!chave.isEmpty()) {
+                chave.append('\u0000');
+            }
+            chave.append(String.join(" ", Texto.palavras(parte)));
+        }
+        return chave.toString();
+    }
+
+    /**
+     * Garante que as entidades pedidas existem, criando as que faltam.
+     *
+     * @param pedidos As entidades a resolver, pela sua chave (a entidade é usada só se tiver de ser criada).
+     * @return As chaves que não foi possível criar.
+     */
+    Set<String> garantir(Map<String, T> pedidos) {
+        if (ids.keySet().containsAll(pedidos.keySet())) {
+            return Set.of();
+        }
+        // Uma criação de cada vez, para que dois blocos com o mesmo nome novo não o inseram duas vezes.
+        synchronized (this) {
+            Map<String, T> emFalta = new LinkedHashMap<>();
+            pedidos.forEach((k, entidade) -> {
+                if (!ids.containsKey(k)) {
+                    emFalta.put(k, entidade);
+                }
+            });
+            if (!emFalta.isEmpty()) {
+                List<T> novas = new ArrayList<>(emFalta.values());
+                ResultadoLote resultado = inserirEmLote.apply(novas);
+                Set<Integer> falhadas = new HashSet<>();
+                for (ResultadoLote.Falha falha : resultado.getFalhas()) {
+                    falhadas.add(falha.indice());
+                }
+                // O id só é atribuído às entidades de blocos confirmados.
+                for (int i = 0; i < novas.size(); i++) {
+                    int id = extrairId.applyAsInt(novas.get(i));
+                    if (!falhadas.contains(i) && id > 0) {
+                        ids.put(chave.apply(novas.get(i)), id);
+                    }
+                }
+                // Uma falha da ligação (índice -1) pode ter ocorrido depois de blocos confirmados, ou na leitura dos
+                // ids: a tabela é relida para não voltar a criar (em duplicado) os nomes que ficaram gravados.
+                if (falhadas.contains(-1)) {
+                    acrescentar(listarTodos.get());
+                }
+                for (String k : emFalta.keySet()) {
+                    if (ids.containsKey(k)) {
+                        criadas++;
+                    }
+                }
+            }
+        }
+        Set<String> naoCriadas = new HashSet<>(pedidos.keySet());
+        naoCriadas.removeAll(ids.keySet());
+        return naoCriadas;
+    }
+
+    // Id da entidade com a chave indicada, ou null se não existir.
+    Integer id(String chave) {
+        return ids.get(chave);
+    }
+
+    synchronized int getCriadas() {
+        return criadas;
+    }
+}
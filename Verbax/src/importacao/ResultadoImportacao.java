@@ -0,0 +1,98 @@
+// Classe que resume o resultado de uma importação de livros a partir de um ficheiro CSV.
+package importacao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Totais de uma importação e as linhas recusadas, com o número da linha no ficheiro e o motivo.
+ * Para ficheiros com muitos erros são guardadas apenas as primeiras {@value #MAXIMO_REJEICOES} rejeições.
+ */
+public class ResultadoImportacao {
+
+    // Número máximo de rejeições guardadas com o detalhe.
+    public static final int MAXIMO_REJEICOES = 1000;
+
+    /**
+     * Uma linha do ficheiro que não foi importada.
+     *
+     * @param linha  O número da linha no ficheiro (a primeira linha, o cabeçalho, é a 1).
+     * @param motivo O motivo da rejeição.
+     */
+    public record Rejeicao(long linha, String motivo) {
+    }
+
+    private long linhasLidas;
+    private long inseridos;
+    private long rejeitados;
+    private int referenciasCriadas;
+    private long duracaoNanos;
+    private final List<Rejeicao> rejeicoes = new ArrayList<>();
+
+    synchronized void somar(long lidas, long inseridos) {
+        this.linhasLidas += lidas;
+        this.inseridos += inseridos;
+    }
+
+    synchronized void rejeitar(long linha, String motivo) {
+        rejeitar(linha, 1, motivo);
+    }
+
+    // Regista várias linhas recusadas pelo mesmo motivo, guardando apenas a primeira.
+    synchronized void rejeitar(long linha, long registos, String motivo) {
+        rejeitados += registos;
+        if (rejeicoes.size() < MAXIMO_REJEICOES) {
+            rejeicoes.add(new Rejeicao(linha, motivo));
+        }
+    }
+
+    synchronized void terminar(long duracaoNanos, int referenciasCriadas) {
+        this.duracaoNanos = duracaoNanos;
+        this.referenciasCriadas = referenciasCriadas;
+    }
+
+    // Número de registos lidos do ficheiro (sem o cabeçalho).
+    public synchronized long getLinhasLidas() {
+        return linhasLidas;
+    }
+
+    // Número de livros inseridos.
+    public synchronized long getInseridos() {
+        return inseridos;
+    }
+
+    // Número de registos recusados (inválidos, com ISBN repetido ou que a base de dados não aceitou).
+    public synchronized long getRejeitados() {
+        return rejeitados;
+    }
+
+    // Número de autores, temas, editoras e localizações criados por não existirem.
+    public synchronized int getReferenciasCriadas() {
+        return referenciasCriadas;
+    }
+
+    // Duração total da importação, em nanossegundos.
+    public synchronized long getDuracaoNanos() {
+        return duracaoNanos;
+    }
+
+    // Registos lidos por segundo.
+    public synchronized double getLinhasPorSegundo() {
+        return duracaoNanos == 0 ? 0.0 : linhasLidas * 1e9 / duracaoNanos;
+    }
+
+    // Rejeições guardadas, por ordem de linha.
+    public synchronized List<Rejeicao> getRejeicoes() {
+        List<Rejeicao> ordenadas = new ArrayList<>(rejeicoes);
+        ordenadas.sort(Comparator.comparingLong(Rejeicao::linha));
+        return Collections.unmodifiableList(ordenadas);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d linhas lidas, %d livros inseridos, %d rejeitados, %d referências criadas, %.1f s (%.0f linhas/s)",
+                linhasLidas, inseridos, rejeitados, referenciasCriadas, duracaoNanos / 1e9, getLinhasPorSegundo());
+    }
+}
@@ -0,0 +1,73 @@
+// Registo com o número de linhas e o maior id de cada tabela do catálogo, usado para validar um instantâneo.
+package instantaneo;
+
+import util.DBConnection;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Assinatura do catálogo: número de registos e maior id das tabelas livro, autor, tema, editora e localizacao.
+ * <p>
+ * É gravada no instantâneo e comparada, no arranque, com a da base de dados. Inserções e exclusões
+ * mudam a assinatura; alterações de registos existentes não, pelo que a aplicação volta a ler da base
+ * de dados os livros mostrados mesmo quando o instantâneo é válido.
+ *
+ * @param livros       Contagem da tabela livro.
+ * @param autores      Contagem da tabela autor.
+ * @param temas        Contagem da tabela tema.
+ * @param editoras     Contagem da tabela editora.
+ * @param localizacoes Contagem da tabela localizacao.
+ */
+public record AssinaturaCatalogo(Contagem livros, Contagem autores, Contagem temas, Contagem editoras,
+                                 Contagem localizacoes) {
+
+    /**
+     * Número de registos e maior id de uma tabela (0 numa tabela vazia).
+     *
+     * @param registos O número de registos.
+     * @param maxId    O maior id.
+     */
+    public record Contagem(int registos, int maxId) {
+        @Override
+        public String toString() {
+            return registos + " (máx. id " + maxId + ")";
+        }
+    }
+
+    // Uma única consulta, com uma subconsulta por valor, aceite pelo MySQL e pelo H2.
+    private static final String SQL_ASSINATURA = "SELECT "
+            + "(SELECT COUNT(*) FROM livro), (SELECT COALESCE(MAX(id), 0) FROM livro), "
+            + "(SELECT COUNT(*) FROM autor), (SELECT COALESCE(MAX(id), 0) FROM autor), "
+            + "(SELECT COUNT(*) FROM tema), (SELECT COALESCE(MAX(id), 0) FROM tema), "
+            + "(SELECT COUNT(*) FROM editora), (SELECT COALESCE(MAX(id), 0) FROM editora), "
+            + "(SELECT COUNT(*) FROM localizacao), (SELECT COALESCE(MAX(id), 0) FROM localizacao)";
+
+    /**
+     * Calcula a assinatura atual da base de dados.
+     *
+     * @return A assinatura das cinco tabelas.
+     * @throws SQLException Se a consulta falhar.
+     */
+    public static AssinaturaCatalogo consultar() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL_ASSINATURA)) {
+            rs.next();
+            return new AssinaturaCatalogo(
+                    new Contagem(rs.getInt(1), rs.getInt(2)),
+                    new Contagem(rs.getInt(3), rs.getInt(4)),
+                    new Contagem(rs.getInt(5), rs.getInt(6)),
+                    new Contagem(rs.getInt(7), rs.getInt(8)),
+                    new Contagem(rs.getInt(9), rs.getInt(10)));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "livros=" + livros + ", autores=" + autores + ", temas=" + temas
+                + ", editoras=" + editoras + ", localizacoes=" + localizacoes;
+    }
+}
@@ -0,0 +1,264 @@
+// Classe que grava o instantâneo binário do catálogo a partir da base de dados.
+package instantaneo;
+
+import dao.AutorDAO;
+import dao.EditoraDAO;
+import dao.LivroDAO;
+import dao.LocalizacaoDAO;
+import dao.TemaDAO;
+import model.Autor;
+import model.Editora;
+import model.Livro;
+import model.Localizacao;
+import model.Tema;
+import util.DBConnection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+import static instantaneo.InstantaneoCatalogo.*;
+
+/**
+ * Gravação do instantâneo no formato descrito em {@link InstantaneoCatalogo}.
+ * <p>
+ * Os livros são lidos com {@link LivroDAO#percorrerTodos} e escritos à medida que chegam; os textos vão
+ * para um ficheiro temporário, copiado para o fim do instantâneo no final, e o cabeçalho é escrito por
+ * último. O ficheiro é gravado como "&lt;ficheiro&gt;.novo" e só depois substitui o anterior, pelo que
+ * uma gravação interrompida nunca deixa um instantâneo incompleto no lugar do bom. Se a substituição
+ * não for possível (no Windows, enquanto o anterior estiver mapeado), o ".novo" é usado no arranque seguinte.
+ */
+final class GravadorInstantaneo {
+
+    // Tamanho dos buffers diretos de escrita.
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    // Nome do ficheiro onde a gravação é feita antes de substituir o instantâneo.
+    static Path ficheiroNovo(Path ficheiro) {
+        return ficheiro.resolveSibling(ficheiro.getFileName() + ".novo");
+    }
+
+    AssinaturaCatalogo gravar(Path destino) throws IOException {
+        long inicio = System.nanoTime();
+        Path pasta = destino.toAbsolutePath().getParent();
+        if (pasta != null) {
+            Files.createDirectories(pasta);
+        }
+        Path novo = ficheiroNovo(destino);
+        Path temporarioTextos = destino.resolveSibling(destino.getFileName() + ".textos");
+        AssinaturaCatalogo assinatura;
+
+        try (FileChannel canal = FileChannel.open(novo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+             FileChannel canalTextos = FileChannel.open(temporarioTextos, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                     StandardOpenOption.DELETE_ON_CLOSE)) {
+            canal.position(TAMANHO_CABECALHO);
+            Saida registos = new Saida(canal);
+            Saida textos = new Saida(canalTextos);
+            int origem = escreverTexto(textos, DBConnection.getOrigem());
+
+            // Tabelas auxiliares lidas antes dos livros; entidades criadas entretanto são acrescentadas a partir dos livros.
+            TreeMap<Integer, Autor> autores = porId(new AutorDAO().listarTodos(), Autor::getId);
+            TreeMap<Integer, Tema> temas = porId(new TemaDAO().listarTodos(), Tema::getId);
+            TreeMap<Integer, Editora> editoras = porId(new EditoraDAO().listarTodos(), Editora::getId);
+            TreeMap<Integer, Localizacao> localizacoes = porId(new LocalizacaoDAO().listarTodos(), Localizacao::getId);
+
+            long[] secoes = new long[5];
+            int[] maxIdLivro = {0};
+            long totalLivros;
+            secoes[LIVROS] = registos.posicao();
+            try {
+                totalLivros = new LivroDAO().percorrerTodos(livro -> {
+                    try {
+                        registos.putInt(livro.getId());
+                        registos.putInt(livro.getAnoPublicacao());
+                        registos.putInt(escreverTexto(textos, livro.getTitulo()));
+                        registos.putInt(escreverTexto(textos, livro.getIsbn()));
+                        registos.putInt(livro.getAutor().getId());
+                        registos.putInt(livro.getTema().getId());
+                        registos.putInt(livro.getEditora().getId());
+                        registos.putInt(livro.getLocalizacao().getId());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    maxIdLivro[0] = livro.getId();
+                    autores.putIfAbsent(livro.getAutor().getId(), livro.getAutor());
+                    temas.putIfAbsent(livro.getTema().getId(), livro.getTema());
+                    editoras.putIfAbsent(livro.getEditora().getId(), livro.getEditora());
+                    localizacoes.putIfAbsent(livro.getLocalizacao().getId(), livro.getLocalizacao());
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (IllegalStateException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+
+            secoes[AUTORES] = registos.posicao();
+            for (Autor autor : autores.values()) {
+                registos.putInt(autor.getId());
+                registos.putInt(escreverTexto(textos, autor.getNome()));
+                registos.putInt(escreverTexto(textos, autor.getNacionalidade()));
+            }
+            secoes[TEMAS] = registos.posicao();
+            for (Tema tema : temas.values()) {
+                registos.putInt(tema.getId());
+                registos.putInt(escreverTexto(textos, tema.getNome()));
+            }
+            secoes[EDITORAS] = registos.posicao();
+            for (Editora editora : editoras.values()) {
+                registos.putInt(editora.getId());
+                registos.putInt(escreverTexto(textos, editora.getNome()));
+                registos.putInt(escreverTexto(textos, editora.getCidade()));
+            }
+            secoes[LOCALIZACOES] = registos.posicao();
+            for (Localizacao localizacao : localizacoes.values()) {
+                registos.putInt(localizacao.getId());
+                registos.putInt(escreverTexto(textos, localizacao.getSetor()));
+                registos.putInt(escreverTexto(textos, localizacao.getPrateleira()));
+            }
+
+            // Copia os textos para o fim do instantâneo e fecha-o com o mágico de fim.
+            registos.descarregar();
+            textos.descarregar();
+            long posicaoTextos = canal.position();
+            long tamanhoTextos = textos.posicao();
+            if (posicaoTextos + tamanhoTextos + 4 > Integer.MAX_VALUE) {
+                throw new IOException("Catálogo demasiado grande para o instantâneo");
+            }
+            for (long copiados = 0; copiados < tamanhoTextos; ) {
+                copiados += canalTextos.transferTo(copiados, tamanhoTextos - copiados, canal);
+            }
+            escreverTudo(canal, ByteBuffer.allocate(4).putInt(MAGICO_FIM).flip(), posicaoTextos + tamanhoTextos);
+
+            assinatura = new AssinaturaCatalogo(
+                    new AssinaturaCatalogo.Contagem((int) totalLivros, maxIdLivro[0]),
+                    contagem(autores), contagem(temas), contagem(editoras), contagem(localizacoes));
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            cabecalho.putInt(MAGICO).putInt(VERSAO).putLong(System.currentTimeMillis()).putInt(origem);
+            for (AssinaturaCatalogo.Contagem contagem : List.of(assinatura.livros(), assinatura.autores(),
+                    assinatura.temas(), assinatura.editoras(), assinatura.localizacoes())) {
+                cabecalho.putInt(contagem.registos()).putInt(contagem.maxId());
+            }
+            for (long secao : secoes) {
+                cabecalho.putLong(secao);
+            }
+            cabecalho.putLong(posicaoTextos).putLong(tamanhoTextos);
+            cabecalho.clear();
+            escreverTudo(canal, cabecalho, 0);
+            canal.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(novo);
+            throw e;
+        }
+
+        substituir(novo, destino);
+        System.out.printf("Instantâneo do catálogo gravado em %s: %s (%d ms)%n", destino, assinatura,
+                (System.nanoTime() - inicio) / 1_000_000);
+        return assinatura;
+    }
+
+    // Substitui o instantâneo anterior pelo acabado de gravar.
+    private static void substituir(Path novo, Path destino) {
+        try {
+            try {
+                Files.move(novo, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(novo, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Fica o ".novo", que InstantaneoCatalogo.abrir promove no próximo arranque.
+            System.err.println("Instantâneo do catálogo gravado em " + novo + "; será usado no próximo arranque (" + e.getMessage() + ")");
+        }
+    }
+
+    // Acrescenta um texto ao bloco de textos e devolve a sua posição, ou -1 para null.
+    private static int escreverTexto(Saida textos, String texto) throws IOException {
+        if (texto == null) {
+            return -1;
+        }
+        long posicao = textos.posicao();
+        if (posicao > Integer.MAX_VALUE) {
+            throw new IOException("Catálogo demasiado grande para o instantâneo");
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        textos.putInt(bytes.length);
+        textos.put(bytes);
+        return (int) posicao;
+    }
+
+    private static <T> TreeMap<Integer, T> porId(List<T> lista, ToIntFunction<T> id) {
+        TreeMap<Integer, T> mapa = new TreeMap<>();
+        for (T item : lista) {
+            mapa.put(id.applyAsInt(item), item);
+        }
+        return mapa;
+    }
+
+    // Contagem de uma tabela auxiliar ordenada por id.
+    private static AssinaturaCatalogo.Contagem contagem(TreeMap<Integer, ?> porId) {
+        return new AssinaturaCatalogo.Contagem(porId.size(), porId.isEmpty() ? 0 : porId.lastKey());
+    }
+
+    private static void escreverTudo(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+        while (buffer.hasRemaining()) {
+            posicao += canal.write(buffer, posicao);
+        }
+    }
+
+    // Escrita sequencial num canal através de um buffer direto, contando os bytes escritos.
+    private static final class Saida {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+        private final long inicio;
+        private long escritos;
+
+        Saida(FileChannel canal) throws IOException {
+            this.canal = canal;
+            this.inicio = canal.position();
+        }
+
+        // Posição atual no ficheiro, contando o que ainda está no buffer.
+        long posicao() {
+            return inicio + escritos + buffer.position();
+        }
+
+        void putInt(int valor) throws IOException {
+            if (buffer.remaining() < 4) {
+                descarregar();
+            }
+            buffer.putInt(valor);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int escritosDoArray = 0;
+            while (escritosDoArray < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    descarregar();
+                }
+                int n = Math.min(buffer.remaining(), bytes.length - escritosDoArray);
+                buffer.put(bytes, escritosDoArray, n);
+                escritosDoArray += n;
+            }
+        }
+
+        void descarregar() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                escritos += canal.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,438 @@
+// Classe que lê, por mapeamento em memória, o instantâneo binário do catálogo guardado localmente.
+package instantaneo;
+
+import model.Autor;
+import model.Editora;
+import model.Livro;
+import model.Localizacao;
+import model.Tema;
+import util.DBConnection;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instantâneo binário do catálogo (livros e as quatro tabelas auxiliares), para que a janela principal
+ * possa ser mostrada sem esperar pelas consultas à base de dados.
+ * <p>
+ * O ficheiro é mapeado em memória ({@link FileChannel#map}) e só as tabelas auxiliares são convertidas
+ * em objetos ao abrir; os livros são lidos do mapeamento página a página, à medida que a tabela os pede.
+ * Formato (inteiros big-endian):
+ * <pre>
+ *   cabeçalho ({@value #TAMANHO_CABECALHO} bytes): mágico, versão, data de criação, origem,
+ *       número de registos e maior id de cada tabela, posição de cada secção e do bloco de textos
+ *   livros        ({@value #TAMANHO_LIVRO} bytes): id, ano, título, isbn, id do autor, tema, editora e localização
+ *   autores       ({@value #TAMANHO_AUTOR} bytes): id, nome, nacionalidade
+ *   temas         ({@value #TAMANHO_TEMA} bytes): id, nome
+ *   editoras      ({@value #TAMANHO_EDITORA} bytes): id, nome, cidade
+ *   localizações  ({@value #TAMANHO_LOCALIZACAO} bytes): id, setor, prateleira
+ *   textos: comprimento e bytes UTF-8 de cada texto, referido nos registos pela sua posição no bloco (-1 = null)
+ *   rodapé: mágico de fim, escrito em último lugar
+ * </pre>
+ * Todas as secções estão ordenadas por id. A assinatura gravada ({@link AssinaturaCatalogo}) permite
+ * verificar, com uma única consulta, se a base de dados ganhou ou perdeu registos desde a gravação.
+ * <p>
+ * O instantâneo é gravado numa thread própria depois de cada grupo de alterações ({@link #marcarAlterado()}),
+ * ou a pedido ({@link #gravar(Path)}); ao fechar, a gravação pendente tem um tempo limite
+ * ({@link #terminar()}). Pode ser desligado com -Dverbax.instantaneo=false e o ficheiro escolhido com
+ * -Dverbax.instantaneo.ficheiro (por omissão ~/verbax/catalogo-&lt;modo&gt;.vbx).
+ */
+public final class InstantaneoCatalogo {
+
+    // Constantes do formato, partilhadas com o GravadorInstantaneo.
+    static final int MAGICO = 0x56425853;
+    static final int MAGICO_FIM = 0x46494D21;
+    static final int VERSAO = 1;
+    static final int TAMANHO_CABECALHO = 128;
+    static final int TAMANHO_LIVRO = 32;
+    static final int TAMANHO_AUTOR = 12;
+    static final int TAMANHO_TEMA = 8;
+    static final int TAMANHO_EDITORA = 12;
+    static final int TAMANHO_LOCALIZACAO = 12;
+    // Posições dos campos do cabeçalho.
+    static final int POS_CRIADO_EM = 8;
+    static final int POS_ORIGEM = 16;
+    static final int POS_CONTAGENS = 20;
+    static final int POS_SECOES = 60;
+    static final int POS_TEXTOS = 100;
+    // Ordem das tabelas nas contagens e nas secções.
+    static final int LIVROS = 0;
+    static final int AUTORES = 1;
+    static final int TEMAS = 2;
+    static final int EDITORAS = 3;
+    static final int LOCALIZACOES = 4;
+    private static final int[] TAMANHOS = {TAMANHO_LIVRO, TAMANHO_AUTOR, TAMANHO_TEMA, TAMANHO_EDITORA, TAMANHO_LOCALIZACAO};
+
+    private static final boolean ATIVO = Boolean.parseBoolean(System.getProperty("verbax.instantaneo", "true"));
+    private static final Path FICHEIRO = Path.of(System.getProperty("verbax.instantaneo.ficheiro",
+            Path.of(System.getProperty("user.home"), "verbax",
+                    "catalogo-" + DBConnection.getModo().name().toLowerCase(Locale.ROOT) + ".vbx").toString()));
+
+    // Espera entre uma alteração e a gravação em segundo plano, para juntar as alterações seguidas numa só gravação.
+    private static final long ATRASO_GRAVACAO_MS = Long.getLong("verbax.instantaneo.atrasoMs", 30_000L);
+    // Tempo máximo que o fecho da aplicação espera pela gravação pendente.
+    private static final long ESPERA_AO_FECHAR_MS = Long.getLong("verbax.instantaneo.esperaAoFecharMs", 5_000L);
+
+    // Thread única das gravações em segundo plano (daemon, para não impedir o fim do processo).
+    private static final ScheduledExecutorService GRAVACAO = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+        Thread thread = new Thread(tarefa, "verbax-instantaneo");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Gravação agendada e ainda não iniciada, protegida por AGENDAMENTO (null se não houver).
+    private static final Object AGENDAMENTO = new Object();
+    private static ScheduledFuture<?> gravacaoAgendada;
+
+    // Indica que o catálogo mudou desde a última gravação do instantâneo.
+    private static volatile boolean alterado;
+
+    private final MappedByteBuffer dados;
+    private final long criadoEm;
+    private final String origem;
+    private final AssinaturaCatalogo assinatura;
+    private final int posicaoLivros;
+    private final int totalLivros;
+    private final int posicaoTextos;
+
+    // Tabelas auxiliares, convertidas ao abrir, e os respetivos índices por id usados ao ler os livros.
+    private final List<Autor> autores;
+    private final List<Tema> temas;
+    private final List<Editora> editoras;
+    private final List<Localizacao> localizacoes;
+    private final Map<Integer, Autor> autoresPorId = new HashMap<>();
+    private final Map<Integer, Tema> temasPorId = new HashMap<>();
+    private final Map<Integer, Editora> editorasPorId = new HashMap<>();
+    private final Map<Integer, Localizacao> localizacoesPorId = new HashMap<>();
+
+    private InstantaneoCatalogo(MappedByteBuffer dados) throws IOException {
+        this.dados = dados;
+        int tamanho = dados.capacity();
+        if (tamanho < TAMANHO_CABECALHO + 4 || dados.getInt(0) != MAGICO) {
+            throw new IOException("não é um instantâneo do catálogo");
+        }
+        if (dados.getInt(4) != VERSAO) {
+            throw new IOException("versão " + dados.getInt(4) + " não suportada");
+        }
+        if (dados.getInt(tamanho - 4) != MAGICO_FIM) {
+            throw new IOException("ficheiro incompleto");
+        }
+        long textos = dados.getLong(POS_TEXTOS);
+        long tamanhoTextos = dados.getLong(POS_TEXTOS + 8);
+        if (textos + tamanhoTextos != tamanho - 4) {
+            throw new IOException("bloco de textos inválido");
+        }
+        posicaoTextos = (int) textos;
+
+        AssinaturaCatalogo.Contagem[] contagens = new AssinaturaCatalogo.Contagem[TAMANHOS.length];
+        int[] secoes = new int[TAMANHOS.length];
+        for (int i = 0; i < TAMANHOS.length; i++) {
+            contagens[i] = new AssinaturaCatalogo.Contagem(dados.getInt(POS_CONTAGENS + i * 8), dados.getInt(POS_CONTAGENS + i * 8 + 4));
+            long secao = dados.getLong(POS_SECOES + i * 8);
+            if (contagens[i].registos() < 0 || secao < TAMANHO_CABECALHO
+                    || secao + (long) contagens[i].registos() * TAMANHOS[i] > posicaoTextos) {
+                throw new IOException("secção " + i + " fora do ficheiro");
+            }
+            secoes[i] = (int) secao;
+        }
+        assinatura = new AssinaturaCatalogo(contagens[LIVROS], contagens[AUTORES], contagens[TEMAS],
+                contagens[EDITORAS], contagens[LOCALIZACOES]);
+        criadoEm = dados.getLong(POS_CRIADO_EM);
+        origem = texto(dados.getInt(POS_ORIGEM));
+        posicaoLivros = secoes[LIVROS];
+        totalLivros = contagens[LIVROS].registos();
+
+        List<Autor> listaAutores = new ArrayList<>(contagens[AUTORES].registos());
+        for (int i = 0, p = secoes[AUTORES]; i < contagens[AUTORES].registos(); i++, p += TAMANHO_AUTOR) {
+            Autor autor = new Autor(dados.getInt(p), texto(dados.getInt(p + 4)), texto(dados.getInt(p + 8)));
+            listaAutores.add(autor);
+            autoresPorId.put(autor.getId(), autor);
+        }
+        List<Tema> listaTemas = new ArrayList<>(contagens[TEMAS].registos());
+        for (int i = 0, p = secoes[TEMAS]; i < contagens[TEMAS].registos(); i++, p += TAMANHO_TEMA) {
+            Tema tema = new Tema(dados.getInt(p), texto(dados.getInt(p + 4)));
+            listaTemas.add(tema);
+            temasPorId.put(tema.getId(), tema);
+        }
+        List<Editora> listaEditoras = new ArrayList<>(contagens[EDITORAS].registos());
+        for (int i = 0, p = secoes[EDITORAS]; i < contagens[EDITORAS].registos(); i++, p += TAMANHO_EDITORA) {
+            Editora editora = new Editora(dados.getInt(p), texto(dados.getInt(p + 4)), texto(dados.getInt(p + 8)));
+            listaEditoras.add(editora);
+            editorasPorId.put(editora.getId(), editora);
+        }
+        List<Localizacao> listaLocalizacoes = new ArrayList<>(contagens[LOCALIZACOES].registos());
+        for (int i = 0, p = secoes[LOCALIZACOES]; i < contagens[LOCALIZACOES].registos(); i++, p += TAMANHO_LOCALIZACAO) {
+            Localizacao localizacao = new Localizacao(dados.getInt(p), texto(dados.getInt(p + 4)), texto(dados.getInt(p + 8)));
+            listaLocalizacoes.add(localizacao);
+            localizacoesPorId.put(localizacao.getId(), localizacao);
+        }
+        autores = Collections.unmodifiableList(listaAutores);
+        temas = Collections.unmodifiableList(listaTemas);
+        editoras = Collections.unmodifiableList(listaEditoras);
+        localizacoes = Collections.unmodifiableList(listaLocalizacoes);
+    }
+
+    /**
+     * Abre o instantâneo indicado. Um instantâneo gravado enquanto o anterior estava aberto (e por isso
+     * deixado em "&lt;ficheiro&gt;.novo") substitui primeiro o anterior.
+     *
+     * @param ficheiro O ficheiro do instantâneo.
+     * @return O instantâneo, ou null se o ficheiro não existir.
+     * @throws IOException Se o ficheiro não puder ser lido ou não for um instantâneo válido.
+     */
+    public static InstantaneoCatalogo abrir(Path ficheiro) throws IOException {
+        promoverNovo(ficheiro);
+        if (!Files.exists(ficheiro)) {
+            return null;
+        }
+        try (FileChannel canal = FileChannel.open(ficheiro, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Instantâneo demasiado grande: " + tamanho + " bytes");
+            }
+            // O mapeamento continua válido depois de o canal ser fechado.
+            try {
+                return new InstantaneoCatalogo(canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho));
+            } catch (IOException | IndexOutOfBoundsException e) {
+                throw new IOException("Instantâneo inválido (" + ficheiro + "): " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Abre o instantâneo da base de dados em uso, se existir e estiver ativo.
+     *
+     * @return O instantâneo, ou null se estiver desligado, não existir, for inválido ou tiver sido
+     * gravado a partir de outra base de dados.
+     */
+    public static InstantaneoCatalogo abrirPorOmissao() {
+        if (!ATIVO) {
+            return null;
+        }
+        try {
+            InstantaneoCatalogo instantaneo = abrir(FICHEIRO);
+            if (instantaneo != null && !DBConnection.getOrigem().equals(instantaneo.getOrigem())) {
+                System.out.println("Instantâneo do catálogo ignorado: foi gravado a partir de " + instantaneo.getOrigem());
+                return null;
+            }
+            return instantaneo;
+        } catch (IOException e) {
+            System.err.println("Erro ao abrir instantâneo do catálogo: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Grava o instantâneo do catálogo atual da base de dados, substituindo o anterior.
+     *
+     * @param destino O ficheiro a gravar.
+     * @return A assinatura do catálogo gravado.
+     * @throws IOException Se o ficheiro não puder ser escrito ou a leitura da base de dados falhar.
+     */
+    public static synchronized AssinaturaCatalogo gravar(Path destino) throws IOException {
+        // Alterações feitas durante a gravação voltam a marcar o instantâneo como desatualizado.
+        alterado = false;
+        try {
+            return new GravadorInstantaneo().gravar(destino);
+        } catch (IOException | RuntimeException e) {
+            alterado = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Grava o instantâneo no ficheiro por omissão, a pedido (por exemplo, depois de uma importação).
+     *
+     * @return A assinatura do catálogo gravado, ou null se o instantâneo estiver desligado.
+     * @throws IOException Se a gravação falhar.
+     */
+    public static AssinaturaCatalogo gravar() throws IOException {
+        return ATIVO ? gravar(FICHEIRO) : null;
+    }
+
+    /**
+     * Indica que o catálogo mudou (nesta aplicação ou, pela sincronização, noutro posto) e agenda a gravação
+     * do instantâneo em segundo plano. As alterações feitas até a gravação começar são gravadas juntas.
+     */
+    public static void marcarAlterado() {
+        alterado = true;
+        if (!ATIVO) {
+            return;
+        }
+        synchronized (AGENDAMENTO) {
+            if (gravacaoAgendada == null && !GRAVACAO.isShutdown()) {
+                gravacaoAgendada = GRAVACAO.schedule(InstantaneoCatalogo::gravarAgendado, ATRASO_GRAVACAO_MS,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Chamado ao fechar a aplicação: antecipa a gravação pendente, se houver alterações por gravar, e espera por
+     * ela no máximo 5 segundos (ou o indicado em -Dverbax.instantaneo.esperaAoFecharMs). Se a
+     * base de dados estiver lenta ou inacessível, a gravação é abandonada; o instantâneo anterior é descartado
+     * no arranque seguinte, se já não corresponder à base de dados.
+     */
+    public static void terminar() {
+        if (!ATIVO) {
+            return;
+        }
+        synchronized (AGENDAMENTO) {
+            if (gravacaoAgendada != null && gravacaoAgendada.cancel(false)) {
+                gravacaoAgendada = null;
+            }
+            if (alterado && gravacaoAgendada == null) {
+                gravacaoAgendada = GRAVACAO.schedule(InstantaneoCatalogo::gravarAgendado, 0, TimeUnit.MILLISECONDS);
+            }
+            GRAVACAO.shutdown();
+        }
+        try {
+            if (!GRAVACAO.awaitTermination(ESPERA_AO_FECHAR_MS, TimeUnit.MILLISECONDS)) {
+                System.err.println("Instantâneo do catálogo não gravado: a gravação excedeu " + ESPERA_AO_FECHAR_MS + " ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Executada na thread de gravação: grava o instantâneo se ainda houver alterações por gravar.
+    private static void gravarAgendado() {
+        synchronized (AGENDAMENTO) {
+            // As alterações feitas a partir daqui agendam uma nova gravação, que corre depois desta.
+            gravacaoAgendada = null;
+        }
+        if (!alterado) {
+            return;
+        }
+        try {
+            gravar(FICHEIRO);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erro ao gravar instantâneo do catálogo: " + e.getMessage());
+        }
+    }
+
+    // Substitui o instantâneo pelo "<ficheiro>.novo", se existir (ver GravadorInstantaneo).
+    private static void promoverNovo(Path ficheiro) {
+        Path novo = GravadorInstantaneo.ficheiroNovo(ficheiro);
+        if (Files.exists(novo)) {
+            try {
+                Files.move(novo, ficheiro, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                System.err.println("Erro ao substituir instantâneo do catálogo: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Lê uma página de livros, continuando a seguir ao id indicado, como {@code LivroDAO.listarPagina}.
+     *
+     * @param depoisDoId O último id já mostrado, ou null para começar no início.
+     * @param tamanho    O número máximo de livros a devolver.
+     * @return Os livros, por ordem crescente de id.
+     */
+    public List<Livro> listarPagina(Integer depoisDoId, int tamanho) {
+        // Pesquisa binária do primeiro registo com id maior do que depoisDoId.
+        int inicio = 0;
+        if (depoisDoId != null) {
+            int fim = totalLivros;
+            while (inicio < fim) {
+                int meio = (inicio + fim) >>> 1;
+                if (dados.getInt(posicaoLivros + meio * TAMANHO_LIVRO) <= depoisDoId) {
+                    inicio = meio + 1;
+                } else {
+                    fim = meio;
+                }
+            }
+        }
+        int fim = Math.min(totalLivros, inicio + tamanho);
+        List<Livro> livros = new ArrayList<>(Math.max(0, fim - inicio));
+        for (int i = inicio; i < fim; i++) {
+            livros.add(livro(i));
+        }
+        return livros;
+    }
+
+    // Converte o registo de livro na posição indicada, ligando-o às entidades das tabelas auxiliares.
+    private Livro livro(int indice) {
+        int p = posicaoLivros + indice * TAMANHO_LIVRO;
+        return new Livro(dados.getInt(p), texto(dados.getInt(p + 8)), dados.getInt(p + 4), texto(dados.getInt(p + 12)),
+                autoresPorId.get(dados.getInt(p + 16)), temasPorId.get(dados.getInt(p + 20)),
+                editorasPorId.get(dados.getInt(p + 24)), localizacoesPorId.get(dados.getInt(p + 28)));
+    }
+
+    // Lê o texto guardado na posição indicada do bloco de textos.
+    private String texto(int posicao) {
+        if (posicao < 0) {
+            return null;
+        }
+        int p = posicaoTextos + posicao;
+        byte[] bytes = new byte[dados.getInt(p)];
+        dados.get(p + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Ficheiro do instantâneo por omissão.
+    public static Path getFicheiro() {
+        return FICHEIRO;
+    }
+
+    // Indica se o instantâneo está ativo (-Dverbax.instantaneo).
+    public static boolean isAtivo() {
+        return ATIVO;
+    }
+
+    // Assinatura do catálogo no momento da gravação.
+    public AssinaturaCatalogo getAssinatura() {
+        return assinatura;
+    }
+
+    // URL JDBC da base de dados de onde o instantâneo foi gravado.
+    public String getOrigem() {
+        return origem;
+    }
+
+    // Instante da gravação, em milissegundos desde a época.
+    public long getCriadoEm() {
+        return criadoEm;
+    }
+
+    // Número de livros no instantâneo.
+    public int getTotalLivros() {
+        return totalLivros;
+    }
+
+    // Autores, por ordem de id.
+    public List<Autor> getAutores() {
+        return autores;
+    }
+
+    // Temas, por ordem de id.
+    public List<Tema> getTemas() {
+        return temas;
+    }
+
+    // Editoras, por ordem de id.
+    public List<Editora> getEditoras() {
+        return editoras;
+    }
+
+    // Localizações, por ordem de id.
+    public List<Localizacao> getLocalizacoes() {
+        return localizacoes;
+    }
+}
@@ -0,0 +1,318 @@
+// Classe que mantém em memória uma árvore de prefixos dos nomes de uma tabela de referência, para sugestões ao escrever.
+package util;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Árvore de prefixos (trie compacta) sobre o texto de cada entidade de uma tabela de referência,
+ * por exemplo o nome dos autores.
+ * <p>
+ * O texto é normalizado com {@link Texto#palavras(String)} (sem acentos e em minúsculas) e guardado uma
+ * vez a partir de cada palavra, pelo que "sara" e "jose sara" encontram "José Saramago". Cada nó guarda
+ * um troço de texto em vez de um carácter, de modo que o número de nós é proporcional ao número de
+ * textos e não ao número de caracteres. Uma procura desce pelos caracteres do prefixo e percorre a
+ * subárvore por ordem alfabética até reunir o número de resultados pedido; o custo depende do
+ * comprimento do prefixo e desse número, e não do tamanho da tabela.
+ * <p>
+ * A árvore é carregada na primeira procura e recarregada quando ultrapassa a validade configurada
+ * (tal como {@link CacheTabela}); entretanto é mantida pelos métodos de escrita do DAO.
+ *
+ * @param <T> O tipo da entidade guardada.
+ */
+public class ArvorePrefixos<T> {
+
+    // Função que extrai o id de uma entidade.
+    private final ToIntFunction<T> extrairId;
+    // Função que devolve o texto indexado de uma entidade (pode devolver null).
+    private final Function<T, String> extrairTexto;
+    // Tempo máximo, em milissegundos, durante o qual a árvore é usada sem ser recarregada.
+    private final long validadeMs;
+
+    private final ReentrantReadWriteLock bloqueio = new ReentrantReadWriteLock();
+    private No<T> raiz = new No<>("");
+    // Chaves inseridas por id, necessárias para retirar uma entidade cujo objeto já foi alterado.
+    private final Map<Integer, List<String>> chavesPorId = new HashMap<>();
+    private boolean carregada;
+    private long carregadaEm;
+
+    public ArvorePrefixos(ToIntFunction<T> extrairId, Function<T, String> extrairTexto, long validadeMs) {
+        this.extrairId = extrairId;
+        this.extrairTexto = extrairTexto;
+        this.validadeMs = validadeMs;
+    }
+
+    /**
+     * Devolve as entidades com uma palavra do texto começada pelo prefixo indicado, sem distinguir
+     * acentos nem maiúsculas. Primeiro vêm, por ordem alfabética, as entidades cujo texto começa pelo
+     * prefixo; depois as que só têm uma palavra seguinte começada por ele.
+     *
+     * @param prefixo  O texto escrito (null ou vazio devolve as primeiras entidades por ordem alfabética).
+     * @param limite   O número máximo de entidades devolvidas.
+     * @param carregar Função que lê a tabela completa, usada se a árvore não estiver carregada ou tiver expirado.
+     * @return As entidades encontradas, sem repetições.
+     * @throws SQLException Se a árvore tiver de ser carregada e a consulta falhar.
+     */
+    public List<T> procurar(String prefixo, int limite, CacheTabela.CarregadorLista<T> carregar) throws SQLException {
+        String chave = String.join(" ", Texto.palavras(prefixo));
+        carregarSeNecessario(carregar);
+        bloqueio.readLock().lock();
+        try {
+            Map<Integer, T> resultados = new LinkedHashMap<>();
+            No<T> no = descer(chave);
+            if (no != null && limite > 0) {
+                recolher(no, true, limite, resultados);
+                recolher(no, false, limite, resultados);
+            }
+            return new ArrayList<>(resultados.values());
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+    }
+
+    /**
+     * Acrescenta uma entidade, ou substitui a que tiver o mesmo id. Não faz nada se a árvore ainda não
+     * estiver carregada, pois o carregamento lerá a entidade da base de dados.
+     *
+     * @param item A entidade, já com o id atribuído pela base de dados.
+     */
+    public void adicionar(T item) {
+        bloqueio.writeLock().lock();
+        try {
+            if (carregada) {
+                int id = extrairId.applyAsInt(item);
+                retirar(id);
+                inserir(item, id);
+            }
+        } finally {
+            bloqueio.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retira a entidade com o id indicado, se existir.
+     *
+     * @param id O id da entidade excluída.
+     */
+    public void remover(int id) {
+        bloqueio.writeLock().lock();
+        try {
+            retirar(id);
+        } finally {
+            bloqueio.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Esquece a árvore, que volta a ser carregada na próxima procura (por exemplo, depois de uma inserção em lote).
+     */
+    public void invalidar() {
+        bloqueio.writeLock().lock();
+        try {
+            esvaziar();
+        } finally {
+            bloqueio.writeLock().unlock();
+        }
+    }
+
+    // Método que devolve o número de entidades na árvore (0 se não estiver carregada).
+    public int getTamanho() {
+        bloqueio.readLock().lock();
+        try {
+            return chavesPorId.size();
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+    }
+
+    // Carrega a árvore se ainda não estiver carregada ou tiver expirado. As escritas esperam pelo fim do carregamento.
+    private void carregarSeNecessario(CacheTabela.CarregadorLista<T> carregar) throws SQLException {
+        bloqueio.readLock().lock();
+        try {
+            if (carregada && !expirada()) {
+                return;
+            }
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+        bloqueio.writeLock().lock();
+        try {
+            if (carregada && !expirada()) {
+                return;
+            }
+            List<T> itens = carregar.carregar();
+            esvaziar();
+            for (T item : itens) {
+                inserir(item, extrairId.applyAsInt(item));
+            }
+            carregada = true;
+            carregadaEm = System.currentTimeMillis();
+        } finally {
+            bloqueio.writeLock().unlock();
+        }
+    }
+
+    private boolean expirada() {
+        return System.currentTimeMillis() - carregadaEm > validadeMs;
+    }
+
+    private void esvaziar() {
+        raiz = new No<>("");
+        chavesPorId.clear();
+        carregada = false;
+    }
+
+    // Insere a entidade com uma chave por palavra: o texto normalizado a partir dessa palavra até ao fim.
+    private void inserir(T item, int id) {
+        List<String> palavras = Texto.palavras(extrairTexto.apply(item));
+        List<String> chaves = new ArrayList<>(palavras.size());
+        for (int i = 0; i < palavras.size(); i++) {
+            String chave = String.join(" ", palavras.subList(i, palavras.size()));
+            inserirChave(chave, new Entrada<>(item, id, i == 0));
+            chaves.add(chave);
+        }
+        chavesPorId.put(id, chaves);
+    }
+
+    private void inserirChave(String chave, Entrada<T> entrada) {
+        No<T> no = raiz;
+        int i = 0;
+        while (i < chave.length()) {
+            int posicao = no.posicaoFilho(chave.charAt(i));
+            if (posicao < 0) {
+                // Nenhum filho começa por este carácter: o resto da chave fica numa folha nova.
+                No<T> folha = new No<>(chave.substring(i));
+                folha.entradas.add(entrada);
+                no.filhos.add(-posicao - 1, folha);
+                return;
+            }
+            No<T> filho = no.filhos.get(posicao);
+            int comum = prefixoComum(filho.rotulo, chave, i);
+            if (comum < filho.rotulo.length()) {
+                // A chave diverge a meio do troço do filho: o troço é dividido num nó intermédio.
+                No<T> intermedio = new No<>(filho.rotulo.substring(0, comum));
+                filho.rotulo = filho.rotulo.substring(comum);
+                intermedio.filhos.add(filho);
+                no.filhos.set(posicao, intermedio);
+                filho = intermedio;
+            }
+            no = filho;
+            i += comum;
+        }
+        no.entradas.add(entrada);
+    }
+
+    // Retira as entradas do id de todos os nós onde foram inseridas, apagando as folhas que ficarem vazias.
+    private void retirar(int id) {
+        List<String> chaves = chavesPorId.remove(id);
+        if (chaves == null) {
+            return;
+        }
+        for (String chave : chaves) {
+            No<T> pai = null;
+            No<T> no = raiz;
+            int i = 0;
+            while (no != null && i < chave.length()) {
+                int posicao = no.posicaoFilho(chave.charAt(i));
+                pai = no;
+                no = posicao < 0 ? null : no.filhos.get(posicao);
+                i += no == null ? 0 : no.rotulo.length();
+            }
+            if (no == null) {
+                continue;
+            }
+            no.entradas.removeIf(entrada -> entrada.id() == id);
+            if (pai != null && no.entradas.isEmpty() && no.filhos.isEmpty()) {
+                pai.filhos.remove(no);
+            }
+        }
+    }
+
+    // Devolve o nó cuja subárvore contém todas as chaves começadas pelo prefixo, ou null se não houver nenhuma.
+    private No<T> descer(String prefixo) {
+        No<T> no = raiz;
+        int i = 0;
+        while (i < prefixo.length()) {
+            int posicao = no.posicaoFilho(prefixo.charAt(i));
+            if (posicao < 0) {
+                return null;
+            }
+            No<T> filho = no.filhos.get(posicao);
+            int comparar = Math.min(filho.rotulo.length(), prefixo.length() - i);
+            if (!filho.rotulo.regionMatches(0, prefixo, i, comparar)) {
+                return null;
+            }
+            no = filho;
+            i += comparar;
+        }
+        return no;
+    }
+
+    // Percorre a subárvore por ordem alfabética, acrescentando as entradas (do início do texto ou não) até ao limite.
+    private static <T> void recolher(No<T> no, boolean inicio, int limite, Map<Integer, T> resultados) {
+        for (Entrada<T> entrada : no.entradas) {
+            if (resultados.size() >= limite) {
+                return;
+            }
+            if (entrada.inicio() == inicio) {
+                resultados.putIfAbsent(entrada.id(), entrada.item());
+            }
+        }
+        for (No<T> filho : no.filhos) {
+            if (resultados.size() >= limite) {
+                return;
+            }
+            recolher(filho, inicio, limite, resultados);
+        }
+    }
+
+    // Número de caracteres iguais no início do troço e na chave a partir da posição indicada.
+    private static int prefixoComum(String rotulo, String chave, int inicio) {
+        int maximo = Math.min(rotulo.length(), chave.length() - inicio);
+        int n = 0;
+        while (n < maximo && rotulo.charAt(n) == chave.charAt(inicio + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    // Entidade guardada num nó; inicio indica se a chave começa na primeira palavra do texto.
+    private record Entrada<T>(T item, int id, boolean inicio) {
+    }
+
+    // Nó da árvore: troço de texto desde o pai, filhos ordenados pelo primeiro carácter e entradas que terminam aqui.
+    private static final class No<T> {
+        private String rotulo;
+        private final List<No<T>> filhos = new ArrayList<>(2);
+        private final List<Entrada<T>> entradas = new ArrayList<>(1);
+
+        private No(String rotulo) {
+            this.rotulo = rotulo;
+        }
+
+        // Pesquisa binária do filho cujo troço começa pelo carácter; se não existir devolve -(posição de inserção) - 1.
+        private int posicaoFilho(char c) {
+            int baixo = 0;
+            int alto = filhos.size() - 1;
+            while (baixo <= alto) {
+                int meio = (baixo + alto) >>> 1;
+                char primeiro = filhos.get(meio).rotulo.charAt(0);
+                if (primeiro < c) {
+                    baixo = meio + 1;
+                } else if (primeiro > c) {
+                    alto = meio - 1;
+                } else {
+                    return meio;
+                }
+            }
+            return -(baixo + 1);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+// Classe que implementa uma cache de tamanho limitado, com remoção do elemento menos usado recentemente (LRU)
+// e validade máxima por entrada.
+package util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU com capacidade máxima e tempo de vida (TTL) por entrada.
+ * <p>
+ * Usa um LinkedHashMap por ordem de acesso: cada leitura move a entrada para o fim, e ao exceder a
+ * capacidade é removida a entrada no início (a menos usada recentemente). Os métodos são sincronizados,
+ * o que é suficiente para o volume de pedidos de um balcão.
+ *
+ * @param <K> O tipo da chave.
+ * @param <V> O tipo do valor.
+ */
+public class CacheLRU<K, V> {
+
+    private final int capacidade;
+    private final long ttlMs;
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+
+    // Contadores de acertos, falhas e remoções por falta de espaço.
+    private long acertos;
+    private long falhas;
+    private long remocoes;
+    // Incrementada a cada remoção explícita, para detetar invalidações durante uma consulta.
+    private long versao;
+
+    public CacheLRU(int capacidade, long ttlMs) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("A capacidade da cache tem de ser positiva: " + capacidade);
+        }
+        this.capacidade = capacidade;
+        this.ttlMs = ttlMs;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> maisAntiga) {
+                if (size() > CacheLRU.this.capacidade) {
+                    remocoes++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Devolve o valor associado à chave, se existir e ainda estiver dentro da validade.
+     *
+     * @param chave A chave a procurar.
+     * @return O valor em cache, ou null se não existir ou tiver expirado.
+     */
+    public synchronized V obter(K chave) {
+        Entrada<V> entrada = entradas.get(chave);
+        if (entrada == null) {
+            falhas++;
+            return null;
+        }
+        if (entrada.expiraEm < System.currentTimeMillis()) {
+            entradas.remove(chave);
+            falhas++;
+            return null;
+        }
+        acertos++;
+        return entrada.valor;
+    }
+
+    // Guarda um valor, substituindo o anterior para a mesma chave.
+    public synchronized void guardar(K chave, V valor) {
+        entradas.put(chave, new Entrada<>(valor, System.currentTimeMillis() + ttlMs));
+    }
+
+    /**
+     * Guarda um valor apenas se não houve invalidações desde que a versão indicada foi lida.
+     * Evita que o resultado de uma consulta iniciada antes de uma escrita volte a entrar na cache.
+     *
+     * @return true se o valor foi guardado.
+     */
+    public synchronized boolean guardarSeVersao(K chave, V valor, long versaoLida) {
+        if (versao != versaoLida) {
+            return false;
+        }
+        guardar(chave, valor);
+        return true;
+    }
+
+    // Versão atual da cache, a ler antes de consultar a base de dados.
+    public synchronized long getVersao() {
+        return versao;
+    }
+
+    // Remove a entrada de uma chave (por exemplo, após a atualização ou exclusão do registo).
+    public synchronized void remover(K chave) {
+        versao++;
+        entradas.remove(chave);
+    }
+
+    // Remove todas as entradas.
+    public synchronized void limpar() {
+        versao++;
+        entradas.clear();
+    }
+
+    // Número de entradas atualmente guardadas.
+    public synchronized int tamanho() {
+        return entradas.size();
+    }
+
+    public int getCapacidade() {
+        return capacidade;
+    }
+
+    public synchronized long getAcertos() {
+        return acertos;
+    }
+
+    public synchronized long getFalhas() {
+        return falhas;
+    }
+
+    public synchronized long getRemocoes() {
+        return remocoes;
+    }
+
+    // Proporção de leituras servidas pela cache (0 quando ainda não houve leituras).
+    public synchronized double getTaxaAcerto() {
+        long total = acertos + falhas;
+        return total == 0 ? 0.0 : (double) acertos / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CacheLRU{tamanho=%d/%d, acertos=%d, falhas=%d, remocoes=%d, taxa=%.1f%%}",
+                entradas.size(), capacidade, acertos, falhas, remocoes, getTaxaAcerto() * 100);
+    }
+
+    // Valor guardado e o instante a partir do qual deixa de ser válido.
+    private record Entrada<V>(V valor, long expiraEm) {
+    }
+}
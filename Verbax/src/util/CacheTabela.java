@@ -0,0 +1,161 @@
+// Classe que mantém em memória o conteúdo de uma tabela de referência (autor, tema, editora, localizacao).
+package util;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cache de leitura (read-through) para tabelas que mudam raramente.
+ * <p>
+ * Guarda a lista completa e um índice id → entidade. A base de dados só é consultada quando a cache
+ * está vazia, foi invalidada por uma escrita do DAO ou ultrapassou a validade configurada
+ * (que limita o tempo durante o qual alterações feitas noutros postos ficam por ver).
+ *
+ * @param <T> O tipo da entidade guardada.
+ */
+public class CacheTabela<T> {
+
+    // Função que extrai o id de uma entidade.
+    private final ToIntFunction<T> extrairId;
+    // Tempo máximo, em milissegundos, durante o qual a lista completa é servida sem nova consulta.
+    private final long validadeMs;
+
+    // Lista completa e índice por id, substituídos em conjunto sempre que a tabela é recarregada.
+    private volatile Conteudo<T> conteudo;
+    // Entidades obtidas individualmente por id enquanto a lista completa não está carregada.
+    private final Map<Integer, T> individuais = new ConcurrentHashMap<>();
+    // Incrementado a cada invalidação, para descartar carregamentos iniciados antes dela.
+    private final AtomicLong versao = new AtomicLong();
+
+    // Contadores de acertos e falhas da cache.
+    private final AtomicLong acertos = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+
+    // Consulta da lista completa na base de dados.
+    @FunctionalInterface
+    public interface CarregadorLista<T> {
+        List<T> carregar() throws SQLException;
+    }
+
+    // Consulta de uma entidade por id na base de dados.
+    @FunctionalInterface
+    public interface CarregadorId<T> {
+        T carregar(int id) throws SQLException;
+    }
+
+    public CacheTabela(ToIntFunction<T> extrairId, long validadeMs) {
+        this.extrairId = extrairId;
+        this.validadeMs = validadeMs;
+    }
+
+    /**
+     * Devolve todas as entidades da tabela, carregando-as com a função indicada apenas se necessário.
+     *
+     * @param carregar Função que consulta a tabela completa na base de dados.
+     * @return Uma cópia da lista em cache, que o chamador pode alterar livremente.
+     * @throws SQLException Se a consulta falhar; nesse caso nada fica guardado em cache.
+     */
+    public List<T> listarTodos(CarregadorLista<T> carregar) throws SQLException {
+        Conteudo<T> atual = conteudo;
+        if (atual != null && !atual.expirado(validadeMs)) {
+            acertos.incrementAndGet();
+            return new ArrayList<>(atual.lista);
+        }
+        falhas.incrementAndGet();
+
+        long versaoAntes = versao.get();
+        List<T> lista = carregar.carregar();
+        Map<Integer, T> porId = new HashMap<>();
+        for (T item : lista) {
+            porId.put(extrairId.applyAsInt(item), item);
+        }
+        // Só guarda o resultado se nenhuma escrita o tiver invalidado entretanto.
+        synchronized (this) {
+            if (versao.get() == versaoAntes) {
+                conteudo = new Conteudo<>(Collections.unmodifiableList(new ArrayList<>(lista)), porId, System.currentTimeMillis());
+                individuais.clear();
+            }
+        }
+        return new ArrayList<>(lista);
+    }
+
+    /**
+     * Devolve a entidade com o id indicado, consultando a base de dados apenas se não estiver em cache.
+     *
+     * @param id       O id a procurar.
+     * @param carregar Função que consulta a entidade na base de dados (pode devolver null).
+     * @return A entidade, ou null se não existir.
+     * @throws SQLException Se a consulta falhar.
+     */
+    public T buscarPorId(int id, CarregadorId<T> carregar) throws SQLException {
+        Conteudo<T> atual = conteudo;
+        if (atual != null && !atual.expirado(validadeMs)) {
+            T item = atual.porId.get(id);
+            if (item != null) {
+                acertos.incrementAndGet();
+                return item;
+            }
+        } else {
+            T item = individuais.get(id);
+            if (item != null) {
+                acertos.incrementAndGet();
+                return item;
+            }
+        }
+        falhas.incrementAndGet();
+
+        long versaoAntes = versao.get();
+        T item = carregar.carregar(id);
+        synchronized (this) {
+            if (item != null && versao.get() == versaoAntes) {
+                individuais.put(id, item);
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Esquece todo o conteúdo em cache. Deve ser chamado após qualquer escrita na tabela.
+     */
+    public synchronized void invalidar() {
+        versao.incrementAndGet();
+        conteudo = null;
+        individuais.clear();
+    }
+
+    // Número de pedidos servidos pela cache.
+    public long getAcertos() {
+        return acertos.get();
+    }
+
+    // Número de pedidos que obrigaram a consultar a base de dados.
+    public long getFalhas() {
+        return falhas.get();
+    }
+
+    // Proporção de pedidos servidos pela cache (0 quando ainda não houve pedidos).
+    public double getTaxaAcerto() {
+        long a = acertos.get();
+        long total = a + falhas.get();
+        return total == 0 ? 0.0 : (double) a / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheTabela{acertos=%d, falhas=%d, taxa=%.1f%%}", getAcertos(), getFalhas(), getTaxaAcerto() * 100);
+    }
+
+    // Lista completa da tabela, o seu índice por id e o instante em que foi carregada.
+    private record Conteudo<T>(List<T> lista, Map<Integer, T> porId, long carregadoEm) {
+        boolean expirado(long validadeMs) {
+            return System.currentTimeMillis() - carregadoEm > validadeMs;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+// Classe responsável por manter um conjunto limitado de ligações físicas à base de dados reutilizáveis.
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool de ligações com tamanho mínimo e máximo, remoção de ligações ociosas,
+ * validação no empréstimo e tempo máximo de espera pela aquisição.
+ * <p>
+ * As ligações entregues são proxies: chamar {@code close()} devolve a ligação física
+ * ao pool em vez de a fechar, pelo que os DAOs continuam a usar try-with-resources sem alterações.
+ */
+public class ConnectionPool {
+
+    // Parâmetros de ligação usados para criar novas ligações físicas.
+    private final String url;
+    private final String user;
+    private final String password;
+
+    // Limites e tempos de configuração do pool.
+    private final int tamanhoMinimo;
+    private final int tamanhoMaximo;
+    private final long tempoOciosoMaximoMs;
+    private final long tempoAquisicaoMs;
+    private final long validarAposOciosoMs;
+
+    // Ligações físicas livres, da mais recentemente usada para a mais antiga.
+    private final LinkedBlockingDeque<LigacaoOciosa> ociosas = new LinkedBlockingDeque<>();
+    // Cada permissão corresponde a uma ligação que pode estar emprestada.
+    private final Semaphore permissoes;
+    // Número total de ligações físicas abertas (ociosas + emprestadas).
+    private final AtomicInteger totalFisicas = new AtomicInteger();
+    // Tarefa periódica que remove ligações ociosas e repõe o mínimo.
+    private final ScheduledExecutorService manutencao;
+
+    private volatile boolean encerrado;
+
+    public ConnectionPool(String url, String user, String password,
+                          int tamanhoMinimo, int tamanhoMaximo,
+                          long tempoOciosoMaximoMs, long tempoAquisicaoMs, long validarAposOciosoMs) {
+        if (tamanhoMinimo < 0 || tamanhoMaximo < 1 || tamanhoMinimo > tamanhoMaximo) {
+            throw new IllegalArgumentException("Tamanhos do pool inválidos: min=" + tamanhoMinimo + ", max=" + tamanhoMaximo);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.tamanhoMinimo = tamanhoMinimo;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.tempoOciosoMaximoMs = tempoOciosoMaximoMs;
+        this.tempoAquisicaoMs = tempoAquisicaoMs;
+        this.validarAposOciosoMs = validarAposOciosoMs;
+        this.permissoes = new Semaphore(tamanhoMaximo, true);
+
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "verbax-pool-manutencao");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodo = Math.max(1000, tempoOciosoMaximoMs / 2);
+        manutencao.scheduleWithFixedDelay(this::manter, 0, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Empresta uma ligação do pool, esperando no máximo o tempo de aquisição configurado.
+     *
+     * @return Uma ligação que regressa ao pool quando é fechada.
+     * @throws SQLException Se o tempo de espera esgotar ou não for possível abrir uma ligação.
+     */
+    public Connection obter() throws SQLException {
+        if (encerrado) {
+            throw new SQLException("O pool de ligações já foi encerrado.");
+        }
+        try {
+            if (!permissoes.tryAcquire(tempoAquisicaoMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Tempo esgotado (" + tempoAquisicaoMs + " ms) à espera de uma ligação livre; "
+                        + tamanhoMaximo + " ligações em uso.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido à espera de uma ligação.", e);
+        }
+
+        try {
+            return embrulhar(obterFisica());
+        } catch (SQLException | RuntimeException e) {
+            // Sem ligação entregue, a permissão tem de voltar ao pool.
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    // Reutiliza uma ligação ociosa válida ou, não havendo, abre uma nova.
+    private Connection obterFisica() throws SQLException {
+        LigacaoOciosa ociosa;
+        while ((ociosa = ociosas.pollFirst()) != null) {
+            long ociosoHa = System.currentTimeMillis() - ociosa.devolvidaEm;
+            if (ociosoHa < validarAposOciosoMs || validar(ociosa.ligacao)) {
+                return ociosa.ligacao;
+            }
+            descartar(ociosa.ligacao);
+        }
+        return abrirFisica();
+    }
+
+    private Connection abrirFisica() throws SQLException {
+        Connection conn = DriverManager.getConnection(url, user, password);
+        totalFisicas.incrementAndGet();
+        return conn;
+    }
+
+    private boolean validar(Connection conn) {
+        try {
+            return conn.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void descartar(Connection conn) {
+        totalFisicas.decrementAndGet();
+        DBConnection.closeResources(conn);
+    }
+
+    // Devolve a ligação física ao pool, repondo o estado esperado pelos DAOs.
+    private void devolver(Connection conn) {
+        try {
+            if (encerrado || conn.isClosed()) {
+                descartar(conn);
+                return;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (conn.isReadOnly()) {
+                conn.setReadOnly(false);
+            }
+            ociosas.offerFirst(new LigacaoOciosa(conn, System.currentTimeMillis()));
+        } catch (SQLException e) {
+            System.err.println("Ligação descartada ao regressar ao pool: " + e.getMessage());
+            descartar(conn);
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    // Fecha ligações ociosas há demasiado tempo e repõe o número mínimo de ligações.
+    private void manter() {
+        if (encerrado) {
+            return;
+        }
+        long limite = System.currentTimeMillis() - tempoOciosoMaximoMs;
+        LigacaoOciosa maisAntiga;
+        while (totalFisicas.get() > tamanhoMinimo
+                && (maisAntiga = ociosas.peekLast()) != null
+                && maisAntiga.devolvidaEm < limite) {
+            if (ociosas.removeLastOccurrence(maisAntiga)) {
+                descartar(maisAntiga.ligacao);
+            }
+        }
+        try {
+            while (!encerrado && totalFisicas.get() < tamanhoMinimo) {
+                ociosas.offerLast(new LigacaoOciosa(abrirFisica(), System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            System.err.println("Não foi possível repor o mínimo de ligações do pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encerra o pool e fecha todas as ligações ociosas.
+     * As ligações ainda emprestadas são fechadas quando forem devolvidas.
+     */
+    public void encerrar() {
+        encerrado = true;
+        manutencao.shutdownNow();
+        LigacaoOciosa ociosa;
+        while ((ociosa = ociosas.pollFirst()) != null) {
+            descartar(ociosa.ligacao);
+        }
+    }
+
+    // Número de ligações físicas abertas neste momento.
+    public int getTotalLigacoes() {
+        return totalFisicas.get();
+    }
+
+    // Número de ligações atualmente emprestadas aos DAOs.
+    public int getLigacoesEmUso() {
+        return tamanhoMaximo - permissoes.availablePermits();
+    }
+
+    // Cria o proxy que interceta close() e isClosed() da ligação emprestada.
+    private Connection embrulhar(Connection fisica) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new LigacaoEmprestada(fisica));
+    }
+
+    // Ligação física parada no pool e o instante em que foi devolvida.
+    private record LigacaoOciosa(Connection ligacao, long devolvidaEm) {
+    }
+
+    // Comportamento do proxy entregue aos DAOs.
+    private class LigacaoEmprestada implements InvocationHandler {
+        private final Connection fisica;
+        private boolean devolvida;
+
+        LigacaoEmprestada(Connection fisica) {
+            this.fisica = fisica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!devolvida) {
+                        devolvida = true;
+                        devolver(fisica);
+                    }
+                    return null;
+                case "isClosed":
+                    return devolvida || fisica.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Ligação do pool [" + fisica + "]";
+                default:
+                    if (devolvida) {
+                        throw new SQLException("A ligação já foi devolvida ao pool.");
+                    }
+                    try {
+                        return method.invoke(fisica, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
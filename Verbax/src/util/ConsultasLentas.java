@@ -0,0 +1,155 @@
+// Classe que regista as instruções SQL lentas e guarda o plano de execução (EXPLAIN) de cada uma.
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Registo de instruções lentas, alimentado pelas instruções instrumentadas de {@link MetricasJdbc}.
+ * <p>
+ * Uma instrução que demore pelo menos o limite (-Dverbax.sql.lentaMs, 200 ms por omissão; -1 desliga) é
+ * registada no logger {@code verbax.sql.lenta} com o SQL, os parâmetros, a duração e o número de linhas.
+ * Nas consultas, a duração vai da execução ao fecho da instrução, pelo que inclui a leitura das linhas.
+ * <p>
+ * Na primeira vez que cada forma de instrução (o SQL com os literais substituídos por ?) é lenta, o seu
+ * plano é obtido com EXPLAIN numa thread à parte, com os mesmos parâmetros, e guardado em {@link #getPlanos()}.
+ */
+public final class ConsultasLentas {
+
+    private static final Logger logger = Logger.getLogger("verbax.sql.lenta");
+
+    private static final long LIMITE_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("verbax.sql.lentaMs", 200L));
+    // Número máximo de formas de instrução com plano guardado.
+    private static final int MAXIMO_PLANOS = 500;
+    // Limites do texto registado, para que um lote ou um texto longo não encham o log.
+    private static final int MAXIMO_PARAMETROS = 20;
+    private static final int MAXIMO_TEXTO_PARAMETRO = 100;
+
+    private static final Pattern LITERAL_TEXTO = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern LITERAL_NUMERO = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+
+    // Forma da instrução → plano de execução (ou a mensagem de erro do EXPLAIN).
+    private static final Map<String, String> PLANOS = new ConcurrentHashMap<>();
+
+    // Uma única thread e uma fila curta: os EXPLAIN não podem competir com a aplicação pelas ligações.
+    private static final ExecutorService EXPLAIN = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(16), r -> {
+        Thread t = new Thread(r, "verbax-explain");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ConsultasLentas() {
+    }
+
+    // Indica se as instruções lentas são registadas.
+    static boolean isAtivo() {
+        return LIMITE_NANOS >= 0;
+    }
+
+    /**
+     * Regista a instrução se tiver excedido o limite e, na primeira vez, pede o seu plano de execução.
+     *
+     * @param operacao   O método do DAO que executou a instrução.
+     * @param sql        O SQL executado.
+     * @param parametros Os parâmetros ligados, por posição (o índice 0 não é usado); pode ser null.
+     * @param numero     O número de parâmetros ligados.
+     * @param nanos      A duração.
+     * @param linhas     As linhas lidas ou alteradas.
+     */
+    static void verificar(String operacao, String sql, Object[] parametros, int numero, long nanos, long linhas) {
+        if (!isAtivo() || nanos < LIMITE_NANOS || sql == null) {
+            return;
+        }
+        Object[] valores = parametros == null ? new Object[0] : Arrays.copyOfRange(parametros, 1, numero + 1);
+        logger.log(Level.WARNING, String.format("Instrução lenta em %s (%.1f ms, %d linhas): %s; parâmetros %s",
+                operacao, nanos / 1e6, linhas, ESPACOS.matcher(sql).replaceAll(" "), descrever(valores)));
+
+        String forma = forma(sql);
+        if (PLANOS.size() < MAXIMO_PLANOS && PLANOS.putIfAbsent(forma, "(a obter)") == null) {
+            try {
+                EXPLAIN.execute(() -> PLANOS.put(forma, explicar(operacao, sql, valores)));
+            } catch (RejectedExecutionException e) {
+                // Fila cheia: a próxima ocorrência lenta desta forma tenta de novo.
+                PLANOS.remove(forma);
+            }
+        }
+    }
+
+    /**
+     * Devolve os planos de execução guardados, pela forma da instrução.
+     *
+     * @return Um mapa só de leitura, forma do SQL → plano.
+     */
+    public static Map<String, String> getPlanos() {
+        return Collections.unmodifiableMap(PLANOS);
+    }
+
+    // Substitui os literais de texto e números por ?, para agrupar instruções que só diferem nos valores.
+    static String forma(String sql) {
+        String semTexto = LITERAL_TEXTO.matcher(sql).replaceAll("?");
+        String semNumeros = LITERAL_NUMERO.matcher(semTexto).replaceAll("?");
+        return ESPACOS.matcher(semNumeros).replaceAll(" ").trim();
+    }
+
+    // Executa EXPLAIN com os mesmos parâmetros numa ligação do pool que não é medida.
+    private static String explicar(String operacao, String sql, Object[] parametros) {
+        String inicio = sql.stripLeading().toUpperCase(Locale.ROOT);
+        if (!(inicio.startsWith("SELECT") || inicio.startsWith("UPDATE") || inicio.startsWith("DELETE") || inicio.startsWith("INSERT"))) {
+            return "(EXPLAIN não suportado para esta instrução)";
+        }
+        try (Connection conn = DBConnection.getConnectionSemMetricas();
+             PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parametros.length; i++) {
+                stmt.setObject(i + 1, parametros[i]);
+            }
+            StringBuilder plano = new StringBuilder();
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData metadados = rs.getMetaData();
+                while (rs.next()) {
+                    for (int c = 1; c <= metadados.getColumnCount(); c++) {
+                        if (c > 1) {
+                            plano.append(", ");
+                        }
+                        plano.append(metadados.getColumnLabel(c)).append('=').append(rs.getString(c));
+                    }
+                    plano.append('\n');
+                }
+            }
+            logger.log(Level.INFO, "Plano da instrução lenta em " + operacao + ":\n" + plano);
+            return plano.toString();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "EXPLAIN falhou para " + sql, e);
+            return "(EXPLAIN falhou: " + e.getMessage() + ")";
+        }
+    }
+
+    // Texto dos parâmetros para o log, limitado em número e comprimento.
+    private static String descrever(Object[] parametros) {
+        int n = Math.min(parametros.length, MAXIMO_PARAMETROS);
+        String[] textos = new String[n];
+        for (int i = 0; i < n; i++) {
+            String texto = String.valueOf(parametros[i]);
+            textos[i] = texto.length() > MAXIMO_TEXTO_PARAMETRO ? texto.substring(0, MAXIMO_TEXTO_PARAMETRO) + "…" : texto;
+        }
+        String lista = Arrays.toString(textos);
+        return parametros.length > n ? lista + " (+" + (parametros.length - n) + ")" : lista;
+    }
+}
@@ -1,37 +1,163 @@
 // Classe responsável por gerir a ligação à base de dados.
 package util;
 
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DBConnection {
 
+    /**
+     * Modos de armazenamento suportados, escolhidos com -Dverbax.db=mysql (por omissão) ou -Dverbax.db=embutido.
+     */
+    public enum Modo {
+        // Servidor MySQL em localhost.
+        MYSQL,
+        // Base de dados H2 num ficheiro local, no mesmo processo da aplicação (sem servidor).
+        EMBUTIDO
+    }
+
+    private static final Modo MODO = "embutido".equalsIgnoreCase(System.getProperty("verbax.db", "mysql"))
+            ? Modo.EMBUTIDO : Modo.MYSQL;
+
     // Constantes que armazenam os parâmetros de ligação à base de dados.
-    private static final String URL = "jdbc:mysql://localhost:3306/verbax_db";
+    // rewriteBatchedStatements permite ao driver enviar as inserções em lote como um único INSERT multi-linha.
+    private static final String URL = "jdbc:mysql://localhost:3306/verbax_db?rewriteBatchedStatements=true";
     private static final String USER = "root";
     private static final String PASSWORD = "admin";
 
+    // Parâmetros do modo embutido: ficheiro da base de dados H2 (sem a extensão .mv.db) e dump usado para a criar.
+    // O modo MySQL do H2 aceita o mesmo SQL dos DAOs (LIMIT, aspas invertidas, chaves geradas).
+    private static final String FICHEIRO_EMBUTIDO = System.getProperty("verbax.db.ficheiro", "~/verbax/verbax_db");
+    private static final String URL_EMBUTIDO = "jdbc:h2:file:" + FICHEIRO_EMBUTIDO + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+    private static final String USER_EMBUTIDO = "sa";
+    private static final String PASSWORD_EMBUTIDO = "";
+    private static final Path ESQUEMA_EMBUTIDO = Path.of(System.getProperty("verbax.db.esquema", "verbax.sql"));
+
+    // Parâmetros do pool de ligações (podem ser alterados com -Dverbax.pool.*).
+    private static final int POOL_MINIMO = Integer.getInteger("verbax.pool.min", 2);
+    private static final int POOL_MAXIMO = Integer.getInteger("verbax.pool.max", 10);
+    private static final long POOL_OCIOSO_MAXIMO_MS = Long.getLong("verbax.pool.ociosoMs", 300_000L);
+    private static final long POOL_AQUISICAO_MS = Long.getLong("verbax.pool.aquisicaoMs", 10_000L);
+    private static final long POOL_VALIDAR_APOS_MS = Long.getLong("verbax.pool.validarAposMs", 1_000L);
+
+    // Pool partilhado por todos os DAOs, criado apenas na primeira utilização.
+    private static volatile ConnectionPool pool;
+    // Se o esquema tem a coluna e a tabela da sincronização entre postos (verificado ao criar o pool).
+    private static volatile boolean sincronizacaoDisponivel;
+
     /**
-     * Estabelece e retorna uma nova ligação à base de dados.
-     * Cada chamada a este método cria uma nova ligação.
+     * Obtém uma ligação do pool partilhado.
+     * A ligação devolvida regressa ao pool quando é fechada (por exemplo, no fim de um try-with-resources),
+     * pelo que não é aberta uma nova ligação TCP em cada operação.
+     * A ligação é instrumentada por {@link MetricasJdbc}, salvo com -Dverbax.metricas=false.
      *
-     * @return Uma nova ligação SQL.
-     * @throws SQLException Se ocorrer um erro ao obter a ligação.
+     * @return Uma ligação SQL emprestada pelo pool.
+     * @throws SQLException Se ocorrer um erro ao obter a ligação ou se o tempo de espera esgotar.
      */
     public static Connection getConnection() throws SQLException {
-        // Tenta carregar o driver JDBC da MySQL.
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            // Em caso de não encontrar o driver, exibe uma mensagem de erro no console.
-            System.err.println("Driver JDBC não encontrado: " + e.getMessage());
+        if (!MetricasJdbc.isAtivas()) {
+            return getPool().obter();
+        }
+        return MetricasJdbc.obter(() -> getPool().obter());
+    }
+
+    // Obtém uma ligação do pool sem instrumentação, para consultas internas como o EXPLAIN das instruções lentas.
+    static Connection getConnectionSemMetricas() throws SQLException {
+        return getPool().obter();
+    }
+
+    // Método que devolve o modo de armazenamento em uso.
+    public static Modo getModo() {
+        return MODO;
+    }
+
+    // Método que indica se a aplicação usa a base de dados embutida em vez do servidor MySQL.
+    public static boolean isEmbutido() {
+        return MODO == Modo.EMBUTIDO;
+    }
+
+    /**
+     * Indica se a base de dados suporta a sincronização entre postos (coluna livro.atualizado_em e tabela
+     * livro_removido). Se a atualização do esquema tiver falhado, as exclusões não registam os livros
+     * removidos e as alterações não são consultadas.
+     *
+     * @return true se o esquema tiver a coluna e a tabela.
+     * @throws SQLException Se for preciso criar o pool e isso falhar.
+     */
+    public static boolean isSincronizacaoDisponivel() throws SQLException {
+        getPool();
+        return sincronizacaoDisponivel;
+    }
+
+    // Método que devolve o URL JDBC da base de dados em uso, que identifica a origem dos dados guardados localmente.
+    public static String getOrigem() {
+        return isEmbutido() ? URL_EMBUTIDO : URL;
+    }
+
+    // Cria o pool na primeira chamada, carregando antes o driver JDBC (e, no modo embutido, criando o esquema).
+    private static ConnectionPool getPool() throws SQLException {
+        ConnectionPool atual = pool;
+        if (atual == null) {
+            synchronized (DBConnection.class) {
+                atual = pool;
+                if (atual == null) {
+                    boolean embutido = isEmbutido();
+                    // Tenta carregar o driver JDBC da MySQL ou do H2.
+                    try {
+                        Class.forName(embutido ? "org.h2.Driver" : "com.mysql.cj.jdbc.Driver");
+                    } catch (ClassNotFoundException e) {
+                        // Em caso de não encontrar o driver, exibe uma mensagem de erro no console.
+                        System.err.println("Driver JDBC não encontrado: " + e.getMessage());
+                    }
+                    System.out.println("A criar pool de ligações " + MODO + " (min=" + POOL_MINIMO + ", max=" + POOL_MAXIMO + ")...");
+                    atual = embutido
+                            ? new ConnectionPool(URL_EMBUTIDO, USER_EMBUTIDO, PASSWORD_EMBUTIDO, POOL_MINIMO, POOL_MAXIMO,
+                            POOL_OCIOSO_MAXIMO_MS, POOL_AQUISICAO_MS, POOL_VALIDAR_APOS_MS)
+                            : new ConnectionPool(URL, USER, PASSWORD, POOL_MINIMO, POOL_MAXIMO,
+                            POOL_OCIOSO_MAXIMO_MS, POOL_AQUISICAO_MS, POOL_VALIDAR_APOS_MS);
+                    if (embutido) {
+                        try (Connection conn = atual.obter()) {
+                            EsquemaEmbutido.criarSeNecessario(conn, ESQUEMA_EMBUTIDO);
+                        } catch (SQLException e) {
+                            // Sem esquema o pool não é usado; a próxima chamada tenta de novo.
+                            atual.encerrar();
+                            throw e;
+                        }
+                    }
+                    // Bases de dados criadas com um verbax.sql anterior recebem as colunas e tabelas novas.
+                    try (Connection conn = atual.obter()) {
+                        try {
+                            MigracaoEsquema.aplicar(conn);
+                        } catch (SQLException e) {
+                            System.err.println("Não foi possível atualizar o esquema da base de dados: " + e.getMessage());
+                        }
+                        sincronizacaoDisponivel = MigracaoEsquema.suportaSincronizacao(conn);
+                    } catch (SQLException e) {
+                        System.err.println("Não foi possível verificar o esquema da base de dados: " + e.getMessage());
+                        sincronizacaoDisponivel = false;
+                    }
+                    if (!sincronizacaoDisponivel) {
+                        System.err.println("A base de dados não tem a coluna livro.atualizado_em ou a tabela livro_removido "
+                                + "(o utilizador precisa de permissões ALTER e CREATE para as criar no arranque): "
+                                + "a sincronização entre postos fica desligada.");
+                    }
+                    pool = atual;
+                }
+            }
         }
+        return atual;
+    }
 
-        // Informa que se está a tentar obter uma nova conexão.
-        System.out.println("Tentando obter nova conexão...");
-        // Retorna uma nova instância de ligação utilizando os parâmetros definidos.
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+    /**
+     * Encerra o pool de ligações, fechando as ligações físicas ociosas.
+     * Deve ser chamado ao fechar a aplicação.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.encerrar();
+            pool = null;
+        }
     }
 
     /**
@@ -0,0 +1,152 @@
+// Classe que cria as tabelas da base de dados embutida (H2) a partir do ficheiro verbax.sql.
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Inicialização do esquema no modo embutido.
+ * <p>
+ * O ficheiro verbax.sql é um dump do MySQL. O H2, em modo de compatibilidade MySQL, aceita as instruções
+ * CREATE TABLE e INSERT tal como estão; apenas é preciso ignorar os comentários condicionais do mysqldump,
+ * LOCK/UNLOCK TABLES e os DROP TABLE, e criar as tabelas por uma ordem que respeite as chaves estrangeiras
+ * (o MySQL desliga essa verificação com FOREIGN_KEY_CHECKS=0, que o H2 não conhece).
+ */
+final class EsquemaEmbutido {
+
+    // Nome do recurso procurado no classpath quando o ficheiro indicado não existe.
+    private static final String RECURSO_ESQUEMA = "/verbax.sql";
+
+    private EsquemaEmbutido() {
+    }
+
+    /**
+     * Cria as tabelas e os dados iniciais, se a base de dados ainda não tiver a tabela livro.
+     *
+     * @param conn     Uma ligação à base de dados embutida.
+     * @param ficheiro O caminho do dump verbax.sql.
+     * @throws SQLException Se o esquema não for encontrado ou alguma instrução falhar.
+     */
+    static void criarSeNecessario(Connection conn, Path ficheiro) throws SQLException {
+        if (existeTabela(conn, "livro")) {
+            return;
+        }
+        String dump;
+        try {
+            dump = lerDump(ficheiro);
+        } catch (IOException e) {
+            throw new SQLException("Não foi possível ler o esquema " + ficheiro + ": " + e.getMessage(), e);
+        }
+
+        List<String> tabelas = new ArrayList<>();
+        List<String> dados = new ArrayList<>();
+        for (String instrucao : converter(dump)) {
+            (instrucao.regionMatches(true, 0, "CREATE TABLE", 0, 12) ? tabelas : dados).add(instrucao);
+        }
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            criarTabelas(stmt, tabelas);
+            // Os dados do dump estão por ordem alfabética das tabelas, não pela ordem das chaves estrangeiras.
+            stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+            for (String instrucao : dados) {
+                stmt.execute(instrucao);
+            }
+            stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+            conn.commit();
+            System.out.println("Base de dados embutida criada com " + tabelas.size() + " tabelas a partir de " + ficheiro + ".");
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Separa o dump em instruções e retira as que são exclusivas do MySQL.
+     *
+     * @param dump O conteúdo do ficheiro verbax.sql.
+     * @return As instruções CREATE TABLE e INSERT, pela ordem do ficheiro.
+     */
+    static List<String> converter(String dump) {
+        List<String> instrucoes = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        for (String linha : dump.split("\\R")) {
+            String aparada = linha.trim();
+            if (aparada.isEmpty() || aparada.startsWith("--")) {
+                continue;
+            }
+            atual.append(linha).append('\n');
+            if (aparada.endsWith(";")) {
+                String instrucao = atual.toString().trim();
+                instrucao = instrucao.substring(0, instrucao.length() - 1).trim();
+                atual.setLength(0);
+                String inicio = instrucao.toUpperCase(Locale.ROOT);
+                // Comentários condicionais (/*!40101 ... */), bloqueios de tabelas e DROPs não são executados.
+                if (inicio.startsWith("CREATE TABLE")) {
+                    // O H2 confirma cada CREATE de imediato: após uma falha, a repetição não pode falhar nas tabelas já criadas.
+                    instrucoes.add("CREATE TABLE IF NOT EXISTS" + instrucao.substring("CREATE TABLE".length()));
+                } else if (inicio.startsWith("INSERT")) {
+                    instrucoes.add(instrucao);
+                }
+            }
+        }
+        return instrucoes;
+    }
+
+    // Cria as tabelas, adiando as que referenciam tabelas ainda não criadas.
+    private static void criarTabelas(Statement stmt, List<String> tabelas) throws SQLException {
+        List<String> porCriar = new ArrayList<>(tabelas);
+        while (!porCriar.isEmpty()) {
+            List<String> adiadas = new ArrayList<>();
+            SQLException ultimoErro = null;
+            for (String instrucao : porCriar) {
+                try {
+                    stmt.execute(instrucao);
+                } catch (SQLException e) {
+                    adiadas.add(instrucao);
+                    ultimoErro = e;
+                }
+            }
+            // Nenhuma tabela nova nesta volta: o erro não se deve à ordem de criação.
+            if (adiadas.size() == porCriar.size()) {
+                throw ultimoErro;
+            }
+            porCriar = adiadas;
+        }
+    }
+
+    // Método que verifica se a tabela indicada já existe.
+    private static boolean existeTabela(Connection conn, String nome) throws SQLException {
+        DatabaseMetaData metadados = conn.getMetaData();
+        try (ResultSet rs = metadados.getTables(null, null, nome, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    // Lê o dump do ficheiro indicado ou, se não existir, do classpath.
+    private static String lerDump(Path ficheiro) throws IOException {
+        if (Files.exists(ficheiro)) {
+            return Files.readString(ficheiro, StandardCharsets.UTF_8);
+        }
+        try (InputStream recurso = EsquemaEmbutido.class.getResourceAsStream(RECURSO_ESQUEMA)) {
+            if (recurso == null) {
+                throw new IOException("ficheiro não encontrado (indique o caminho com -Dverbax.db.esquema)");
+            }
+            return new String(recurso.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
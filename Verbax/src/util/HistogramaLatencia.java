@@ -0,0 +1,134 @@
+// Classe que regista durações num histograma de escala logarítmica, para calcular percentis de latência.
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências com precisão relativa constante (no estilo do HdrHistogram).
+ * <p>
+ * Os valores até 127 ns têm um balde cada; a partir daí cada potência de 2 é dividida em 64 baldes,
+ * o que dá um erro máximo de cerca de 1,6% em qualquer percentil, de nanossegundos a horas, com um
+ * array fixo de 3 776 contadores. Registar um valor é um incremento atómico, sem bloqueios nem alocação,
+ * pelo que o mesmo histograma pode ser partilhado por várias threads.
+ */
+public class HistogramaLatencia {
+
+    // Bits de mantissa: 2^6 = 64 baldes por potência de 2.
+    private static final int BITS_SUB_BALDE = 6;
+    private static final int SUB_BALDES = 1 << BITS_SUB_BALDE;
+    // Valores abaixo deste limite têm um balde próprio.
+    private static final int LIMITE_LINEAR = SUB_BALDES * 2;
+    private static final int NUMERO_BALDES = LIMITE_LINEAR + (63 - BITS_SUB_BALDE) * SUB_BALDES;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(NUMERO_BALDES);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Regista uma duração.
+     *
+     * @param nanos A duração em nanossegundos (valores negativos contam como 0).
+     */
+    public void registar(long nanos) {
+        long valor = Math.max(0, nanos);
+        contagens.incrementAndGet(indice(valor));
+        total.increment();
+        soma.add(valor);
+        if (valor > maximo.get()) {
+            maximo.accumulateAndGet(valor, Math::max);
+        }
+    }
+
+    /**
+     * Devolve o valor abaixo do qual fica a fração indicada dos registos.
+     *
+     * @param percentil A fração pretendida, entre 0 e 100 (por exemplo 99.9).
+     * @return O limite superior do balde que contém esse percentil, em nanossegundos (0 se estiver vazio).
+     */
+    public long percentil(double percentil) {
+        long n = getTotal();
+        if (n == 0) {
+            return 0;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(n * Math.min(100.0, percentil) / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < NUMERO_BALDES; i++) {
+            acumulado += contagens.get(i);
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    // Número de durações registadas.
+    public long getTotal() {
+        return total.sum();
+    }
+
+    // Duração média, em nanossegundos.
+    public double getMedia() {
+        long n = getTotal();
+        return n == 0 ? 0.0 : (double) soma.sum() / n;
+    }
+
+    // Maior duração registada, em nanossegundos.
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Acrescenta a este histograma os registos de outro (por exemplo, para juntar os histogramas das threads).
+     */
+    public void juntar(HistogramaLatencia outro) {
+        for (int i = 0; i < NUMERO_BALDES; i++) {
+            long c = outro.contagens.get(i);
+            if (c != 0) {
+                contagens.addAndGet(i, c);
+            }
+        }
+        total.add(outro.total.sum());
+        soma.add(outro.soma.sum());
+        maximo.accumulateAndGet(outro.maximo.get(), Math::max);
+    }
+
+    // Esquece todos os registos.
+    public void limpar() {
+        for (int i = 0; i < NUMERO_BALDES; i++) {
+            contagens.set(i, 0);
+        }
+        total.reset();
+        soma.reset();
+        maximo.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d, média=%.3f ms, p50=%.3f ms, p99=%.3f ms, p99.9=%.3f ms, máx=%.3f ms",
+                getTotal(), getMedia() / 1e6, percentil(50) / 1e6, percentil(99) / 1e6, percentil(99.9) / 1e6, maximo.get() / 1e6);
+    }
+
+    // Balde de um valor: linear abaixo de LIMITE_LINEAR, depois (expoente, 6 bits seguintes ao bit mais alto).
+    static int indice(long valor) {
+        if (valor < LIMITE_LINEAR) {
+            return (int) valor;
+        }
+        int bitMaisAlto = 63 - Long.numberOfLeadingZeros(valor);
+        int deslocamento = bitMaisAlto - BITS_SUB_BALDE;
+        int mantissa = (int) (valor >>> deslocamento) - SUB_BALDES;
+        return LIMITE_LINEAR + (deslocamento - 1) * SUB_BALDES + mantissa;
+    }
+
+    // Maior valor que cai no balde indicado.
+    static long limiteSuperior(int indice) {
+        if (indice < LIMITE_LINEAR) {
+            return indice;
+        }
+        int deslocamento = (indice - LIMITE_LINEAR) / SUB_BALDES + 1;
+        long mantissa = (indice - LIMITE_LINEAR) % SUB_BALDES + SUB_BALDES;
+        return ((mantissa + 1) << deslocamento) - 1;
+    }
+}
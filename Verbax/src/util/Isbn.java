@@ -0,0 +1,77 @@
+// Classe utilitária para validar ISBNs e convertê-los para uma forma canónica (ISBN-13, só dígitos).
+package util;
+
+public final class Isbn {
+
+    private Isbn() {
+    }
+
+    /**
+     * Converte um ISBN escrito à mão ou lido por um leitor de código de barras para os 13 dígitos do ISBN-13.
+     * Aceita hífenes e espaços, e converte ISBN-10 (incluindo o dígito de controlo X) para ISBN-13,
+     * de modo que "972-0-04645-7", "9720046457" e "978-972-0-04645-1" dão a mesma chave.
+     *
+     * @param isbn O ISBN original (pode ser null).
+     * @return Os 13 dígitos do ISBN, ou null se o texto não for um ISBN-10 ou ISBN-13 válido.
+     */
+    public static String normalizar(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        StringBuilder limpo = new StringBuilder(13);
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c >= '0' && c <= '9') {
+                limpo.append(c);
+            } else if (c == 'x' || c == 'X') {
+                limpo.append('X');
+            } else if (c != '-' && c != ' ') {
+                return null;
+            }
+        }
+
+        if (limpo.length() == 13) {
+            String isbn13 = limpo.toString();
+            if (isbn13.indexOf('X') >= 0 || !(isbn13.startsWith("978") || isbn13.startsWith("979"))) {
+                return null;
+            }
+            return digitoControlo13(isbn13) == isbn13.charAt(12) - '0' ? isbn13 : null;
+        }
+        if (limpo.length() == 10) {
+            String isbn10 = limpo.toString();
+            // Só o último carácter pode ser X (valor 10).
+            if (isbn10.substring(0, 9).indexOf('X') >= 0 || !valido10(isbn10)) {
+                return null;
+            }
+            String sem = "978" + isbn10.substring(0, 9);
+            return sem + digitoControlo13(sem);
+        }
+        return null;
+    }
+
+    // Indica se o texto é um ISBN-10 ou ISBN-13 válido.
+    public static boolean valido(String isbn) {
+        return normalizar(isbn) != null;
+    }
+
+    // Soma ponderada do ISBN-10 (pesos 10 a 1) tem de ser múltipla de 11.
+    private static boolean valido10(String isbn10) {
+        int soma = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = isbn10.charAt(i);
+            int valor = c == 'X' ? 10 : c - '0';
+            soma += valor * (10 - i);
+        }
+        return soma % 11 == 0;
+    }
+
+    // Dígito de controlo do ISBN-13 (EAN-13) calculado a partir dos 12 primeiros dígitos.
+    private static int digitoControlo13(String digitos) {
+        int soma = 0;
+        for (int i = 0; i < 12; i++) {
+            int valor = digitos.charAt(i) - '0';
+            soma += (i % 2 == 0) ? valor : valor * 3;
+        }
+        return (10 - soma % 10) % 10;
+    }
+}
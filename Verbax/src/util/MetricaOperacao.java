@@ -0,0 +1,142 @@
+// Classe que acumula os tempos de acesso à base de dados de uma operação dos DAOs.
+package util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de uma operação (por exemplo {@code LivroDAO.inserir}):
+ * <ul>
+ *     <li>aquisição: tempo até o pool entregar a ligação;</li>
+ *     <li>execução: tempo de cada execute* de uma instrução;</li>
+ *     <li>duração: tempo desde o pedido da ligação até ao seu fecho, isto é, o método do DAO inteiro.</li>
+ * </ul>
+ * Os registos são feitos pelas ligações instrumentadas de {@link MetricasJdbc}.
+ */
+public class MetricaOperacao implements MetricaOperacaoMBean {
+
+    private final String nome;
+    private final HistogramaLatencia aquisicao = new HistogramaLatencia();
+    private final HistogramaLatencia execucao = new HistogramaLatencia();
+    private final HistogramaLatencia duracao = new HistogramaLatencia();
+    private final LongAdder linhas = new LongAdder();
+    private final LongAdder erros = new LongAdder();
+
+    MetricaOperacao(String nome) {
+        this.nome = nome;
+    }
+
+    // Nome da operação, no formato Classe.metodo.
+    public String getNome() {
+        return nome;
+    }
+
+    void registarAquisicao(long nanos) {
+        aquisicao.registar(nanos);
+    }
+
+    void registarExecucao(long nanos) {
+        execucao.registar(nanos);
+    }
+
+    void registarDuracao(long nanos) {
+        duracao.registar(nanos);
+    }
+
+    void registarLinhas(int n) {
+        linhas.add(n);
+    }
+
+    void registarErro() {
+        erros.increment();
+    }
+
+    @Override
+    public long getChamadas() {
+        return aquisicao.getTotal();
+    }
+
+    @Override
+    public long getExecucoes() {
+        return execucao.getTotal();
+    }
+
+    @Override
+    public long getLinhasMapeadas() {
+        return linhas.sum();
+    }
+
+    @Override
+    public long getErros() {
+        return erros.sum();
+    }
+
+    @Override
+    public double getAquisicaoMediaMs() {
+        return aquisicao.getMedia() / 1e6;
+    }
+
+    @Override
+    public double getAquisicaoP99Ms() {
+        return aquisicao.percentil(99) / 1e6;
+    }
+
+    @Override
+    public double getExecucaoMediaMs() {
+        return execucao.getMedia() / 1e6;
+    }
+
+    @Override
+    public double getExecucaoP50Ms() {
+        return execucao.percentil(50) / 1e6;
+    }
+
+    @Override
+    public double getExecucaoP99Ms() {
+        return execucao.percentil(99) / 1e6;
+    }
+
+    @Override
+    public double getExecucaoP999Ms() {
+        return execucao.percentil(99.9) / 1e6;
+    }
+
+    @Override
+    public double getExecucaoMaximoMs() {
+        return execucao.getMaximo() / 1e6;
+    }
+
+    @Override
+    public double getDuracaoMediaMs() {
+        return duracao.getMedia() / 1e6;
+    }
+
+    @Override
+    public double getDuracaoP50Ms() {
+        return duracao.percentil(50) / 1e6;
+    }
+
+    @Override
+    public double getDuracaoP99Ms() {
+        return duracao.percentil(99) / 1e6;
+    }
+
+    @Override
+    public double getDuracaoP999Ms() {
+        return duracao.percentil(99.9) / 1e6;
+    }
+
+    @Override
+    public void limpar() {
+        aquisicao.limpar();
+        execucao.limpar();
+        duracao.limpar();
+        linhas.reset();
+        erros.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d chamadas, %d linhas, %d erros, execução p99=%.3f ms, duração p99=%.3f ms",
+                nome, getChamadas(), getLinhasMapeadas(), getErros(), getExecucaoP99Ms(), getDuracaoP99Ms());
+    }
+}
@@ -0,0 +1,46 @@
+// Interface de gestão (JMX) das métricas de acesso à base de dados de uma operação dos DAOs.
+package util;
+
+/**
+ * Atributos publicados por cada {@link MetricaOperacao} no servidor JMX da plataforma, com o nome
+ * {@code verbax:type=Jdbc,operacao=<Classe.metodo>}. Os tempos estão em milissegundos.
+ */
+public interface MetricaOperacaoMBean {
+
+    // Número de ligações pedidas pela operação (uma por chamada ao método do DAO).
+    long getChamadas();
+
+    // Número de instruções SQL executadas (execute, executeQuery, executeUpdate, executeBatch).
+    long getExecucoes();
+
+    // Número de linhas convertidas em objetos do modelo.
+    long getLinhasMapeadas();
+
+    // Número de falhas a obter a ligação ou a executar uma instrução.
+    long getErros();
+
+    double getAquisicaoMediaMs();
+
+    double getAquisicaoP99Ms();
+
+    double getExecucaoMediaMs();
+
+    double getExecucaoP50Ms();
+
+    double getExecucaoP99Ms();
+
+    double getExecucaoP999Ms();
+
+    double getExecucaoMaximoMs();
+
+    double getDuracaoMediaMs();
+
+    double getDuracaoP50Ms();
+
+    double getDuracaoP99Ms();
+
+    double getDuracaoP999Ms();
+
+    // Esquece os valores registados até agora.
+    void limpar();
+}
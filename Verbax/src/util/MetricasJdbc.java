@@ -0,0 +1,323 @@
+// Classe que mede os tempos de acesso à base de dados de cada operação dos DAOs e os publica por JMX.
+package util;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instrumentação das ligações entregues por {@link DBConnection#getConnection()}.
+ * <p>
+ * Cada ligação é atribuída à operação que a pediu, identificada pelo primeiro método de uma classe *DAO
+ * na pilha de chamadas (por exemplo {@code LivroDAO.inserir}), sem alterar os DAOs. A ligação é envolvida
+ * num proxy que mede o fecho (duração da operação) e envolve as instruções criadas, que medem cada execute*.
+ * As linhas convertidas em objetos são comunicadas pelos DAOs com {@link #registarLinhas(int)}.
+ * As instruções lentas são passadas a {@link ConsultasLentas}.
+ * <p>
+ * As métricas de cada operação são publicadas como MBean ({@link MetricaOperacaoMBean}) e podem ser
+ * consultadas com o JConsole ou o VisualVM. A instrumentação pode ser desligada com -Dverbax.metricas=false.
+ */
+public final class MetricasJdbc {
+
+    private static final boolean ATIVAS = Boolean.parseBoolean(System.getProperty("verbax.metricas", "true"));
+
+    // Domínio e tipo dos nomes JMX das métricas.
+    private static final String NOME_JMX = "verbax:type=Jdbc,operacao=";
+
+    private static final Map<String, MetricaOperacao> METRICAS = new ConcurrentHashMap<>();
+    // Ligação instrumentada aberta mais recentemente nesta thread, a que são atribuídas as linhas mapeadas.
+    private static final ThreadLocal<LigacaoMedida> ATUAL = new ThreadLocal<>();
+    private static final StackWalker PILHA = StackWalker.getInstance();
+
+    // Fonte das ligações a instrumentar (o pool).
+    @FunctionalInterface
+    interface FonteLigacoes {
+        Connection obter() throws SQLException;
+    }
+
+    private MetricasJdbc() {
+    }
+
+    // Indica se as ligações são instrumentadas.
+    public static boolean isAtivas() {
+        return ATIVAS;
+    }
+
+    /**
+     * Obtém uma ligação da fonte, medindo o tempo de aquisição, e devolve-a instrumentada.
+     *
+     * @param fonte A origem das ligações (o pool).
+     * @return Uma ligação que regista as métricas da operação que a pediu.
+     * @throws SQLException Se a fonte não entregar uma ligação (contado como erro da operação).
+     */
+    static Connection obter(FonteLigacoes fonte) throws SQLException {
+        MetricaOperacao metrica = metrica(operacaoChamadora());
+        long inicio = System.nanoTime();
+        Connection conn;
+        try {
+            conn = fonte.obter();
+        } catch (SQLException | RuntimeException e) {
+            metrica.registarErro();
+            throw e;
+        }
+        metrica.registarAquisicao(System.nanoTime() - inicio);
+
+        LigacaoMedida medida = new LigacaoMedida(conn, metrica, inicio, ATUAL.get());
+        ATUAL.set(medida);
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                medida);
+    }
+
+    /**
+     * Acrescenta linhas convertidas em objetos do modelo à operação da ligação aberta nesta thread.
+     * Não faz nada se a instrumentação estiver desligada ou se a thread não tiver uma ligação aberta.
+     *
+     * @param n O número de linhas.
+     */
+    public static void registarLinhas(int n) {
+        if (ATIVAS) {
+            LigacaoMedida medida = ATUAL.get();
+            if (medida != null) {
+                medida.metrica.registarLinhas(n);
+                medida.linhas += n;
+            }
+        }
+    }
+
+    // Métricas de todas as operações registadas até agora.
+    public static Collection<MetricaOperacao> getMetricas() {
+        return Collections.unmodifiableCollection(METRICAS.values());
+    }
+
+    // Devolve as métricas da operação, criando-as e publicando-as por JMX na primeira utilização.
+    private static MetricaOperacao metrica(String operacao) {
+        MetricaOperacao metrica = METRICAS.get(operacao);
+        if (metrica != null) {
+            return metrica;
+        }
+        MetricaOperacao nova = new MetricaOperacao(operacao);
+        metrica = METRICAS.putIfAbsent(operacao, nova);
+        if (metrica != null) {
+            return metrica;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(nova, new ObjectName(NOME_JMX + operacao));
+        } catch (JMException e) {
+            System.err.println("Não foi possível publicar as métricas de " + operacao + " por JMX: " + e.getMessage());
+        }
+        return nova;
+    }
+
+    // Nome Classe.metodo do primeiro método de um DAO na pilha ou, não havendo, do primeiro fora deste pacote.
+    private static String operacaoChamadora() {
+        return PILHA.walk(frames -> {
+            String alternativa = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String classe = frame.getClassName();
+                if (classe.startsWith("util.") || frame.getMethodName().startsWith("lambda$")) {
+                    continue;
+                }
+                String simples = classe.substring(classe.lastIndexOf('.') + 1);
+                if (simples.endsWith("DAO")) {
+                    return simples + "." + frame.getMethodName();
+                }
+                if (alternativa == null) {
+                    alternativa = simples + "." + frame.getMethodName();
+                }
+            }
+            return alternativa != null ? alternativa : "desconhecida";
+        });
+    }
+
+    // Reencaminha a chamada para o objeto original, devolvendo a exceção original em vez da InvocationTargetException.
+    private static Object delegar(Object alvo, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(alvo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Proxy da ligação: mede a duração até ao fecho e instrumenta as instruções criadas.
+    private static final class LigacaoMedida implements InvocationHandler {
+        private final Connection ligacao;
+        private final MetricaOperacao metrica;
+        private final long inicio;
+        // Ligação medida que estava aberta nesta thread antes desta (chamadas encadeadas), reposta no fecho.
+        private final LigacaoMedida anterior;
+        // Linhas mapeadas enquanto esta ligação esteve aberta (usadas no registo de instruções lentas).
+        private long linhas;
+        private boolean fechada;
+
+        LigacaoMedida(Connection ligacao, MetricaOperacao metrica, long inicio, LigacaoMedida anterior) {
+            this.ligacao = ligacao;
+            this.metrica = metrica;
+            this.inicio = inicio;
+            this.anterior = anterior;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!fechada) {
+                        fechada = true;
+                        metrica.registarDuracao(System.nanoTime() - inicio);
+                        if (ATUAL.get() == this) {
+                            ATUAL.set(anterior);
+                        }
+                    }
+                    return delegar(ligacao, method, args);
+                case "createStatement":
+                    return instrucao(Statement.class, delegar(ligacao, method, args), null);
+                case "prepareStatement":
+                    return instrucao(PreparedStatement.class, delegar(ligacao, method, args), (String) args[0]);
+                case "prepareCall":
+                    return instrucao(CallableStatement.class, delegar(ligacao, method, args), (String) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Ligação medida [" + metrica.getNome() + ", " + ligacao + "]";
+                default:
+                    return delegar(ligacao, method, args);
+            }
+        }
+
+        private Object instrucao(Class<? extends Statement> tipo, Object instrucao, String sql) {
+            return Proxy.newProxyInstance(
+                    Statement.class.getClassLoader(),
+                    new Class<?>[]{tipo},
+                    new InstrucaoMedida((Statement) instrucao, this, sql));
+        }
+    }
+
+    // Proxy da instrução: mede cada execute*, conta as falhas e guarda os parâmetros para o registo de instruções lentas.
+    private static final class InstrucaoMedida implements InvocationHandler {
+        private final Statement instrucao;
+        private final LigacaoMedida ligacao;
+        private String sql;
+        // Parâmetros ligados por posição (só guardados se o registo de instruções lentas estiver ativo).
+        private Object[] parametros;
+        private int numeroParametros;
+        // Consulta em curso: instante da execução e linhas da ligação nesse momento (-1 se não houver).
+        private long inicioConsulta = -1;
+        private long linhasAntes;
+
+        InstrucaoMedida(Statement instrucao, LigacaoMedida ligacao, String sql) {
+            this.instrucao = instrucao;
+            this.ligacao = ligacao;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nome = method.getName();
+            if (nome.startsWith("execute")) {
+                return executar(method, args);
+            }
+            if (nome.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer posicao
+                    && ConsultasLentas.isAtivo()) {
+                guardarParametro(posicao, nome.equals("setNull") ? null : args[1]);
+            }
+            switch (nome) {
+                case "close":
+                    terminarConsulta();
+                    return delegar(instrucao, method, args);
+                case "clearParameters":
+                    parametros = null;
+                    numeroParametros = 0;
+                    return delegar(instrucao, method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return delegar(instrucao, method, args);
+            }
+        }
+
+        private Object executar(Method method, Object[] args) throws Throwable {
+            // Uma instrução reutilizada termina a consulta anterior ao executar de novo.
+            terminarConsulta();
+            if (args != null && args.length > 0 && args[0] instanceof String texto) {
+                sql = texto;
+            }
+            MetricaOperacao metrica = ligacao.metrica;
+            long inicio = System.nanoTime();
+            Object resultado;
+            try {
+                resultado = delegar(instrucao, method, args);
+            } catch (SQLException e) {
+                metrica.registarErro();
+                throw e;
+            } finally {
+                metrica.registarExecucao(System.nanoTime() - inicio);
+            }
+            if (resultado instanceof ResultSet || Boolean.TRUE.equals(resultado)) {
+                // Consulta: a duração só termina quando as linhas tiverem sido lidas, no fecho da instrução.
+                inicioConsulta = inicio;
+                linhasAntes = ligacao.linhas;
+            } else {
+                ConsultasLentas.verificar(metrica.getNome(), sql, parametros, numeroParametros,
+                        System.nanoTime() - inicio, alteradas(resultado));
+            }
+            return resultado;
+        }
+
+        private void terminarConsulta() {
+            if (inicioConsulta >= 0) {
+                ConsultasLentas.verificar(ligacao.metrica.getNome(), sql, parametros, numeroParametros,
+                        System.nanoTime() - inicioConsulta, ligacao.linhas - linhasAntes);
+                inicioConsulta = -1;
+            }
+        }
+
+        private void guardarParametro(int posicao, Object valor) {
+            if (posicao < 1 || posicao > 1000) {
+                return;
+            }
+            if (parametros == null || parametros.length <= posicao) {
+                parametros = Arrays.copyOf(parametros == null ? new Object[0] : parametros, Math.max(posicao + 1, 8));
+            }
+            parametros[posicao] = valor;
+            numeroParametros = Math.max(numeroParametros, posicao);
+        }
+
+        // Número de linhas alteradas, a partir do resultado de executeUpdate, executeLargeUpdate ou executeBatch.
+        private static long alteradas(Object resultado) {
+            if (resultado instanceof Number numero) {
+                return numero.longValue();
+            }
+            long total = 0;
+            if (resultado instanceof int[] contagens) {
+                for (int c : contagens) {
+                    total += Math.max(0, c);
+                }
+            } else if (resultado instanceof long[] contagens) {
+                for (long c : contagens) {
+                    total += Math.max(0, c);
+                }
+            }
+            return total;
+        }
+    }
+}
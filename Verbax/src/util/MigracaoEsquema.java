@@ -0,0 +1,174 @@
+// Classe que acrescenta a bases de dados criadas com versões anteriores do verbax.sql as colunas e tabelas novas.
+package util;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Atualização do esquema de bases de dados já existentes, em MySQL ou no modo embutido.
+ * <p>
+ * Cada passo verifica primeiro se já foi aplicado, pelo que a atualização pode correr em todos os
+ * arranques. As instruções são aceites pelo MySQL e pelo H2 em modo de compatibilidade MySQL e
+ * correspondem às definições do verbax.sql.
+ */
+final class MigracaoEsquema {
+
+    private MigracaoEsquema() {
+    }
+
+    /**
+     * Aplica os passos em falta.
+     *
+     * @param conn Uma ligação à base de dados.
+     * @throws SQLException Se algum passo falhar (por exemplo, por falta de permissões para ALTER TABLE).
+     */
+    static void aplicar(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Versão de cada livro, para a sincronização por alterações entre postos.
+            if (!existeColuna(conn, "livro", "atualizado_em")) {
+                stmt.execute("ALTER TABLE livro ADD COLUMN atualizado_em TIMESTAMP(3) NOT NULL "
+                        + "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)");
+                stmt.execute("CREATE INDEX idx_livro_atualizado_em ON livro (atualizado_em)");
+                System.out.println("Esquema atualizado: coluna livro.atualizado_em criada.");
+            }
+            // Registo dos livros excluídos, lido pelos outros postos.
+            if (!existeTabela(conn, "livro_removido")) {
+                stmt.execute("CREATE TABLE livro_removido ("
+                        + "id INT NOT NULL, "
+                        + "removido_em TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), "
+                        + "KEY idx_livro_removido_em (removido_em))");
+                System.out.println("Esquema atualizado: tabela livro_removido criada.");
+            }
+            // Chave única do ISBN, que impede ISBNs repetidos mesmo entre postos ou threads da importação.
+            // Só é criada se não houver ISBNs repetidos; os dados nunca são alterados aqui.
+            if (!existeChaveUnica(conn, "livro", "isbn")) {
+                if (reportarIsbnsRepetidos(conn) == 0) {
+                    stmt.execute("CREATE UNIQUE INDEX uk_livro_isbn ON livro (isbn)");
+                    System.out.println("Esquema atualizado: chave única uk_livro_isbn criada.");
+                } else {
+                    System.err.println("Esquema não atualizado: a chave única uk_livro_isbn não foi criada porque há "
+                            + "ISBNs repetidos. Corrija os livros indicados e reinicie a aplicação.");
+                }
+            }
+            // Índices da ordenação e dos filtros da tabela de livros (ver dao.ConsultaLivros).
+            criarIndiceSeNecessario(conn, stmt, "livro", "idx_livro_titulo", "titulo");
+            criarIndiceSeNecessario(conn, stmt, "livro", "idx_livro_ano_publicacao", "ano_publicacao");
+            criarIndiceSeNecessario(conn, stmt, "autor", "idx_autor_nome", "nome");
+            criarIndiceSeNecessario(conn, stmt, "tema", "idx_tema_nome", "nome");
+            criarIndiceSeNecessario(conn, stmt, "editora", "idx_editora_nome", "nome");
+            criarIndiceSeNecessario(conn, stmt, "localizacao", "idx_localizacao_setor", "setor, prateleira");
+        }
+    }
+
+    /**
+     * Indica se a base de dados tem a coluna livro.atualizado_em e a tabela livro_removido, usadas pela
+     * sincronização entre postos (podem faltar se a atualização falhou por falta de permissões).
+     *
+     * @param conn Uma ligação à base de dados.
+     * @return true se ambas existirem.
+     * @throws SQLException Se a consulta aos metadados falhar.
+     */
+    static boolean suportaSincronizacao(Connection conn) throws SQLException {
+        return existeColuna(conn, "livro", "atualizado_em") && existeTabela(conn, "livro_removido");
+    }
+
+    /**
+     * Procura livros com o mesmo ISBN, comparando a forma canónica de {@link Isbn#normalizar(String)} (por
+     * exemplo "972-0-04645-7" e "9789720046457") ou, se o ISBN for inválido, o texto sem espaços nas pontas.
+     * Cada grupo é indicado na consola para revisão; a base de dados só é lida.
+     *
+     * @return O número de ISBNs usados por mais de um livro.
+     */
+    private static int reportarIsbnsRepetidos(Connection conn) throws SQLException {
+        // ISBN (canónico, ou o texto original se for inválido) → ids dos livros que o usam, por ordem.
+        Map<String, List<Integer>> livrosPorIsbn = new LinkedHashMap<>();
+        try (Statement consulta = conn.createStatement();
+             ResultSet rs = consulta.executeQuery("SELECT id, isbn FROM livro WHERE isbn IS NOT NULL ORDER BY id")) {
+            while (rs.next()) {
+                String original = rs.getString(2);
+                String canonico = Isbn.normalizar(original);
+                String chave = canonico != null ? canonico : original.trim();
+                livrosPorIsbn.computeIfAbsent(chave, k -> new ArrayList<>()).add(rs.getInt(1));
+            }
+        }
+        int repetidos = 0;
+        for (Map.Entry<String, List<Integer>> entrada : livrosPorIsbn.entrySet()) {
+            if (entrada.getValue().size() > 1) {
+                String isbn = entrada.getKey().isEmpty() ? "vazio" : entrada.getKey();
+                System.err.println("ISBN " + isbn + " usado pelos livros " + entrada.getValue() + ".");
+                repetidos++;
+            }
+        }
+        return repetidos;
+    }
+
+    // Método que cria o índice indicado, se a tabela ainda não tiver um índice com esse nome.
+    private static void criarIndiceSeNecessario(Connection conn, Statement stmt, String tabela, String indice,
+                                                String colunas) throws SQLException {
+        if (existeIndice(conn, tabela, indice)) {
+            return;
+        }
+        stmt.execute("CREATE INDEX " + indice + " ON " + tabela + " (" + colunas + ")");
+        System.out.println("Esquema atualizado: índice " + indice + " criado.");
+    }
+
+    // Método que verifica se a tabela tem um índice único só sobre a coluna indicada, qualquer que seja o nome
+    // (o H2 dá nomes próprios às chaves declaradas no CREATE TABLE).
+    private static boolean existeChaveUnica(Connection conn, String tabela, String coluna) throws SQLException {
+        DatabaseMetaData metadados = conn.getMetaData();
+        // Nome de cada índice único → as suas colunas.
+        Map<String, List<String>> colunasPorIndice = new HashMap<>();
+        try (ResultSet rs = metadados.getIndexInfo(conn.getCatalog(), null, tabela, true, true)) {
+            while (rs.next()) {
+                String indice = rs.getString("INDEX_NAME");
+                String nomeColuna = rs.getString("COLUMN_NAME");
+                if (indice != null && nomeColuna != null) {
+                    colunasPorIndice.computeIfAbsent(indice, k -> new ArrayList<>()).add(nomeColuna);
+                }
+            }
+        }
+        for (List<String> colunas : colunasPorIndice.values()) {
+            if (colunas.size() == 1 && coluna.equalsIgnoreCase(colunas.get(0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Método que verifica se a tabela indicada já existe na base de dados da ligação.
+    private static boolean existeTabela(Connection conn, String tabela) throws SQLException {
+        DatabaseMetaData metadados = conn.getMetaData();
+        try (ResultSet rs = metadados.getTables(conn.getCatalog(), null, tabela, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    // Método que verifica se a tabela indicada já tem um índice com o nome indicado.
+    private static boolean existeIndice(Connection conn, String tabela, String indice) throws SQLException {
+        DatabaseMetaData metadados = conn.getMetaData();
+        try (ResultSet rs = metadados.getIndexInfo(conn.getCatalog(), null, tabela, false, true)) {
+            while (rs.next()) {
+                if (indice.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Método que verifica se a tabela indicada já tem a coluna.
+    private static boolean existeColuna(Connection conn, String tabela, String coluna) throws SQLException {
+        DatabaseMetaData metadados = conn.getMetaData();
+        try (ResultSet rs = metadados.getColumns(conn.getCatalog(), null, tabela, coluna)) {
+            return rs.next();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+// Classe utilitária para normalizar texto em português antes de o comparar ou indexar.
+package util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public final class Texto {
+
+    // Marcas diacríticas que ficam separadas das letras após a decomposição NFD (acentos, cedilha, til).
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    // Separadores entre palavras: tudo o que não for letra ou dígito.
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private Texto() {
+    }
+
+    /**
+     * Remove acentos e converte para minúsculas, de modo que "Saramago", "SARAMAGO" e "Sàramago"
+     * fiquem iguais, tal como "Coração" e "coracao".
+     *
+     * @param texto O texto original (pode ser null).
+     * @return O texto normalizado, ou uma string vazia se o texto for null.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return "";
+        }
+        String decomposto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        return DIACRITICOS.matcher(decomposto).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Divide o texto em palavras normalizadas.
+     *
+     * @param texto O texto original (pode ser null).
+     * @return A lista de palavras, sem acentos e em minúsculas, pela ordem em que aparecem.
+     */
+    public static List<String> palavras(String texto) {
+        List<String> palavras = new ArrayList<>();
+        for (String palavra : SEPARADORES.split(normalizar(texto))) {
+            if (!palavra.isEmpty()) {
+                palavras.add(palavra);
+            }
+        }
+        return palavras;
+    }
+
+    /**
+     * Constrói o padrão de um LIKE que procura o texto em qualquer posição, em minúsculas e com os
+     * caracteres especiais do LIKE (%, _ e \\) escapados, para ser comparado com LOWER(coluna).
+     *
+     * @param texto O texto a procurar.
+     * @return O padrão, por exemplo "%saramago%".
+     */
+    public static String padraoContem(String texto) {
+        String escapado = texto.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escapado + "%";
+    }
+}
@@ -26,7 +26,8 @@ CREATE TABLE `autor` (
   `id` int NOT NULL AUTO_INCREMENT,
   `nome` varchar(100) NOT NULL,
   `nacionalidade` varchar(50) DEFAULT NULL,
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `idx_autor_nome` (`nome`)
 ) ENGINE=InnoDB AUTO_INCREMENT=5 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -51,7 +52,8 @@ CREATE TABLE `editora` (
   `id` int NOT NULL AUTO_INCREMENT,
   `nome` varchar(100) NOT NULL,
   `cidade` varchar(100) DEFAULT NULL,
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `idx_editora_nome` (`nome`)
 ) ENGINE=InnoDB AUTO_INCREMENT=3 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -81,7 +83,12 @@ CREATE TABLE `livro` (
   `id_tema` int NOT NULL,
   `id_editora` int NOT NULL,
   `id_localizacao` int NOT NULL,
+  `atualizado_em` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
   PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_livro_isbn` (`isbn`),
+  KEY `idx_livro_atualizado_em` (`atualizado_em`),
+  KEY `idx_livro_titulo` (`titulo`),
+  KEY `idx_livro_ano_publicacao` (`ano_publicacao`),
   KEY `id_autor` (`id_autor`),
   KEY `id_tema` (`id_tema`),
   KEY `id_editora` (`id_editora`),
@@ -102,6 +109,20 @@ LOCK TABLES `livro` WRITE;
 /*!40000 ALTER TABLE `livro` ENABLE KEYS */;
 UNLOCK TABLES;
 
+--
+-- Table structure for table `livro_removido`
+--
+
+DROP TABLE IF EXISTS `livro_removido`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `livro_removido` (
+  `id` int NOT NULL,
+  `removido_em` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  KEY `idx_livro_removido_em` (`removido_em`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `localizacao`
 --
@@ -113,7 +134,8 @@ CREATE TABLE `localizacao` (
   `id` int NOT NULL AUTO_INCREMENT,
   `setor` varchar(50) NOT NULL,
   `prateleira` varchar(20) DEFAULT NULL,
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `idx_localizacao_setor` (`setor`,`prateleira`)
 ) ENGINE=InnoDB AUTO_INCREMENT=5 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -137,7 +159,8 @@ DROP TABLE IF EXISTS `tema`;
 CREATE TABLE `tema` (
   `id` int NOT NULL AUTO_INCREMENT,
   `nome` varchar(100) NOT NULL,
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `idx_tema_nome` (`nome`)
 ) ENGINE=InnoDB AUTO_INCREMENT=5 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 